@@ -0,0 +1,104 @@
+package io.github.CodeerStudio.simpleBanking.benchmark;
+
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the player-facing bank operations end to end through {@code BankManagerHandler}:
+ * the Vault wallet check, the account cache, the ledger and the database threads.
+ *
+ * Every combination of storage backend, cache mode and account count gets its own seeded storage.
+ * Each operation waits for its future, so the score is the latency a player would see.
+ * {@link ContendedBankBenchmark} runs the same operations from many threads at once.
+ *
+ * Run with {@code ./gradlew jmh}, or narrow the parameters, for example
+ * {@code ./gradlew jmh -Pjmh.includes=BankBenchmark.deposit}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(1)
+public class BankBenchmark {
+
+    private static final long AMOUNT = 1_00;
+
+    @Param({"FILE", "MEMORY", "FLAT_FILE"})
+    public BankEngine.Storage storage;
+
+    @Param({"true", "false"})
+    public boolean writeBehind;
+
+    @Param({"10000", "100000", "1000000"})
+    public int accounts;
+
+    private BankEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = new BankEngine(storage, writeBehind, accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        engine.close();
+    }
+
+    /**
+     * Picks a random seeded player for each call, independently per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        Player next(BankBenchmark benchmark) {
+            Player[] players = benchmark.engine.players;
+            return players[random.nextInt(players.length)];
+        }
+    }
+
+    @Benchmark
+    public boolean deposit(Picker picker) {
+        return engine.handler.depositMoney(picker.next(this), AMOUNT).join();
+    }
+
+    @Benchmark
+    public boolean withdraw(Picker picker) {
+        return engine.handler.handleWithdraw(picker.next(this), AMOUNT).join();
+    }
+
+    @Benchmark
+    public Long balanceLookup(Picker picker) {
+        return engine.accountCache.getBalance(picker.next(this).getUniqueId()).join();
+    }
+
+    @Benchmark
+    public Void showBalance(Picker picker) {
+        return engine.handler.showBankInformation(picker.next(this)).join();
+    }
+
+    @Benchmark
+    public boolean setBalance(Picker picker) {
+        Player player = picker.next(this);
+        return engine.handler.setBalance(player, player, BankEngine.STARTING_BALANCE).join();
+    }
+}
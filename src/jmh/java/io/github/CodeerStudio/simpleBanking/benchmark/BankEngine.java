@@ -0,0 +1,145 @@
+package io.github.CodeerStudio.simpleBanking.benchmark;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.handlers.BankManagerHandler;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import io.github.CodeerStudio.simpleBanking.storage.SQLiteDatabase;
+import io.github.CodeerStudio.simpleBanking.storage.SQLiteStorage;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * A fully wired banking engine running headless against seeded storage: the same storage,
+ * executor, ledger, account cache and handler that onEnable sets up, with stub players.
+ */
+final class BankEngine implements AutoCloseable {
+
+    /**
+     * Which storage backend to use, and where it lives.
+     */
+    enum Storage {
+        // SQLite in a database file
+        FILE,
+        // SQLite in memory
+        MEMORY,
+        // Flat files
+        FLAT_FILE
+    }
+
+    // Every seeded account starts with this many cents, enough that withdrawals never run dry
+    static final long STARTING_BALANCE = 1_000_000_000_00L;
+
+    private static final int SEED_BATCH = 10_000;
+    private static final int READ_CONNECTIONS = 4;
+    private static final long MMAP_SIZE = 268435456;
+    private static final long OFFLINE_BYTES = 8L << 20;
+
+    final SimpleBanking plugin;
+    final BankStorage storage;
+    final DatabaseExecutor databaseExecutor;
+    final TransactionLedger ledger;
+    final AccountCache accountCache;
+    final BankManagerHandler handler;
+    final Player[] players;
+
+    private final Path directory;
+
+    /**
+     * Creates the engine, seeds the accounts and loads them all into the cache.
+     *
+     * @param backend     Which storage backend to use, and where it lives.
+     * @param writeBehind {@code true} for write-behind caching, {@code false} for write-through.
+     * @param accounts    The number of accounts to seed.
+     * @throws SQLException If the storage could not be set up.
+     * @throws IOException  If the temporary storage directory could not be created.
+     */
+    BankEngine(Storage backend, boolean writeBehind, int accounts) throws SQLException, IOException {
+        if (backend == Storage.MEMORY) {
+            directory = null;
+            storage = new SQLiteStorage(SQLiteDatabase.inMemory("bench-" + UUID.randomUUID(), READ_CONNECTIONS));
+        } else {
+            directory = Files.createTempDirectory("simplebanking-bench");
+            storage = backend == Storage.FILE
+                    ? new SQLiteStorage(new SQLiteDatabase(new File(directory.toFile(), "bank.db"), READ_CONNECTIONS, MMAP_SIZE))
+                    : new FlatFileStorage(directory.toFile(), READ_CONNECTIONS);
+        }
+
+        plugin = Stubs.plugin();
+        storage.open(plugin.getLogger());
+
+        players = new Player[accounts];
+        for (int i = 0; i < accounts; i++) {
+            players[i] = Stubs.player(UUID.randomUUID(), "Player" + i);
+        }
+        seed();
+
+        Stubs.setField(SimpleBanking.class, plugin, "metrics", new BankMetrics(plugin));
+        Stubs.setField(SimpleBanking.class, plugin, "storage", storage);
+        databaseExecutor = new DatabaseExecutor(plugin, storage.getReadThreads());
+        ledger = new TransactionLedger(plugin, databaseExecutor);
+        ledger.recover(plugin.getLogger());
+        ledger.start(50);
+        accountCache = new AccountCache(plugin, databaseExecutor, ledger, writeBehind, 64, OFFLINE_BYTES);
+        accountCache.start(5);
+
+        Stubs.setField(SimpleBanking.class, plugin, "databaseExecutor", databaseExecutor);
+        Stubs.setField(SimpleBanking.class, plugin, "ledger", ledger);
+        Stubs.setField(SimpleBanking.class, plugin, "accountCache", accountCache);
+        handler = new BankManagerHandler(plugin);
+        Stubs.setField(SimpleBanking.class, plugin, "bankManagerHandler", handler);
+        Stubs.installEconomy();
+
+        // Measure the steady state of an active server, with every player logged in
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[accounts];
+        for (int i = 0; i < accounts; i++) {
+            loads[i] = accountCache.preload(players[i].getUniqueId());
+        }
+        CompletableFuture.allOf(loads).join();
+    }
+
+    private void seed() throws SQLException {
+        List<AccountRecord> batch = new ArrayList<>(SEED_BATCH);
+        for (Player player : players) {
+            batch.add(new AccountRecord(player.getUniqueId(), STARTING_BALANCE, null));
+            if (batch.size() == SEED_BATCH) {
+                storage.saveAccounts(batch, 0);
+                batch.clear();
+            }
+        }
+        storage.saveAccounts(batch, 0);
+    }
+
+    /**
+     * Flushes and stops everything, then deletes the storage.
+     */
+    @Override
+    public void close() throws SQLException, IOException {
+        accountCache.stop().join();
+        ledger.stop().join();
+        databaseExecutor.shutdown(30);
+        storage.close();
+
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+}
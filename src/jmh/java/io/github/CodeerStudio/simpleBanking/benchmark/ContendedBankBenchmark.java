@@ -0,0 +1,11 @@
+package io.github.CodeerStudio.simpleBanking.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs every {@link BankBenchmark} operation from 16 threads at once, so account lock stripes,
+ * the database thread and the reader pool are all contended.
+ */
+@Threads(16)
+public class ContendedBankBenchmark extends BankBenchmark {
+}
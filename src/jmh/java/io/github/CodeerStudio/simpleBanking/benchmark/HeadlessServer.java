@@ -0,0 +1,227 @@
+package io.github.CodeerStudio.simpleBanking.benchmark;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.metrics.LatencyHistogram;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A stand-in server with a real main thread, so the plugin hops onto it exactly as it would on a
+ * live server. Every task run on the main thread is timed, which shows how much of the tick budget
+ * the bank takes.
+ *
+ * Installing the server marks the plugin as enabled and makes it the {@link Bukkit} server.
+ * Scheduler ticks are 50 milliseconds, and listeners are not registered anywhere: callers invoke
+ * the handlers they want to drive themselves.
+ */
+final class HeadlessServer implements AutoCloseable {
+
+    private static final long TICK_MILLIS = 50;
+
+    private final ScheduledExecutorService mainThread;
+    private final ExecutorService asyncPool;
+    private final Thread serverThread;
+    private final Map<UUID, Player> onlinePlayers = new ConcurrentHashMap<>();
+    private final Map<String, Player> playersByName = new ConcurrentHashMap<>();
+    private final AtomicInteger taskIds = new AtomicInteger();
+
+    private final LatencyHistogram taskTimes = new LatencyHistogram();
+    private final LongAdder busyNanos = new LongAdder();
+    private final long startedAt = System.nanoTime();
+
+    final Server server;
+
+    /**
+     * Starts the main thread and installs the server for a plugin.
+     *
+     * @param plugin The plugin, which is marked as enabled.
+     */
+    HeadlessServer(SimpleBanking plugin) {
+        Thread[] thread = new Thread[1];
+        mainThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            thread[0] = new Thread(runnable, "Server thread");
+            thread[0].setDaemon(true);
+            return thread[0];
+        });
+        // Start the thread now, so it can be recognised from the first task on
+        CompletableFuture.runAsync(() -> { }, mainThread).join();
+        serverThread = thread[0];
+        asyncPool = Executors.newCachedThreadPool(runnable -> {
+            Thread worker = new Thread(runnable, "Craft Scheduler Thread");
+            worker.setDaemon(true);
+            return worker;
+        });
+
+        BukkitScheduler scheduler = proxy(BukkitScheduler.class, (method, args) -> switch (method) {
+            case "runTask" -> task(mainThread.submit(timed((Runnable) args[1])));
+            case "runTaskLater" -> task(mainThread.schedule(timed((Runnable) args[1]), ticks(args[2]), TimeUnit.MILLISECONDS));
+            case "runTaskTimer" -> task(mainThread.scheduleAtFixedRate(timed((Runnable) args[1]),
+                    ticks(args[2]), Math.max(TICK_MILLIS, ticks(args[3])), TimeUnit.MILLISECONDS));
+            case "runTaskAsynchronously" -> task(asyncPool.submit((Runnable) args[1]));
+            case "runTaskTimerAsynchronously" -> task(mainThread.scheduleAtFixedRate(() -> asyncPool.execute((Runnable) args[1]),
+                    ticks(args[2]), Math.max(TICK_MILLIS, ticks(args[3])), TimeUnit.MILLISECONDS));
+            default -> null;
+        });
+        PluginManager pluginManager = proxy(PluginManager.class, (method, args) -> null);
+        server = proxy(Server.class, (method, args) -> switch (method) {
+            case "getScheduler" -> scheduler;
+            case "getPluginManager" -> pluginManager;
+            case "isPrimaryThread" -> Thread.currentThread() == serverThread;
+            case "getOnlinePlayers" -> onlinePlayers();
+            case "getPlayer", "getPlayerExact" -> args[0] instanceof UUID uuid ? onlinePlayers.get(uuid)
+                    : playersByName.get(((String) args[0]).toLowerCase(Locale.ROOT));
+            case "getLogger" -> plugin.getLogger();
+            case "getName" -> "HeadlessServer";
+            default -> null;
+        });
+
+        Stubs.setField(Bukkit.class, null, "server", server);
+        Stubs.setField(JavaPlugin.class, plugin, "server", server);
+        Stubs.setField(JavaPlugin.class, plugin, "isEnabled", true);
+    }
+
+    /**
+     * Marks a player as online.
+     *
+     * @param player The player.
+     */
+    void join(Player player) {
+        onlinePlayers.put(player.getUniqueId(), player);
+        playersByName.put(player.getName().toLowerCase(Locale.ROOT), player);
+    }
+
+    /**
+     * Runs a task on the main thread, like an event fired by the server.
+     *
+     * @param task The task.
+     * @param <T>  The type of the task's result.
+     * @return A future completed with the task's result once it has run.
+     */
+    <T> CompletableFuture<T> supply(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mainThread.execute(timed(() -> {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Waits until every task queued on the main thread so far has run.
+     */
+    void drain() {
+        supply(() -> null).join();
+    }
+
+    /**
+     * Gets the run times of the tasks the main thread ran.
+     *
+     * @return The task time histogram.
+     */
+    LatencyHistogram getTaskTimes() {
+        return taskTimes;
+    }
+
+    /**
+     * Gets the share of time since the server started that the main thread spent running tasks.
+     *
+     * @return The busy share, between 0 and 1.
+     */
+    double getUtilization() {
+        return busyNanos.sum() / (double) Math.max(1, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Gets the time the main thread spent running tasks.
+     *
+     * @return The busy time in nanoseconds.
+     */
+    long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    @Override
+    public void close() {
+        mainThread.shutdownNow();
+        asyncPool.shutdownNow();
+    }
+
+    private Runnable timed(Runnable task) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                busyNanos.add(elapsed);
+                taskTimes.record(elapsed, false);
+            }
+        };
+    }
+
+    private Collection<Player> onlinePlayers() {
+        return List.copyOf(onlinePlayers.values());
+    }
+
+    private BukkitTask task(Future<?> future) {
+        int id = taskIds.incrementAndGet();
+        return proxy(BukkitTask.class, (method, args) -> switch (method) {
+            case "cancel" -> {
+                future.cancel(false);
+                yield null;
+            }
+            case "isCancelled" -> future.isCancelled();
+            case "getTaskId" -> id;
+            default -> null;
+        });
+    }
+
+    private static long ticks(Object ticks) {
+        return ((Number) ticks).longValue() * TICK_MILLIS;
+    }
+
+    /**
+     * Implements an interface by method name, answering {@code Object} methods by identity.
+     */
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> type.getSimpleName();
+                    default -> {
+                        Object result = handler.invoke(method.getName(), args);
+                        yield result != null ? result : Stubs.defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+}
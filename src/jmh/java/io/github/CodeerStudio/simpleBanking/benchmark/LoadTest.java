@@ -0,0 +1,510 @@
+package io.github.CodeerStudio.simpleBanking.benchmark;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.commands.BankMenu;
+import io.github.CodeerStudio.simpleBanking.gui.BankMenuGUI;
+import io.github.CodeerStudio.simpleBanking.handlers.AmountPromptHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.ThrottleHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.VaultAPIHandler;
+import io.github.CodeerStudio.simpleBanking.metrics.LatencyHistogram;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.throttle.RequestLimiter;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.ChatColor;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates thousands of players using the bank at once on a {@link HeadlessServer}: they click
+ * through the bank menu, type amounts in chat, pay one shop owner with {@code /bank pay} and get
+ * adjusted by admins, each waiting for the reply to one action before thinking about the next.
+ *
+ * At the end, the run reports throughput and latency per action and how busy the main thread
+ * was, then checks that no money was created or lost: wallets and banks together must hold what
+ * they started with plus the admin adjustments, and the cache, the storage and the ledger must
+ * agree. The exit code is 1 if any check fails.
+ *
+ * Run with {@code ./gradlew loadTest --args="--players 5000 --seconds 60"}. The options are
+ * {@code --players}, {@code --seconds}, {@code --think-millis}, {@code --storage} (FILE, MEMORY
+ * or FLAT_FILE), {@code --write-behind}, {@code --threads}, {@code --requests-per-second} and
+ * {@code --burst}.
+ */
+public final class LoadTest {
+
+    // Every wallet starts with this many cents
+    private static final long STARTING_WALLET = 1_000_000_00L;
+    // Amounts moved by a single action are up to this many cents
+    private static final long MAX_AMOUNT = 1_000_00L;
+    // Replies slower than this count as errors
+    private static final long REPLY_TIMEOUT_MILLIS = 10_000;
+    private static final int PAGE_SIZE = 5_000;
+
+    private final Options options;
+    private final BankEngine engine;
+    private final HeadlessServer server;
+    private final BankMenu menu;
+    private final AmountPromptHandler prompts;
+    private final ThrottleHandler throttle;
+    private final Player admin = Stubs.player(UUID.randomUUID(), "LoadTestAdmin");
+    private final ScheduledExecutorService drivers;
+
+    private final Map<UUID, AtomicLong> wallets = new ConcurrentHashMap<>();
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+    // The player everyone pays, who doesn't act themselves
+    private final SimulatedPlayer shop;
+    private final Map<Action, Stats> stats = new EnumMap<>(Action.class);
+    private final AtomicLong adminNet = new AtomicLong();
+    private volatile boolean running = true;
+
+    private LoadTest(Options options) throws Exception {
+        this.options = options;
+        engine = new BankEngine(options.storage, options.writeBehind, options.players);
+        server = new HeadlessServer(engine.plugin);
+        drivers = Executors.newScheduledThreadPool(options.threads, runnable -> {
+            Thread thread = new Thread(runnable, "LoadTest Driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Action action : Action.values()) {
+            stats.put(action, new Stats());
+        }
+
+        SimpleBanking plugin = engine.plugin;
+        throttle = new ThrottleHandler(plugin,
+                new RequestLimiter(options.requestsPerSecond, options.burst),
+                new RequestLimiter(0, 0));
+        Stubs.setField(SimpleBanking.class, plugin, "throttleHandler", throttle);
+        prompts = new AmountPromptHandler(plugin, 30);
+        Stubs.setField(SimpleBanking.class, plugin, "amountPromptHandler", prompts);
+        menu = new BankMenu(plugin);
+        installWallets();
+
+        for (Player seeded : engine.players) {
+            SimulatedPlayer player = new SimulatedPlayer(seeded.getUniqueId(), seeded.getName());
+            players.add(player);
+            wallets.put(player.uuid, new AtomicLong(STARTING_WALLET));
+            server.join(player.player);
+        }
+        shop = players.get(0);
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args The options, see the class documentation.
+     * @throws Exception If the engine could not be set up or torn down.
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadTest test = new LoadTest(options);
+        boolean passed;
+        try {
+            passed = test.run();
+        } finally {
+            test.close();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        long initialTotal = totalMoney();
+        long initialBanks = totalCached();
+        System.out.printf(Locale.ROOT, "Simulating %d players for %d seconds on %s storage (%s)%n",
+                options.players, options.seconds, options.storage,
+                options.writeBehind ? "write-behind" : "write-through");
+
+        // Start everyone at a random point of their first think time, not all at once
+        CountDownLatch stopped = new CountDownLatch(players.size() - 1);
+        long start = System.nanoTime();
+        long busyBefore = server.getBusyNanos();
+        for (SimulatedPlayer player : players) {
+            if (player == shop) {
+                continue;
+            }
+            drivers.schedule(() -> loop(player, stopped), think(), TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.seconds));
+        running = false;
+        boolean settled = stopped.await(REPLY_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        double busyShare = (server.getBusyNanos() - busyBefore) / 1e9 / elapsedSeconds;
+
+        // Let replies queued on the main thread run, then write everything down
+        server.drain();
+        engine.databaseExecutor.run(engine.accountCache::flush).join();
+
+        report(elapsedSeconds, busyShare);
+        return verify(settled, initialTotal, initialBanks);
+    }
+
+    private void loop(SimulatedPlayer player, CountDownLatch stopped) {
+        if (!running) {
+            stopped.countDown();
+            return;
+        }
+
+        Action action = Action.pick();
+        long start = System.nanoTime();
+        perform(player, action)
+                .orTimeout(REPLY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .whenComplete((outcome, error) -> {
+                    player.reply = null;
+                    stats.get(action).record(start, error != null ? Outcome.FAILED : outcome);
+                    drivers.schedule(() -> loop(player, stopped), think(), TimeUnit.MILLISECONDS);
+                });
+    }
+
+    private CompletableFuture<Outcome> perform(SimulatedPlayer player, Action action) {
+        long amount = ThreadLocalRandom.current().nextLong(1, MAX_AMOUNT + 1);
+        return switch (action) {
+            case INFO -> click(player, BankMenuGUI.INFORMATION_SLOT, true)
+                    .thenCompose(outcome -> outcome != Outcome.OK ? done(outcome) : awaitReply(player, ChatColor.GOLD));
+            case DEPOSIT -> click(player, BankMenuGUI.DEPOSIT_SLOT, false)
+                    .thenCompose(outcome -> outcome != Outcome.OK ? done(outcome) : chat(player, amount));
+            case WITHDRAW -> click(player, BankMenuGUI.WITHDRAW_SLOT, false)
+                    .thenCompose(outcome -> outcome != Outcome.OK ? done(outcome) : chat(player, amount));
+            case PAY -> command(player, "pay", shop.player.getName(), Money.format(amount))
+                    .thenCompose(outcome -> outcome != Outcome.OK ? done(outcome) : awaitReply(player, ChatColor.GREEN));
+            case ADMIN_GIVE -> engine.handler.giveBalance(admin, player.player, amount).thenApply(given -> {
+                if (given) {
+                    adminNet.addAndGet(amount);
+                }
+                return given ? Outcome.OK : Outcome.FAILED;
+            });
+            case ADMIN_TAKE -> engine.handler.takeBalance(admin, player.player, amount).thenApply(taken -> {
+                if (taken) {
+                    adminNet.addAndGet(-amount);
+                }
+                return taken ? Outcome.OK : Outcome.FAILED;
+            });
+        };
+    }
+
+    /**
+     * Clicks a slot of the bank menu on the main thread.
+     *
+     * @param expectReply {@code true} to catch the reply the click sends right away.
+     * @return A future completed with {@link Outcome#THROTTLED} if the click was over the limit.
+     */
+    private CompletableFuture<Outcome> click(SimulatedPlayer player, int slot, boolean expectReply) {
+        return server.supply(() -> {
+            if (expectReply) {
+                player.reply = new CompletableFuture<>();
+            }
+            // Clicks are only throttled on the main thread, so nothing else changes the count meanwhile
+            long rejected = throttle.getRejectedRequests();
+            menu.onMenuClick(player.player, slot);
+            return throttle.getRejectedRequests() == rejected ? Outcome.OK : Outcome.THROTTLED;
+        });
+    }
+
+    /**
+     * Runs a {@code /bank} command on the main thread, catching the reply it sends.
+     *
+     * @return A future completed with {@link Outcome#THROTTLED} if the command was over the limit.
+     */
+    private CompletableFuture<Outcome> command(SimulatedPlayer player, String... args) {
+        return server.supply(() -> {
+            player.reply = new CompletableFuture<>();
+            long rejected = throttle.getRejectedRequests();
+            menu.onCommand(player.player, null, "bank", args);
+            return throttle.getRejectedRequests() == rejected ? Outcome.OK : Outcome.THROTTLED;
+        });
+    }
+
+    /**
+     * Types an amount in chat from a driver thread, as chat events are fired asynchronously.
+     */
+    private CompletableFuture<Outcome> chat(SimulatedPlayer player, long amount) {
+        player.reply = new CompletableFuture<>();
+        AsyncPlayerChatEvent event = new AsyncPlayerChatEvent(true, player.player, Money.format(amount), Set.of());
+        prompts.onPlayerChat(event);
+        return awaitReply(player, ChatColor.GREEN);
+    }
+
+    private static CompletableFuture<Outcome> awaitReply(SimulatedPlayer player, ChatColor success) {
+        CompletableFuture<String> reply = player.reply;
+        if (reply == null) {
+            return done(Outcome.FAILED);
+        }
+        return reply.thenApply(message -> message.startsWith(success.toString()) ? Outcome.OK : Outcome.FAILED);
+    }
+
+    private static CompletableFuture<Outcome> done(Outcome outcome) {
+        return CompletableFuture.completedFuture(outcome);
+    }
+
+    private long think() {
+        return ThreadLocalRandom.current().nextLong(options.thinkMillis + 1);
+    }
+
+    private void report(double elapsedSeconds, double busyShare) {
+        System.out.printf(Locale.ROOT, "%n%-12s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "action", "count", "per sec", "errors", "throttled", "p50", "p99", "p99.9", "max");
+        long total = 0;
+        for (Map.Entry<Action, Stats> entry : stats.entrySet()) {
+            Stats action = entry.getValue();
+            LatencyHistogram.Snapshot snapshot = action.latency.snapshot();
+            total += snapshot.count();
+            System.out.printf(Locale.ROOT, "%-12s %9d %9.1f %9d %9d %9s %9s %9s %9s%n",
+                    entry.getKey().name().toLowerCase(Locale.ROOT), snapshot.count(), snapshot.count() / elapsedSeconds,
+                    snapshot.errors(), action.throttled.sum(), millis(snapshot.p50Nanos()), millis(snapshot.p99Nanos()),
+                    millis(snapshot.p999Nanos()), millis(snapshot.maxNanos()));
+        }
+        System.out.printf(Locale.ROOT, "Total: %d actions, %.1f per second%n", total, total / elapsedSeconds);
+
+        LatencyHistogram.Snapshot tasks = server.getTaskTimes().snapshot();
+        System.out.printf(Locale.ROOT, "Main thread: %.2f%% busy, %d tasks, p50 %s, p99 %s, p99.9 %s, max %s%n%n",
+                busyShare * 100, tasks.count(), millis(tasks.p50Nanos()), millis(tasks.p99Nanos()),
+                millis(tasks.p999Nanos()), millis(tasks.maxNanos()));
+
+        engine.plugin.getMetrics().report().forEach(System.out::println);
+    }
+
+    private boolean verify(boolean settled, long initialTotal, long initialBanks) throws Exception {
+        System.out.println();
+        boolean passed = check(settled, "every player finished their last action");
+        passed &= check(prompts.getPendingCount() == 0, "no chat prompts were left open");
+
+        long banks = totalCached();
+        long expected = initialTotal + adminNet.get();
+        passed &= check(totalWallets() + banks == expected, "wallets and banks hold "
+                + Money.format(totalWallets() + banks) + ", expected " + Money.format(expected));
+        passed &= check(wallets.values().stream().allMatch(wallet -> wallet.get() >= 0), "no wallet is negative");
+        passed &= check(players.stream().allMatch(player -> balance(player.uuid) >= 0), "no bank balance is negative");
+
+        long stored = totalStored();
+        passed &= check(stored == banks, "the storage holds " + Money.format(stored)
+                + ", the cache " + Money.format(banks));
+        long ledger = totalLedger();
+        passed &= check(ledger == banks - initialBanks, "the ledger records a change of " + Money.format(ledger)
+                + ", the banks changed by " + Money.format(banks - initialBanks));
+        return passed;
+    }
+
+    private static boolean check(boolean condition, String description) {
+        System.out.println((condition ? "PASS " : "FAIL ") + description);
+        return condition;
+    }
+
+    private long totalMoney() {
+        return totalWallets() + totalCached();
+    }
+
+    private long totalWallets() {
+        return wallets.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    private long totalCached() {
+        return players.stream().mapToLong(player -> balance(player.uuid)).sum();
+    }
+
+    private long balance(UUID uuid) {
+        Long balance = engine.accountCache.peekBalance(uuid);
+        return balance != null ? balance : engine.accountCache.getBalance(uuid).join();
+    }
+
+    private long totalStored() {
+        BankStorage storage = engine.storage;
+        long total = 0;
+        UUID after = null;
+        List<AccountRecord> page;
+        do {
+            UUID from = after;
+            page = engine.databaseExecutor.read(() -> storage.readAccounts(from, PAGE_SIZE)).join();
+            for (AccountRecord account : page) {
+                total += account.balance();
+                after = account.uuid();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return total;
+    }
+
+    private long totalLedger() {
+        BankStorage storage = engine.storage;
+        long total = 0;
+        long afterId = 0;
+        List<BankStorage.LedgerRow> page;
+        do {
+            long from = afterId;
+            page = engine.databaseExecutor.read(() -> storage.readLedger(from, PAGE_SIZE)).join();
+            for (BankStorage.LedgerRow row : page) {
+                total += row.entry().amount();
+                afterId = row.id();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return total;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+    }
+
+    /**
+     * Installs a Vault economy that keeps a real wallet per player, so conservation can be checked.
+     */
+    private void installWallets() {
+        Economy economy = (Economy) Proxy.newProxyInstance(Economy.class.getClassLoader(), new Class<?>[]{Economy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "has" -> wallet(args[0]).get() >= Money.fromDouble((Double) args[1]);
+                    case "withdrawPlayer" -> {
+                        long amount = Money.fromDouble((Double) args[1]);
+                        long balance = wallet(args[0]).addAndGet(-amount);
+                        yield new EconomyResponse(Money.toDouble(amount), Money.toDouble(balance), EconomyResponse.ResponseType.SUCCESS, null);
+                    }
+                    case "depositPlayer" -> {
+                        long amount = Money.fromDouble((Double) args[1]);
+                        long balance = wallet(args[0]).addAndGet(amount);
+                        yield new EconomyResponse(Money.toDouble(amount), Money.toDouble(balance), EconomyResponse.ResponseType.SUCCESS, null);
+                    }
+                    case "getBalance" -> Money.toDouble(wallet(args[0]).get());
+                    case "hasAccount", "isEnabled" -> true;
+                    case "getName", "toString" -> "LoadTestEconomy";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> Stubs.defaultValue(method.getReturnType());
+                });
+        Stubs.setField(VaultAPIHandler.class, null, "economy", economy);
+    }
+
+    private AtomicLong wallet(Object player) {
+        return wallets.get(((OfflinePlayer) player).getUniqueId());
+    }
+
+    private void close() throws Exception {
+        drivers.shutdownNow();
+        engine.close();
+        server.close();
+    }
+
+    /**
+     * The things a simulated player does, with how often they do them.
+     */
+    private enum Action {
+        INFO(35),
+        DEPOSIT(23),
+        WITHDRAW(22),
+        PAY(10),
+        ADMIN_GIVE(5),
+        ADMIN_TAKE(5);
+
+        private static final Action[] ACTIONS = values();
+        private static final int TOTAL_WEIGHT = 100;
+
+        private final int weight;
+
+        Action(int weight) {
+            this.weight = weight;
+        }
+
+        static Action pick() {
+            int roll = ThreadLocalRandom.current().nextInt(TOTAL_WEIGHT);
+            for (Action action : ACTIONS) {
+                roll -= action.weight;
+                if (roll < 0) {
+                    return action;
+                }
+            }
+            return INFO;
+        }
+    }
+
+    private enum Outcome {
+        OK,
+        FAILED,
+        THROTTLED
+    }
+
+    private static final class Stats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder throttled = new LongAdder();
+
+        void record(long startNanos, Outcome outcome) {
+            // Throttled clicks are answered without touching the bank, so they'd skew the latency
+            if (outcome == Outcome.THROTTLED) {
+                throttled.increment();
+            } else {
+                latency.record(System.nanoTime() - startNanos, outcome == Outcome.FAILED);
+            }
+        }
+    }
+
+    /**
+     * A player whose messages complete the reply they're waiting for.
+     */
+    private static final class SimulatedPlayer {
+        private final UUID uuid;
+        private final Player player;
+        private volatile CompletableFuture<String> reply;
+
+        SimulatedPlayer(UUID uuid, String name) {
+            this.uuid = uuid;
+            this.player = Stubs.player(uuid, name, this::onMessage);
+        }
+
+        private void onMessage(String message) {
+            // Prompts and progress notes come before the actual reply
+            if (message.contains("Enter the amount") || message.startsWith(ChatColor.YELLOW.toString())) {
+                return;
+            }
+            CompletableFuture<String> pending = reply;
+            if (pending != null) {
+                pending.complete(message);
+            }
+        }
+    }
+
+    private record Options(int players, int seconds, long thinkMillis, BankEngine.Storage storage,
+                           boolean writeBehind, int threads, double requestsPerSecond, int burst) {
+
+        static Options parse(String[] args) {
+            int players = 2_000;
+            int seconds = 30;
+            long thinkMillis = 500;
+            BankEngine.Storage storage = BankEngine.Storage.FILE;
+            boolean writeBehind = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            double requestsPerSecond = 4;
+            int burst = 8;
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--players" -> players = Integer.parseInt(args[++i]);
+                    case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                    case "--think-millis" -> thinkMillis = Long.parseLong(args[++i]);
+                    case "--storage" -> storage = BankEngine.Storage.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--write-behind" -> writeBehind = true;
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--requests-per-second" -> requestsPerSecond = Double.parseDouble(args[++i]);
+                    case "--burst" -> burst = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return new Options(players, seconds, thinkMillis, storage, writeBehind, Math.max(1, threads),
+                    requestsPerSecond, burst);
+        }
+    }
+}
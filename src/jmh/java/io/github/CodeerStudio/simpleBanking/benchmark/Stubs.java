@@ -0,0 +1,152 @@
+package io.github.CodeerStudio.simpleBanking.benchmark;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.handlers.VaultAPIHandler;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Headless stand-ins for the server objects the banking engine touches, so benchmarks run
+ * without a Minecraft server.
+ */
+final class Stubs {
+
+    private static final EconomyResponse SUCCESS =
+            new EconomyResponse(0, Double.MAX_VALUE, EconomyResponse.ResponseType.SUCCESS, null);
+
+    private Stubs() {
+    }
+
+    /**
+     * Creates a player that only knows its UUID and name. Messages sent to it are discarded.
+     *
+     * @param uuid The player's UUID.
+     * @param name The player's name.
+     * @return The stub player.
+     */
+    static Player player(UUID uuid, String name) {
+        return player(uuid, name, message -> { });
+    }
+
+    /**
+     * Creates a player that only knows its UUID and name, and hands messages sent to it to a
+     * consumer.
+     *
+     * @param uuid     The player's UUID.
+     * @param name     The player's name.
+     * @param messages Receives every message sent to the player.
+     * @return The stub player.
+     */
+    static Player player(UUID uuid, String name, Consumer<String> messages) {
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUniqueId" -> uuid;
+                    case "getName" -> name;
+                    case "isOnline" -> true;
+                    case "sendMessage" -> {
+                        if (args != null && args.length == 1 && args[0] instanceof String message) {
+                            messages.accept(message);
+                        }
+                        yield null;
+                    }
+                    case "hashCode" -> uuid.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> name;
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    /**
+     * Installs an economy with an unlimited wallet for every player as the Vault economy.
+     */
+    static void installEconomy() {
+        Economy economy = (Economy) Proxy.newProxyInstance(Economy.class.getClassLoader(), new Class<?>[]{Economy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "has", "hasAccount", "isEnabled" -> true;
+                    case "withdrawPlayer", "depositPlayer" -> SUCCESS;
+                    case "getBalance" -> Double.MAX_VALUE;
+                    case "getName", "toString" -> "BenchmarkEconomy";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> defaultValue(method.getReturnType());
+                });
+        setField(VaultAPIHandler.class, null, "economy", economy);
+    }
+
+    /**
+     * Allocates a plugin instance without running the JavaPlugin constructor, which refuses to run
+     * outside a server. The plugin reports itself as disabled, so main thread work runs inline.
+     *
+     * @return The plugin instance, with a logger but no other state.
+     */
+    static SimpleBanking plugin() {
+        try {
+            Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            SimpleBanking plugin = (SimpleBanking) ((Unsafe) unsafeField.get(null)).allocateInstance(SimpleBanking.class);
+
+            Logger logger = Logger.getLogger("SimpleBanking-Benchmark");
+            for (Field field : JavaPlugin.class.getDeclaredFields()) {
+                if (field.getType().isAssignableFrom(Logger.class)) {
+                    field.setAccessible(true);
+                    field.set(plugin, logger);
+                }
+            }
+            return plugin;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the benchmark plugin", e);
+        }
+    }
+
+    /**
+     * Sets a private field, used to wire the plugin's services without calling onEnable.
+     *
+     * @param owner  The class declaring the field.
+     * @param target The instance to set the field on, or {@code null} for a static field.
+     * @param name   The field name.
+     * @param value  The value to set.
+     */
+    static void setField(Class<?> owner, Object target, String name, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not set " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return type == short.class ? (short) 0 : (byte) 0;
+    }
+}
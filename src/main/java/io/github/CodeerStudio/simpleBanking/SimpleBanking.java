@@ -1,34 +1,125 @@
 package io.github.CodeerStudio.simpleBanking;
 
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.cluster.ClusterChannel;
+import io.github.CodeerStudio.simpleBanking.cluster.FileClusterChannel;
+import io.github.CodeerStudio.simpleBanking.cluster.LocalFileSystems;
+import io.github.CodeerStudio.simpleBanking.commands.AdminExportBank;
 import io.github.CodeerStudio.simpleBanking.commands.AdminGiveBalance;
+import io.github.CodeerStudio.simpleBanking.commands.AdminImportBank;
 import io.github.CodeerStudio.simpleBanking.commands.AdminSetBalance;
 import io.github.CodeerStudio.simpleBanking.commands.AdminTakeBalance;
 import io.github.CodeerStudio.simpleBanking.commands.BankMenu;
+import io.github.CodeerStudio.simpleBanking.commands.BankStartingCommand;
+import io.github.CodeerStudio.simpleBanking.handlers.AmountPromptHandler;
 import io.github.CodeerStudio.simpleBanking.handlers.BankManagerHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.BulkOperationHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.HistoryHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.PlayerSessionHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.ThrottleHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.TransferHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.VaultBankProvider;
+import io.github.CodeerStudio.simpleBanking.interest.InterestEngine;
+import io.github.CodeerStudio.simpleBanking.interest.InterestPolicy;
+import io.github.CodeerStudio.simpleBanking.leaderboard.Leaderboard;
+import io.github.CodeerStudio.simpleBanking.maintenance.AccountArchiver;
+import io.github.CodeerStudio.simpleBanking.maintenance.MaintenanceScheduler;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import io.github.CodeerStudio.simpleBanking.storage.SQLiteDatabase;
+import io.github.CodeerStudio.simpleBanking.storage.SQLiteStorage;
+import io.github.CodeerStudio.simpleBanking.throttle.RequestLimiter;
+import net.milkbowl.vault.economy.Economy;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 import io.github.CodeerStudio.simpleBanking.handlers.VaultAPIHandler;
 
 import java.io.File;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main class for the SimpleBanking plugin. This class handles the plugin's lifecycle,
- * including initialization of Vault economy and SQLite database setup.
+ * including initialization of Vault economy, storage setup and the account cache.
+ *
+ * The storage is opened on the database thread, so the server doesn't wait for it while starting.
  */
 public final class SimpleBanking extends JavaPlugin {
 
-    // The database connection used to interact with the SQLite database.
-    private Connection connection;
+    // The commands that reply the bank is starting until the storage is open.
+    private static final String[] COMMANDS = {
+            "bank", "setbankbalance", "givebankbalance", "takebankbalance", "bankexport", "bankimport"
+    };
+
+    // The storage bank accounts and the ledger are kept in, as chosen by storage.type.
+    private BankStorage storage;
+
+    // The executor that runs all database work off the main server thread.
+    private DatabaseExecutor databaseExecutor;
+
+    // Latency histograms and counters for bank operations and commands.
+    private BankMetrics metrics;
+
+    // The append-only ledger of every balance change.
+    private TransactionLedger ledger;
+
+    // The in-memory cache holding player bank balances in front of the database.
+    private AccountCache accountCache;
+
+    // Keeps the caches of servers sharing the database in step, or null if cluster mode is off.
+    private ClusterChannel clusterChannel;
+
+    // The richest accounts, updated as balances change.
+    private Leaderboard leaderboard;
+
+    // Credits interest to bank accounts, or null if interest is disabled.
+    private InterestEngine interestEngine;
+
+    // The shared handler for all banking operations.
+    private BankManagerHandler bankManagerHandler;
+
+    // Runs admin balance changes against many accounts at once.
+    private BulkOperationHandler bulkOperationHandler;
+
+    // Exports the whole bank to a file, and imports it back, in the background.
+    private TransferHandler transferHandler;
+
+    // The chat listener collecting amounts for deposit and withdraw prompts.
+    private AmountPromptHandler amountPromptHandler;
+
+    // Shows players their transaction history in a menu or in chat.
+    private HistoryHandler historyHandler;
+
+    // Loads the accounts of players as they log in, and drops them once they leave.
+    private PlayerSessionHandler playerSessionHandler;
+
+    // Limits how often each player can make bank requests and run admin commands.
+    private ThrottleHandler throttleHandler;
+
+    // Runs routine storage upkeep while the server is quiet, or null if maintenance is disabled.
+    private MaintenanceScheduler maintenanceScheduler;
+
+    // Archives accounts nobody has used for a long time, or null if archiving is disabled.
+    private AccountArchiver accountArchiver;
+
+    // Set once the storage is open and the bank's services and commands are in place.
+    private volatile boolean ready;
 
     /**
-     * Called when the plugin is enabled. This method sets up the economy (via Vault) and the database,
-     * and registers the command executor for the "bank" command.
+     * Called when the plugin is enabled. This method sets up the economy (via Vault), registers the
+     * commands and starts opening the storage in the background. The bank's services are started
+     * once the storage is open; until then, bank commands reply that the bank is starting.
      */
     @Override
     public void onEnable() {
+        long enableStart = System.nanoTime();
+
         // Set up Vault economy provider
         if (!VaultAPIHandler.setUpEconomy(this)) {
             getLogger().severe("Disabling plugin due to missing Vault economy!");
@@ -36,75 +127,498 @@ public final class SimpleBanking extends JavaPlugin {
             return;
         }
 
-        // Set up the SQLite database
-        setUpDatabase();
+        saveDefaultConfig();
 
-        getLogger().info("BankPlugin has been enabled!");
+        // Choose the configured storage, which is opened in the background below
+        if (!createStorage()) {
+            getLogger().severe("Disabling plugin due to missing database!");
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
 
-        BankManagerHandler bankManagerHandler = new BankManagerHandler(this);
+        // Start collecting operation metrics
+        metrics = new BankMetrics(this);
+        metrics.start(getConfig().getLong("metrics.dump-interval-seconds", 300));
 
+        // Start the database threads and the transaction ledger
+        databaseExecutor = new DatabaseExecutor(this, storage.getReadThreads());
+        ledger = new TransactionLedger(this, databaseExecutor);
 
-        // Register the commands
-        getCommand("bank").setExecutor(new BankMenu(this));
-        getCommand("setbankbalance").setExecutor(new AdminSetBalance(bankManagerHandler));
-        getCommand("givebankbalance").setExecutor(new AdminGiveBalance(bankManagerHandler));
-        getCommand("takebankbalance").setExecutor(new AdminTakeBalance(bankManagerHandler));
+        // Answer the commands right away, until the real ones take over
+        BankStartingCommand starting = new BankStartingCommand();
+        for (String name : COMMANDS) {
+            getCommand(name).setExecutor(starting);
+        }
+
+        // Let other plugins find the bank through Vault now; its bank calls fail until it's ready
+        if (getConfig().getBoolean("vault.bank-provider", true)) {
+            registerVaultBank();
+        }
+
+        // A large database, a migration or an index build would hold up the server's startup, so the
+        // storage is opened on the database thread and the rest of the bank starts once it's open
+        databaseExecutor.write(this::openStorage).thenAcceptAsync(opened -> {
+            // The plugin may have been disabled while the storage was opening
+            if (!isEnabled()) {
+                return;
+            }
+            if (!opened) {
+                getServer().getPluginManager().disablePlugin(this);
+                return;
+            }
+            startBank(enableStart);
+        }, databaseExecutor.mainThread());
+
+        getLogger().info("BankPlugin has been enabled!");
+        logPhase("Enabled the plugin", enableStart);
     }
 
     /**
-     * Called when the plugin is disabled. This method ensures that the database connection is closed.
+     * Called when the plugin is disabled. This method flushes cached balances to the database
+     * and ensures that the database connections are closed.
      */
     @Override
     public void onDisable() {
+        // Write any balances changed since the last flush, then let queued database work finish
+        if (interestEngine != null) {
+            interestEngine.stop();
+        }
+        if (maintenanceScheduler != null) {
+            maintenanceScheduler.stop();
+        }
+        if (accountArchiver != null) {
+            accountArchiver.stop();
+        }
+        if (accountCache != null) {
+            accountCache.stop();
+        }
+        if (ledger != null) {
+            ledger.stop();
+        }
+        if (databaseExecutor != null) {
+            databaseExecutor.shutdown(30);
+        }
+        if (clusterChannel != null) {
+            clusterChannel.close();
+        }
+        if (metrics != null) {
+            metrics.stop();
+        }
+
         try {
-            // Close the database connection if it's open
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            // Close the storage if it's open
+            if (storage != null) {
+                storage.close();
             }
         } catch (SQLException e) {
-            getLogger().warning("Could not close the database connection: " + e.getMessage());
+            getLogger().warning("Could not close the bank storage: " + e.getMessage());
         }
 
         getLogger().info("BankPlugin has been disabled!");
     }
 
     /**
-     * Gets the active database connection.
+     * Gets the storage bank accounts and the ledger are kept in.
+     *
+     * @return The storage, or {@code null} if not initialized.
+     */
+    public BankStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Gets the executor that runs database work off the main server thread.
+     *
+     * @return The database executor, or {@code null} if the plugin is not enabled.
+     */
+    public DatabaseExecutor getDatabaseExecutor() {
+        return databaseExecutor;
+    }
+
+    /**
+     * Gets the operation metrics.
+     *
+     * @return The metrics, or {@code null} if the plugin is not enabled.
+     */
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the transaction ledger.
+     *
+     * @return The ledger, or {@code null} if the plugin is not enabled.
+     */
+    public TransactionLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Gets the in-memory account cache.
+     *
+     * @return The account cache, or {@code null} if the plugin is not enabled.
+     */
+    public AccountCache getAccountCache() {
+        return accountCache;
+    }
+
+    /**
+     * Gets the balance leaderboard.
+     *
+     * @return The leaderboard, or {@code null} if the plugin is not enabled.
+     */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Gets the interest engine.
+     *
+     * @return The interest engine, or {@code null} if interest is disabled or the plugin is not enabled.
+     */
+    public InterestEngine getInterestEngine() {
+        return interestEngine;
+    }
+
+    /**
+     * Gets the storage maintenance scheduler.
+     *
+     * @return The maintenance scheduler, or {@code null} if maintenance is disabled or the plugin is not enabled.
+     */
+    public MaintenanceScheduler getMaintenanceScheduler() {
+        return maintenanceScheduler;
+    }
+
+    /**
+     * Gets the archiver of dormant accounts.
+     *
+     * @return The account archiver, or {@code null} if archiving is disabled or the plugin is not enabled.
+     */
+    public AccountArchiver getAccountArchiver() {
+        return accountArchiver;
+    }
+
+    /**
+     * Gets the shared handler for banking operations.
+     *
+     * @return The bank manager handler, or {@code null} if the plugin is not enabled.
+     */
+    public BankManagerHandler getBankManagerHandler() {
+        return bankManagerHandler;
+    }
+
+    /**
+     * Gets the handler for bulk admin balance changes.
+     *
+     * @return The bulk operation handler, or {@code null} if the plugin is not enabled.
+     */
+    public BulkOperationHandler getBulkOperationHandler() {
+        return bulkOperationHandler;
+    }
+
+    /**
+     * Gets the handler for exporting and importing the whole bank.
+     *
+     * @return The transfer handler, or {@code null} if the plugin is not enabled.
+     */
+    public TransferHandler getTransferHandler() {
+        return transferHandler;
+    }
+
+    /**
+     * Gets the handler collecting amounts typed in chat.
+     *
+     * @return The amount prompt handler, or {@code null} if the plugin is not enabled.
+     */
+    public AmountPromptHandler getAmountPromptHandler() {
+        return amountPromptHandler;
+    }
+
+    /**
+     * Gets the handler showing transaction history.
+     *
+     * @return The history handler, or {@code null} if the plugin is not enabled.
+     */
+    public HistoryHandler getHistoryHandler() {
+        return historyHandler;
+    }
+
+    /**
+     * Whether the bank has finished starting, so its services and commands are in place.
+     *
+     * @return {@code true} once the storage is open and the bank is ready to use.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Opens the storage and replays the ledger. Runs on the database thread, before any other
+     * database work.
+     *
+     * @return {@code true} if the storage is ready to use, {@code false} otherwise.
+     */
+    private boolean openStorage() {
+        long start = System.nanoTime();
+        try {
+            // Create the tables or files if they don't exist, or upgrade older ones
+            storage.open(getLogger());
+        } catch (SQLException e) {
+            getLogger().severe("Could not initialize the storage: " + e.getMessage());
+            return false;
+        }
+        logPhase("Opened the storage", start);
+
+        // Restore any balances a crash lost before they were flushed
+        start = System.nanoTime();
+        try {
+            ledger.recover(getLogger());
+        } catch (SQLException e) {
+            getLogger().severe("Could not replay the transaction ledger: " + e.getMessage());
+            return false;
+        }
+        logPhase("Replayed the transaction ledger", start);
+        return true;
+    }
+
+    /**
+     * Starts the bank's services and hands the commands over to them, once the storage is open.
+     * Runs on the main thread.
+     *
+     * @param enableStart When the plugin started enabling, from {@link System#nanoTime()}.
+     */
+    private void startBank(long enableStart) {
+        long start = System.nanoTime();
+        ledger.start(getConfig().getLong("ledger.commit-interval-millis", 50));
+
+        // Start the write-behind balance cache. Other servers can't see balances held back in
+        // memory, so a clustered cache always writes through.
+        boolean clustered = getConfig().getBoolean("cluster.enabled", false);
+        boolean writeBehind = getConfig().getBoolean("cache.write-behind", true);
+        if (clustered && writeBehind) {
+            getLogger().warning("cache.write-behind is ignored in cluster mode; every change is written immediately.");
+            writeBehind = false;
+        }
+        accountCache = new AccountCache(this, databaseExecutor, ledger, writeBehind,
+                getConfig().getInt("cache.lock-stripes", 64),
+                getConfig().getLong("cache.offline-memory-kb", 8192) * 1024);
+        if (clustered && !joinCluster()) {
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+        accountCache.start(getConfig().getLong("cache.flush-interval-seconds", 5));
+
+        // The leaderboard is seeded below, and the cache keeps it up to date from then on
+        leaderboard = new Leaderboard(this, getConfig().getInt("leaderboard.tracked", 100));
+
+        // Start crediting interest if it is enabled
+        InterestPolicy interestPolicy = InterestPolicy.fromConfig(
+                getConfig().getConfigurationSection("interest"), getLogger());
+        if (interestPolicy != null) {
+            interestEngine = new InterestEngine(this, interestPolicy);
+            interestEngine.start();
+        }
+
+        // Keep the storage compact and its statistics fresh, in quiet moments
+        if (getConfig().getBoolean("maintenance.enabled", true)) {
+            maintenanceScheduler = new MaintenanceScheduler(this,
+                    getConfig().getLong("maintenance.interval-minutes", 360),
+                    getConfig().getInt("maintenance.max-players", 10),
+                    getConfig().getDouble("maintenance.min-tps", 19.0),
+                    getConfig().getLong("maintenance.slice-millis", 50));
+            maintenanceScheduler.start(getConfig().getLong("maintenance.slice-interval-ticks", 20));
+        }
+
+        // Keep only the accounts of players who still play among the active ones
+        if (getConfig().getBoolean("archive.enabled", true)) {
+            accountArchiver = new AccountArchiver(this,
+                    getConfig().getLong("archive.dormant-days", 90),
+                    getConfig().getInt("archive.batch-size", 500));
+            accountArchiver.start(getConfig().getLong("archive.check-interval-minutes", 60));
+        }
+
+        bankManagerHandler = new BankManagerHandler(this);
+        bulkOperationHandler = new BulkOperationHandler(this, getConfig().getInt("bulk.chunk-size", 2000));
+        transferHandler = new TransferHandler(this, getConfig().getInt("transfer.batch-size", 5000));
+        amountPromptHandler = new AmountPromptHandler(this, getConfig().getLong("prompt.timeout-seconds", 30));
+        historyHandler = new HistoryHandler(this, getConfig().getInt("history.chat-page-size", 10));
+        playerSessionHandler = new PlayerSessionHandler(this, getConfig().getLong("cache.preload-timeout-millis", 500));
+        throttleHandler = new ThrottleHandler(this,
+                new RequestLimiter(getConfig().getDouble("throttle.requests-per-second", 4),
+                        getConfig().getInt("throttle.burst", 8)),
+                new RequestLimiter(getConfig().getDouble("throttle.admin-requests-per-second", 10),
+                        getConfig().getInt("throttle.admin-burst", 20)));
+
+        // Register the commands
+        getCommand("bank").setExecutor(new BankMenu(this));
+        getCommand("setbankbalance").setExecutor(new AdminSetBalance(bankManagerHandler, bulkOperationHandler, throttleHandler, metrics));
+        getCommand("givebankbalance").setExecutor(new AdminGiveBalance(bankManagerHandler, bulkOperationHandler, throttleHandler, metrics));
+        getCommand("takebankbalance").setExecutor(new AdminTakeBalance(bankManagerHandler, bulkOperationHandler, throttleHandler, metrics));
+        getCommand("bankexport").setExecutor(new AdminExportBank(transferHandler, throttleHandler, metrics));
+        getCommand("bankimport").setExecutor(new AdminImportBank(transferHandler, throttleHandler, metrics));
+
+        ready = true;
+        logPhase("Started the bank services", start);
+        getLogger().info("The bank is ready, " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enableStart)
+                + " ms after the plugin started enabling.");
+
+        // Load the accounts of players who joined in the meantime, and seed the leaderboard
+        long warmUpStart = System.nanoTime();
+        CompletableFuture.allOf(playerSessionHandler.preloadOnlinePlayers(), leaderboard.reseed())
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        getLogger().warning("Could not warm up the bank: " + error.getMessage());
+                    } else {
+                        logPhase("Warmed up the account cache and leaderboard", warmUpStart);
+                    }
+                });
+    }
+
+    /**
+     * Logs how long a startup phase took.
      *
-     * @return The current database connection, or {@code null} if not initialized.
+     * @param phase      What was done, completed with the duration.
+     * @param startNanos When the phase started, from {@link System#nanoTime()}.
      */
-    public Connection getDatabaseConnection() {
-        return connection;
+    private void logPhase(String phase, long startNanos) {
+        getLogger().info(phase + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms.");
     }
 
     /**
-     * Sets up the SQLite database by creating the necessary file and initializing the player_balances table
-     * if it doesn't exist.
+     * Connects the account cache to the other servers sharing the database, through change files
+     * in the shared {@code cluster.directory}.
+     *
+     * @return {@code true} if the cluster was joined, {@code false} otherwise.
      */
-    private void setUpDatabase() {
+    private boolean joinCluster() {
+        String nodeId = getConfig().getString("cluster.node-id", "");
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = "server-" + getServer().getPort();
+        }
+
+        File directory = new File(getConfig().getString("cluster.directory", "cluster"));
+        if (!directory.isAbsolute()) {
+            directory = new File(getDataFolder(), directory.getPath());
+        }
+        String share = LocalFileSystems.networkShare(directory.toPath());
+        if (share != null) {
+            getLogger().severe("The cluster directory " + directory.getAbsolutePath() + " is on " + share
+                    + "; all servers in a cluster must run on one machine, with local folders.");
+            return false;
+        }
+        clusterChannel = new FileClusterChannel(directory.toPath(), nodeId,
+                getConfig().getLong("cluster.poll-interval-millis", 250), getLogger());
+
         try {
-            // Create the data folder if it doesn't exist
-            if (!getDataFolder().exists()) {
-                getDataFolder().mkdirs();
+            accountCache.joinCluster(clusterChannel);
+        } catch (IOException e) {
+            getLogger().severe("Could not join the cluster: " + e.getMessage());
+            return false;
+        }
+        getLogger().info("Joined the bank cluster as " + nodeId + " through " + directory.getAbsolutePath());
+        return true;
+    }
+
+    /**
+     * Registers a Vault economy that adds SimpleBanking's banks to the wallet economy found at
+     * startup, at the configured {@code vault.priority} so other plugins are handed it instead.
+     */
+    private void registerVaultBank() {
+        String name = getConfig().getString("vault.priority", "Highest");
+        ServicePriority priority = null;
+        for (ServicePriority candidate : ServicePriority.values()) {
+            if (candidate.name().equalsIgnoreCase(name)) {
+                priority = candidate;
             }
+        }
+        if (priority == null) {
+            getLogger().warning("Unknown vault.priority " + name + ", using Highest.");
+            priority = ServicePriority.Highest;
+        }
 
-            // Define the file path for the database in the plugin's data folder
-            File databaseFile = new File(getDataFolder(), "banking.db");
+        VaultBankProvider provider = new VaultBankProvider(this, VaultAPIHandler.getEconomy(),
+                getConfig().getLong("vault.read-timeout-millis", 50),
+                getConfig().getLong("vault.change-timeout-millis", 50));
+        getServer().getServicesManager().register(Economy.class, provider, this, priority);
+        getLogger().info("Registered the bank with Vault at " + priority + " priority.");
+    }
+
+    /**
+     * Gets the handler loading and dropping the accounts of online players.
+     *
+     * @return The player session handler, or {@code null} if the plugin is not enabled.
+     */
+    public PlayerSessionHandler getPlayerSessionHandler() {
+        return playerSessionHandler;
+    }
 
-            // Establish a connection to the SQLite database
-            connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+    /**
+     * Gets the handler limiting how often players can make bank requests.
+     *
+     * @return The throttle handler, or {@code null} if the plugin is not enabled.
+     */
+    public ThrottleHandler getThrottleHandler() {
+        return throttleHandler;
+    }
 
-            // Create the player_balances table if it doesn't exist
-            try (PreparedStatement stmt = connection.prepareStatement(
-                    "CREATE TABLE IF NOT EXISTS player_balances (" +
-                            "uuid TEXT PRIMARY KEY, " +
-                            "balance DOUBLE DEFAULT 0)")) {
-                stmt.executeUpdate();
+    /**
+     * Creates the storage chosen by {@code storage.type}: an SQLite database in banking.db, or flat
+     * files in the bank folder. The storage isn't opened yet; opening creates it if it doesn't exist,
+     * and migrates it to the current schema or file format if needed.
+     *
+     * @return {@code true} if the storage was created, {@code false} if the configuration is invalid.
+     */
+    private boolean createStorage() {
+        // Create the data folder if it doesn't exist
+        if (!getDataFolder().exists()) {
+            getDataFolder().mkdirs();
+        }
+
+        int readThreads = getConfig().getInt("database.read-connections", 4);
+        String type = getConfig().getString("storage.type", "sqlite").toLowerCase(Locale.ROOT);
+        File location;
+        switch (type) {
+            case "sqlite" -> {
+                location = new File(getConfig().getString("database.file", "banking.db"));
+                if (!location.isAbsolute()) {
+                    location = new File(getDataFolder(), location.getPath());
+                }
+                storage = new SQLiteStorage(new SQLiteDatabase(location, readThreads,
+                        getConfig().getLong("database.mmap-size", 268435456L)),
+                        getConfig().getBoolean("maintenance.convert-database", false));
             }
+            case "flatfile" -> {
+                location = new File(getDataFolder(), "bank");
+                storage = new FlatFileStorage(location, readThreads);
+            }
+            default -> {
+                getLogger().severe("Unknown storage type '" + type + "', expected sqlite or flatfile.");
+                return false;
+            }
+        }
 
-            getLogger().info("Database initialized successfully at " + databaseFile.getAbsolutePath());
-        } catch (SQLException e) {
-            getLogger().severe("Could not initialize the database: " + e.getMessage());
+        // Flat files are held in memory by one server, so they can't be shared
+        if (getConfig().getBoolean("cluster.enabled", false) && storage instanceof FlatFileStorage) {
+            getLogger().severe("Cluster mode needs a shared database; use storage type sqlite.");
+            storage = null;
+            return false;
         }
+
+        // SQLite's locking and WAL index don't work across machines, so a database on a network share
+        // gets corrupted once another server opens it too
+        String share = LocalFileSystems.networkShare(location.toPath());
+        if (share != null) {
+            if (getConfig().getBoolean("cluster.enabled", false)) {
+                getLogger().severe("The database " + location.getAbsolutePath() + " is on " + share
+                        + "; servers sharing a database must run on one machine, with the database on a local disk.");
+                storage = null;
+                return false;
+            }
+            getLogger().warning("The storage " + location.getAbsolutePath() + " is on " + share
+                    + ". Keep it on a local disk, and never let two servers open it.");
+        }
+
+        getLogger().info("Using " + type + " storage at " + location.getAbsolutePath());
+        return true;
     }
 }
@@ -0,0 +1,1515 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cluster.ClusterChannel;
+import io.github.CodeerStudio.simpleBanking.interest.InterestEngine;
+import io.github.CodeerStudio.simpleBanking.interest.InterestPolicy;
+import io.github.CodeerStudio.simpleBanking.leaderboard.Leaderboard;
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authoritative in-memory cache of player bank balances, held in cents.
+ *
+ * Balances are loaded from the {@link BankStorage} the first time an account is touched and are
+ * served from memory afterwards. In write-behind mode, changes mark the account as dirty and
+ * are written back to the storage in one batch per flush interval. In write-through mode, every
+ * change is stored immediately as a single update, and the cache only mirrors the balance it returns.
+ *
+ * Every change is also recorded in the {@link TransactionLedger}, and each flush stores the
+ * ledger checkpoint the flushed balances include. Each flush also marks the accounts loaded or
+ * logged in with since the last one as used, which brings archived accounts back, so the storage
+ * only archives accounts nobody has touched for a long time.
+ *
+ * When several servers share one storage, the cache joins a {@link ClusterChannel}. Each cached
+ * account then also holds the version it was read at, and every change is stored with
+ * {@link BankStorage#compareAndSet} from the cached copy, so a copy made stale by another server is
+ * detected, read again and the change retried. Stored changes are published to the other servers,
+ * which update or drop their own copies, so cached balances stay current without rereading them.
+ *
+ * Accounts of online players are loaded as they log in and stay cached until they leave. Other
+ * accounts, such as those of offline players changed by admins, are kept in a {@link LruSet} sized
+ * by a memory budget, and the least recently used ones are dropped once it is exceeded. Accounts
+ * are only dropped on the database thread, and never while they have unflushed changes.
+ *
+ * Accounts are spread across {@link StripedLocks} stripes, and each stripe owns its own
+ * {@link UuidLongMap} guarded by that stripe's lock.
+ * Loads run on the {@link DatabaseExecutor} reader threads and flushes on its database thread;
+ * accounts that are already cached are read and updated without leaving the calling thread.
+ */
+public class AccountCache {
+
+    // Returned by map lookups for accounts that are not cached
+    private static final long NOT_CACHED = Long.MIN_VALUE;
+
+    // How long a load waits before checking again whether a bulk change on its stripe has finished
+    private static final long BULK_WAIT_NANOS = 100_000;
+
+    // How often a clustered change is retried after other servers changed the account first
+    private static final int MAX_CAS_ATTEMPTS = 5;
+
+    // The message a transfer fails with when the receiver's balance would overflow, in either mode
+    private static final String RECEIVER_OVERFLOW = "The receiver's balance would overflow";
+
+    // The estimated memory one cached offline account takes: its map entries in each stripe map,
+    // its UUID and its entry in the LRU order
+    private static final long ACCOUNT_BYTES = 200;
+
+    // Extra offline accounts looked at per trim, in case the least recently used ones can't be dropped yet
+    private static final int TRIM_SLACK = 64;
+
+    private final SimpleBanking plugin;
+    private final DatabaseExecutor databaseExecutor;
+    private final TransactionLedger ledger;
+    private final boolean writeBehind;
+    private final StripedLocks locks;
+
+    // Loaded balances in cents, one map per lock stripe
+    private final UuidLongMap[] balances;
+
+    // The last interest period credited to each cached account, one map per lock stripe.
+    // Only used in write-behind mode; accounts that never had interest credited have no entry.
+    private final UuidLongMap[] accruedPeriods;
+
+    // The stored version of each cached account, one map per lock stripe. Only used in cluster mode.
+    private final UuidLongMap[] versions;
+
+    // Players known to have no bank account, so repeated lookups don't hit the database
+    private final Set<UUID> missing = ConcurrentHashMap.newKeySet();
+
+    // Accounts changed since the last successful flush
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    // Accounts loaded or logged in with since the last flush, to be marked as used in the storage
+    private final Set<UUID> active = ConcurrentHashMap.newKeySet();
+
+    // Online players, with the number of their sessions, whose accounts stay cached
+    private final Map<UUID, Integer> sessions = new ConcurrentHashMap<>();
+
+    // Cached accounts of players that aren't online, least recently used first
+    private final LruSet offline;
+
+    // Set while a trim of the offline accounts is queued on the database thread
+    private final AtomicBoolean trimQueued = new AtomicBoolean();
+
+    // Transfers waiting to be stored together. Only used in write-through mode.
+    private final ConcurrentLinkedQueue<PendingTransfer> pendingTransfers = new ConcurrentLinkedQueue<>();
+
+    // Set while a commit of the pending transfers is queued on the database thread
+    private final AtomicBoolean transferCommitQueued = new AtomicBoolean();
+
+    // Incremented to an odd value while a bulk change writes uncached accounts of a stripe straight
+    // to the database, and back to even once it has finished. Loads that overlap a bulk change retry,
+    // so they never cache a balance read from before it. Changes from other servers to uncached
+    // accounts advance it by two, so loads that overlap them retry as well.
+    private final AtomicLongArray stripeVersions;
+
+    // Balance lookups answered from memory, and those that had to query the database
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // The ledger checkpoint saved by the last successful flush. Only used on the database thread.
+    private long flushedCheckpoint = -1;
+
+    private ScheduledFuture<?> flushTask;
+
+    // The channel to the other servers sharing the storage, or null if this server is alone
+    private volatile ClusterChannel cluster;
+
+    /**
+     * Constructs a new AccountCache instance.
+     *
+     * @param plugin           The main plugin instance, used for accessing the storage.
+     * @param databaseExecutor The executor that runs all database work.
+     * @param ledger           The ledger every balance change is recorded in.
+     * @param writeBehind      {@code true} to batch changes, {@code false} to write each one immediately.
+     * @param lockStripes      The number of lock stripes accounts are spread across.
+     * @param offlineBytes     The memory budget for cached accounts of players that aren't online.
+     */
+    public AccountCache(SimpleBanking plugin, DatabaseExecutor databaseExecutor, TransactionLedger ledger,
+                        boolean writeBehind, int lockStripes, long offlineBytes) {
+        this.plugin = plugin;
+        this.databaseExecutor = databaseExecutor;
+        this.ledger = ledger;
+        this.writeBehind = writeBehind;
+        this.locks = new StripedLocks(lockStripes);
+        this.balances = new UuidLongMap[locks.size()];
+        this.accruedPeriods = new UuidLongMap[locks.size()];
+        this.versions = new UuidLongMap[locks.size()];
+        for (int i = 0; i < balances.length; i++) {
+            balances[i] = new UuidLongMap(64);
+            accruedPeriods[i] = new UuidLongMap(64);
+            versions[i] = new UuidLongMap(64);
+        }
+        this.stripeVersions = new AtomicLongArray(locks.size());
+        this.offline = new LruSet((int) Math.min(Integer.MAX_VALUE, Math.max(0, offlineBytes) / ACCOUNT_BYTES));
+    }
+
+    /**
+     * Starts the periodic flush on the database thread. In write-through mode there are no dirty
+     * balances, so the flush only advances the ledger checkpoint.
+     *
+     * @param flushIntervalSeconds The number of seconds between flushes.
+     */
+    public void start(long flushIntervalSeconds) {
+        flushTask = databaseExecutor.scheduleWithFixedDelay(
+                this::flush, Math.max(1, flushIntervalSeconds), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Joins the other servers sharing the storage. Must be called before any account is loaded,
+     * and only in write-through mode, since other servers can't see balances held back in memory.
+     *
+     * @param channel The channel to the other servers.
+     * @throws IOException If the channel could not be joined.
+     */
+    public void joinCluster(ClusterChannel channel) throws IOException {
+        if (writeBehind) {
+            throw new IllegalStateException("A clustered cache must write through");
+        }
+
+        channel.start(new ClusterChannel.Listener() {
+            @Override
+            public void accountChanged(UUID uuid, long balance, long version) {
+                remoteChange(uuid, balance, version);
+            }
+
+            @Override
+            public void resync() {
+                clear();
+                Leaderboard leaderboard = plugin.getLeaderboard();
+                if (leaderboard != null) {
+                    leaderboard.reseed();
+                }
+            }
+        });
+        cluster = channel;
+    }
+
+    /**
+     * Stops the periodic flush and queues a final write of all dirty balances.
+     *
+     * @return A future completed once the final flush has run.
+     */
+    public CompletableFuture<Void> stop() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        return databaseExecutor.run(this::flush);
+    }
+
+    /**
+     * Gets the balance of an account, loading it from the database on first access.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return A future completed with the balance in cents, or {@code null} if the player has no bank account.
+     */
+    public CompletableFuture<Long> getBalance(UUID uuid) {
+        long balance = cached(uuid);
+        if (balance != NOT_CACHED) {
+            hits.increment();
+            resident(uuid);
+            return CompletableFuture.completedFuture(balance);
+        }
+        if (missing.contains(uuid)) {
+            hits.increment();
+            resident(uuid);
+            return CompletableFuture.completedFuture(null);
+        }
+        misses.increment();
+        return databaseExecutor.read(() -> {
+            Long loaded = load(uuid);
+            resident(uuid);
+            return loaded;
+        });
+    }
+
+    /**
+     * Gets the balance of an account if it is cached, without ever loading it.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The balance in cents, or {@code null} if the account isn't cached or doesn't exist.
+     */
+    public Long peekBalance(UUID uuid) {
+        long balance = cached(uuid);
+        return balance != NOT_CACHED ? balance : null;
+    }
+
+    /**
+     * Loads the account of a player who joined, and keeps it cached until they leave. Every call
+     * must be matched by one {@link #unload} call.
+     *
+     * @param uuid The UUID of the player.
+     * @return A future completed with the balance in cents, or {@code null} if the player has no bank account.
+     */
+    public CompletableFuture<Long> preload(UUID uuid) {
+        sessions.merge(uuid, 1, Integer::sum);
+        offline.remove(uuid);
+        active.add(uuid);
+        return getBalance(uuid);
+    }
+
+    /**
+     * Writes the account of a player who left, and drops it from the cache. If it can't be dropped
+     * yet, it is kept with the other offline accounts instead.
+     *
+     * @param uuid The UUID of the player.
+     * @return A future completed once the account has been written and dropped.
+     */
+    public CompletableFuture<Void> unload(UUID uuid) {
+        sessions.computeIfPresent(uuid, (key, count) -> count > 1 ? count - 1 : null);
+        return databaseExecutor.run(() -> {
+            if (dirty.contains(uuid)) {
+                flush();
+            }
+            if (!sessions.containsKey(uuid) && !evict(uuid)) {
+                offline.touch(uuid);
+            }
+        });
+    }
+
+    /**
+     * Adds money to an account, creating it if it doesn't exist yet.
+     *
+     * @param uuid   The UUID of the account owner.
+     * @param amount The amount to add, in cents.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @return A future completed with the new balance, or exceptionally if the account could not be updated.
+     */
+    public CompletableFuture<Long> deposit(UUID uuid, long amount, TransactionType type, String actor) {
+        return deposit(uuid, amount, type, actor, null);
+    }
+
+    /**
+     * Adds money to an account, creating it if it doesn't exist yet, unless the caller abandons the
+     * change before it starts.
+     *
+     * @param uuid   The UUID of the account owner.
+     * @param amount The amount to add, in cents.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @param handle Lets the caller abandon the change while it is queued, or {@code null}.
+     * @return A future completed with the new balance, or {@code null} if the change was abandoned,
+     * or exceptionally if the account could not be updated.
+     */
+    public CompletableFuture<Long> deposit(UUID uuid, long amount, TransactionType type, String actor,
+                                           ChangeHandle handle) {
+        if (!writeBehind) {
+            return writeThrough(uuid, type, actor, (id, current) -> handle != null && !handle.start()
+                    ? null
+                    : current == null
+                    ? new AccountRecord(id, amount, null)
+                    : current.withBalance(Math.addExact(current.balance(), amount))
+            ).thenApply(account -> account != null ? account.balance() : null);
+        }
+
+        return whileLoaded(uuid, stripe -> {
+            if (handle != null && !handle.start()) {
+                return null;
+            }
+            long balance = Math.addExact(balances[stripe].get(uuid, 0), amount);
+            balances[stripe].put(uuid, balance);
+            missing.remove(uuid);
+            dirty.add(uuid);
+            ranked(uuid, balance);
+            ledger.record(uuid, amount, type, actor, balance);
+            return balance;
+        });
+    }
+
+    /**
+     * Removes money from an account if it holds enough.
+     *
+     * In write-through and cluster mode the check and the deduction are a single conditional
+     * update in the storage, so two withdrawals racing on the same account can never overdraw it,
+     * even when they come from different servers.
+     *
+     * @param uuid   The UUID of the account owner.
+     * @param amount The amount to remove, in cents.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @return A future completed with {@code true} if the money was removed, or {@code false} if the
+     * balance was insufficient.
+     */
+    public CompletableFuture<Boolean> withdraw(UUID uuid, long amount, TransactionType type, String actor) {
+        return withdraw(uuid, amount, type, actor, null);
+    }
+
+    /**
+     * Removes money from an account if it holds enough, unless the caller abandons the change
+     * before it starts.
+     *
+     * @param uuid   The UUID of the account owner.
+     * @param amount The amount to remove, in cents.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @param handle Lets the caller abandon the change while it is queued, or {@code null}.
+     * @return A future completed with {@code true} if the money was removed, or {@code false} if the
+     * balance was insufficient or the change was abandoned.
+     */
+    public CompletableFuture<Boolean> withdraw(UUID uuid, long amount, TransactionType type, String actor,
+                                               ChangeHandle handle) {
+        if (!writeBehind) {
+            return databaseExecutor.write(() -> {
+                if (handle != null && !handle.start()) {
+                    return false;
+                }
+                AccountRecord account = plugin.getStorage().withdraw(uuid, amount, type, actor);
+                if (account != null) {
+                    ledger.noteAppended();
+                    mirror(account);
+                }
+                resident(uuid);
+                return account != null;
+            });
+        }
+
+        return whileLoaded(uuid, stripe -> {
+            if (handle != null && !handle.start()) {
+                return false;
+            }
+            long balance = balances[stripe].get(uuid, NOT_CACHED);
+            if (balance == NOT_CACHED || balance < amount) {
+                return false;
+            }
+            balances[stripe].put(uuid, balance - amount);
+            dirty.add(uuid);
+            ranked(uuid, balance - amount);
+            ledger.record(uuid, -amount, type, actor, balance - amount);
+            return true;
+        });
+    }
+
+    /**
+     * Sets the balance of an account, creating it if it doesn't exist yet.
+     *
+     * @param uuid   The UUID of the account owner.
+     * @param amount The new balance, in cents.
+     * @param actor  Who made the change, for the ledger.
+     * @return A future completed once the balance has been set.
+     */
+    public CompletableFuture<Void> setBalance(UUID uuid, long amount, String actor) {
+        if (!writeBehind) {
+            return writeThrough(uuid, TransactionType.ADMIN_SET, actor, (id, current) -> current == null
+                    ? new AccountRecord(id, amount, null)
+                    : current.withBalance(amount)
+            ).thenAccept(account -> { });
+        }
+
+        // Load first so the ledger can record the change from the previous balance
+        return whileLoaded(uuid, stripe -> {
+            long before = balances[stripe].get(uuid, 0);
+            balances[stripe].put(uuid, amount);
+            missing.remove(uuid);
+            dirty.add(uuid);
+            ranked(uuid, amount);
+            ledger.record(uuid, amount - before, TransactionType.ADMIN_SET, actor, amount);
+            return null;
+        }).thenAccept(ignored -> { });
+    }
+
+    /**
+     * Moves money from one account to another if the sender holds enough, creating the receiver's
+     * account if it doesn't exist yet. Both accounts change together or not at all.
+     *
+     * In write-behind mode both accounts are changed in memory while holding both their stripe
+     * locks, taken in ascending stripe order so opposing transfers can't deadlock, and both ledger
+     * entries are committed in the same batch. In write-through mode transfers are queued, and all
+     * those queued by the time the database thread gets to them are stored in one transaction, so a
+     * burst of payments, such as many players paying one shop, shares a single commit.
+     *
+     * @param from   The UUID of the sender.
+     * @param to     The UUID of the receiver, not the sender.
+     * @param amount The amount to move, in cents, more than zero.
+     * @param actor  Who made the transfer, for the ledger.
+     * @return A future completed with {@code true} if the money was moved, or {@code false} if the
+     * sender's balance was insufficient, or exceptionally with an {@link ArithmeticException} if the
+     * receiver's balance would overflow.
+     */
+    public CompletableFuture<Boolean> transfer(UUID from, UUID to, long amount, String actor) {
+        if (from.equals(to)) {
+            throw new IllegalArgumentException("An account can't transfer money to itself");
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("A transfer must move more than zero");
+        }
+        if (!writeBehind) {
+            PendingTransfer pending = new PendingTransfer(new BankStorage.Transfer(from, to, amount, actor),
+                    new CompletableFuture<>());
+            pendingTransfers.add(pending);
+            if (transferCommitQueued.compareAndSet(false, true)) {
+                databaseExecutor.run(this::commitTransfers);
+            }
+            return pending.result();
+        }
+
+        return whileBothLoaded(from, to, (fromStripe, toStripe) -> {
+            long sent = balances[fromStripe].get(from, NOT_CACHED);
+            if (sent == NOT_CACHED || sent < amount) {
+                return false;
+            }
+            long held = balances[toStripe].get(to, 0);
+            if (held > Long.MAX_VALUE - amount) {
+                throw new ArithmeticException(RECEIVER_OVERFLOW);
+            }
+            long received = held + amount;
+            balances[fromStripe].put(from, sent - amount);
+            balances[toStripe].put(to, received);
+            missing.remove(to);
+            dirty.add(from);
+            dirty.add(to);
+            ranked(from, sent - amount);
+            ranked(to, received);
+
+            long now = System.currentTimeMillis();
+            ledger.recordAll(List.of(
+                    new LedgerEntry(from, -amount, TransactionType.TRANSFER_OUT, actor, now, sent - amount),
+                    new LedgerEntry(to, amount, TransactionType.TRANSFER_IN, actor, now, received)));
+            return true;
+        });
+    }
+
+    /**
+     * Checks whether changes are written behind in batches or through to the storage immediately.
+     *
+     * @return {@code true} in write-behind mode.
+     */
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Gets the number of balance lookups answered from memory, including known missing accounts.
+     *
+     * @return The cache hit count.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of balance lookups that had to query the storage.
+     *
+     * @return The cache miss count.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Checks whether an account is in use on this server: its player is online, or it is held in
+     * memory. Must be called on the database thread, so no flush is halfway through.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return {@code true} if the account is in use.
+     */
+    public boolean isInUse(UUID uuid) {
+        return sessions.containsKey(uuid) || dirty.contains(uuid) || cached(uuid) != NOT_CACHED;
+    }
+
+    /**
+     * Gets the number of accounts held in memory.
+     *
+     * @return The cached account count.
+     */
+    public int getCachedCount() {
+        int count = 0;
+        for (int stripe = 0; stripe < balances.length; stripe++) {
+            ReentrantLock lock = locks.get(stripe);
+            lock.lock();
+            try {
+                count += balances[stripe].size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of cached accounts of players that aren't online.
+     *
+     * @return The offline account count.
+     */
+    public int getOfflineCount() {
+        return offline.size();
+    }
+
+    /**
+     * Gets the number of lock stripes accounts are spread across.
+     *
+     * @return The stripe count.
+     */
+    public int getStripeCount() {
+        return balances.length;
+    }
+
+    /**
+     * Gets the accounts held in memory on one lock stripe.
+     *
+     * @param stripe The index of the stripe.
+     * @return The UUIDs of the cached accounts.
+     */
+    public List<UUID> getCachedAccounts(int stripe) {
+        List<UUID> uuids = new ArrayList<>();
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            balances[stripe].forEach((mostBits, leastBits, balance) -> uuids.add(new UUID(mostBits, leastBits)));
+        } finally {
+            lock.unlock();
+        }
+        return uuids;
+    }
+
+    /**
+     * Gets the number of accounts changed since the last flush.
+     *
+     * @return The dirty account count.
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Writes all dirty balances to the storage in a single batch, together with the ledger
+     * checkpoint they include. Accounts that fail to save stay dirty and are retried on the next
+     * flush. Must be called on the database thread.
+     *
+     * @return The number of accounts written.
+     */
+    public synchronized int flush() {
+        // Commit queued ledger entries first: every change they record is already in memory,
+        // so the balances written below include at least everything up to this checkpoint.
+        ledger.commit();
+        long checkpoint = ledger.getLastCommittedId();
+        markActive();
+        if (dirty.isEmpty() && checkpoint == flushedCheckpoint) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        List<UUID> pending = new ArrayList<>(dirty);
+        List<AccountRecord> accounts = new ArrayList<>(pending.size());
+
+        for (UUID uuid : pending) {
+            int stripe = locks.stripeFor(uuid);
+            ReentrantLock lock = locks.get(stripe);
+            lock.lock();
+            try {
+                // Clear the flag while reading so a later change re-marks the account
+                dirty.remove(uuid);
+                long period = accruedPeriods[stripe].get(uuid, NOT_CACHED);
+                accounts.add(new AccountRecord(uuid, balances[stripe].get(uuid, NOT_CACHED),
+                        period == NOT_CACHED ? null : period));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        try {
+            plugin.getStorage().saveAccounts(accounts, checkpoint);
+            flushedCheckpoint = checkpoint;
+        } catch (SQLException e) {
+            dirty.addAll(pending);
+            plugin.getLogger().severe("Could not flush bank balances: " + e.getMessage());
+            plugin.getMetrics().record(BankMetrics.Operation.CACHE_FLUSH, start, true);
+            return 0;
+        }
+
+        plugin.getMetrics().record(BankMetrics.Operation.CACHE_FLUSH, start, false);
+
+        // Offline accounts that had unflushed changes can be dropped now
+        if (offline.excess() > 0) {
+            trim();
+        }
+        return pending.size();
+    }
+
+    /**
+     * Marks the accounts used since the last flush as used in the storage. Accounts that fail to be
+     * marked are retried on the next flush. Must be called on the database thread.
+     */
+    private void markActive() {
+        if (active.isEmpty()) {
+            return;
+        }
+        List<UUID> used = new ArrayList<>(active);
+        active.removeAll(used);
+        try {
+            plugin.getStorage().markActive(used, System.currentTimeMillis());
+        } catch (SQLException e) {
+            active.addAll(used);
+            plugin.getLogger().warning("Could not mark bank accounts as used: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads an account from the storage into the cache, and lets the interest engine credit any
+     * interest it earned while it wasn't loaded.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The loaded balance, or {@code null} if the player has no bank account.
+     * @throws SQLException If the account could not be read.
+     */
+    private Long load(UUID uuid) throws SQLException {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+
+        while (true) {
+            // Another queued task may have loaded or created the account already
+            long cached = cached(uuid);
+            if (cached != NOT_CACHED) {
+                return cached;
+            }
+
+            long version = stripeVersions.get(stripe);
+            if ((version & 1) != 0) {
+                // A bulk change is writing this stripe straight to the storage
+                LockSupport.parkNanos(BULK_WAIT_NANOS);
+                continue;
+            }
+
+            AccountRecord account = plugin.getStorage().loadAccount(uuid);
+            Long balance = account != null ? account.balance() : null;
+            Long lastAccrued = account != null ? account.lastAccrued() : null;
+
+            lock.lock();
+            try {
+                // Keep any value that was cached while the query ran
+                long existing = balances[stripe].get(uuid, NOT_CACHED);
+                if (existing != NOT_CACHED) {
+                    return existing;
+                }
+                if (stripeVersions.get(stripe) != version) {
+                    continue; // A bulk change ran meanwhile, so the result may be stale
+                }
+
+                if (balance == null) {
+                    missing.add(uuid);
+                    return null;
+                }
+                balances[stripe].put(uuid, balance);
+                if (writeBehind && lastAccrued != null) {
+                    accruedPeriods[stripe].put(uuid, lastAccrued);
+                }
+                if (cluster != null) {
+                    versions[stripe].put(uuid, account.version());
+                }
+            } finally {
+                lock.unlock();
+            }
+            active.add(uuid);
+
+            InterestEngine interestEngine = plugin.getInterestEngine();
+            if (interestEngine != null) {
+                interestEngine.onLoaded(uuid, lastAccrued);
+            }
+            return balance;
+        }
+    }
+
+    /**
+     * Credits the interest a group of accounts earned up to a period. Must be called on the
+     * database thread.
+     *
+     * Accounts credited for the first time only have the period recorded, so they start earning
+     * from there. In write-behind mode only cached accounts are credited, in memory like any other
+     * change; in write-through mode all accounts are credited in one storage update.
+     *
+     * @param policy The interest rules.
+     * @param uuids  The accounts to credit.
+     * @param period The index of the newest period to credit.
+     * @return The interest in cents credited to each account that earned any.
+     * @throws SQLException If the storage update failed. No account in the group is credited then.
+     */
+    public Map<UUID, Long> accrueInterest(InterestPolicy policy, List<UUID> uuids, long period) throws SQLException {
+        Map<UUID, Long> credited = new HashMap<>();
+        String actor = TransactionLedger.interestActor(period);
+
+        if (writeBehind) {
+            for (UUID uuid : uuids) {
+                int stripe = locks.stripeFor(uuid);
+                ReentrantLock lock = locks.get(stripe);
+                lock.lock();
+                try {
+                    long balance = balances[stripe].get(uuid, NOT_CACHED);
+                    long last = accruedPeriods[stripe].get(uuid, NOT_CACHED);
+                    if (balance == NOT_CACHED || (last != NOT_CACHED && last >= period)) {
+                        continue;
+                    }
+
+                    long after = last == NOT_CACHED ? balance : accrued(policy, balance, period - last);
+                    accruedPeriods[stripe].put(uuid, period);
+                    dirty.add(uuid);
+                    if (after > balance) {
+                        balances[stripe].put(uuid, after);
+                        ranked(uuid, after);
+                        ledger.record(uuid, after - balance, TransactionType.INTEREST, actor, after);
+                        credited.put(uuid, after - balance);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return credited;
+        }
+
+        Map<UUID, AccountRecord> updated = plugin.getStorage().updateAccounts(uuids, TransactionType.INTEREST, actor,
+                (uuid, current) -> {
+                    Long last = current != null ? current.lastAccrued() : null;
+                    if (current == null || (last != null && last >= period)) {
+                        return null;
+                    }
+
+                    long after = last == null ? current.balance() : accrued(policy, current.balance(), period - last);
+                    if (after > current.balance()) {
+                        credited.put(uuid, after - current.balance());
+                    }
+                    return new AccountRecord(uuid, after, period);
+                });
+        ledger.noteAppended();
+
+        // Refresh the mirrored balances of cached accounts. In cluster mode every stored account
+        // got a new version, even if only its period was recorded, so all of them are refreshed.
+        ClusterChannel channel = cluster;
+        for (AccountRecord account : updated.values()) {
+            UUID uuid = account.uuid();
+            boolean earned = credited.containsKey(uuid);
+            if (!earned && channel == null) {
+                continue;
+            }
+
+            int stripe = locks.stripeFor(uuid);
+            ReentrantLock lock = locks.get(stripe);
+            lock.lock();
+            try {
+                if (balances[stripe].containsKey(uuid)) {
+                    balances[stripe].put(uuid, account.balance());
+                    if (channel != null) {
+                        versions[stripe].put(uuid, account.version());
+                    }
+                }
+                if (earned) {
+                    ranked(uuid, account.balance());
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (channel != null) {
+                channel.publish(uuid, account.balance(), account.version());
+            }
+        }
+        return credited;
+    }
+
+    /**
+     * Calculates the balance an account reaches with the interest it earned. A balance that would
+     * grow beyond what an account can hold stops at the largest one, so a single account can't
+     * hold up the interest of the others.
+     *
+     * @param policy  The interest rules.
+     * @param balance The balance in cents.
+     * @param periods The number of periods owed.
+     * @return The balance in cents including the interest.
+     */
+    private static long accrued(InterestPolicy policy, long balance, long periods) {
+        try {
+            return Math.addExact(balance, policy.accrue(balance, periods));
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Applies a bulk change to a group of accounts, including offline ones. Must be called on the
+     * database thread.
+     *
+     * In write-behind mode, accounts that are cached or known to have no account are changed in memory
+     * like any other change. All other accounts are changed in one atomic storage step, together with
+     * their ledger entries. Loads on the affected stripes wait until the step has finished.
+     *
+     * @param change The change to apply.
+     * @param uuids  The accounts to change, without duplicates.
+     * @return How many accounts were changed and skipped.
+     * @throws SQLException If the storage part failed. No account in the group is changed then.
+     */
+    public BulkChange.Result applyBulk(BulkChange change, List<UUID> uuids) throws SQLException {
+        boolean[] marked = new boolean[locks.size()];
+        List<UUID> inMemory = new ArrayList<>();
+        List<UUID> inDatabase = new ArrayList<>();
+        int changed = 0;
+        int skipped = 0;
+
+        try {
+            for (UUID uuid : uuids) {
+                int stripe = locks.stripeFor(uuid);
+                ReentrantLock lock = locks.get(stripe);
+                lock.lock();
+                try {
+                    if (!marked[stripe]) {
+                        stripeVersions.incrementAndGet(stripe);
+                        marked[stripe] = true;
+                    }
+                    if (writeBehind && (balances[stripe].containsKey(uuid) || missing.contains(uuid))) {
+                        inMemory.add(uuid);
+                    } else {
+                        inDatabase.add(uuid);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            Map<UUID, Long> updated = Map.of();
+            if (!inDatabase.isEmpty()) {
+                updated = plugin.getStorage().applyBulk(change, inDatabase);
+                changed += updated.size();
+                skipped += inDatabase.size() - updated.size();
+                ledger.noteAppended();
+
+                // Balances changed outside the cache, so the leaderboard has to read them back
+                Leaderboard leaderboard = plugin.getLeaderboard();
+                if (leaderboard != null) {
+                    leaderboard.reseed();
+                }
+            }
+
+            for (UUID uuid : inMemory) {
+                if (applyInMemory(change, uuid)) {
+                    changed++;
+                } else {
+                    skipped++;
+                }
+            }
+
+            // Refresh what the cache holds for accounts changed in the storage. In cluster mode their
+            // new versions are unknown, so they are dropped here and on the other servers instead.
+            ClusterChannel channel = cluster;
+            for (UUID uuid : inDatabase) {
+                Long balance = updated.get(uuid);
+                int stripe = locks.stripeFor(uuid);
+                ReentrantLock lock = locks.get(stripe);
+                lock.lock();
+                try {
+                    if (balance != null && channel != null) {
+                        balances[stripe].remove(uuid);
+                        versions[stripe].remove(uuid);
+                    } else if (balance != null && balances[stripe].containsKey(uuid)) {
+                        balances[stripe].put(uuid, balance);
+                    }
+                    if (change.kind() != BulkChange.Kind.TAKE) {
+                        missing.remove(uuid);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (balance != null && channel != null) {
+                    channel.publish(uuid, balance, 0);
+                }
+            }
+        } finally {
+            for (int stripe = 0; stripe < marked.length; stripe++) {
+                if (marked[stripe]) {
+                    ReentrantLock lock = locks.get(stripe);
+                    lock.lock();
+                    try {
+                        stripeVersions.incrementAndGet(stripe);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+
+        return new BulkChange.Result(changed, skipped);
+    }
+
+    /**
+     * Stores imported accounts, replacing their balances, and drops any cached copies so they are
+     * read again. Changes made in memory to those accounts meanwhile are overwritten. Every changed
+     * balance gets an {@link TransactionType#ADMIN_SET} ledger entry, stored in the same transaction,
+     * which the next checkpoint covers. Loads on the affected stripes wait until the accounts are
+     * stored. Must be called on the database thread.
+     *
+     * @param accounts The imported accounts, without duplicates.
+     * @param actor    Who ran the import, for the ledger.
+     * @throws SQLException If the accounts could not be stored. None of them are changed then.
+     */
+    public void importAccounts(List<AccountRecord> accounts, String actor) throws SQLException {
+        boolean[] marked = new boolean[locks.size()];
+        try {
+            for (AccountRecord account : accounts) {
+                int stripe = locks.stripeFor(account.uuid());
+                if (!marked[stripe]) {
+                    ReentrantLock lock = locks.get(stripe);
+                    lock.lock();
+                    try {
+                        stripeVersions.incrementAndGet(stripe);
+                        marked[stripe] = true;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+
+            // Queued entries of these accounts go first, so replaying the ledger ends at the import
+            ledger.commit();
+            List<UUID> uuids = new ArrayList<>(accounts.size());
+            Map<UUID, AccountRecord> imported = new HashMap<>(accounts.size() * 2);
+            for (AccountRecord account : accounts) {
+                uuids.add(account.uuid());
+                imported.put(account.uuid(), account);
+            }
+            plugin.getStorage().updateAccounts(uuids, TransactionType.ADMIN_SET, actor,
+                    (uuid, current) -> {
+                        AccountRecord account = imported.get(uuid);
+                        Long lastAccrued = account.lastAccrued() == null && current != null
+                                ? current.lastAccrued()
+                                : account.lastAccrued();
+                        return new AccountRecord(uuid, account.balance(), lastAccrued);
+                    });
+            ledger.noteAppended();
+
+            ClusterChannel channel = cluster;
+            for (AccountRecord account : accounts) {
+                UUID uuid = account.uuid();
+                int stripe = locks.stripeFor(uuid);
+                ReentrantLock lock = locks.get(stripe);
+                lock.lock();
+                try {
+                    balances[stripe].remove(uuid);
+                    accruedPeriods[stripe].remove(uuid);
+                    versions[stripe].remove(uuid);
+                    dirty.remove(uuid);
+                    missing.remove(uuid);
+                } finally {
+                    lock.unlock();
+                }
+                if (channel != null) {
+                    channel.publish(uuid, account.balance(), 0);
+                }
+            }
+        } finally {
+            for (int stripe = 0; stripe < marked.length; stripe++) {
+                if (marked[stripe]) {
+                    ReentrantLock lock = locks.get(stripe);
+                    lock.lock();
+                    try {
+                        stripeVersions.incrementAndGet(stripe);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a bulk change to one cached account and queues its ledger entry.
+     *
+     * @return {@code true} if the account was changed.
+     */
+    private boolean applyInMemory(BulkChange change, UUID uuid) {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            long cachedBalance = balances[stripe].get(uuid, NOT_CACHED);
+            long before = cachedBalance != NOT_CACHED ? cachedBalance : 0;
+            Long after = change.applyTo(cachedBalance != NOT_CACHED ? cachedBalance : null);
+            if (after == null) {
+                return false;
+            }
+
+            balances[stripe].put(uuid, after);
+            missing.remove(uuid);
+            dirty.add(uuid);
+            ranked(uuid, after);
+            ledger.record(uuid, after - before, change.kind().getType(), change.actor(), after);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a write-through change of one account on the database thread, and mirrors the stored
+     * balance in the cache once the storage has accepted it.
+     *
+     * @param uuid   The UUID of the account being changed.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @param update Calculates the new state of the account.
+     * @return A future completed with the stored account, or {@code null} if the update left it unchanged.
+     */
+    private CompletableFuture<AccountRecord> writeThrough(UUID uuid, TransactionType type, String actor,
+                                                          BankStorage.AccountUpdate update) {
+        return databaseExecutor.write(() -> {
+            ClusterChannel channel = cluster;
+            AccountRecord account;
+            if (channel != null) {
+                account = compareAndSet(channel, uuid, type, actor, update);
+            } else {
+                account = plugin.getStorage().updateAccounts(List.of(uuid), type, actor, update).get(uuid);
+                if (account != null) {
+                    store(uuid, account.balance());
+                    ledger.noteAppended();
+                }
+            }
+            resident(uuid);
+            return account;
+        });
+    }
+
+    /**
+     * Runs a write-behind change once the account is loaded, while holding its stripe lock. If the
+     * account is dropped before the lock is taken, it is loaded again.
+     *
+     * @param uuid   The UUID of the account being changed.
+     * @param change Changes the cached account, given its stripe.
+     * @param <T>    The type of the change's result.
+     * @return A future completed with the change's result.
+     */
+    private <T> CompletableFuture<T> whileLoaded(UUID uuid, LoadedChange<T> change) {
+        return getBalance(uuid).thenCompose(ignored -> {
+            int stripe = locks.stripeFor(uuid);
+            ReentrantLock lock = locks.get(stripe);
+            lock.lock();
+            try {
+                if (balances[stripe].containsKey(uuid) || missing.contains(uuid)) {
+                    return CompletableFuture.completedFuture(change.apply(stripe));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return whileLoaded(uuid, change);
+        });
+    }
+
+    /**
+     * Runs a write-behind change of two cached accounts once both are loaded, while holding both
+     * their stripe locks. If either is dropped before the locks are taken, they are loaded again.
+     *
+     * @param first  The UUID of the first account.
+     * @param second The UUID of the second account.
+     * @param change Changes the cached accounts, given their stripes.
+     * @param <T>    The type of the change's result.
+     * @return A future completed with the change's result.
+     */
+    private <T> CompletableFuture<T> whileBothLoaded(UUID first, UUID second, LoadedPairChange<T> change) {
+        return getBalance(first).thenCombine(getBalance(second), (a, b) -> a).thenCompose(ignored -> {
+            int firstStripe = locks.stripeFor(first);
+            int secondStripe = locks.stripeFor(second);
+            locks.lockPair(firstStripe, secondStripe);
+            try {
+                if ((balances[firstStripe].containsKey(first) || missing.contains(first))
+                        && (balances[secondStripe].containsKey(second) || missing.contains(second))) {
+                    return CompletableFuture.completedFuture(change.apply(firstStripe, secondStripe));
+                }
+            } finally {
+                locks.unlockPair(firstStripe, secondStripe);
+            }
+            return whileBothLoaded(first, second, change);
+        });
+    }
+
+    /**
+     * Stores every queued transfer in one transaction, and mirrors the changed balances in the
+     * cache. Only used in write-through mode. Must be called on the database thread.
+     */
+    private void commitTransfers() {
+        // Clear the flag before taking the batch, so a transfer queued meanwhile queues another commit
+        transferCommitQueued.set(false);
+        List<PendingTransfer> batch = new ArrayList<>();
+        PendingTransfer pending;
+        while ((pending = pendingTransfers.poll()) != null) {
+            batch.add(pending);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<BankStorage.Transfer> transfers = new ArrayList<>(batch.size());
+        for (PendingTransfer queued : batch) {
+            transfers.add(queued.transfer());
+        }
+
+        BankStorage.TransferResult result;
+        try {
+            result = plugin.getStorage().transfer(transfers);
+        } catch (SQLException e) {
+            for (PendingTransfer queued : batch) {
+                queued.result().completeExceptionally(e);
+            }
+            return;
+        }
+        ledger.noteAppended();
+
+        for (AccountRecord account : result.accounts().values()) {
+            mirror(account);
+            resident(account.uuid());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Boolean> future = batch.get(i).result();
+            switch (result.outcomes()[i]) {
+                case MADE -> future.complete(true);
+                case INSUFFICIENT -> future.complete(false);
+                case OVERFLOW -> future.completeExceptionally(new ArithmeticException(RECEIVER_OVERFLOW));
+            }
+        }
+    }
+
+    /**
+     * Caches an account the storage has just changed, and tells the other servers in cluster mode.
+     * Must be called on the database thread.
+     *
+     * @param account The stored account, with its new version.
+     */
+    private void mirror(AccountRecord account) {
+        ClusterChannel channel = cluster;
+        if (channel != null) {
+            cacheVersioned(account.uuid(), account.balance(), account.version(), true);
+            channel.publish(account.uuid(), account.balance(), account.version());
+        } else {
+            store(account.uuid(), account.balance());
+        }
+    }
+
+    /**
+     * Notes that an account was used. Accounts of players that aren't online join the offline
+     * accounts, and a trim is queued once there are too many of them.
+     *
+     * @param uuid The UUID of the account owner.
+     */
+    private void resident(UUID uuid) {
+        if (sessions.containsKey(uuid)) {
+            return;
+        }
+        if (offline.touch(uuid) && trimQueued.compareAndSet(false, true)) {
+            databaseExecutor.run(() -> {
+                trimQueued.set(false);
+                trim();
+            });
+        }
+    }
+
+    /**
+     * Drops the least recently used offline accounts until they fit the memory budget again.
+     * Accounts that can't be dropped yet are skipped. Must be called on the database thread.
+     */
+    private void trim() {
+        int excess = offline.excess();
+        if (excess == 0) {
+            return;
+        }
+        for (UUID uuid : offline.eldest(excess + TRIM_SLACK)) {
+            if (evict(uuid) && --excess == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops an account from the cache, unless its player is online, it has unflushed changes, or a
+     * bulk change is writing its stripe. Must be called on the database thread, so no flush or bulk
+     * change is halfway through.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return {@code true} if the account was dropped.
+     */
+    private boolean evict(UUID uuid) {
+        if (sessions.containsKey(uuid)) {
+            offline.remove(uuid);
+            return false;
+        }
+
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            if (dirty.contains(uuid) || (stripeVersions.get(stripe) & 1) != 0) {
+                return false;
+            }
+            balances[stripe].remove(uuid);
+            accruedPeriods[stripe].remove(uuid);
+            versions[stripe].remove(uuid);
+            missing.remove(uuid);
+        } finally {
+            lock.unlock();
+        }
+        offline.remove(uuid);
+        return true;
+    }
+
+    /**
+     * Stores a change of one account computed from its cached copy, if no other server changed the
+     * account meanwhile, and publishes it to them. A stale copy is read again and the change
+     * retried. Must be called on the database thread.
+     *
+     * @param channel The channel to the other servers.
+     * @param uuid    The UUID of the account being changed.
+     * @param type    The kind of change, for the ledger.
+     * @param actor   Who made the change, for the ledger.
+     * @param update  Calculates the new state of the account.
+     * @return The stored account, or {@code null} if the update left it unchanged.
+     * @throws SQLException If the account could not be changed, or kept changing on other servers.
+     */
+    private AccountRecord compareAndSet(ClusterChannel channel, UUID uuid, TransactionType type, String actor,
+                                        BankStorage.AccountUpdate update) throws SQLException {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        AccountRecord current;
+        boolean known;
+        lock.lock();
+        try {
+            long balance = balances[stripe].get(uuid, NOT_CACHED);
+            long version = versions[stripe].get(uuid, NOT_CACHED);
+            known = (balance != NOT_CACHED && version != NOT_CACHED) || missing.contains(uuid);
+            current = balance != NOT_CACHED && version != NOT_CACHED
+                    ? new AccountRecord(uuid, balance, null, version)
+                    : null;
+        } finally {
+            lock.unlock();
+        }
+        boolean fresh = !known;
+        if (fresh) {
+            current = reload(uuid);
+        }
+
+        int attempts = 0;
+        while (true) {
+            AccountRecord next = update.apply(uuid, current);
+            if (next == null) {
+                if (fresh) {
+                    return null;
+                }
+                // The cached copy may be stale, so check the refusal against the stored account
+                current = reload(uuid);
+                fresh = true;
+                continue;
+            }
+
+            long before = current != null ? current.balance() : 0;
+            long version = plugin.getStorage().compareAndSet(uuid, current != null ? current.version() : 0,
+                    next.balance(), next.balance() - before, type, actor);
+            if (version != 0) {
+                ledger.noteAppended();
+                cacheVersioned(uuid, next.balance(), version, true);
+                channel.publish(uuid, next.balance(), version);
+                return new AccountRecord(uuid, next.balance(), next.lastAccrued(), version);
+            }
+
+            if (++attempts >= MAX_CAS_ATTEMPTS) {
+                throw new SQLException("Account " + uuid + " kept changing on other servers, gave up after "
+                        + attempts + " attempts");
+            }
+            current = reload(uuid);
+            fresh = true;
+        }
+    }
+
+    /**
+     * Reads an account from the storage and caches it if it is newer than the cached copy.
+     * Only used in cluster mode.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The stored account, or {@code null} if the player has no bank account.
+     * @throws SQLException If the account could not be read.
+     */
+    private AccountRecord reload(UUID uuid) throws SQLException {
+        AccountRecord account = plugin.getStorage().loadAccount(uuid);
+        if (account != null) {
+            cacheVersioned(uuid, account.balance(), account.version(), true);
+        }
+        return account;
+    }
+
+    /**
+     * Applies a change another server made to an account. Cached copies are only replaced by newer
+     * versions, and dropped if the version is unknown.
+     *
+     * @param uuid    The UUID of the account owner.
+     * @param balance The new balance in cents.
+     * @param version The stored version, or 0 if it is unknown.
+     */
+    private void remoteChange(UUID uuid, long balance, long version) {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            missing.remove(uuid);
+            if (version == 0) {
+                balances[stripe].remove(uuid);
+                versions[stripe].remove(uuid);
+                stripeVersions.addAndGet(stripe, 2);
+                ranked(uuid, balance);
+            } else if (!balances[stripe].containsKey(uuid)) {
+                stripeVersions.addAndGet(stripe, 2);
+                ranked(uuid, balance);
+            } else {
+                cacheVersioned(uuid, balance, version, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a balance together with its version, unless a newer version is cached already.
+     *
+     * @param uuid        The UUID of the account owner.
+     * @param balance     The balance in cents.
+     * @param version     The stored version.
+     * @param addIfAbsent {@code true} to cache accounts that aren't cached yet.
+     */
+    private void cacheVersioned(UUID uuid, long balance, long version, boolean addIfAbsent) {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            if (!addIfAbsent && !balances[stripe].containsKey(uuid)) {
+                return;
+            }
+            if (versions[stripe].get(uuid, 0) >= version) {
+                return;
+            }
+            balances[stripe].put(uuid, balance);
+            versions[stripe].put(uuid, version);
+            missing.remove(uuid);
+            ranked(uuid, balance);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every cached account, so each is read again on its next use. Only used in cluster mode,
+     * where nothing is held back in memory.
+     */
+    private void clear() {
+        for (int stripe = 0; stripe < balances.length; stripe++) {
+            ReentrantLock lock = locks.get(stripe);
+            lock.lock();
+            try {
+                balances[stripe].clear();
+                versions[stripe].clear();
+                stripeVersions.addAndGet(stripe, 2);
+            } finally {
+                lock.unlock();
+            }
+        }
+        missing.clear();
+    }
+
+    /**
+     * Reads a cached balance.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The balance in cents, or {@link #NOT_CACHED} if the account is not loaded.
+     */
+    private long cached(UUID uuid) {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            return balances[stripe].get(uuid, NOT_CACHED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a cached balance.
+     *
+     * @param uuid    The UUID of the account owner.
+     * @param balance The balance in cents.
+     * @return The balance.
+     */
+    private long store(UUID uuid, long balance) {
+        int stripe = locks.stripeFor(uuid);
+        ReentrantLock lock = locks.get(stripe);
+        lock.lock();
+        try {
+            balances[stripe].put(uuid, balance);
+            missing.remove(uuid);
+            ranked(uuid, balance);
+            return balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports a changed balance to the leaderboard. Called while holding the account's stripe lock,
+     * so the changes of one account arrive in order.
+     *
+     * @param uuid    The UUID of the account owner.
+     * @param balance The new balance in cents.
+     */
+    private void ranked(UUID uuid, long balance) {
+        Leaderboard leaderboard = plugin.getLeaderboard();
+        if (leaderboard != null) {
+            leaderboard.update(uuid, balance);
+        }
+    }
+
+    /**
+     * A transfer waiting to be stored, with the future its caller waits on.
+     */
+    private record PendingTransfer(BankStorage.Transfer transfer, CompletableFuture<Boolean> result) {
+    }
+
+    /**
+     * A write-behind change of two cached accounts, run while holding both their stripe locks.
+     */
+    @FunctionalInterface
+    private interface LoadedPairChange<T> {
+
+        /**
+         * @param firstStripe  The stripe of the first account.
+         * @param secondStripe The stripe of the second account.
+         * @return The result of the change.
+         */
+        T apply(int firstStripe, int secondStripe);
+    }
+
+    /**
+     * A write-behind change of one cached account, run while holding its stripe lock.
+     */
+    @FunctionalInterface
+    private interface LoadedChange<T> {
+
+        /**
+         * @param stripe The stripe of the account.
+         * @return The result of the change.
+         */
+        T apply(int stripe);
+    }
+}
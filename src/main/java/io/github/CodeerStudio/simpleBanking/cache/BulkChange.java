@@ -0,0 +1,63 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+
+/**
+ * One admin change applied to many accounts at once, such as an event payout.
+ *
+ * @param kind   What the change does to each balance.
+ * @param amount The amount in cents.
+ * @param actor  Who made the change, for the ledger.
+ */
+public record BulkChange(Kind kind, long amount, String actor) {
+
+    /**
+     * Calculates the balance an account ends up with. Taking needs an existing account with enough
+     * money; giving and setting create the account if needed.
+     *
+     * @param before The balance in cents, or {@code null} if the player has no account.
+     * @return The new balance in cents, or {@code null} if the change doesn't apply to the account.
+     */
+    public Long applyTo(Long before) {
+        long balance = before != null ? before : 0;
+        long after = switch (kind) {
+            case GIVE -> Math.addExact(balance, amount);
+            case TAKE -> before != null ? balance - amount : -1;
+            case SET -> amount;
+        };
+        return after >= 0 ? after : null;
+    }
+
+    /**
+     * What a bulk change does to each balance.
+     */
+    public enum Kind {
+        GIVE(TransactionType.ADMIN_GIVE),
+        TAKE(TransactionType.ADMIN_TAKE),
+        SET(TransactionType.ADMIN_SET);
+
+        private final TransactionType type;
+
+        Kind(TransactionType type) {
+            this.type = type;
+        }
+
+        /**
+         * Gets the ledger type recorded for this kind of change.
+         *
+         * @return The transaction type.
+         */
+        public TransactionType getType() {
+            return type;
+        }
+    }
+
+    /**
+     * The outcome of applying a bulk change to a group of accounts.
+     *
+     * @param changed The number of accounts that were changed.
+     * @param skipped The number of accounts left unchanged, because they had too little money or no account.
+     */
+    public record Result(int changed, int skipped) {
+    }
+}
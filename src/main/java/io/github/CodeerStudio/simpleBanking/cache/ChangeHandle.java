@@ -0,0 +1,36 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets the caller of a balance change give up on it while it is still queued, for callers that
+ * can only wait a limited time. Either the change starts or it is abandoned, never both, so a
+ * caller who abandoned it knows the balance was left alone.
+ */
+public class ChangeHandle {
+
+    private static final int QUEUED = 0;
+    private static final int STARTED = 1;
+    private static final int ABANDONED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+    /**
+     * Marks the change as started, unless it was abandoned. Called by the account cache right
+     * before it applies the change; calling it again once started is harmless.
+     *
+     * @return {@code true} if the change may go ahead.
+     */
+    boolean start() {
+        return state.compareAndSet(QUEUED, STARTED) || state.get() == STARTED;
+    }
+
+    /**
+     * Gives up on the change, unless it has already started.
+     *
+     * @return {@code true} if the change will never be applied, or {@code false} if it has started.
+     */
+    public boolean abandon() {
+        return state.compareAndSet(QUEUED, ABANDONED) || state.get() == ABANDONED;
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A set of UUIDs in the order they were last used, with a capacity it should be trimmed to.
+ *
+ * The set doesn't drop anything by itself: the owner asks for the least recently used entries
+ * and removes the ones it could let go of. This set is thread-safe.
+ */
+public class LruSet {
+
+    private final LinkedHashMap<UUID, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+    private final int capacity;
+
+    /**
+     * Constructs a new, empty set.
+     *
+     * @param capacity The number of entries the set should hold at most.
+     */
+    public LruSet(int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * Adds an entry, or marks it as the most recently used one.
+     *
+     * @param uuid The entry.
+     * @return {@code true} if the set is over its capacity now.
+     */
+    public synchronized boolean touch(UUID uuid) {
+        order.put(uuid, Boolean.TRUE);
+        return order.size() > capacity;
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param uuid The entry.
+     */
+    public synchronized void remove(UUID uuid) {
+        order.remove(uuid);
+    }
+
+    /**
+     * Gets the least recently used entries, without changing their order.
+     *
+     * @param count The most entries to return.
+     * @return The entries, least recently used first.
+     */
+    public synchronized List<UUID> eldest(int count) {
+        List<UUID> uuids = new ArrayList<>(Math.min(count, order.size()));
+        Iterator<UUID> iterator = order.keySet().iterator();
+        while (uuids.size() < count && iterator.hasNext()) {
+            uuids.add(iterator.next());
+        }
+        return uuids;
+    }
+
+    /**
+     * Gets the number of entries over the capacity.
+     *
+     * @return The excess, or 0 if the set is within its capacity.
+     */
+    public synchronized int excess() {
+        return Math.max(0, order.size() - capacity);
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The entry count.
+     */
+    public synchronized int size() {
+        return order.size();
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that accounts are spread across by UUID.
+ *
+ * Operations on the same account always take the same lock, so they are serialized, while
+ * operations on different accounts usually take different locks and run in parallel.
+ * When several accounts must be locked together, lock them in ascending stripe order
+ * to avoid deadlocks.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * Constructs a new set of striped locks.
+     *
+     * @param stripes The minimum number of stripes; rounded up to a power of two.
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the stripe an account belongs to.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The stripe index.
+     */
+    public int stripeFor(UUID uuid) {
+        long bits = uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+        int hash = (int) (bits ^ (bits >>> 32));
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Gets the lock guarding an account.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The account's lock.
+     */
+    public ReentrantLock lockFor(UUID uuid) {
+        return locks[stripeFor(uuid)];
+    }
+
+    /**
+     * Gets the lock of a stripe.
+     *
+     * @param stripe The stripe index.
+     * @return The stripe's lock.
+     */
+    public ReentrantLock get(int stripe) {
+        return locks[stripe];
+    }
+
+    /**
+     * Locks two stripes, the lower one first, so threads locking the same pair from either side
+     * can't deadlock. A stripe given twice is locked once.
+     *
+     * @param first  The first stripe index.
+     * @param second The second stripe index.
+     */
+    public void lockPair(int first, int second) {
+        locks[Math.min(first, second)].lock();
+        if (first != second) {
+            locks[Math.max(first, second)].lock();
+        }
+    }
+
+    /**
+     * Unlocks two stripes locked with {@link #lockPair(int, int)}, in reverse order.
+     *
+     * @param first  The first stripe index.
+     * @param second The second stripe index.
+     */
+    public void unlockPair(int first, int second) {
+        if (first != second) {
+            locks[Math.max(first, second)].unlock();
+        }
+        locks[Math.min(first, second)].unlock();
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return The stripe count.
+     */
+    public int size() {
+        return locks.length;
+    }
+}
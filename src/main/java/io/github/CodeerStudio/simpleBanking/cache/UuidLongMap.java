@@ -0,0 +1,240 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import java.util.UUID;
+
+/**
+ * A hash map from UUID to {@code long} using open addressing with linear probing.
+ *
+ * Each entry is stored as three longs in parallel arrays (two for the key, one for the value),
+ * so there is no per-entry object and no boxing. The nil UUID is used to mark empty slots and
+ * is therefore kept in a separate field. This map is not thread-safe.
+ */
+public class UuidLongMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasNilKey;
+    private long nilValue;
+
+    /**
+     * Constructs a new map sized for the expected number of entries.
+     *
+     * @param expectedSize The number of entries to allocate room for.
+     */
+    public UuidLongMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        return size + (hasNilKey ? 1 : 0);
+    }
+
+    /**
+     * Checks whether the map has an entry for a key.
+     *
+     * @param key The key to look up.
+     * @return {@code true} if the key is present.
+     */
+    public boolean containsKey(UUID key) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        return isNil(most, least) ? hasNilKey : indexOf(most, least) >= 0;
+    }
+
+    /**
+     * Gets the value for a key.
+     *
+     * @param key          The key to look up.
+     * @param defaultValue The value to return if the key is absent.
+     * @return The value, or {@code defaultValue} if the key is absent.
+     */
+    public long get(UUID key, long defaultValue) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        if (isNil(most, least)) {
+            return hasNilKey ? nilValue : defaultValue;
+        }
+
+        int index = indexOf(most, least);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /**
+     * Sets the value for a key, adding the key if it is absent.
+     *
+     * @param key   The key to set.
+     * @param value The value to store.
+     */
+    public void put(UUID key, long value) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        if (isNil(most, least)) {
+            hasNilKey = true;
+            nilValue = value;
+            return;
+        }
+
+        int slot = slotFor(most, least);
+        while (!isEmpty(slot)) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(mostBits.length << 1);
+        }
+    }
+
+    /**
+     * Removes the entry for a key.
+     *
+     * @param key The key to remove.
+     * @return {@code true} if the key was present.
+     */
+    public boolean remove(UUID key) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        if (isNil(most, least)) {
+            boolean had = hasNilKey;
+            hasNilKey = false;
+            return had;
+        }
+
+        int gap = indexOf(most, least);
+        if (gap < 0) {
+            return false;
+        }
+
+        // Shift later entries of the probe chain back into the gap, so no tombstones are needed
+        int next = (gap + 1) & mask;
+        while (!isEmpty(next)) {
+            int ideal = slotFor(mostBits[next], leastBits[next]);
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                mostBits[gap] = mostBits[next];
+                leastBits[gap] = leastBits[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        mostBits[gap] = 0;
+        leastBits[gap] = 0;
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Calls the consumer for every entry in the map.
+     *
+     * @param consumer The consumer to call.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasNilKey) {
+            consumer.accept(0, 0, nilValue);
+        }
+        for (int i = 0; i < mostBits.length; i++) {
+            if (!isEmpty(i)) {
+                consumer.accept(mostBits[i], leastBits[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries and shrinks the map back to its minimum size.
+     */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        hasNilKey = false;
+        nilValue = 0;
+    }
+
+    private int indexOf(long most, long least) {
+        int slot = slotFor(most, least);
+        while (!isEmpty(slot)) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotFor(long most, long least) {
+        // MurmurHash3 finalizer, so sequential or similar UUIDs still spread evenly
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private boolean isEmpty(int slot) {
+        return mostBits[slot] == 0 && leastBits[slot] == 0;
+    }
+
+    private static boolean isNil(long most, long least) {
+        return most == 0 && least == 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        long[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldMost.length; i++) {
+            if (oldMost[i] == 0 && oldLeast[i] == 0) {
+                continue;
+            }
+            int slot = slotFor(oldMost[i], oldLeast[i]);
+            while (!isEmpty(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            mostBits[slot] = oldMost[i];
+            leastBits[slot] = oldLeast[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.75f);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / 0.75);
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * Receives map entries from {@link #forEach(EntryConsumer)}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long mostBits, long leastBits, long value);
+    }
+}
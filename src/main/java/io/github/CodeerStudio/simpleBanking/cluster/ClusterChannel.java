@@ -0,0 +1,60 @@
+package io.github.CodeerStudio.simpleBanking.cluster;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Carries balance changes between servers that share one bank database, so each server can keep
+ * serving cached balances without reading the account back on every access.
+ *
+ * Every change is published with the account version it was stored at. A receiver applies a change
+ * only if it is newer than what it has cached, so changes arriving late or twice do no harm. A change
+ * with version 0 carries a balance whose version is unknown, and only tells receivers to drop their
+ * cached copy. Delivery is best effort: a lost change leaves a stale cached copy, which the next
+ * write to that account detects through its version and corrects.
+ */
+public interface ClusterChannel extends AutoCloseable {
+
+    /**
+     * Starts receiving the changes published by other servers.
+     *
+     * @param listener Receives the changes, on a thread of the channel's choosing.
+     * @throws IOException If the channel could not be joined.
+     */
+    void start(Listener listener) throws IOException;
+
+    /**
+     * Tells the other servers that an account was changed. Never blocks on them.
+     *
+     * @param uuid    The UUID of the account owner.
+     * @param balance The new balance in cents.
+     * @param version The version the account was stored at, or 0 if it is unknown.
+     */
+    void publish(UUID uuid, long balance, long version);
+
+    /**
+     * Leaves the channel.
+     */
+    @Override
+    void close();
+
+    /**
+     * Receives the changes published by other servers.
+     */
+    interface Listener {
+
+        /**
+         * Called when another server changed an account.
+         *
+         * @param uuid    The UUID of the account owner.
+         * @param balance The new balance in cents.
+         * @param version The version the account was stored at, or 0 if it is unknown.
+         */
+        void accountChanged(UUID uuid, long balance, long version);
+
+        /**
+         * Called when changes may have been missed, so every cached account has to be read again.
+         */
+        void resync();
+    }
+}
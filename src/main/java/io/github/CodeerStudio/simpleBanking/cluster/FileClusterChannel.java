@@ -0,0 +1,254 @@
+package io.github.CodeerStudio.simpleBanking.cluster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ClusterChannel} over a directory shared by all servers, for servers on one host where no
+ * message broker is available. The servers share their SQLite database too, which only works on one
+ * host, so the directory is a local one as well; see {@link LocalFileSystems}.
+ *
+ * Each server appends its changes to its own {@code <node>.changes} file and polls the files of the
+ * others. A file starts with a random generation number, which is replaced whenever the file is
+ * started over: when its server restarts, or when the file has grown too large. Readers that see a
+ * new generation may have missed the end of the old file, so they resync.
+ */
+public class FileClusterChannel implements ClusterChannel {
+
+    private static final String SUFFIX = ".changes";
+
+    // The generation number
+    private static final int HEADER_SIZE = 8;
+
+    // uuid (2 longs), balance, version
+    private static final int RECORD_SIZE = 32;
+
+    // The size at which a server starts its file over
+    private static final long MAX_FILE_BYTES = 1 << 20;
+
+    // Records read from another server's file at once
+    private static final int READ_RECORDS = 2048;
+
+    private final Path directory;
+    private final Path file;
+    private final long pollIntervalMillis;
+    private final Logger logger;
+
+    // Where reading each other server's file continues. Only used on the poll thread.
+    private final Map<Path, Peer> peers = new HashMap<>();
+
+    private FileChannel out;
+    private long size;
+
+    private ScheduledExecutorService poller;
+    private Listener listener;
+
+    /**
+     * Constructs a new FileClusterChannel. Nothing is opened until it is started.
+     *
+     * @param directory          The directory shared by all servers.
+     * @param nodeId             The name of this server, unique within the cluster.
+     * @param pollIntervalMillis How often the other servers' changes are read.
+     * @param logger             The logger to report failures to.
+     */
+    public FileClusterChannel(Path directory, String nodeId, long pollIntervalMillis, Logger logger) {
+        this.directory = directory;
+        this.file = directory.resolve(nodeId + SUFFIX);
+        this.pollIntervalMillis = Math.max(10, pollIntervalMillis);
+        this.logger = logger;
+    }
+
+    @Override
+    public synchronized void start(Listener listener) throws IOException {
+        this.listener = listener;
+        Files.createDirectories(directory);
+        out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        startOver();
+
+        // Changes the others published before now are already in the database
+        for (Path peerFile : listPeers()) {
+            try (FileChannel in = FileChannel.open(peerFile, StandardOpenOption.READ)) {
+                long peerSize = in.size();
+                if (peerSize >= HEADER_SIZE) {
+                    peers.put(peerFile, new Peer(readHeader(in), wholeRecords(peerSize)));
+                }
+            }
+        }
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SimpleBanking-Cluster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void publish(UUID uuid, long balance, long version) {
+        if (out == null) {
+            return;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .putLong(balance)
+                .putLong(version)
+                .flip();
+        try {
+            if (size + RECORD_SIZE > MAX_FILE_BYTES) {
+                startOver();
+            }
+            while (record.hasRemaining()) {
+                out.write(record, size + record.position());
+            }
+            size += RECORD_SIZE;
+        } catch (IOException e) {
+            logger.warning("Could not publish a bank change to the cluster: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        if (out != null) {
+            try {
+                out.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warning("Could not remove " + file.getFileName() + ": " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Empties this server's file and gives it a new generation.
+     */
+    private void startOver() throws IOException {
+        long generation = ThreadLocalRandom.current().nextLong();
+        out.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            out.write(header, header.position());
+        }
+        size = HEADER_SIZE;
+    }
+
+    /**
+     * Reads the changes the other servers appended since the last poll.
+     */
+    private void poll() {
+        try {
+            Set<Path> seen = new HashSet<>();
+            for (Path peerFile : listPeers()) {
+                seen.add(peerFile);
+                readPeer(peerFile);
+            }
+            peers.keySet().retainAll(seen);
+        } catch (IOException | RuntimeException e) {
+            // Keep polling; anything missed is caught by the version check of the next write
+            logger.warning("Could not read bank changes from the cluster: " + e.getMessage());
+        }
+    }
+
+    private void readPeer(Path peerFile) throws IOException {
+        try (FileChannel in = FileChannel.open(peerFile, StandardOpenOption.READ)) {
+            long peerSize = in.size();
+            if (peerSize < HEADER_SIZE) {
+                return; // Being started over
+            }
+
+            long generation = readHeader(in);
+            Peer peer = peers.get(peerFile);
+            if (peer == null) {
+                // A server that joined after this one, so all of its changes are new
+                peer = new Peer(generation, HEADER_SIZE);
+                peers.put(peerFile, peer);
+            } else if (peer.generation != generation || peerSize < peer.offset) {
+                peer.generation = generation;
+                peer.offset = wholeRecords(peerSize);
+                listener.resync();
+                return;
+            }
+
+            long end = wholeRecords(peerSize);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_SIZE);
+            while (peer.offset < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - peer.offset));
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, peer.offset + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of " + peerFile.getFileName());
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                    listener.accountChanged(uuid, buffer.getLong(), buffer.getLong());
+                }
+                peer.offset += buffer.limit();
+            }
+        }
+    }
+
+    private Set<Path> listPeers() throws IOException {
+        Set<Path> files = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path peerFile : stream) {
+                if (!peerFile.equals(file)) {
+                    files.add(peerFile);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static long readHeader(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (in.read(header, header.position()) < 0) {
+                throw new IOException("Unexpected end of a cluster file");
+            }
+        }
+        return header.flip().getLong();
+    }
+
+    /**
+     * Gets the end of the last complete record, leaving out one that is still being written.
+     */
+    private static long wholeRecords(long fileSize) {
+        return HEADER_SIZE + (fileSize - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+    }
+
+    /**
+     * How far another server's file has been read.
+     */
+    private static final class Peer {
+
+        private long generation;
+        private long offset;
+
+        private Peer(long generation, long offset) {
+            this.generation = generation;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.CodeerStudio.simpleBanking.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link ClusterChannel} between caches in the same JVM, for tests and benchmarks that run several
+ * nodes side by side. Channels created with the same name form one cluster, and changes are handed
+ * to the other members on the publishing thread.
+ */
+public class LocalClusterChannel implements ClusterChannel {
+
+    private static final Map<String, Set<LocalClusterChannel>> CLUSTERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private volatile Listener listener;
+
+    /**
+     * Constructs a new LocalClusterChannel. It joins its cluster once started.
+     *
+     * @param name The name of the cluster to join.
+     */
+    public LocalClusterChannel(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        CLUSTERS.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void publish(UUID uuid, long balance, long version) {
+        Set<LocalClusterChannel> members = CLUSTERS.get(name);
+        if (members == null) {
+            return;
+        }
+        for (LocalClusterChannel member : members) {
+            Listener receiver = member.listener;
+            if (member != this && receiver != null) {
+                receiver.accountChanged(uuid, balance, version);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        CLUSTERS.computeIfPresent(name, (key, members) -> {
+            members.remove(this);
+            return members.isEmpty() ? null : members;
+        });
+        listener = null;
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.CodeerStudio.simpleBanking.cluster;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tells files on the local disk from files on a network share.
+ *
+ * Servers in a cluster share an SQLite database in WAL mode, whose readers and writers coordinate
+ * through a shared-memory index next to the database file. That only works between processes on
+ * the same host, on a local file system: over NFS, SMB and the like the locks and the index are not
+ * shared reliably, and the database can be corrupted. A cluster must therefore run on one host.
+ */
+public final class LocalFileSystems {
+
+    // File system types, or parts of them, that are network shares
+    private static final List<String> NETWORK_TYPES = List.of(
+            "nfs", "cifs", "smb", "sshfs", "9p", "ceph", "gluster", "afs", "davfs", "webdav", "lustre", "fuse.s3");
+
+    private LocalFileSystems() {
+    }
+
+    /**
+     * Finds out whether a file is on a network share. The file doesn't have to exist yet; its
+     * nearest existing parent directory is looked at instead.
+     *
+     * @param path The file.
+     * @return A description of the network share, or {@code null} if the file is on a local disk or
+     * its file system can't be told.
+     */
+    public static String networkShare(Path path) {
+        String name = path.toString().replace('\\', '/');
+        if (name.startsWith("//")) {
+            return "a UNC path";
+        }
+
+        Path existing = path.toAbsolutePath();
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        if (existing == null) {
+            return null;
+        }
+
+        try {
+            FileStore store = Files.getFileStore(existing);
+            String type = store.type().toLowerCase(Locale.ROOT);
+            for (String network : NETWORK_TYPES) {
+                if (type.contains(network)) {
+                    return "a " + store.type() + " network share";
+                }
+            }
+        } catch (IOException e) {
+            // Unknown, so don't refuse it
+        }
+        return null;
+    }
+}
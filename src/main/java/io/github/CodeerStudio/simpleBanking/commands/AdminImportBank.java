@@ -0,0 +1,51 @@
+package io.github.CodeerStudio.simpleBanking.commands;
+
+import io.github.CodeerStudio.simpleBanking.handlers.ThrottleHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.TransferHandler;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+public class AdminImportBank implements CommandExecutor {
+
+    private final TransferHandler transferHandler;
+    private final ThrottleHandler throttleHandler;
+    private final BankMetrics metrics;
+
+    public AdminImportBank(TransferHandler transferHandler, ThrottleHandler throttleHandler, BankMetrics metrics) {
+        this.transferHandler = transferHandler;
+        this.throttleHandler = throttleHandler;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        long start = System.nanoTime();
+        try {
+            return execute(sender, args);
+        } finally {
+            metrics.record(BankMetrics.Operation.COMMAND_IMPORT, start, false);
+        }
+    }
+
+    private boolean execute(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("simplebanking.admin.import")) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission to use this command.");
+            return true;
+        }
+        if (!throttleHandler.allowAdmin(sender)) {
+            return true;
+        }
+
+        if (args.length < 1) {
+            sender.sendMessage(ChatColor.RED + "Usage: /bankimport <file[.csv]>");
+            return true;
+        }
+
+        // Runs in the background and reports its progress to the sender
+        transferHandler.startImport(sender, args[0]);
+        return true;
+    }
+}
@@ -1,6 +1,11 @@
 package io.github.CodeerStudio.simpleBanking.commands;
 
+import io.github.CodeerStudio.simpleBanking.cache.BulkChange;
 import io.github.CodeerStudio.simpleBanking.handlers.BankManagerHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.BulkOperationHandler;
+import io.github.CodeerStudio.simpleBanking.handlers.ThrottleHandler;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.util.Money;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -11,39 +16,68 @@ import org.jetbrains.annotations.NotNull;
 public class AdminSetBalance implements CommandExecutor {
 
     private final BankManagerHandler bankManagerHandler;
+    private final BulkOperationHandler bulkOperationHandler;
+    private final ThrottleHandler throttleHandler;
+    private final BankMetrics metrics;
 
-    public AdminSetBalance(BankManagerHandler bankManagerHandler) {
+    public AdminSetBalance(BankManagerHandler bankManagerHandler, BulkOperationHandler bulkOperationHandler,
+                           ThrottleHandler throttleHandler, BankMetrics metrics) {
         this.bankManagerHandler = bankManagerHandler;
+        this.bulkOperationHandler = bulkOperationHandler;
+        this.throttleHandler = throttleHandler;
+        this.metrics = metrics;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        long start = System.nanoTime();
+        try {
+            return execute(sender, args);
+        } finally {
+            metrics.record(BankMetrics.Operation.COMMAND_SET, start, false);
+        }
+    }
+
+    private boolean execute(CommandSender sender, String[] args) {
         if (!sender.hasPermission("simplebanking.admin.set")) {
             sender.sendMessage(ChatColor.RED + "You do not have permission to use this command.");
             return true;
         }
-
-        if (args.length < 2) {
-            sender.sendMessage(ChatColor.RED + "Usage: /setbankbalance <player> <amount>");
+        if (!throttleHandler.allowAdmin(sender)) {
             return true;
         }
 
-        Player target = sender.getServer().getPlayer(args[0]);
-        if (target == null) {
-            sender.sendMessage(ChatColor.RED + "Player not found.");
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /setbankbalance <player|@online|@all|@perm:<permission>|@file:<name>> <amount>");
             return true;
         }
 
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(args[1]);
-        } catch (NumberFormatException e) {
+            amount = Money.parse(args[1]);
+        } catch (NumberFormatException | ArithmeticException e) {
             sender.sendMessage(ChatColor.RED + "Invalid amount. Please enter a valid number.");
             return true;
         }
 
-        bankManagerHandler.setBalance(target, amount);
-        sender.sendMessage(ChatColor.GREEN + "Successfully set " + target.getName() + "'s balance to " + amount + ".");
+        // Targets like @online or @all change many accounts in the background
+        if (BulkOperationHandler.isBulkTarget(args[0])) {
+            bulkOperationHandler.start(sender, BulkChange.Kind.SET, args[0], amount);
+            return true;
+        }
+
+        Player target = sender.getServer().getPlayer(args[0]);
+        if (target == null) {
+            sender.sendMessage(ChatColor.RED + "Player not found.");
+            return true;
+        }
+
+        // The result arrives on the main thread once the bank has been updated
+        bankManagerHandler.setBalance(sender, target, amount).thenAccept(success -> {
+            if (success) {
+                sender.sendMessage(ChatColor.GREEN + "Successfully set " + target.getName() + "'s balance to " + Money.format(amount) + ".");
+            }
+        });
         return true;
     }
 }
@@ -2,7 +2,12 @@ package io.github.CodeerStudio.simpleBanking.commands;
 
 import io.github.CodeerStudio.simpleBanking.SimpleBanking;
 import io.github.CodeerStudio.simpleBanking.gui.BankMenuGUI;
-import io.github.CodeerStudio.simpleBanking.handlers.BankManagerHandler;
+import io.github.CodeerStudio.simpleBanking.gui.HistoryGUI;
+import io.github.CodeerStudio.simpleBanking.handlers.AmountPromptHandler;
+import io.github.CodeerStudio.simpleBanking.leaderboard.Leaderboard;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.throttle.RequestLimiter;
+import io.github.CodeerStudio.simpleBanking.util.Money;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -12,8 +17,8 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.event.player.AsyncPlayerChatEvent;
-import org.bukkit.inventory.Inventory;
+
+import java.util.List;
 
 /**
  * This class handles the bank menu GUI and player interactions with it.
@@ -33,7 +38,10 @@ public class BankMenu implements Listener, CommandExecutor {
     }
 
     /**
-     * Handles the execution of the "/bank" command. Opens the bank inventory for the player.
+     * Handles the execution of the "/bank" command. Opens the bank inventory for the player,
+     * shows the richest players with "/bank top", pages through the player's transactions with
+     * "/bank history [next|prev]", pays another player with "/bank pay <player> <amount>", or shows
+     * operation statistics with "/bank stats".
      *
      * @param sender The entity that executed the command.
      * @param command The command that was executed.
@@ -43,21 +51,153 @@ public class BankMenu implements Listener, CommandExecutor {
      */
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        long start = System.nanoTime();
+        try {
+            if (!plugin.getThrottleHandler().allow(sender)) {
+                return true;
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+                showStats(sender);
+                return true;
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("top")) {
+                showTop(sender);
+                return true;
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("history")) {
+                if (!(sender instanceof Player player)) {
+                    sender.sendMessage("Only players can run this command.");
+                    return true;
+                }
+                plugin.getHistoryHandler().showChat(player, args.length > 1 ? args[1] : null);
+                return true;
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("pay")) {
+                pay(sender, args);
+                return true;
+            }
+            return openMenu(sender);
+        } finally {
+            plugin.getMetrics().record(BankMetrics.Operation.COMMAND_BANK, start, false);
+        }
+    }
+
+    private boolean openMenu(CommandSender sender) {
         if (!(sender instanceof Player player)) {
             sender.sendMessage("Only players can run this command.");
             return true;
         }
 
-        // Create and populate the inventory
-        Inventory inventory = BankMenuGUI.createBankMenu(player);
-        player.openInventory(inventory);
+        // Create the menu from the prebuilt templates and open it for the player
+        BankMenuGUI menu = new BankMenuGUI(player);
+        player.openInventory(menu.getInventory());
 
-        // Open the inventory for the player
-        player.openInventory(inventory);
+        // Fill in the balance line once it is known
+        plugin.getAccountCache().getBalance(player.getUniqueId()).thenAcceptAsync(
+                balance -> menu.setBalance(balance != null ? balance : 0),
+                plugin.getDatabaseExecutor().mainThread());
 
         return true;
     }
 
+    /**
+     * Pays money from the sender's bank account into another online player's.
+     *
+     * @param sender The sender paying.
+     * @param args   The command arguments, starting with "pay".
+     */
+    private void pay(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage("Only players can run this command.");
+            return;
+        }
+        if (args.length < 3) {
+            player.sendMessage(ChatColor.RED + "Usage: /bank pay <player> <amount>");
+            return;
+        }
+
+        Player target = plugin.getServer().getPlayer(args[1]);
+        if (target == null) {
+            player.sendMessage(ChatColor.RED + "Player not found.");
+            return;
+        }
+        if (target.getUniqueId().equals(player.getUniqueId())) {
+            player.sendMessage(ChatColor.RED + "You can't pay yourself.");
+            return;
+        }
+
+        long amount;
+        try {
+            amount = Money.parse(args[2]);
+        } catch (NumberFormatException e) {
+            player.sendMessage(ChatColor.RED + "Invalid amount. Please enter a valid number.");
+            return;
+        } catch (Money.TooManyDecimalsException e) {
+            player.sendMessage(ChatColor.RED + "The amount can only have up to two decimal places.");
+            return;
+        } catch (ArithmeticException e) {
+            player.sendMessage(ChatColor.RED + "That amount is too large.");
+            return;
+        }
+        if (amount <= 0) {
+            player.sendMessage(ChatColor.RED + "The amount must be greater than zero.");
+            return;
+        }
+
+        plugin.getBankManagerHandler().transfer(player, target, amount);
+    }
+
+    /**
+     * Sends the richest players, and the sender's own rank if they are a player.
+     *
+     * @param sender The sender requesting the leaderboard.
+     */
+    private void showTop(CommandSender sender) {
+        List<Leaderboard.Entry> top = plugin.getLeaderboard().top(plugin.getConfig().getInt("leaderboard.size", 10));
+        if (top.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "The leaderboard is still loading, try again in a moment.");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "Richest players:");
+        for (int i = 0; i < top.size(); i++) {
+            Leaderboard.Entry entry = top.get(i);
+            String name = Bukkit.getOfflinePlayer(entry.uuid()).getName();
+            sender.sendMessage(ChatColor.YELLOW + "#" + (i + 1) + " " + ChatColor.WHITE
+                    + (name != null ? name : entry.uuid().toString()) + ChatColor.GRAY + " - "
+                    + Money.format(entry.balance()));
+        }
+
+        if (sender instanceof Player player) {
+            plugin.getLeaderboard().rankOf(player.getUniqueId()).whenCompleteAsync((rank, error) -> {
+                if (error != null) {
+                    plugin.getLogger().warning("Could not look up the bank rank of " + player.getName() + ": "
+                            + error.getMessage());
+                } else if (rank != null) {
+                    player.sendMessage(ChatColor.GOLD + "Your rank: " + ChatColor.YELLOW + "#" + rank);
+                }
+            }, plugin.getDatabaseExecutor().mainThread());
+        }
+    }
+
+    /**
+     * Sends the operation statistics report to an admin.
+     *
+     * @param sender The sender requesting the statistics.
+     */
+    private void showStats(CommandSender sender) {
+        if (!sender.hasPermission("simplebanking.admin.stats")) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission to use this command.");
+            return;
+        }
+
+        List<String> report = plugin.getMetrics().report();
+        sender.sendMessage(ChatColor.GOLD + report.get(0));
+        for (int i = 1; i < report.size(); i++) {
+            sender.sendMessage(ChatColor.GRAY + report.get(i));
+        }
+    }
+
     /**
      * Handles clicks in the bank inventory. Performs actions based on the clicked slot.
      *
@@ -65,95 +205,68 @@ public class BankMenu implements Listener, CommandExecutor {
      */
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
+        // Page controls of the history menu
+        if (event.getInventory().getHolder() instanceof HistoryGUI history) {
+            event.setCancelled(true);
+            Player player = (Player) event.getWhoClicked();
+            if (event.getClickedInventory() == event.getInventory() && plugin.getThrottleHandler().allow(player)) {
+                plugin.getHistoryHandler().onMenuClick(player, history, event.getSlot());
+            }
+            return;
+        }
+
         // Ensure the inventory is the bank menu
-        if (!event.getView().getTitle().equals(BankMenuGUI.getInventoryName())) {
+        if (!(event.getInventory().getHolder() instanceof BankMenuGUI)) {
             return;
         }
 
-        Player player = (Player) event.getWhoClicked();
-        int slot = event.getSlot();
         event.setCancelled(true);
 
+        // Ignore clicks in the player's own inventory below the menu
+        if (event.getClickedInventory() != event.getInventory()) {
+            return;
+        }
+
+        onMenuClick((Player) event.getWhoClicked(), event.getSlot());
+    }
+
+    /**
+     * Performs the action of a slot in the bank menu. Called on the main thread for clicks in the
+     * menu itself, not in the player's inventory below it.
+     *
+     * @param player The player who clicked.
+     * @param slot   The clicked slot of the menu.
+     */
+    public void onMenuClick(Player player, int slot) {
+        // Over the limit, the balance can still be shown if it needs no query
+        RequestLimiter.Result throttled = plugin.getThrottleHandler().check(player);
+        if (throttled != RequestLimiter.Result.ALLOWED) {
+            if (slot != BankMenuGUI.INFORMATION_SLOT || throttled != RequestLimiter.Result.REJECTED
+                    || !plugin.getBankManagerHandler().showCachedBankInformation(player)) {
+                plugin.getThrottleHandler().tellCooldown(player, throttled);
+            }
+            return;
+        }
+
         // Determine action based on the clicked slot
         switch (slot) {
             case BankMenuGUI.DEPOSIT_SLOT -> {
                 player.closeInventory(); // Optional: close inventory if necessary
-                player.sendMessage(ChatColor.GREEN + "Enter the amount to deposit in the chat.");
-                promptForAmount(player, "deposit");
+                player.sendMessage(ChatColor.GREEN + "Enter the amount to deposit in the chat, or type 'cancel'.");
+                plugin.getAmountPromptHandler().prompt(player, AmountPromptHandler.Action.DEPOSIT);
             }
             case BankMenuGUI.WITHDRAW_SLOT -> {
                 player.closeInventory();
-                player.sendMessage(ChatColor.GREEN + "Enter the amount to withdraw in the chat.");
-                promptForAmount(player, "withdraw");
+                player.sendMessage(ChatColor.GREEN + "Enter the amount to withdraw in the chat, or type 'cancel'.");
+                plugin.getAmountPromptHandler().prompt(player, AmountPromptHandler.Action.WITHDRAW);
             }
             case BankMenuGUI.INFORMATION_SLOT -> {
                 player.sendMessage(ChatColor.YELLOW + "Fetching your bank information...");
                 // Show the player their balance or other details
-                BankManagerHandler bankManagerHandler = new BankManagerHandler(plugin);
-                bankManagerHandler.showBankInformation(player);
+                plugin.getBankManagerHandler().showBankInformation(player);
             }
+            case BankMenuGUI.HISTORY_SLOT -> plugin.getHistoryHandler().openMenu(player);
             default -> player.sendMessage(ChatColor.RED + "This slot does not perform any action.");
         }
     }
-
-    /**
-     * Prompts the player for an amount and listens for their input via chat.
-     *
-     * @param player The player to prompt.
-     * @param action The action to perform ("deposit" or "withdraw").
-     */
-    private void promptForAmount(Player player, String action) {
-        plugin.getServer().getPluginManager().registerEvents(new Listener() {
-            @EventHandler
-            public void onPlayerChat(AsyncPlayerChatEvent chatEvent) {
-                if (!chatEvent.getPlayer().equals(player)) return;
-
-                chatEvent.setCancelled(true);
-                String input = chatEvent.getMessage();
-                double amount;
-
-                // Validate the input as a proper number
-                try {
-                    amount = Double.parseDouble(input);
-
-                    // Check if the number is positive
-                    if (amount <= 0) {
-                        player.sendMessage(ChatColor.RED + "The amount must be greater than zero. Try again.");
-                        return;
-                    }
-
-                    // Check for up to two decimal places
-                    if (!hasTwoDecimalPlacesOrLess(amount)) {
-                        player.sendMessage(ChatColor.RED + "The amount can only have up to two decimal places. Try again.");
-                        return;
-                    }
-                } catch (NumberFormatException e) {
-                    player.sendMessage(ChatColor.RED + "Invalid number. Please enter a valid amount.");
-                    return;
-                }
-
-                // Perform the action
-                BankManagerHandler bankManagerHandler = new BankManagerHandler(plugin);
-                if (action.equals("deposit")) {
-                    bankManagerHandler.depositMoney(player, amount);
-                } else if (action.equals("withdraw")) {
-                    bankManagerHandler.handleWithdraw(player, amount);
-                }
-
-                // Unregister the listener after handling the input
-                AsyncPlayerChatEvent.getHandlerList().unregister(this);
-            }
-        }, plugin);
-    }
-
-    /**
-     * Validates if a number has at most two decimal places.
-     *
-     * @param value The number to validate.
-     * @return True if the number has up to two decimal places, false otherwise.
-     */
-    private boolean hasTwoDecimalPlacesOrLess(double value) {
-        String[] parts = String.valueOf(value).split("\\.");
-        return parts.length <= 1 || parts[1].length() <= 2;
-    }
 }
@@ -0,0 +1,19 @@
+package io.github.CodeerStudio.simpleBanking.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Answers every bank command while the storage is still being opened, until the real commands
+ * take over.
+ */
+public class BankStartingCommand implements CommandExecutor {
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        sender.sendMessage(ChatColor.YELLOW + "The bank is starting, please try again in a moment.");
+        return true;
+    }
+}
@@ -1,9 +1,11 @@
 package io.github.CodeerStudio.simpleBanking.gui;
 
+import io.github.CodeerStudio.simpleBanking.util.Money;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
@@ -12,10 +14,14 @@ import java.util.List;
 
 /**
  * Handles the creation and population of the bank menu GUI.
+ *
+ * The menu items are built once from immutable templates and copied into each new menu, so opening
+ * the menu never formats colour codes again. Each menu is its own {@link InventoryHolder}, which lets
+ * listeners recognise it with a type check instead of comparing titles.
  */
-public class BankMenuGUI {
+public class BankMenuGUI implements InventoryHolder {
 
-    private static final String INVENTORY_NAME = ChatColor.translateAlternateColorCodes('&', "&6Bank");
+    private static final String INVENTORY_NAME = color("&6Bank");
     private static final int INVENTORY_ROWS = 3;
     private static final int INVENTORY_SIZE = INVENTORY_ROWS * 9;
 
@@ -23,72 +29,129 @@ public class BankMenuGUI {
     public static final int DEPOSIT_SLOT = 11;
     public static final int INFORMATION_SLOT = 13;
     public static final int WITHDRAW_SLOT = 15;
+    public static final int HISTORY_SLOT = 22;
+
+    // The dynamic line at the end of the information item's lore
+    private static final String BALANCE_LINE = color("&7Balance: &6");
+    private static final String LOADING_LINE = color("&7Balance: &8loading...");
+
+    private static final List<String> INFORMATION_LORE = List.of(color("&7Check the latest bank news."));
+
+    // Built once and never modified; menus only ever receive clones
+    private static final ItemStack[] TEMPLATE = createTemplate();
+
+    private final Inventory inventory;
 
     /**
-     * Creates and populates the bank menu inventory.
+     * Creates and populates a bank menu inventory from the templates.
      *
      * @param player The player for whom the inventory is created.
-     * @return A populated Inventory instance.
      */
-    public static Inventory createBankMenu(Player player) {
-        Inventory inventory = player.getServer().createInventory(player, INVENTORY_SIZE, INVENTORY_NAME);
+    public BankMenuGUI(Player player) {
+        this.inventory = player.getServer().createInventory(this, INVENTORY_SIZE, INVENTORY_NAME);
+
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+        for (int slot = 0; slot < INVENTORY_SIZE; slot++) {
+            if (TEMPLATE[slot] != null) {
+                contents[slot] = TEMPLATE[slot].clone();
+            }
+        }
+        inventory.setContents(contents);
+    }
+
+    /**
+     * Shows a balance on the information item. Only that item is replaced.
+     * Must be called on the main thread.
+     *
+     * @param balance The balance in cents.
+     */
+    public void setBalance(long balance) {
+        ItemStack item = TEMPLATE[INFORMATION_SLOT].clone();
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return;
+
+        List<String> lore = new ArrayList<>(INFORMATION_LORE.size() + 1);
+        lore.addAll(INFORMATION_LORE);
+        lore.add(BALANCE_LINE + Money.format(balance));
+        meta.setLore(lore);
+
+        item.setItemMeta(meta);
+        inventory.setItem(INFORMATION_SLOT, item);
+    }
+
+    /**
+     * Gets the inventory of this menu.
+     *
+     * @return The menu inventory.
+     */
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Gets the title of the bank menu inventory.
+     *
+     * @return The inventory title.
+     */
+    public static String getInventoryName() {
+        return INVENTORY_NAME;
+    }
+
+    private static ItemStack[] createTemplate() {
+        ItemStack[] template = new ItemStack[INVENTORY_SIZE];
 
-        // Populate the inventory with specific items
-        inventory.setItem(DEPOSIT_SLOT, createMenuItem(
+        template[DEPOSIT_SLOT] = createMenuItem(
                 new ItemStack(Material.CHEST),
-                "&6Bank Vault",
-                "&7Deposit your money."
-        ));
+                color("&6Bank Vault"),
+                List.of(color("&7Deposit your money."))
+        );
 
-        inventory.setItem(INFORMATION_SLOT, createMenuItem(
+        List<String> informationLore = new ArrayList<>(INFORMATION_LORE);
+        informationLore.add(LOADING_LINE);
+        template[INFORMATION_SLOT] = createMenuItem(
                 new ItemStack(Material.OAK_SIGN),
-                "&cBank Information",
-                "&7Check the latest bank news."
-        ));
+                color("&cBank Information"),
+                informationLore
+        );
 
-        inventory.setItem(WITHDRAW_SLOT, createMenuItem(
+        template[WITHDRAW_SLOT] = createMenuItem(
                 new ItemStack(Material.DISPENSER),
-                "&6Bank Vault",
-                "&7Withdraw your money."
-        ));
+                color("&6Bank Vault"),
+                List.of(color("&7Withdraw your money."))
+        );
 
-        return inventory;
+        template[HISTORY_SLOT] = createMenuItem(
+                new ItemStack(Material.BOOK),
+                color("&6Transaction History"),
+                List.of(color("&7Browse your past transactions."))
+        );
+
+        return template;
     }
 
     /**
      * Utility method to create a menu item with specified metadata.
      *
      * @param item The base ItemStack.
-     * @param name The display name of the item.
-     * @param lore The lore (description) of the item.
+     * @param name The already coloured display name of the item.
+     * @param lore The already coloured lore (description) of the item.
      * @return A modified ItemStack with the specified metadata.
      */
-    private static ItemStack createMenuItem(ItemStack item, String name, String... lore) {
+    private static ItemStack createMenuItem(ItemStack item, String name, List<String> lore) {
         ItemMeta meta = item.getItemMeta();
         if (meta == null) return item;
 
-        // Set the display name
-        meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', name));
-
-        // Set the lore if provided
-        if (lore.length > 0) {
-            List<String> lores = new ArrayList<>();
-            for (String line : lore) {
-                lores.add(ChatColor.translateAlternateColorCodes('&', line));
-            }
-            meta.setLore(lores);
+        meta.setDisplayName(name);
+        if (!lore.isEmpty()) {
+            meta.setLore(lore);
         }
 
         item.setItemMeta(meta);
         return item;
     }
 
-    /**
-     * Gets the title of the bank menu inventory.
-     *
-     * @return The inventory title.
-     */
-    public static String getInventoryName() {
-        return INVENTORY_NAME;
+    private static String color(String text) {
+        return ChatColor.translateAlternateColorCodes('&', text);
     }
 }
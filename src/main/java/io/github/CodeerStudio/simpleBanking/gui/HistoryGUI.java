@@ -0,0 +1,157 @@
+package io.github.CodeerStudio.simpleBanking.gui;
+
+import io.github.CodeerStudio.simpleBanking.ledger.HistoryView;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionHistory;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * A multi-page inventory showing a player's transaction history, newest first.
+ *
+ * The top five rows hold one item per transaction and the bottom row holds the page controls.
+ * Each menu owns the {@link HistoryView} it pages through, so its state goes away with the menu.
+ */
+public class HistoryGUI implements InventoryHolder {
+
+    private static final String INVENTORY_NAME = color("&6Transaction History");
+    private static final int INVENTORY_ROWS = 6;
+    private static final int INVENTORY_SIZE = INVENTORY_ROWS * 9;
+
+    /**
+     * The number of transactions shown per page.
+     */
+    public static final int PAGE_SIZE = 45;
+
+    // Slot assignments
+    public static final int PREVIOUS_SLOT = 45;
+    public static final int PAGE_SLOT = 49;
+    public static final int NEXT_SLOT = 53;
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    // Built once and never modified; menus only ever receive clones
+    private static final ItemStack PREVIOUS_ITEM = createMenuItem(
+            new ItemStack(Material.ARROW), color("&6Previous Page"), List.of());
+    private static final ItemStack NEXT_ITEM = createMenuItem(
+            new ItemStack(Material.ARROW), color("&6Next Page"), List.of());
+    private static final ItemStack LOADING_ITEM = createMenuItem(
+            new ItemStack(Material.CLOCK), color("&7Loading..."), List.of());
+
+    private final Inventory inventory;
+    private final HistoryView view;
+
+    /**
+     * Creates an empty history menu. Pages are filled in with {@link #show(TransactionHistory.Page)}.
+     *
+     * @param player The player for whom the inventory is created.
+     * @param view   The history the menu pages through.
+     */
+    public HistoryGUI(Player player, HistoryView view) {
+        this.inventory = player.getServer().createInventory(this, INVENTORY_SIZE, INVENTORY_NAME);
+        this.view = view;
+        inventory.setItem(PAGE_SLOT, LOADING_ITEM.clone());
+    }
+
+    /**
+     * Shows that a page is being fetched. Must be called on the main thread.
+     */
+    public void showLoading() {
+        inventory.setItem(PAGE_SLOT, LOADING_ITEM.clone());
+    }
+
+    /**
+     * Replaces the menu contents with a page of transactions. Must be called on the main thread.
+     *
+     * @param page The page to show.
+     */
+    public void show(TransactionHistory.Page page) {
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+
+        List<TransactionHistory.Entry> entries = page.entries();
+        for (int i = 0; i < entries.size() && i < PAGE_SIZE; i++) {
+            contents[i] = createEntryItem(entries.get(i));
+        }
+
+        if (view.getPageIndex() > 0) {
+            contents[PREVIOUS_SLOT] = PREVIOUS_ITEM.clone();
+        }
+        if (page.next() != null) {
+            contents[NEXT_SLOT] = NEXT_ITEM.clone();
+        }
+        contents[PAGE_SLOT] = createMenuItem(new ItemStack(Material.BOOK),
+                color("&6Page " + (view.getPageIndex() + 1)),
+                entries.isEmpty() ? List.of(color("&7No transactions yet.")) : List.of());
+
+        inventory.setContents(contents);
+    }
+
+    /**
+     * Gets the history this menu pages through.
+     *
+     * @return The history view.
+     */
+    public HistoryView getView() {
+        return view;
+    }
+
+    /**
+     * Gets the inventory of this menu.
+     *
+     * @return The menu inventory.
+     */
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    private static ItemStack createEntryItem(TransactionHistory.Entry entry) {
+        boolean credit = entry.amount() >= 0;
+        String amount = (credit ? "&a+" : "&c-") + Money.format(Math.abs(entry.amount()));
+
+        return createMenuItem(
+                new ItemStack(credit ? Material.EMERALD : Material.REDSTONE),
+                color(amount + " &7" + entry.type().getDisplayName()),
+                List.of(
+                        color("&7" + DATE_FORMAT.format(Instant.ofEpochMilli(entry.timestamp()))),
+                        color("&7Balance after: &6" + Money.format(entry.balanceAfter()))
+                )
+        );
+    }
+
+    /**
+     * Utility method to create a menu item with specified metadata.
+     *
+     * @param item The base ItemStack.
+     * @param name The already coloured display name of the item.
+     * @param lore The already coloured lore (description) of the item.
+     * @return A modified ItemStack with the specified metadata.
+     */
+    private static ItemStack createMenuItem(ItemStack item, String name, List<String> lore) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return item;
+
+        meta.setDisplayName(name);
+        if (!lore.isEmpty()) {
+            meta.setLore(lore);
+        }
+
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    private static String color(String text) {
+        return ChatColor.translateAlternateColorCodes('&', text);
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects amounts typed in chat after a player clicks deposit or withdraw in the bank menu.
+ *
+ * A single chat listener stays registered for the lifetime of the plugin. Pending prompts are kept
+ * in a map keyed by player UUID, so chat from players without a prompt is skipped with one lookup.
+ * Prompts expire after a timeout and are dropped when the player quits.
+ */
+public class AmountPromptHandler implements Listener {
+
+    private final SimpleBanking plugin;
+    private final long timeoutMillis;
+    private final Map<UUID, PendingPrompt> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new AmountPromptHandler, registers its listener and starts the expiry check.
+     *
+     * @param plugin         The SimpleBanking plugin instance.
+     * @param timeoutSeconds The number of seconds a player has to answer a prompt.
+     */
+    public AmountPromptHandler(SimpleBanking plugin, long timeoutSeconds) {
+        this.plugin = plugin;
+        this.timeoutMillis = Math.max(1, timeoutSeconds) * 1000L;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+        // Check for expired prompts once per second
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::expirePrompts, 20L, 20L);
+    }
+
+    /**
+     * Asks a player to type an amount in chat. Replaces any prompt the player already has open.
+     *
+     * @param player The player to prompt.
+     * @param action The action to perform with the amount.
+     */
+    public void prompt(Player player, Action action) {
+        pending.put(player.getUniqueId(), new PendingPrompt(action, System.currentTimeMillis() + timeoutMillis));
+    }
+
+    /**
+     * Handles the chat message of a player with an open prompt.
+     *
+     * @param event The chat event.
+     */
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerChat(AsyncPlayerChatEvent event) {
+        Player player = event.getPlayer();
+        PendingPrompt prompt = pending.get(player.getUniqueId());
+        if (prompt == null) {
+            return;
+        }
+
+        // Let the message through as normal chat if the prompt already ran out
+        if (prompt.expiresAt() < System.currentTimeMillis()) {
+            pending.remove(player.getUniqueId(), prompt);
+            return;
+        }
+
+        event.setCancelled(true);
+        String input = event.getMessage();
+
+        if (input.equalsIgnoreCase("cancel")) {
+            pending.remove(player.getUniqueId(), prompt);
+            player.sendMessage(ChatColor.YELLOW + "Cancelled.");
+            return;
+        }
+
+        long amount;
+
+        // Validate the input as a proper number with up to two decimal places
+        try {
+            amount = Money.parse(input);
+
+            // Check if the number is positive
+            if (amount <= 0) {
+                player.sendMessage(ChatColor.RED + "The amount must be greater than zero. Try again.");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            player.sendMessage(ChatColor.RED + "Invalid number. Please enter a valid amount.");
+            return;
+        } catch (Money.TooManyDecimalsException e) {
+            player.sendMessage(ChatColor.RED + "The amount can only have up to two decimal places. Try again.");
+            return;
+        } catch (ArithmeticException e) {
+            player.sendMessage(ChatColor.RED + "That amount is too large. Try again.");
+            return;
+        }
+
+        // Only the first valid answer performs the action
+        if (!pending.remove(player.getUniqueId(), prompt)) {
+            return;
+        }
+
+        BankManagerHandler bankManagerHandler = plugin.getBankManagerHandler();
+        switch (prompt.action()) {
+            case DEPOSIT -> bankManagerHandler.depositMoney(player, amount);
+            case WITHDRAW -> bankManagerHandler.handleWithdraw(player, amount);
+        }
+    }
+
+    /**
+     * Drops the prompt of a player who leaves.
+     *
+     * @param event The quit event.
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        pending.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Gets the number of open prompts.
+     *
+     * @return The open prompt count.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Removes expired prompts and tells their players. Runs on the main thread.
+     */
+    private void expirePrompts() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<UUID, PendingPrompt> entry : pending.entrySet()) {
+            // Skip prompts that are still open or were replaced in the meantime
+            if (entry.getValue().expiresAt() >= now || !pending.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player != null) {
+                player.sendMessage(ChatColor.RED + "You took too long to enter an amount.");
+            }
+        }
+    }
+
+    /**
+     * The actions a prompted amount can be used for.
+     */
+    public enum Action {
+        DEPOSIT,
+        WITHDRAW
+    }
+
+    private record PendingPrompt(Action action, long expiresAt) {
+    }
+}
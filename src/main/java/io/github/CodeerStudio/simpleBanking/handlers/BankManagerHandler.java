@@ -1,18 +1,31 @@
 package io.github.CodeerStudio.simpleBanking.handlers;
 
 import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics.Operation;
+import io.github.CodeerStudio.simpleBanking.util.Money;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
- * Handles core banking operations such as deposits and withdrawals.
- * This class serves as the manager for interacting with the player's bank account
- * stored in the database, ensuring safe updates and balance checks.
+ * Handles core banking operations such as deposits, withdrawals and transfers between players.
+ * This class serves as the manager for interacting with the player's bank account,
+ * reading and updating balances through the plugin's in-memory account cache.
+ * All amounts are in cents.
+ *
+ * Every operation may be called from any thread. Database work runs on the database thread,
+ * while Vault wallet changes and player messages are dispatched onto the main server thread.
+ * The returned futures complete on the main server thread.
+ *
+ * Each operation is timed from the call until its future completes and recorded in {@link BankMetrics}.
  */
 public class BankManagerHandler {
 
@@ -21,7 +34,7 @@ public class BankManagerHandler {
     /**
      * Constructs a new BankManagerHandler instance.
      *
-     * @param plugin The main plugin instance, used for accessing the database connection.
+     * @param plugin The main plugin instance, used for accessing the account cache.
      */
     public BankManagerHandler(SimpleBanking plugin) {
         this.plugin = plugin;
@@ -31,138 +44,263 @@ public class BankManagerHandler {
      * Deposits money from a player's wallet into their bank account.
      *
      * This method checks if the player has sufficient funds in their wallet before
-     * transferring the specified amount to their bank account in the database.
+     * transferring the specified amount to their bank account.
      *
      * @param player The player performing the deposit.
-     * @param amount The amount of money to deposit.
+     * @param amount The amount of money to deposit, in cents.
+     * @return A future completed with {@code true} if the deposit succeeded.
      */
-    public void depositMoney(Player player, double amount) {
-        Economy economy = VaultAPIHandler.getEconomy();
+    public CompletableFuture<Boolean> depositMoney(Player player, long amount) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+        Executor mainThread = plugin.getDatabaseExecutor().mainThread();
 
-        // Check if the player has enough money in their wallet
-        if (economy.getBalance(player) < amount) {
-            player.sendMessage(ChatColor.RED + "You don't have enough money to deposit!");
-            return;
-        }
+        return CompletableFuture.supplyAsync(() -> {
+            Economy economy = VaultAPIHandler.getEconomy();
 
-        // Deduct money from the player's wallet
-        economy.withdrawPlayer(player, amount);
-
-        // Update the player's bank balance in the database
-        try (PreparedStatement stmt = plugin.getDatabaseConnection().prepareStatement(
-                "INSERT INTO player_balances (uuid, balance) VALUES (?, ?) " +
-                        "ON CONFLICT(uuid) DO UPDATE SET balance = balance + ?")) {
-            stmt.setString(1, player.getUniqueId().toString());
-            stmt.setDouble(2, amount);
-            stmt.setDouble(3, amount);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            player.sendMessage(ChatColor.RED + "An error occurred while depositing your money.");
-            e.printStackTrace();
-            return;
-        }
+            // Check if the player has enough money in their wallet
+            if (!economy.has(player, Money.toDouble(amount))) {
+                player.sendMessage(ChatColor.RED + "You don't have enough money to deposit!");
+                return false;
+            }
+
+            // Deduct money from the player's wallet
+            economy.withdrawPlayer(player, Money.toDouble(amount));
+            return true;
+        }, mainThread).thenCompose(withdrawn -> {
+            if (!withdrawn) {
+                metrics.record(Operation.DEPOSIT, start, false);
+                return CompletableFuture.completedFuture(false);
+            }
+
+            // Update the player's bank balance
+            String actor = player.getUniqueId().toString();
+            return plugin.getAccountCache().deposit(player.getUniqueId(), amount, TransactionType.DEPOSIT, actor).handleAsync((balance, error) -> {
+                metrics.record(Operation.DEPOSIT, start, error != null);
+                if (error != null) {
+                    // Give the money back since it never reached the bank
+                    VaultAPIHandler.getEconomy().depositPlayer(player, Money.toDouble(amount));
+                    player.sendMessage(ChatColor.RED + "An error occurred while depositing your money.");
+                    plugin.getLogger().severe("Could not deposit for " + player.getName() + ": " + error.getMessage());
+                    return false;
+                }
 
-        // Notify the player of a successful deposit
-        player.sendMessage(ChatColor.GREEN + "Successfully deposited " + amount + " into your bank!");
+                // Notify the player of a successful deposit
+                player.sendMessage(ChatColor.GREEN + "Successfully deposited " + Money.format(amount) + " into your bank!");
+                return true;
+            }, mainThread);
+        });
     }
 
     /**
      * Withdraws money from a player's bank account to their wallet.
      *
      * This method ensures the player has sufficient balance in their bank account
-     * before updating the database and transferring the amount to their wallet.
+     * before deducting from it and transferring the amount to their wallet.
      *
      * @param player The player performing the withdrawal.
-     * @param amount The amount of money to withdraw.
+     * @param amount The amount of money to withdraw, in cents.
+     * @return A future completed with {@code true} if the withdrawal succeeded.
      */
-    public void handleWithdraw(Player player, double amount) {
-        Economy economy = VaultAPIHandler.getEconomy();
-
-        // Check the player's bank balance in the database
-        try (PreparedStatement stmt = plugin.getDatabaseConnection().prepareStatement(
-                "SELECT balance FROM player_balances WHERE uuid = ?")) {
-            stmt.setString(1, player.getUniqueId().toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (!rs.next() || rs.getDouble("balance") < amount) {
-                    player.sendMessage(ChatColor.RED + "You don't have enough money in the bank!");
-                    return;
-                }
+    public CompletableFuture<Boolean> handleWithdraw(Player player, long amount) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+
+        // Check and deduct the player's bank balance in one step
+        String actor = player.getUniqueId().toString();
+        return plugin.getAccountCache().withdraw(player.getUniqueId(), amount, TransactionType.WITHDRAW, actor).handleAsync((withdrawn, error) -> {
+            metrics.record(Operation.WITHDRAW, start, error != null);
+            if (error != null) {
+                player.sendMessage(ChatColor.RED + "An error occurred while withdrawing your money.");
+                plugin.getLogger().severe("Could not withdraw for " + player.getName() + ": " + error.getMessage());
+                return false;
             }
-        } catch (SQLException e) {
-            player.sendMessage(ChatColor.RED + "An error occurred while withdrawing your money.");
-            e.printStackTrace();
-            return;
-        }
 
-        // Deduct money from the player's bank account in the database
-        try (PreparedStatement updateStmt = plugin.getDatabaseConnection().prepareStatement(
-                "UPDATE player_balances SET balance = balance - ? WHERE uuid = ?")) {
-            updateStmt.setDouble(1, amount);
-            updateStmt.setString(2, player.getUniqueId().toString());
-            updateStmt.executeUpdate();
-        } catch (SQLException e) {
-            player.sendMessage(ChatColor.RED + "An error occurred while withdrawing your money.");
-            e.printStackTrace();
-            return;
-        }
+            if (!withdrawn) {
+                player.sendMessage(ChatColor.RED + "You don't have enough money in the bank!");
+                return false;
+            }
+
+            // Add the money to the player's wallet
+            VaultAPIHandler.getEconomy().depositPlayer(player, Money.toDouble(amount));
+
+            // Notify the player of a successful withdrawal
+            player.sendMessage(ChatColor.GREEN + "Successfully withdrew " + Money.format(amount) + " from your bank!");
+            return true;
+        }, plugin.getDatabaseExecutor().mainThread());
+    }
+
+    /**
+     * Pays money from a player's bank account straight into another player's bank account, without
+     * going through either wallet. Both balances change together or not at all.
+     *
+     * @param player The player paying.
+     * @param target The player being paid, not the payer.
+     * @param amount The amount of money to pay, in cents.
+     * @return A future completed with {@code true} if the payment succeeded.
+     */
+    public CompletableFuture<Boolean> transfer(Player player, Player target, long amount) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+
+        String actor = player.getUniqueId().toString();
+        return plugin.getAccountCache().transfer(player.getUniqueId(), target.getUniqueId(), amount,
+                actor).handleAsync((transferred, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            metrics.record(Operation.TRANSFER, start, error != null);
+            if (cause instanceof ArithmeticException) {
+                player.sendMessage(ChatColor.RED + target.getName() + "'s bank can't hold that much money.");
+                return false;
+            }
+            if (error != null) {
+                player.sendMessage(ChatColor.RED + "An error occurred while paying " + target.getName() + ".");
+                plugin.getLogger().severe("Could not transfer from " + player.getName() + " to " + target.getName()
+                        + ": " + error.getMessage());
+                return false;
+            }
 
-        // Add the money to the player's wallet
-        VaultAPIHandler.getEconomy().depositPlayer(player, amount);
+            if (!transferred) {
+                player.sendMessage(ChatColor.RED + "You don't have enough money in the bank!");
+                return false;
+            }
 
-        // Notify the player of a successful withdrawal
-        player.sendMessage(ChatColor.GREEN + "Successfully withdrew " + amount + " from your bank!");
+            player.sendMessage(ChatColor.GREEN + "Successfully paid " + Money.format(amount) + " to "
+                    + target.getName() + " from your bank!");
+            if (target.isOnline()) {
+                target.sendMessage(ChatColor.GREEN + player.getName() + " has paid " + Money.format(amount)
+                        + " into your bank.");
+            }
+            return true;
+        }, plugin.getDatabaseExecutor().mainThread());
+    }
+
+    /**
+     * Adds money to a player's bank account without taking it from their wallet.
+     *
+     * @param admin  The sender granting the money, recorded in the ledger.
+     * @param player The player receiving the money.
+     * @param amount The amount of money to add, in cents.
+     * @return A future completed with {@code true} if the money was added.
+     */
+    public CompletableFuture<Boolean> giveBalance(CommandSender admin, Player player, long amount) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+
+        return plugin.getAccountCache().deposit(player.getUniqueId(), amount,
+                TransactionType.ADMIN_GIVE, TransactionLedger.actorOf(admin)).handleAsync((balance, error) -> {
+            metrics.record(Operation.GIVE, start, error != null);
+            if (error != null) {
+                admin.sendMessage(ChatColor.RED + "An error occurred while updating the bank balance.");
+                plugin.getLogger().severe("Could not give balance to " + player.getName() + ": " + error.getMessage());
+                return false;
+            }
+
+            player.sendMessage(ChatColor.GREEN + Money.format(amount) + " has been added to your bank.");
+            return true;
+        }, plugin.getDatabaseExecutor().mainThread());
+    }
+
+    /**
+     * Removes money from a player's bank account without paying it into their wallet.
+     *
+     * @param admin  The sender taking the money, recorded in the ledger.
+     * @param player The player losing the money.
+     * @param amount The amount of money to remove, in cents.
+     * @return A future completed with {@code true} if the money was removed.
+     */
+    public CompletableFuture<Boolean> takeBalance(CommandSender admin, Player player, long amount) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+
+        return plugin.getAccountCache().withdraw(player.getUniqueId(), amount,
+                TransactionType.ADMIN_TAKE, TransactionLedger.actorOf(admin)).handleAsync((withdrawn, error) -> {
+            metrics.record(Operation.TAKE, start, error != null);
+            if (error != null) {
+                admin.sendMessage(ChatColor.RED + "An error occurred while updating the bank balance.");
+                plugin.getLogger().severe("Could not take balance from " + player.getName() + ": " + error.getMessage());
+                return false;
+            }
+
+            if (!withdrawn) {
+                admin.sendMessage(ChatColor.RED + player.getName() + " doesn't have enough money in the bank!");
+                return false;
+            }
+
+            player.sendMessage(ChatColor.RED + Money.format(amount) + " has been taken from your bank.");
+            return true;
+        }, plugin.getDatabaseExecutor().mainThread());
     }
 
     /**
      * Sets the player's bank balance to a specified amount.
      *
+     * @param admin  The sender setting the balance, recorded in the ledger.
      * @param player The player whose balance is being set.
-     * @param amount The amount to set the player's balance to.
+     * @param amount The amount to set the player's balance to, in cents.
+     * @return A future completed with {@code true} if the balance was set.
      */
-    public void setBalance(Player player, double amount) {
+    public CompletableFuture<Boolean> setBalance(CommandSender admin, Player player, long amount) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+        Executor mainThread = plugin.getDatabaseExecutor().mainThread();
+
         if (amount < 0) {
-            player.sendMessage(ChatColor.RED + "Balance cannot be set to a negative value.");
-            return;
+            return CompletableFuture.supplyAsync(() -> {
+                admin.sendMessage(ChatColor.RED + "Balance cannot be set to a negative value.");
+                return false;
+            }, mainThread);
         }
 
-        try (PreparedStatement stmt = plugin.getDatabaseConnection().prepareStatement(
-                "INSERT INTO player_balances (uuid, balance) VALUES (?, ?) " +
-                        "ON CONFLICT(uuid) DO UPDATE SET balance = ?")) {
-            stmt.setString(1, player.getUniqueId().toString());
-            stmt.setDouble(2, amount);
-            stmt.setDouble(3, amount);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            player.sendMessage(ChatColor.RED + "An error occurred while setting your balance.");
-            e.printStackTrace();
-            return;
-        }
+        return plugin.getAccountCache().setBalance(player.getUniqueId(), amount,
+                TransactionLedger.actorOf(admin)).handleAsync((ignored, error) -> {
+            metrics.record(Operation.SET, start, error != null);
+            if (error != null) {
+                admin.sendMessage(ChatColor.RED + "An error occurred while setting the balance.");
+                plugin.getLogger().severe("Could not set balance for " + player.getName() + ": " + error.getMessage());
+                return false;
+            }
 
-        player.sendMessage(ChatColor.GREEN + "Your bank balance has been set to " + amount + ".");
+            player.sendMessage(ChatColor.GREEN + "Your bank balance has been set to " + Money.format(amount) + ".");
+            return true;
+        }, mainThread);
     }
 
     /**
-     * Displays the player's bank balance by querying the database.
+     * Displays the player's bank balance if it is cached, without loading it from the database.
      *
      * @param player The player requesting their balance.
+     * @return {@code true} if the balance was cached and has been sent.
      */
-    public void showBankInformation(Player player) {
-        try (PreparedStatement stmt = plugin.getDatabaseConnection().prepareStatement(
-                "SELECT balance FROM player_balances WHERE uuid = ?")) {
-            stmt.setString(1, player.getUniqueId().toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    double balance = rs.getDouble("balance");
-                    player.sendMessage(ChatColor.GOLD + "Your bank balance is: " + balance);
-                } else {
-                    player.sendMessage(ChatColor.RED + "You don't have a bank account yet.");
-                }
-            }
-        } catch (SQLException e) {
-            player.sendMessage(ChatColor.RED + "An error occurred while fetching your balance.");
-            e.printStackTrace();
+    public boolean showCachedBankInformation(Player player) {
+        Long balance = plugin.getAccountCache().peekBalance(player.getUniqueId());
+        if (balance == null) {
+            return false;
         }
+        player.sendMessage(ChatColor.GOLD + "Your bank balance is: " + Money.format(balance));
+        return true;
+    }
+
+    /**
+     * Displays the player's bank balance from the account cache.
+     *
+     * @param player The player requesting their balance.
+     * @return A future completed once the player has been sent their balance.
+     */
+    public CompletableFuture<Void> showBankInformation(Player player) {
+        long start = System.nanoTime();
+        BankMetrics metrics = plugin.getMetrics();
+
+        return plugin.getAccountCache().getBalance(player.getUniqueId()).handleAsync((balance, error) -> {
+            metrics.record(Operation.BALANCE, start, error != null);
+            if (error != null) {
+                player.sendMessage(ChatColor.RED + "An error occurred while fetching your balance.");
+                plugin.getLogger().severe("Could not fetch balance for " + player.getName() + ": " + error.getMessage());
+            } else if (balance != null) {
+                player.sendMessage(ChatColor.GOLD + "Your bank balance is: " + Money.format(balance));
+            } else {
+                player.sendMessage(ChatColor.RED + "You don't have a bank account yet.");
+            }
+            return null;
+        }, plugin.getDatabaseExecutor().mainThread());
     }
 }
@@ -0,0 +1,289 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.BulkChange;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs admin balance changes against many accounts at once, for example event payouts.
+ *
+ * A bulk target starts with {@code @}: {@code @online} for all online players, {@code @perm:<permission>}
+ * for online players with a permission (such as {@code group.vip}), {@code @file:<name>} for a file of
+ * UUIDs in the plugin folder, one per line, and {@code @all} for every account in the database,
+ * including offline players. The targets are split into chunks, and each chunk is applied as one
+ * transaction on the database thread, so other bank operations keep running in between.
+ * Only one bulk change runs at a time, and the admin receives progress reports while it runs.
+ */
+public class BulkOperationHandler {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final SimpleBanking plugin;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Constructs a new BulkOperationHandler instance.
+     *
+     * @param plugin    The main plugin instance, used for accessing the account cache and database.
+     * @param chunkSize The number of accounts changed per transaction.
+     */
+    public BulkOperationHandler(SimpleBanking plugin, int chunkSize) {
+        this.plugin = plugin;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Checks whether a command argument names a bulk target rather than a player.
+     *
+     * @param target The command argument.
+     * @return {@code true} if the argument starts with {@code @}.
+     */
+    public static boolean isBulkTarget(String target) {
+        return target.startsWith("@");
+    }
+
+    /**
+     * Starts a bulk change in the background. Must be called on the main thread.
+     *
+     * @param sender The admin running the change, who receives progress reports.
+     * @param kind   What the change does to each balance.
+     * @param target The bulk target, starting with {@code @}.
+     * @param amount The amount in cents.
+     */
+    public void start(CommandSender sender, BulkChange.Kind kind, String target, long amount) {
+        if (!sender.hasPermission("simplebanking.admin.bulk")) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission to change balances in bulk.");
+            return;
+        }
+        if (amount < 0 || (amount == 0 && kind != BulkChange.Kind.SET)) {
+            sender.sendMessage(ChatColor.RED + "The amount must be greater than zero.");
+            return;
+        }
+
+        CompletableFuture<List<UUID>> targets;
+        String spec = target.substring(1);
+        if (spec.equalsIgnoreCase("online")) {
+            targets = CompletableFuture.completedFuture(onlinePlayers(sender, null));
+        } else if (spec.equalsIgnoreCase("all")) {
+            targets = CompletableFuture.completedFuture(null);
+        } else if (spec.regionMatches(true, 0, "perm:", 0, 5) && spec.length() > 5) {
+            targets = CompletableFuture.completedFuture(onlinePlayers(sender, spec.substring(5)));
+        } else if (spec.regionMatches(true, 0, "file:", 0, 5) && spec.length() > 5) {
+            File file = resolveFile(plugin.getDataFolder(), spec.substring(5));
+            if (file == null) {
+                sender.sendMessage(ChatColor.RED + "The file must be inside the plugin folder.");
+                return;
+            }
+            targets = CompletableFuture.supplyAsync(() -> readUuids(file));
+        } else {
+            sender.sendMessage(ChatColor.RED + "Unknown target " + target
+                    + ". Use @online, @all, @perm:<permission> or @file:<name>.");
+            return;
+        }
+
+        if (!running.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "Another bulk change is still running.");
+            return;
+        }
+
+        BulkJob job = new BulkJob(sender, new BulkChange(kind, amount, TransactionLedger.actorOf(sender)));
+        targets.thenCompose(job::prepare).whenComplete((ignored, error) -> {
+            if (error != null) {
+                job.finish(error);
+            } else {
+                job.runNextChunk();
+            }
+        });
+    }
+
+    /**
+     * Gets the UUIDs of online players, optionally only those with a permission.
+     */
+    private List<UUID> onlinePlayers(CommandSender sender, String permission) {
+        List<UUID> uuids = new ArrayList<>();
+        for (Player player : sender.getServer().getOnlinePlayers()) {
+            if (permission == null || player.hasPermission(permission)) {
+                uuids.add(player.getUniqueId());
+            }
+        }
+        return uuids;
+    }
+
+    /**
+     * Resolves a file name against the plugin folder.
+     *
+     * @return The file, or {@code null} if the name points outside the plugin folder.
+     */
+    static File resolveFile(File dataFolder, String name) {
+        try {
+            File folder = dataFolder.getCanonicalFile();
+            File file = new File(folder, name).getCanonicalFile();
+            return file.toPath().startsWith(folder.toPath()) ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads one UUID per line, skipping blank lines and lines starting with {@code #}.
+     */
+    private static List<UUID> readUuids(File file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file.getName(), e);
+        }
+
+        List<UUID> uuids = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                uuids.add(UUID.fromString(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + " of " + file.getName() + " is not a UUID", e);
+            }
+        }
+        return uuids;
+    }
+
+    /**
+     * The state of one running bulk change. Chunks run one after another on the database thread.
+     */
+    private class BulkJob {
+
+        private final CommandSender sender;
+        private final BulkChange change;
+        private final long startedAt = System.nanoTime();
+
+        // Explicit targets, or null to walk every account in the database by UUID
+        private List<UUID> targets;
+        private int offset;
+        private UUID lastUuid;
+
+        private int total;
+        private int processed;
+        private int changed;
+        private int skipped;
+        private long lastProgressAt = startedAt;
+
+        BulkJob(CommandSender sender, BulkChange change) {
+            this.sender = sender;
+            this.change = change;
+        }
+
+        /**
+         * Settles the target list and counts the accounts to change.
+         */
+        CompletableFuture<Void> prepare(List<UUID> uuids) {
+            CompletableFuture<Integer> count;
+            if (uuids != null) {
+                Set<UUID> unique = new LinkedHashSet<>(uuids);
+                targets = new ArrayList<>(unique);
+                count = CompletableFuture.completedFuture(targets.size());
+            } else {
+                count = plugin.getDatabaseExecutor().write(() -> {
+                    // Write out accounts that so far only exist in memory, so the walk finds them
+                    plugin.getAccountCache().flush();
+                    return plugin.getStorage().countAccounts();
+                });
+            }
+
+            return count.thenAccept(accounts -> {
+                total = accounts;
+                message(ChatColor.YELLOW + "Starting bulk " + describe() + " for " + total + " accounts...");
+            });
+        }
+
+        void runNextChunk() {
+            plugin.getDatabaseExecutor().write(() -> {
+                List<UUID> chunk = nextChunk();
+                if (chunk.isEmpty()) {
+                    return null;
+                }
+                BulkChange.Result result = plugin.getAccountCache().applyBulk(change, chunk);
+                processed += chunk.size();
+                changed += result.changed();
+                skipped += result.skipped();
+                return result;
+            }).whenComplete((result, error) -> {
+                if (error != null || result == null) {
+                    finish(error);
+                    return;
+                }
+
+                long now = System.nanoTime();
+                if (now - lastProgressAt >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgressAt = now;
+                    message(ChatColor.GRAY + "Bulk " + describe() + ": " + processed + "/" + total + " accounts ("
+                            + (total == 0 ? 100 : processed * 100L / total) + "%)");
+                }
+                runNextChunk();
+            });
+        }
+
+        private List<UUID> nextChunk() throws SQLException {
+            if (targets != null) {
+                List<UUID> chunk = targets.subList(offset, Math.min(offset + chunkSize, targets.size()));
+                offset += chunk.size();
+                return chunk;
+            }
+
+            List<UUID> chunk = plugin.getStorage().listAccounts(lastUuid, chunkSize);
+            if (!chunk.isEmpty()) {
+                lastUuid = chunk.get(chunk.size() - 1);
+            }
+            return chunk;
+        }
+
+        void finish(Throwable error) {
+            running.set(false);
+            plugin.getMetrics().record(BankMetrics.Operation.BULK, startedAt, error != null);
+
+            double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                plugin.getLogger().severe("Bulk " + describe() + " failed after " + processed + " accounts: " + cause.getMessage());
+                message(ChatColor.RED + "Bulk " + describe() + " failed after " + processed + " of " + total
+                        + " accounts: " + cause.getMessage());
+                return;
+            }
+
+            message(ChatColor.GREEN + "Bulk " + describe() + " finished: changed " + changed + " accounts, skipped "
+                    + skipped + String.format(Locale.ROOT, ", in %.2fs.", seconds));
+        }
+
+        private String describe() {
+            return change.kind().name().toLowerCase(Locale.ROOT) + " of " + Money.format(change.amount());
+        }
+
+        private void message(String message) {
+            plugin.getDatabaseExecutor().mainThread().execute(() -> sender.sendMessage(message));
+        }
+    }
+}
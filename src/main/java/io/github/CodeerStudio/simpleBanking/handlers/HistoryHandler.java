@@ -0,0 +1,182 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.gui.HistoryGUI;
+import io.github.CodeerStudio.simpleBanking.ledger.HistoryView;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionHistory;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shows players their transaction history, either in the {@link HistoryGUI} menu or in chat with
+ * {@code /bank history [next|prev]}.
+ *
+ * Each menu keeps its own {@link HistoryView}; the chat view of each player is kept here until
+ * they start over or leave. Pages are fetched off the main thread and shown once they arrive.
+ */
+public class HistoryHandler implements Listener {
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private final SimpleBanking plugin;
+    private final TransactionHistory history;
+    private final int chatPageSize;
+
+    // The chat history each player is paging through. Only used on the main thread.
+    private final Map<UUID, HistoryView> chatViews = new HashMap<>();
+
+    /**
+     * Creates a new HistoryHandler and registers its listener.
+     *
+     * @param plugin       The SimpleBanking plugin instance.
+     * @param chatPageSize The number of transactions per page in chat.
+     */
+    public HistoryHandler(SimpleBanking plugin, int chatPageSize) {
+        this.plugin = plugin;
+        this.history = new TransactionHistory(plugin.getDatabaseExecutor(), plugin.getStorage());
+        this.chatPageSize = Math.max(1, chatPageSize);
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Opens the history menu on the first page.
+     *
+     * @param player The player whose history to show.
+     */
+    public void openMenu(Player player) {
+        HistoryView view = new HistoryView(history, player.getUniqueId(), HistoryGUI.PAGE_SIZE,
+                plugin.getDatabaseExecutor().mainThread());
+        HistoryGUI menu = new HistoryGUI(player, view);
+        player.openInventory(menu.getInventory());
+        render(player, menu, view.open(0));
+    }
+
+    /**
+     * Handles a click on the page controls of a history menu.
+     *
+     * @param player The player who clicked.
+     * @param menu   The menu that was clicked.
+     * @param slot   The clicked slot.
+     */
+    public void onMenuClick(Player player, HistoryGUI menu, int slot) {
+        CompletableFuture<TransactionHistory.Page> page = switch (slot) {
+            case HistoryGUI.PREVIOUS_SLOT -> menu.getView().previous();
+            case HistoryGUI.NEXT_SLOT -> menu.getView().next();
+            default -> null;
+        };
+        if (page != null) {
+            menu.showLoading();
+            render(player, menu, page);
+        }
+    }
+
+    /**
+     * Sends a page of history to a player in chat.
+     *
+     * @param player The player whose history to show.
+     * @param action {@code "next"} or {@code "prev"} to move from the page shown last,
+     *               or {@code null} to start from the newest entries.
+     */
+    public void showChat(Player player, String action) {
+        HistoryView view = chatViews.get(player.getUniqueId());
+        CompletableFuture<TransactionHistory.Page> page = null;
+
+        if (view != null && "next".equalsIgnoreCase(action)) {
+            page = view.next();
+            if (page == null) {
+                player.sendMessage(ChatColor.RED + "There are no older transactions.");
+                return;
+            }
+        } else if (view != null && ("prev".equalsIgnoreCase(action) || "previous".equalsIgnoreCase(action))) {
+            page = view.previous();
+            if (page == null) {
+                player.sendMessage(ChatColor.RED + "You are already on the first page.");
+                return;
+            }
+        }
+
+        if (page == null) {
+            view = new HistoryView(history, player.getUniqueId(), chatPageSize,
+                    plugin.getDatabaseExecutor().mainThread());
+            chatViews.put(player.getUniqueId(), view);
+            page = view.open(0);
+        }
+
+        HistoryView shown = view;
+        int pageIndex = view.getPageIndex();
+        page.whenCompleteAsync((loaded, error) -> {
+            if (error != null) {
+                fail(player, error);
+                return;
+            }
+
+            player.sendMessage(ChatColor.GOLD + "Transaction history, page " + (pageIndex + 1) + ":");
+            if (loaded.entries().isEmpty()) {
+                player.sendMessage(ChatColor.GRAY + "No transactions yet.");
+            }
+            for (TransactionHistory.Entry entry : loaded.entries()) {
+                String amount = entry.amount() >= 0
+                        ? ChatColor.GREEN + "+" + Money.format(entry.amount())
+                        : ChatColor.RED + "-" + Money.format(-entry.amount());
+                player.sendMessage(ChatColor.GRAY + DATE_FORMAT.format(Instant.ofEpochMilli(entry.timestamp())) + " "
+                        + amount + " " + ChatColor.WHITE + entry.type().getDisplayName()
+                        + ChatColor.GRAY + " (balance " + Money.format(entry.balanceAfter()) + ")");
+            }
+
+            StringBuilder hint = new StringBuilder();
+            if (pageIndex > 0) {
+                hint.append("/bank history prev");
+            }
+            if (loaded.next() != null) {
+                hint.append(hint.length() > 0 ? "  |  " : "").append("/bank history next");
+            }
+            if (hint.length() > 0 && chatViews.get(player.getUniqueId()) == shown) {
+                player.sendMessage(ChatColor.YELLOW + hint.toString());
+            }
+        }, plugin.getDatabaseExecutor().mainThread());
+    }
+
+    /**
+     * Drops the chat history of a player who leaves.
+     *
+     * @param event The quit event.
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        chatViews.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Shows a page in a menu once it has loaded, unless the player has moved on to another page.
+     */
+    private void render(Player player, HistoryGUI menu, CompletableFuture<TransactionHistory.Page> page) {
+        int pageIndex = menu.getView().getPageIndex();
+        page.whenCompleteAsync((loaded, error) -> {
+            if (error != null) {
+                fail(player, error);
+            } else if (menu.getView().getPageIndex() == pageIndex) {
+                menu.show(loaded);
+            }
+        }, plugin.getDatabaseExecutor().mainThread());
+    }
+
+    private void fail(Player player, Throwable error) {
+        player.sendMessage(ChatColor.RED + "An error occurred while fetching your transaction history.");
+        plugin.getLogger().severe("Could not fetch transaction history for " + player.getName() + ": "
+                + error.getMessage());
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the accounts of online players cached: each account is loaded while its player logs in,
+ * and written and dropped from the cache once they leave.
+ *
+ * The load runs during the asynchronous pre-login, so the account is usually cached before the
+ * player joins. The login only waits for it up to a timeout; if the database is busy, the player
+ * joins anyway and the load finishes in the background, or happens on first use.
+ *
+ * The pre-login only warms the cache: the account is kept like any other offline account, since a
+ * player may still be refused or disconnect before joining, and then never quits. Only the join
+ * keeps the account cached until the matching quit.
+ */
+public class PlayerSessionHandler implements Listener {
+
+    private final SimpleBanking plugin;
+    private final long preloadTimeoutMillis;
+
+    /**
+     * Creates a new PlayerSessionHandler and registers its listener.
+     *
+     * @param plugin               The SimpleBanking plugin instance.
+     * @param preloadTimeoutMillis How long a login waits for the player's account to load.
+     */
+    public PlayerSessionHandler(SimpleBanking plugin, long preloadTimeoutMillis) {
+        this.plugin = plugin;
+        this.preloadTimeoutMillis = Math.max(0, preloadTimeoutMillis);
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Loads the accounts of players who are already online, such as those who joined while the
+     * bank was starting. Must be called on the main thread.
+     *
+     * @return A future completed once every account has loaded or failed to.
+     */
+    public CompletableFuture<Void> preloadOnlinePlayers() {
+        List<CompletableFuture<Long>> loads = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            loads.add(plugin.getAccountCache().preload(player.getUniqueId()));
+        }
+        // A failed load is retried on first use, so it doesn't fail the warm-up
+        return CompletableFuture.allOf(loads.stream()
+                .map(load -> load.exceptionally(error -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Loads the account of a player who is allowed to log in, without keeping it cached yet.
+     *
+     * @param event The pre-login event, called off the main thread.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            plugin.getAccountCache().getBalance(event.getUniqueId()).get(preloadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Let the player in; the account keeps loading in the background
+            failed = true;
+        } catch (ExecutionException e) {
+            // The account is loaded again on first use
+            failed = true;
+            plugin.getLogger().warning("Could not preload the bank account of " + event.getName() + ": "
+                    + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            failed = true;
+            Thread.currentThread().interrupt();
+        }
+        plugin.getMetrics().record(BankMetrics.Operation.PRELOAD, start, failed);
+    }
+
+    /**
+     * Keeps the account of a player who joined cached until they quit. It was usually loaded by the
+     * pre-login already; otherwise it is loaded in the background.
+     *
+     * @param event The join event.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        plugin.getAccountCache().preload(uuid).exceptionally(error -> {
+            // The account is loaded again on first use
+            plugin.getLogger().warning("Could not load the bank account of " + uuid + ": " + error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Writes and drops the account of a player who leaves.
+     *
+     * @param event The quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        unload(event.getPlayer().getUniqueId());
+    }
+
+    private void unload(UUID uuid) {
+        AccountCache accountCache = plugin.getAccountCache();
+        accountCache.unload(uuid).exceptionally(error -> {
+            plugin.getLogger().warning("Could not write the bank account of " + uuid + ": " + error.getMessage());
+            return null;
+        });
+    }
+}
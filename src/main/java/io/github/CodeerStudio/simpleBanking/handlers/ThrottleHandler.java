@@ -0,0 +1,120 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.throttle.RequestLimiter;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Protects the database from players sending bank requests faster than anyone could by hand,
+ * for example by holding the mouse on a menu button or with a macro client.
+ *
+ * Player requests (menu clicks and {@code /bank} commands) and admin commands are limited
+ * separately, each with its own token bucket per player. A request over the limit does not reach
+ * the account cache or the database; the player is told to slow down once, and further requests
+ * are dropped quietly until one is allowed again. The console is never limited.
+ */
+public class ThrottleHandler implements Listener {
+
+    private final RequestLimiter requests;
+    private final RequestLimiter adminCommands;
+
+    /**
+     * Creates a new ThrottleHandler and registers its listener.
+     *
+     * @param plugin        The SimpleBanking plugin instance.
+     * @param requests      The limiter for players' bank requests.
+     * @param adminCommands The limiter for admin commands run by players.
+     */
+    public ThrottleHandler(SimpleBanking plugin, RequestLimiter requests, RequestLimiter adminCommands) {
+        this.requests = requests;
+        this.adminCommands = adminCommands;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Takes a token for a player's bank request, without telling them if it is over the limit.
+     *
+     * @param player The player making the request.
+     * @return Whether the request may go ahead.
+     */
+    public RequestLimiter.Result check(Player player) {
+        return requests.tryAcquire(player.getUniqueId());
+    }
+
+    /**
+     * Takes a token for a bank request, telling the sender to slow down if it is over the limit.
+     *
+     * @param sender The sender making the request.
+     * @return {@code true} if the request may go ahead.
+     */
+    public boolean allow(CommandSender sender) {
+        return allow(sender, requests);
+    }
+
+    /**
+     * Takes a token for an admin command, telling the sender to slow down if it is over the limit.
+     *
+     * @param sender The sender running the command.
+     * @return {@code true} if the command may go ahead.
+     */
+    public boolean allowAdmin(CommandSender sender) {
+        return allow(sender, adminCommands);
+    }
+
+    /**
+     * Tells a player their request was over the limit, unless they were already told.
+     *
+     * @param sender The sender whose request was rejected.
+     * @param result The outcome of the limiter.
+     */
+    public void tellCooldown(CommandSender sender, RequestLimiter.Result result) {
+        if (result == RequestLimiter.Result.REJECTED) {
+            sender.sendMessage(ChatColor.RED + "You're doing that too fast. Please wait a moment.");
+        }
+    }
+
+    /**
+     * Gets the number of players' bank requests rejected so far.
+     *
+     * @return The rejection count.
+     */
+    public long getRejectedRequests() {
+        return requests.getRejected();
+    }
+
+    /**
+     * Gets the number of admin commands rejected so far.
+     *
+     * @return The rejection count.
+     */
+    public long getRejectedAdminCommands() {
+        return adminCommands.getRejected();
+    }
+
+    /**
+     * Drops the token buckets of a player who leaves.
+     *
+     * @param event The quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        requests.forget(event.getPlayer().getUniqueId());
+        adminCommands.forget(event.getPlayer().getUniqueId());
+    }
+
+    private boolean allow(CommandSender sender, RequestLimiter limiter) {
+        if (!(sender instanceof Player player)) {
+            return true;
+        }
+        RequestLimiter.Result result = limiter.tryAcquire(player.getUniqueId());
+        tellCooldown(sender, result);
+        return result == RequestLimiter.Result.ALLOWED;
+    }
+}
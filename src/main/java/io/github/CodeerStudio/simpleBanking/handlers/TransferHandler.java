@@ -0,0 +1,426 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.transfer.TransferFormat;
+import io.github.CodeerStudio.simpleBanking.transfer.TransferReader;
+import io.github.CodeerStudio.simpleBanking.transfer.TransferWriter;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports all balances and the transaction history to a file in the plugin folder, and imports
+ * such a file back, for backups and for moving a bank between servers or storage backends.
+ *
+ * Both run in the background and never hold more than one batch of rows in memory. An export reads
+ * the storage in pages ordered by a key, continuing after the last key of the previous page, and
+ * writes to a temporary file that replaces the target only once complete. An import reads the file
+ * one batch at a time off the database thread, then stores each batch as one transaction on the
+ * database thread, so other bank operations keep running in between. Imported balances replace the
+ * stored ones, and imported history is added to the existing history, so importing the same file
+ * twice duplicates its history. Only one export or import runs at a time, and the admin receives
+ * progress reports with the rows per second while it runs.
+ */
+public class TransferHandler {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final SimpleBanking plugin;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Constructs a new TransferHandler instance.
+     *
+     * @param plugin    The main plugin instance, used for accessing the storage and the account cache.
+     * @param batchSize The number of rows read or stored at once.
+     */
+    public TransferHandler(SimpleBanking plugin, int batchSize) {
+        this.plugin = plugin;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts exporting all accounts and history in the background. Must be called on the main thread.
+     *
+     * @param sender   The admin running the export, who receives progress reports.
+     * @param fileName The file to write, relative to the plugin folder. Files ending in {@code .csv}
+     *                 are written as CSV, others in the compressed binary format.
+     */
+    public void startExport(CommandSender sender, String fileName) {
+        File file = resolveFile(sender, fileName);
+        if (file == null) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "Another export or import is still running.");
+            return;
+        }
+
+        ExportJob job = new ExportJob(sender, file);
+        job.message(ChatColor.YELLOW + "Exporting the bank to " + file.getName() + "...");
+        // Write out balances and history that so far only exist in memory, so the export includes them
+        plugin.getDatabaseExecutor().write(() -> plugin.getAccountCache().flush()).thenRun(job::open).whenComplete((ignored, error) -> {
+            if (error != null) {
+                job.finish(error);
+            } else {
+                job.exportNextAccounts();
+            }
+        });
+    }
+
+    /**
+     * Starts importing an export file in the background. Must be called on the main thread.
+     *
+     * @param sender   The admin running the import, who receives progress reports.
+     * @param fileName The file to read, relative to the plugin folder. Files ending in {@code .csv}
+     *                 are read as CSV, others in the compressed binary format.
+     */
+    public void startImport(CommandSender sender, String fileName) {
+        File file = resolveFile(sender, fileName);
+        if (file == null) {
+            return;
+        }
+        if (!file.isFile()) {
+            sender.sendMessage(ChatColor.RED + "There is no file " + fileName + " in the plugin folder.");
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "Another export or import is still running.");
+            return;
+        }
+
+        ImportJob job = new ImportJob(sender, file);
+        job.message(ChatColor.YELLOW + "Importing the bank from " + file.getName() + "...");
+        CompletableFuture.runAsync(job::open)
+                .thenCompose(ignored -> plugin.getDatabaseExecutor().run(() -> {
+                    plugin.getStorage().beginImport();
+                    job.started = true;
+                }))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        job.finish(error);
+                    } else {
+                        job.importNextBatch();
+                    }
+                });
+    }
+
+    /**
+     * Resolves a file name against the plugin folder, telling the sender if it can't be used.
+     */
+    private File resolveFile(CommandSender sender, String fileName) {
+        File file = BulkOperationHandler.resolveFile(plugin.getDataFolder(), fileName);
+        if (file == null || file.isDirectory()) {
+            sender.sendMessage(ChatColor.RED + "The file must be inside the plugin folder.");
+            return null;
+        }
+        return file;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * What both kinds of job have in common: row counting, progress reports and messages.
+     */
+    private abstract class TransferJob {
+
+        final CommandSender sender;
+        final File file;
+        final long startedAt = System.nanoTime();
+
+        long accounts;
+        long entries;
+        private long lastProgressAt = startedAt;
+
+        TransferJob(CommandSender sender, File file) {
+            this.sender = sender;
+            this.file = file;
+        }
+
+        abstract String describe();
+
+        void progress() {
+            long now = System.nanoTime();
+            if (now - lastProgressAt >= PROGRESS_INTERVAL_NANOS) {
+                lastProgressAt = now;
+                message(ChatColor.GRAY + describe() + ": " + accounts + " accounts, " + entries
+                        + " history entries (" + rowsPerSecond(now) + " rows/s)");
+            }
+        }
+
+        void report(Throwable error, BankMetrics.Operation operation) {
+            running.set(false);
+            plugin.getMetrics().record(operation, startedAt, error != null);
+
+            long now = System.nanoTime();
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                plugin.getLogger().severe(describe() + " failed after " + (accounts + entries) + " rows: " + cause.getMessage());
+                message(ChatColor.RED + describe() + " failed after " + accounts + " accounts and " + entries
+                        + " history entries: " + cause.getMessage());
+                return;
+            }
+
+            message(ChatColor.GREEN + describe() + " finished: " + accounts + " accounts and " + entries
+                    + " history entries" + String.format(Locale.ROOT, " in %.2fs", (now - startedAt) / 1_000_000_000.0)
+                    + " (" + rowsPerSecond(now) + " rows/s).");
+        }
+
+        private long rowsPerSecond(long now) {
+            long nanos = Math.max(1, now - startedAt);
+            return (accounts + entries) * 1_000_000_000L / nanos;
+        }
+
+        void message(String message) {
+            plugin.getDatabaseExecutor().mainThread().execute(() -> sender.sendMessage(message));
+        }
+    }
+
+    /**
+     * One running export. Pages are read on the database reader threads, one after another, and
+     * written to the file right away.
+     */
+    private class ExportJob extends TransferJob {
+
+        private final Path temporary;
+        private TransferWriter writer;
+
+        private UUID lastUuid;
+        private long lastEntryId;
+
+        ExportJob(CommandSender sender, File file) {
+            super(sender, file);
+            this.temporary = file.toPath().resolveSibling(file.getName() + ".tmp");
+        }
+
+        @Override
+        String describe() {
+            return "Export to " + file.getName();
+        }
+
+        void open() {
+            try {
+                Files.createDirectories(temporary.getParent());
+                writer = TransferFormat.forFile(file.getName()).writer(Files.newOutputStream(temporary));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create " + temporary.getFileName(), e);
+            }
+        }
+
+        void exportNextAccounts() {
+            plugin.getDatabaseExecutor().read(() -> plugin.getStorage().readAccounts(lastUuid, batchSize))
+                    .thenApply(page -> {
+                        try {
+                            for (AccountRecord account : page) {
+                                writer.writeAccount(account);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        if (!page.isEmpty()) {
+                            lastUuid = page.get(page.size() - 1).uuid();
+                            accounts += page.size();
+                        }
+                        return page.size();
+                    })
+                    .whenComplete((count, error) -> {
+                        if (error != null) {
+                            finish(error);
+                        } else {
+                            progress();
+                            if (count < batchSize) {
+                                exportNextEntries();
+                            } else {
+                                exportNextAccounts();
+                            }
+                        }
+                    });
+        }
+
+        void exportNextEntries() {
+            plugin.getDatabaseExecutor().read(() -> plugin.getStorage().readLedger(lastEntryId, batchSize))
+                    .thenApply(page -> {
+                        try {
+                            for (BankStorage.LedgerRow row : page) {
+                                writer.writeEntry(row.entry());
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        if (!page.isEmpty()) {
+                            lastEntryId = page.get(page.size() - 1).id();
+                            entries += page.size();
+                        }
+                        return page.size();
+                    })
+                    .whenComplete((count, error) -> {
+                        if (error != null) {
+                            finish(error);
+                        } else if (count < batchSize) {
+                            finish(null);
+                        } else {
+                            progress();
+                            exportNextEntries();
+                        }
+                    });
+        }
+
+        void finish(Throwable error) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                    if (error == null) {
+                        Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+            if (error != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not remove " + temporary.getFileName() + ": " + e.getMessage());
+                }
+            }
+            report(error, BankMetrics.Operation.EXPORT);
+        }
+    }
+
+    /**
+     * One running import. Each batch is read from the file on a worker thread, then stored on the
+     * database thread, and the next batch is only read once the previous one was stored.
+     */
+    private class ImportJob extends TransferJob {
+
+        private TransferReader reader;
+
+        // Whether the storage was prepared for the import and has to be restored afterwards
+        private boolean started;
+
+        ImportJob(CommandSender sender, File file) {
+            super(sender, file);
+        }
+
+        @Override
+        String describe() {
+            return "Import from " + file.getName();
+        }
+
+        void open() {
+            try {
+                reader = TransferFormat.forFile(file.getName()).reader(Files.newInputStream(file.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open " + file.getName(), e);
+            }
+        }
+
+        void importNextBatch() {
+            CompletableFuture.supplyAsync(this::readBatch)
+                    .thenCompose(batch -> plugin.getDatabaseExecutor().write(() -> {
+                        if (!batch.accounts.isEmpty()) {
+                            plugin.getAccountCache().importAccounts(batch.accounts, TransactionLedger.actorOf(sender));
+                        }
+                        if (!batch.entries.isEmpty()) {
+                            plugin.getStorage().appendLedger(batch.entries);
+                            plugin.getLedger().noteAppended();
+                        }
+                        accounts += batch.accounts.size();
+                        entries += batch.entries.size();
+                        return batch.size();
+                    }))
+                    .whenComplete((count, error) -> {
+                        if (error != null) {
+                            finish(error);
+                        } else if (count == 0) {
+                            finish(null);
+                        } else {
+                            progress();
+                            importNextBatch();
+                        }
+                    });
+        }
+
+        private Batch readBatch() {
+            Batch batch = new Batch();
+            try {
+                reader.read(batchSize, batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return batch;
+        }
+
+        void finish(Throwable error) {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not close " + file.getName() + ": " + e.getMessage());
+                }
+            }
+            if (!started) {
+                report(error, BankMetrics.Operation.IMPORT);
+                return;
+            }
+
+            plugin.getDatabaseExecutor().run(() -> plugin.getStorage().finishImport())
+                    .whenComplete((ignored, finishError) -> {
+                        if (finishError != null) {
+                            plugin.getLogger().severe("Could not restore the database after an import: "
+                                    + unwrap(finishError).getMessage());
+                        }
+                        // Imported balances bypassed the board's incremental updates
+                        plugin.getLeaderboard().reseed();
+                        report(error != null ? error : finishError, BankMetrics.Operation.IMPORT);
+                    });
+        }
+    }
+
+    /**
+     * The records of one batch read from an import file.
+     */
+    private static final class Batch implements TransferReader.Visitor {
+
+        private final List<AccountRecord> accounts = new ArrayList<>();
+        private final List<LedgerEntry> entries = new ArrayList<>();
+
+        @Override
+        public void account(AccountRecord account) {
+            accounts.add(account);
+        }
+
+        @Override
+        public void entry(LedgerEntry entry) {
+            entries.add(entry);
+        }
+
+        int size() {
+            return accounts.size() + entries.size();
+        }
+    }
+}
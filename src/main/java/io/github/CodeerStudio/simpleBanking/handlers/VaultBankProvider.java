@@ -0,0 +1,461 @@
+package io.github.CodeerStudio.simpleBanking.handlers;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.ChangeHandle;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics.Operation;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import net.milkbowl.vault.economy.EconomyResponse.ResponseType;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The Vault {@link Economy} SimpleBanking registers, so other plugins can read and change bank
+ * balances through Vault's bank methods. Wallet methods are passed on unchanged to the economy
+ * that was registered before, so registering this one only adds bank support.
+ *
+ * Every player has exactly one bank, named after them: a bank name is a player name or UUID.
+ * Vault's methods are synchronous and usually called on the main thread, so each call waits for
+ * the account cache, but never unboundedly. Only a cached account in write-behind mode, such as an
+ * online player's, is answered on the calling thread with a few map lookups. Other accounts are
+ * loaded on a database reader thread, and in write-through or cluster mode every change is a
+ * storage write on the database thread. Balance reads on the main thread never wait: an account
+ * that isn't cached starts loading and the read fails, so a later read finds it. Off the main
+ * thread they wait at most {@code readTimeoutMillis}. Changes wait at most
+ * {@code changeTimeoutMillis}. A change that hasn't started by then is
+ * abandoned and reported as failed, so it never happens later; one already being written is
+ * waited for, so the caller always learns whether it was applied.
+ *
+ * The provider is registered as soon as the plugin is enabled, so plugins looking up Vault then
+ * find it. Bank calls made before the storage has opened fail with a message saying so.
+ */
+public class VaultBankProvider implements Economy {
+
+    private static final String ACTOR = "Vault";
+
+    private final SimpleBanking plugin;
+    private final Economy wallet;
+    private final long readTimeoutMillis;
+    private final long changeTimeoutMillis;
+
+    /**
+     * Constructs a new VaultBankProvider.
+     *
+     * @param plugin              The main plugin instance, used for accessing the account cache.
+     * @param wallet              The economy handling wallets, which wallet methods are passed on to.
+     * @param readTimeoutMillis   How long a balance read off the main thread waits for an account that isn't cached.
+     * @param changeTimeoutMillis How long a change waits to start before it is abandoned.
+     */
+    public VaultBankProvider(SimpleBanking plugin, Economy wallet, long readTimeoutMillis, long changeTimeoutMillis) {
+        this.plugin = plugin;
+        this.wallet = wallet;
+        this.readTimeoutMillis = Math.max(1, readTimeoutMillis);
+        this.changeTimeoutMillis = Math.max(1, changeTimeoutMillis);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return plugin.isEnabled() && wallet.isEnabled();
+    }
+
+    @Override
+    public String getName() {
+        return "SimpleBanking";
+    }
+
+    @Override
+    public boolean hasBankSupport() {
+        return true;
+    }
+
+    @Override
+    public int fractionalDigits() {
+        return wallet.fractionalDigits();
+    }
+
+    @Override
+    public String format(double amount) {
+        return wallet.format(amount);
+    }
+
+    @Override
+    public String currencyNamePlural() {
+        return wallet.currencyNamePlural();
+    }
+
+    @Override
+    public String currencyNameSingular() {
+        return wallet.currencyNameSingular();
+    }
+
+    // Banks
+
+    @Override
+    public EconomyResponse bankBalance(String name) {
+        long start = System.nanoTime();
+        UUID owner = ownerOf(name);
+        if (owner == null) {
+            return unknownBank(name);
+        }
+        if (!plugin.isReady()) {
+            return starting();
+        }
+
+        // Cached accounts, and players known to have none, are answered without waiting
+        CompletableFuture<Long> load = plugin.getAccountCache().getBalance(owner);
+        if (!load.isDone() && Bukkit.isPrimaryThread()) {
+            // Even a short wait stalls the tick, and plugins may read many balances in one
+            plugin.getMetrics().record(Operation.VAULT_BALANCE, start, true);
+            return failure(0, "The bank account is loading, try again.");
+        }
+
+        try {
+            Long balance = load.get(readTimeoutMillis, TimeUnit.MILLISECONDS);
+            plugin.getMetrics().record(Operation.VAULT_BALANCE, start, false);
+            // A player without an account yet has an empty bank
+            return success(0, balance == null ? 0 : balance);
+        } catch (TimeoutException e) {
+            plugin.getMetrics().record(Operation.VAULT_BALANCE, start, true);
+            return failure(0, "The bank is busy, try again.");
+        } catch (ExecutionException e) {
+            plugin.getMetrics().record(Operation.VAULT_BALANCE, start, true);
+            plugin.getLogger().severe("Could not read the bank balance of " + name + " for Vault: " + e.getCause().getMessage());
+            return failure(0, "An error occurred while reading the bank balance.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure(0, "Interrupted while reading the bank balance.");
+        }
+    }
+
+    @Override
+    public EconomyResponse bankHas(String name, double amount) {
+        EconomyResponse balance = bankBalance(name);
+        if (!balance.transactionSuccess()) {
+            return balance;
+        }
+        return Money.fromDouble(balance.balance) >= Money.fromDouble(amount)
+                ? balance
+                : new EconomyResponse(amount, balance.balance, ResponseType.FAILURE, "Insufficient funds");
+    }
+
+    @Override
+    public EconomyResponse bankDeposit(String name, double amount) {
+        long start = System.nanoTime();
+        UUID owner = ownerOf(name);
+        if (owner == null) {
+            return unknownBank(name);
+        }
+        if (!plugin.isReady()) {
+            return starting();
+        }
+        long cents = Money.fromDouble(amount);
+        if (cents <= 0) {
+            return failure(amount, "The amount must be greater than zero.");
+        }
+
+        ChangeHandle handle = new ChangeHandle();
+        CompletableFuture<Long> deposit = plugin.getAccountCache()
+                .deposit(owner, cents, TransactionType.PLUGIN_DEPOSIT, ACTOR, handle);
+        return change(name, amount, start, deposit, handle);
+    }
+
+    @Override
+    public EconomyResponse bankWithdraw(String name, double amount) {
+        long start = System.nanoTime();
+        UUID owner = ownerOf(name);
+        if (owner == null) {
+            return unknownBank(name);
+        }
+        if (!plugin.isReady()) {
+            return starting();
+        }
+        long cents = Money.fromDouble(amount);
+        if (cents <= 0) {
+            return failure(amount, "The amount must be greater than zero.");
+        }
+
+        // Check and deduct in one step, then read the balance left for the response
+        ChangeHandle handle = new ChangeHandle();
+        CompletableFuture<Long> withdrawal = plugin.getAccountCache()
+                .withdraw(owner, cents, TransactionType.PLUGIN_WITHDRAW, ACTOR, handle)
+                .thenCompose(withdrawn -> withdrawn
+                        ? plugin.getAccountCache().getBalance(owner)
+                        : CompletableFuture.completedFuture(null));
+        return change(name, amount, start, withdrawal, handle);
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse createBank(String name, String player) {
+        return createBank(name, plugin.getServer().getOfflinePlayerIfCached(player));
+    }
+
+    @Override
+    public EconomyResponse createBank(String name, OfflinePlayer player) {
+        // Accounts are opened by their first deposit, so there is nothing to create
+        return player != null && player.getUniqueId().equals(ownerOf(name))
+                ? bankBalance(name)
+                : failure(0, "A player's bank is named after them and can't be created for others.");
+    }
+
+    @Override
+    public EconomyResponse deleteBank(String name) {
+        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, "SimpleBanking banks can't be deleted.");
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse isBankOwner(String name, String playerName) {
+        return isBankOwner(name, plugin.getServer().getOfflinePlayerIfCached(playerName));
+    }
+
+    @Override
+    public EconomyResponse isBankOwner(String name, OfflinePlayer player) {
+        return player != null && player.getUniqueId().equals(ownerOf(name))
+                ? success(0, 0)
+                : failure(0, "Not the owner of this bank.");
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse isBankMember(String name, String playerName) {
+        return isBankOwner(name, playerName);
+    }
+
+    @Override
+    public EconomyResponse isBankMember(String name, OfflinePlayer player) {
+        // Banks have no members besides their owner
+        return isBankOwner(name, player);
+    }
+
+    /**
+     * Lists the banks of online players. Listing every bank would mean reading the whole
+     * database on the calling thread.
+     */
+    @Override
+    public List<String> getBanks() {
+        List<String> banks = new ArrayList<>();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            banks.add(player.getName());
+        }
+        return banks;
+    }
+
+    // Wallets, handled by the wallet economy
+
+    @Override
+    @Deprecated
+    public boolean hasAccount(String playerName) {
+        return wallet.hasAccount(playerName);
+    }
+
+    @Override
+    public boolean hasAccount(OfflinePlayer player) {
+        return wallet.hasAccount(player);
+    }
+
+    @Override
+    @Deprecated
+    public boolean hasAccount(String playerName, String worldName) {
+        return wallet.hasAccount(playerName, worldName);
+    }
+
+    @Override
+    public boolean hasAccount(OfflinePlayer player, String worldName) {
+        return wallet.hasAccount(player, worldName);
+    }
+
+    @Override
+    @Deprecated
+    public double getBalance(String playerName) {
+        return wallet.getBalance(playerName);
+    }
+
+    @Override
+    public double getBalance(OfflinePlayer player) {
+        return wallet.getBalance(player);
+    }
+
+    @Override
+    @Deprecated
+    public double getBalance(String playerName, String world) {
+        return wallet.getBalance(playerName, world);
+    }
+
+    @Override
+    public double getBalance(OfflinePlayer player, String world) {
+        return wallet.getBalance(player, world);
+    }
+
+    @Override
+    @Deprecated
+    public boolean has(String playerName, double amount) {
+        return wallet.has(playerName, amount);
+    }
+
+    @Override
+    public boolean has(OfflinePlayer player, double amount) {
+        return wallet.has(player, amount);
+    }
+
+    @Override
+    @Deprecated
+    public boolean has(String playerName, String worldName, double amount) {
+        return wallet.has(playerName, worldName, amount);
+    }
+
+    @Override
+    public boolean has(OfflinePlayer player, String worldName, double amount) {
+        return wallet.has(player, worldName, amount);
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse withdrawPlayer(String playerName, double amount) {
+        return wallet.withdrawPlayer(playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
+        return wallet.withdrawPlayer(player, amount);
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse withdrawPlayer(String playerName, String worldName, double amount) {
+        return wallet.withdrawPlayer(playerName, worldName, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, String worldName, double amount) {
+        return wallet.withdrawPlayer(player, worldName, amount);
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse depositPlayer(String playerName, double amount) {
+        return wallet.depositPlayer(playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        return wallet.depositPlayer(player, amount);
+    }
+
+    @Override
+    @Deprecated
+    public EconomyResponse depositPlayer(String playerName, String worldName, double amount) {
+        return wallet.depositPlayer(playerName, worldName, amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, String worldName, double amount) {
+        return wallet.depositPlayer(player, worldName, amount);
+    }
+
+    @Override
+    @Deprecated
+    public boolean createPlayerAccount(String playerName) {
+        return wallet.createPlayerAccount(playerName);
+    }
+
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player) {
+        return wallet.createPlayerAccount(player);
+    }
+
+    @Override
+    @Deprecated
+    public boolean createPlayerAccount(String playerName, String worldName) {
+        return wallet.createPlayerAccount(playerName, worldName);
+    }
+
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player, String worldName) {
+        return wallet.createPlayerAccount(player, worldName);
+    }
+
+    /**
+     * Waits for a bank change to be applied, abandoning it if it hasn't started in time.
+     *
+     * @param change Completed with the balance after the change, or {@code null} if the balance was insufficient.
+     * @param handle The handle the change was made with.
+     */
+    private EconomyResponse change(String name, double amount, long start, CompletableFuture<Long> change,
+                                   ChangeHandle handle) {
+        BankMetrics metrics = plugin.getMetrics();
+        try {
+            Long balance;
+            try {
+                balance = change.get(changeTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (handle.abandon()) {
+                    metrics.record(Operation.VAULT_CHANGE, start, true);
+                    return failure(amount, "The bank is busy, try again.");
+                }
+                // Too late to abandon: the change is being written, so wait for its outcome
+                balance = change.get();
+            }
+            metrics.record(Operation.VAULT_CHANGE, start, false);
+            return balance == null
+                    ? failure(amount, "Insufficient funds")
+                    : success(amount, balance);
+        } catch (ExecutionException e) {
+            metrics.record(Operation.VAULT_CHANGE, start, true);
+            plugin.getLogger().severe("Could not change the bank balance of " + name + " for Vault: " + e.getCause().getMessage());
+            return failure(amount, "An error occurred while changing the bank balance.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (handle.abandon()) {
+                return failure(amount, "Interrupted while changing the bank balance.");
+            }
+            // The change still completes; only the caller stops waiting for it
+            return failure(amount, "Interrupted while changing the bank balance; the change may still apply.");
+        }
+    }
+
+    /**
+     * Resolves a bank name to its owner, without looking up unknown names online.
+     *
+     * @return The owner's UUID, or {@code null} if the name is neither a UUID nor a known player.
+     */
+    private UUID ownerOf(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(name);
+        } catch (IllegalArgumentException e) {
+            OfflinePlayer player = plugin.getServer().getOfflinePlayerIfCached(name);
+            return player == null ? null : player.getUniqueId();
+        }
+    }
+
+    private static EconomyResponse unknownBank(String name) {
+        return failure(0, "There is no bank named " + name + ".");
+    }
+
+    private static EconomyResponse starting() {
+        return failure(0, "The bank is starting, try again.");
+    }
+
+    private static EconomyResponse success(double amount, long balance) {
+        return new EconomyResponse(amount, Money.toDouble(balance), ResponseType.SUCCESS, null);
+    }
+
+    private static EconomyResponse failure(double amount, String message) {
+        return new EconomyResponse(amount, 0, ResponseType.FAILURE, message);
+    }
+}
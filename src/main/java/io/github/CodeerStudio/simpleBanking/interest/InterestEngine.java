@@ -0,0 +1,144 @@
+package io.github.CodeerStudio.simpleBanking.interest;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credits interest to bank accounts, one period at a time.
+ *
+ * Every account stores the last period it was credited for. Accounts are never swept as a whole:
+ * an account that is loaded into the cache is caught up on all periods it missed (up to the
+ * configured limit), and when a new period starts, only the accounts that are cached at that
+ * moment are credited. Offline accounts therefore cost nothing until they are used again.
+ *
+ * All crediting runs on the database thread, one task per lock stripe, so other bank operations
+ * keep running in between.
+ */
+public class InterestEngine {
+
+    // How often the engine checks whether a new period has started
+    private static final long MAX_CHECK_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final SimpleBanking plugin;
+    private final InterestPolicy policy;
+
+    // The last period cached accounts were credited for. Only used on the database thread.
+    private long sweptPeriod;
+
+    private ScheduledFuture<?> checkTask;
+
+    /**
+     * Constructs a new InterestEngine instance.
+     *
+     * @param plugin The main plugin instance, used for accessing the account cache and database.
+     * @param policy The interest rules.
+     */
+    public InterestEngine(SimpleBanking plugin, InterestPolicy policy) {
+        this.plugin = plugin;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts checking for new periods on the database thread. Accounts loaded from now on are
+     * caught up as they are loaded.
+     */
+    public void start() {
+        sweptPeriod = policy.currentPeriod();
+        checkTask = plugin.getDatabaseExecutor().scheduleWithFixedDelay(this::checkPeriod,
+                Math.min(policy.getPeriodMillis(), MAX_CHECK_INTERVAL_MILLIS), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking for new periods.
+     */
+    public void stop() {
+        if (checkTask != null) {
+            checkTask.cancel(false);
+            checkTask = null;
+        }
+    }
+
+    /**
+     * Catches up an account that was just loaded into the cache, if it missed any periods.
+     *
+     * @param uuid        The UUID of the account owner.
+     * @param lastAccrued The last period the account was credited for, or {@code null} if never.
+     */
+    public void onLoaded(UUID uuid, Long lastAccrued) {
+        if (lastAccrued != null && lastAccrued >= policy.currentPeriod()) {
+            return;
+        }
+        credit(List.of(uuid));
+    }
+
+    /**
+     * Credits all cached accounts once a new period has started. Runs on the database thread.
+     */
+    private void checkPeriod() {
+        long period = policy.currentPeriod();
+        if (period <= sweptPeriod) {
+            return;
+        }
+        sweptPeriod = period;
+
+        AccountCache accountCache = plugin.getAccountCache();
+        for (int stripe = 0; stripe < accountCache.getStripeCount(); stripe++) {
+            List<UUID> uuids = accountCache.getCachedAccounts(stripe);
+            if (!uuids.isEmpty()) {
+                credit(uuids);
+            }
+        }
+    }
+
+    /**
+     * Queues a task that credits a group of accounts up to the current period and tells the
+     * online ones how much they earned.
+     *
+     * @param uuids The accounts to credit.
+     */
+    private void credit(List<UUID> uuids) {
+        DatabaseExecutor databaseExecutor = plugin.getDatabaseExecutor();
+        databaseExecutor.run(() -> {
+            long start = System.nanoTime();
+            Map<UUID, Long> credited;
+            try {
+                credited = plugin.getAccountCache().accrueInterest(policy, uuids, policy.currentPeriod());
+            } catch (SQLException | ArithmeticException e) {
+                plugin.getMetrics().record(BankMetrics.Operation.INTEREST, start, true);
+                plugin.getLogger().severe("Could not credit interest to " + uuids.size() + " accounts: "
+                        + e.getMessage());
+                return;
+            }
+            plugin.getMetrics().record(BankMetrics.Operation.INTEREST, start, false);
+
+            if (!credited.isEmpty()) {
+                databaseExecutor.mainThread().execute(() -> notifyPlayers(credited));
+            }
+        });
+    }
+
+    /**
+     * Tells online players how much interest they were credited. Runs on the main thread.
+     */
+    private void notifyPlayers(Map<UUID, Long> credited) {
+        for (Map.Entry<UUID, Long> entry : credited.entrySet()) {
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player != null) {
+                player.sendMessage(ChatColor.GREEN + "Your bank account earned "
+                        + Money.format(entry.getValue()) + " in interest.");
+            }
+        }
+    }
+}
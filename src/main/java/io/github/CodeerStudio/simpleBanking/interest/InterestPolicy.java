@@ -0,0 +1,159 @@
+package io.github.CodeerStudio.simpleBanking.interest;
+
+import io.github.CodeerStudio.simpleBanking.util.Money;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The configured interest rules: how long a period is, the tiered rates and the cap.
+ *
+ * Tiers work like tax brackets: each rate only applies to the part of the balance between its
+ * threshold and the next one, so crossing a threshold never lowers the interest. Interest is
+ * rounded down to whole cents and compounded once per period.
+ */
+public class InterestPolicy {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final long periodMillis;
+    private final int maxCatchUpPeriods;
+    private final long maxPerPeriod;
+    private final List<Tier> tiers;
+
+    /**
+     * Constructs a new InterestPolicy.
+     *
+     * @param periodMillis      The length of one interest period.
+     * @param maxCatchUpPeriods The most periods credited at once to an account that was away.
+     * @param maxPerPeriod      The most interest one account earns per period in cents, or 0 for no cap.
+     * @param tiers             The rate tiers, in any order.
+     */
+    public InterestPolicy(long periodMillis, int maxCatchUpPeriods, long maxPerPeriod, List<Tier> tiers) {
+        this.periodMillis = Math.max(1, periodMillis);
+        this.maxCatchUpPeriods = Math.max(1, maxCatchUpPeriods);
+        this.maxPerPeriod = Math.max(0, maxPerPeriod);
+        this.tiers = new ArrayList<>(tiers);
+        this.tiers.sort(Comparator.comparingLong(Tier::from));
+    }
+
+    /**
+     * Reads the policy from the {@code interest} section of the config.
+     *
+     * @param config The interest config section, or {@code null}.
+     * @param logger The logger to report invalid tiers to.
+     * @return The policy, or {@code null} if interest is disabled.
+     */
+    public static InterestPolicy fromConfig(ConfigurationSection config, Logger logger) {
+        if (config == null || !config.getBoolean("enabled", false)) {
+            return null;
+        }
+
+        List<Tier> tiers = new ArrayList<>();
+        for (Map<?, ?> entry : config.getMapList("tiers")) {
+            try {
+                long from = Money.parse(String.valueOf(entry.get("from")));
+                BigDecimal rate = new BigDecimal(String.valueOf(entry.get("rate")));
+                tiers.add(new Tier(from, rate));
+            } catch (RuntimeException e) {
+                logger.warning("Skipping invalid interest tier " + entry + ": " + e.getMessage());
+            }
+        }
+
+        return new InterestPolicy(
+                TimeUnit.MINUTES.toMillis(config.getLong("period-minutes", 1440)),
+                config.getInt("max-catch-up-periods", 30),
+                Money.parse(config.getString("max-per-period", "0")),
+                tiers);
+    }
+
+    /**
+     * Gets the length of one interest period.
+     *
+     * @return The period length in milliseconds.
+     */
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Gets the index of the period a point in time falls into.
+     *
+     * @param timeMillis The time in epoch milliseconds.
+     * @return The period index.
+     */
+    public long periodAt(long timeMillis) {
+        return Math.floorDiv(timeMillis, periodMillis);
+    }
+
+    /**
+     * Gets the index of the current period.
+     *
+     * @return The current period index.
+     */
+    public long currentPeriod() {
+        return periodAt(System.currentTimeMillis());
+    }
+
+    /**
+     * Calculates the interest a balance earns over a number of periods, compounded per period.
+     * At most {@code max-catch-up-periods} periods are credited.
+     *
+     * @param balance The balance in cents at the start of the first period.
+     * @param periods The number of periods owed.
+     * @return The total interest in cents.
+     */
+    public long accrue(long balance, long periods) {
+        long credited = Math.min(periods, maxCatchUpPeriods);
+        long current = balance;
+        for (long i = 0; i < credited; i++) {
+            long interest = interestFor(current);
+            if (interest == 0) {
+                break; // The balance won't change, so later periods earn nothing either
+            }
+            current = Math.addExact(current, interest);
+        }
+        return current - balance;
+    }
+
+    /**
+     * Calculates the interest a balance earns in one period.
+     *
+     * @param balance The balance in cents.
+     * @return The interest in cents, rounded down and capped.
+     */
+    public long interestFor(long balance) {
+        if (balance <= 0) {
+            return 0;
+        }
+
+        BigDecimal interest = BigDecimal.ZERO;
+        for (int i = 0; i < tiers.size(); i++) {
+            Tier tier = tiers.get(i);
+            if (balance <= tier.from()) {
+                break;
+            }
+            long upTo = i + 1 < tiers.size() ? Math.min(balance, tiers.get(i + 1).from()) : balance;
+            interest = interest.add(BigDecimal.valueOf(upTo - tier.from()).multiply(tier.rate()));
+        }
+
+        long cents = interest.divide(HUNDRED, 0, RoundingMode.DOWN).longValue();
+        return maxPerPeriod > 0 ? Math.min(cents, maxPerPeriod) : cents;
+    }
+
+    /**
+     * One interest tier.
+     *
+     * @param from The balance in cents from which this rate applies.
+     * @param rate The rate per period in percent.
+     */
+    public record Tier(long from, BigDecimal rate) {
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.CodeerStudio.simpleBanking.leaderboard;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The richest bank accounts, kept up to date as balances change.
+ *
+ * Only the top {@code tracked} accounts are held, ordered by balance. The account cache reports
+ * every balance change, so the ranking never has to be recomputed from the database. The board
+ * remembers a floor balance: every account above it is guaranteed to be tracked. Accounts whose
+ * balance drops to or below the floor stay tracked but are not shown, since untracked accounts
+ * may now be richer. Once fewer accounts than requested remain above the floor, the board is
+ * reseeded from the database in the background.
+ *
+ * Ranks inside the board are answered from memory. Ranks below it are counted by the storage,
+ * using the balance index where it has one, so they reflect the last flush.
+ */
+public class Leaderboard {
+
+    // Richest first, with ties broken by UUID so every account has a distinct position
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::balance).reversed()
+            .thenComparing(Entry::uuid);
+
+    private final SimpleBanking plugin;
+    private final int tracked;
+
+    // Changed while holding the monitor, but read without it by update's fast path
+    private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    // Every account with a balance above this is tracked. Nothing is shown until the first seed.
+    private volatile long floor = Long.MAX_VALUE;
+
+    // The newest balance of each account changed while a reseed runs, or null outside of a reseed
+    private volatile Map<UUID, Long> changedDuringSeed;
+
+    private final AtomicBoolean seeding = new AtomicBoolean();
+
+    /**
+     * Constructs a new Leaderboard instance. It stays empty until {@link #reseed()} has run once.
+     *
+     * @param plugin  The main plugin instance, used for accessing the account cache and database.
+     * @param tracked The number of accounts held in memory.
+     */
+    public Leaderboard(SimpleBanking plugin, int tracked) {
+        this.plugin = plugin;
+        this.tracked = Math.max(1, tracked);
+    }
+
+    /**
+     * Records the new balance of an account. Must be called while holding the account's lock,
+     * so the changes of one account arrive in order.
+     *
+     * Most changes can't affect the board: the account isn't tracked and stays at or below the
+     * floor. Those return without taking the board's monitor, so balance changes on different
+     * stripes don't queue up behind each other here.
+     *
+     * @param uuid    The UUID of the account owner.
+     * @param balance The new balance in cents.
+     */
+    public void update(UUID uuid, long balance) {
+        // Check for a reseed first: one that finished meanwhile has already set the new floor, and
+        // one that starts later flushes and reads this balance itself
+        if (changedDuringSeed == null && balance <= floor && !entries.containsKey(uuid)) {
+            return;
+        }
+        record(uuid, balance);
+    }
+
+    private synchronized void record(UUID uuid, long balance) {
+        if (changedDuringSeed != null) {
+            changedDuringSeed.put(uuid, balance);
+        }
+
+        Entry previous = entries.remove(uuid);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        if (previous != null || balance > floor) {
+            put(uuid, balance);
+            trim();
+        }
+    }
+
+    /**
+     * Gets the richest accounts. Starts a reseed if fewer accounts than requested are known.
+     *
+     * @param count The number of accounts to return.
+     * @return The accounts, richest first. May hold fewer than requested.
+     */
+    public synchronized List<Entry> top(int count) {
+        List<Entry> top = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Entry entry : ranking) {
+            if (top.size() == count || entry.balance() <= floor) {
+                break;
+            }
+            top.add(entry);
+        }
+
+        if (top.size() < count && floor != Long.MIN_VALUE) {
+            reseed();
+        }
+        return top;
+    }
+
+    /**
+     * Gets the rank of an account, counting from 1 for the richest.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return A future completed with the rank, or {@code null} if the player has no bank account.
+     */
+    public CompletableFuture<Long> rankOf(UUID uuid) {
+        synchronized (this) {
+            Entry entry = entries.get(uuid);
+            if (entry != null && entry.balance() > floor) {
+                return CompletableFuture.completedFuture((long) ranking.headSet(entry).size() + 1);
+            }
+        }
+
+        return plugin.getAccountCache().getBalance(uuid).thenCompose(balance -> {
+            if (balance == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return plugin.getDatabaseExecutor().read(() -> plugin.getStorage().countRicherThan(balance) + 1);
+        });
+    }
+
+    /**
+     * Rebuilds the board from the database on the database thread. Dirty balances are flushed
+     * first, and balances that change while the query runs are applied on top of its result.
+     * Does nothing if a reseed is already queued.
+     *
+     * @return A future completed once the board has been rebuilt.
+     */
+    public CompletableFuture<Void> reseed() {
+        if (!seeding.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return plugin.getDatabaseExecutor().run(() -> {
+            try {
+                synchronized (this) {
+                    changedDuringSeed = new HashMap<>();
+                }
+                plugin.getAccountCache().flush();
+
+                Map<UUID, Long> rows = new HashMap<>();
+                int count = 0;
+                long lowest = Long.MIN_VALUE;
+                for (AccountRecord account : plugin.getStorage().richestAccounts(tracked)) {
+                    lowest = account.balance();
+                    rows.put(account.uuid(), lowest);
+                    count++;
+                }
+
+                synchronized (this) {
+                    ranking.clear();
+                    entries.clear();
+                    rows.putAll(changedDuringSeed);
+                    rows.forEach(this::put);
+
+                    // With fewer rows than asked for, every account is on the board
+                    floor = count >= tracked ? lowest : Long.MIN_VALUE;
+                    trim();
+                }
+            } finally {
+                synchronized (this) {
+                    changedDuringSeed = null;
+                }
+                seeding.set(false);
+            }
+        });
+    }
+
+    private void put(UUID uuid, long balance) {
+        Entry entry = new Entry(uuid, balance);
+        ranking.add(entry);
+        entries.put(uuid, entry);
+    }
+
+    /**
+     * Drops the poorest accounts beyond the tracked count, raising the floor to their balance.
+     */
+    private void trim() {
+        while (ranking.size() > tracked) {
+            Entry poorest = ranking.pollLast();
+            entries.remove(poorest.uuid());
+            floor = Math.max(floor, poorest.balance());
+        }
+    }
+
+    /**
+     * One account on the board.
+     *
+     * @param uuid    The UUID of the account owner.
+     * @param balance The balance in cents.
+     */
+    public record Entry(UUID uuid, long balance) {
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.CodeerStudio.simpleBanking.ledger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * One player's position while browsing an account's history.
+ *
+ * The cursor each visited page starts from is remembered, so going back never scans from the
+ * beginning. Once a page has loaded, the page after it is fetched in the background, so paging
+ * forward usually shows the next page straight away. The last few pages are kept in memory.
+ * Must only be used on the main thread.
+ */
+public class HistoryView {
+
+    private static final int CACHED_PAGES = 5;
+
+    private final TransactionHistory history;
+    private final UUID uuid;
+    private final int pageSize;
+    private final Executor mainThread;
+
+    // The cursor each known page starts after; the first page starts at the newest entry
+    private final List<TransactionHistory.Cursor> pageStarts = new ArrayList<>();
+
+    private final Map<Integer, CompletableFuture<TransactionHistory.Page>> pages =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<TransactionHistory.Page>> eldest) {
+                    return size() > CACHED_PAGES;
+                }
+            };
+
+    private int pageIndex;
+
+    /**
+     * Constructs a new HistoryView positioned before the first page.
+     *
+     * @param history    The history to read pages from.
+     * @param uuid       The UUID of the account owner.
+     * @param pageSize   The number of entries per page.
+     * @param mainThread The executor of the main server thread.
+     */
+    public HistoryView(TransactionHistory history, UUID uuid, int pageSize, Executor mainThread) {
+        this.history = history;
+        this.uuid = uuid;
+        this.pageSize = pageSize;
+        this.mainThread = mainThread;
+        pageStarts.add(null);
+    }
+
+    /**
+     * Moves to a page that has already been reached, such as the first page or the one before.
+     *
+     * @param index The zero-based page index.
+     * @return A future completed with the page.
+     * @throws IndexOutOfBoundsException If the page has not been reached yet.
+     */
+    public CompletableFuture<TransactionHistory.Page> open(int index) {
+        TransactionHistory.Cursor start = pageStarts.get(index);
+        pageIndex = index;
+
+        CompletableFuture<TransactionHistory.Page> page = pages.get(index);
+        if (page == null || page.isCompletedExceptionally()) {
+            page = history.fetch(uuid, start, pageSize);
+            pages.put(index, page);
+        }
+        page.thenAcceptAsync(loaded -> prefetch(index, loaded), mainThread);
+        return page;
+    }
+
+    /**
+     * Moves to the next page.
+     *
+     * @return A future completed with the page, or {@code null} if there is no next page,
+     * or the current page hasn't loaded yet.
+     */
+    public CompletableFuture<TransactionHistory.Page> next() {
+        return hasNext() ? open(pageIndex + 1) : null;
+    }
+
+    /**
+     * Moves to the previous page.
+     *
+     * @return A future completed with the page, or {@code null} if this is the first page.
+     */
+    public CompletableFuture<TransactionHistory.Page> previous() {
+        return pageIndex > 0 ? open(pageIndex - 1) : null;
+    }
+
+    /**
+     * Checks whether a page follows the current one.
+     *
+     * @return {@code true} if the current page has loaded and is not the last one.
+     */
+    public boolean hasNext() {
+        return pageIndex + 1 < pageStarts.size();
+    }
+
+    /**
+     * Gets the index of the current page.
+     *
+     * @return The zero-based page index.
+     */
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    /**
+     * Remembers where the page after a loaded one starts and fetches it in the background.
+     */
+    private void prefetch(int index, TransactionHistory.Page page) {
+        if (page.next() == null) {
+            return;
+        }
+        if (pageStarts.size() == index + 1) {
+            pageStarts.add(page.next());
+        }
+        if (index == pageIndex && !pages.containsKey(index + 1)) {
+            pages.put(index + 1, history.fetch(uuid, page.next(), pageSize));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.CodeerStudio.simpleBanking.ledger;
+
+import java.util.UUID;
+
+/**
+ * A single balance change in the transaction ledger.
+ *
+ * @param uuid         The UUID of the account owner.
+ * @param amount       The signed change in cents.
+ * @param type         The kind of change.
+ * @param actor        Who made the change: a player UUID, or the name of a non-player sender.
+ * @param timestamp    When the change happened, in epoch milliseconds.
+ * @param balanceAfter The account balance in cents right after the change.
+ */
+public record LedgerEntry(UUID uuid, long amount, TransactionType type, String actor, long timestamp, long balanceAfter) {
+}
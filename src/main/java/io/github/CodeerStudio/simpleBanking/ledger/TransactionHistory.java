@@ -0,0 +1,87 @@
+package io.github.CodeerStudio.simpleBanking.ledger;
+
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads the transaction history of one account from the ledger, newest first.
+ *
+ * Pages are fetched with keyset pagination: each page ends with a {@link Cursor} naming its last
+ * entry, and the next page continues strictly after it. Together with the storage's history index
+ * this makes every page a single index seek, so page 500 costs the same as page 1. Queries run on
+ * the {@link DatabaseExecutor} reader threads.
+ *
+ * Entries still waiting for the ledger's group commit are not included yet.
+ */
+public class TransactionHistory {
+
+    private final DatabaseExecutor databaseExecutor;
+    private final BankStorage storage;
+
+    /**
+     * Constructs a new TransactionHistory instance.
+     *
+     * @param databaseExecutor The executor that runs all database work.
+     * @param storage          The storage the ledger is kept in.
+     */
+    public TransactionHistory(DatabaseExecutor databaseExecutor, BankStorage storage) {
+        this.databaseExecutor = databaseExecutor;
+        this.storage = storage;
+    }
+
+    /**
+     * Fetches one page of an account's history.
+     *
+     * @param uuid     The UUID of the account owner.
+     * @param after    The cursor of the previous page, or {@code null} for the newest entries.
+     * @param pageSize The number of entries per page.
+     * @return A future completed with the page.
+     */
+    public CompletableFuture<Page> fetch(UUID uuid, Cursor after, int pageSize) {
+        return databaseExecutor.read(() -> {
+            // One extra entry tells whether another page follows
+            List<Entry> entries = storage.history(uuid, after, pageSize + 1);
+            if (entries.size() <= pageSize) {
+                return new Page(entries, null);
+            }
+
+            entries = entries.subList(0, pageSize);
+            Entry last = entries.get(pageSize - 1);
+            return new Page(entries, new Cursor(last.timestamp(), last.id()));
+        });
+    }
+
+    /**
+     * The position after the last entry of a page.
+     *
+     * @param createdAt The timestamp of the entry.
+     * @param id        The ledger id of the entry, which orders entries with the same timestamp.
+     */
+    public record Cursor(long createdAt, long id) {
+    }
+
+    /**
+     * One entry of an account's history.
+     *
+     * @param id           The ledger id.
+     * @param timestamp    When the change happened, in epoch milliseconds.
+     * @param amount       The signed change in cents.
+     * @param type         The kind of change.
+     * @param balanceAfter The account balance in cents right after the change.
+     */
+    public record Entry(long id, long timestamp, long amount, TransactionType type, long balanceAfter) {
+    }
+
+    /**
+     * One page of history.
+     *
+     * @param entries The entries, newest first.
+     * @param next    The cursor to fetch the following page with, or {@code null} if this is the last page.
+     */
+    public record Page(List<Entry> entries, Cursor next) {
+    }
+}
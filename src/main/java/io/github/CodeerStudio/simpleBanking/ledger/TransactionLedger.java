@@ -0,0 +1,218 @@
+package io.github.CodeerStudio.simpleBanking.ledger;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Append-only ledger of every balance change, kept by the {@link BankStorage}.
+ *
+ * Entries are queued in memory and group-committed on the database thread: every commit interval,
+ * all queued entries are stored in one batch, so the changes made during a tick share a single
+ * disk sync. Each entry records the balance right after the change, which makes
+ * replaying the ledger idempotent: recovery sets each account to the balance of its newest entry
+ * past the last checkpoint.
+ *
+ * In write-through mode the storage instead stores entries together with the balance update,
+ * so the ledger can never fall behind the stored balances.
+ */
+public class TransactionLedger {
+
+    /**
+     * Interest entries name the period they were credited for, e.g. "interest:20000".
+     */
+    public static final String INTEREST_ACTOR_PREFIX = "interest:";
+
+    private final SimpleBanking plugin;
+    private final DatabaseExecutor databaseExecutor;
+    // Queued entries, grouped by the change that recorded them so a commit never splits a group
+    private final ConcurrentLinkedQueue<List<LedgerEntry>> pending = new ConcurrentLinkedQueue<>();
+
+    // Entries from a failed commit, retried first on the next one. Only used on the database thread.
+    private final List<LedgerEntry> retry = new ArrayList<>();
+
+    // The id of the newest entry committed to the storage
+    private volatile long lastCommittedId;
+
+    private ScheduledFuture<?> commitTask;
+
+    /**
+     * Constructs a new TransactionLedger instance.
+     *
+     * @param plugin           The main plugin instance, used for accessing the database.
+     * @param databaseExecutor The executor that runs all database work.
+     */
+    public TransactionLedger(SimpleBanking plugin, DatabaseExecutor databaseExecutor) {
+        this.plugin = plugin;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    /**
+     * Starts the periodic group commit on the database thread.
+     *
+     * @param commitIntervalMillis The number of milliseconds between commits.
+     */
+    public void start(long commitIntervalMillis) {
+        commitTask = databaseExecutor.scheduleWithFixedDelay(
+                this::commit, Math.max(1, commitIntervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic commit and queues a final commit of all pending entries.
+     *
+     * @return A future completed once the final commit has run.
+     */
+    public CompletableFuture<Void> stop() {
+        if (commitTask != null) {
+            commitTask.cancel(false);
+            commitTask = null;
+        }
+        return databaseExecutor.run(this::commit);
+    }
+
+    /**
+     * Queues an entry for the next group commit. Entries for the same account must be recorded
+     * in the order their changes were applied.
+     *
+     * @param entry The entry to record.
+     */
+    public void record(LedgerEntry entry) {
+        pending.add(List.of(entry));
+    }
+
+    /**
+     * Queues entries that belong to one change, such as both sides of a transfer, so they are
+     * always committed in the same batch.
+     *
+     * @param entries The entries to record, in the order their changes were applied.
+     */
+    public void recordAll(List<LedgerEntry> entries) {
+        pending.add(entries);
+    }
+
+    /**
+     * Queues an entry for the next group commit.
+     *
+     * @param uuid         The UUID of the account owner.
+     * @param amount       The signed change in cents.
+     * @param type         The kind of change.
+     * @param actor        Who made the change.
+     * @param balanceAfter The account balance in cents right after the change.
+     */
+    public void record(UUID uuid, long amount, TransactionType type, String actor, long balanceAfter) {
+        record(new LedgerEntry(uuid, amount, type, actor, System.currentTimeMillis(), balanceAfter));
+    }
+
+    /**
+     * Takes note of entries the storage stored together with a balance update, so the next
+     * checkpoint covers them. Must be called on the database thread after the update succeeded.
+     *
+     * If the newest id can't be read, the checkpoint simply lags behind, which only means
+     * a few more entries are replayed after a crash.
+     */
+    public void noteAppended() {
+        try {
+            lastCommittedId = Math.max(lastCommittedId, plugin.getStorage().getLastLedgerId());
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not read the newest ledger entry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the id of the newest entry committed to the storage. Balances flushed after this
+     * call include every change up to this entry, so it can be stored as the replay checkpoint.
+     *
+     * @return The id of the newest committed entry.
+     */
+    public long getLastCommittedId() {
+        return lastCommittedId;
+    }
+
+    /**
+     * Stores all queued entries in a single batch.
+     * Must be called on the database thread.
+     *
+     * @return The number of entries written.
+     */
+    public synchronized int commit() {
+        List<LedgerEntry> entries;
+        while ((entries = pending.poll()) != null) {
+            retry.addAll(entries);
+        }
+        if (retry.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            lastCommittedId = plugin.getStorage().appendLedger(retry);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not commit " + retry.size() + " ledger entries: " + e.getMessage());
+            return 0;
+        }
+
+        int written = retry.size();
+        retry.clear();
+        return written;
+    }
+
+    /**
+     * Restores balances from ledger entries newer than the last checkpoint, for example after
+     * a crash lost balances that had not been flushed yet. Runs synchronously on the calling thread,
+     * before any other database work.
+     *
+     * @param logger The logger to report recovered accounts to.
+     * @throws SQLException If the ledger could not be replayed.
+     */
+    public void recover(Logger logger) throws SQLException {
+        lastCommittedId = plugin.getStorage().recover(logger);
+    }
+
+    /**
+     * Gets the actor name recorded for changes made by a command sender.
+     *
+     * @param sender The sender making the change.
+     * @return The player's UUID, or the sender's name for the console and other non-players.
+     */
+    public static String actorOf(CommandSender sender) {
+        return sender instanceof Player player ? player.getUniqueId().toString() : sender.getName();
+    }
+
+    /**
+     * Gets the actor name recorded for interest credited for a period.
+     *
+     * @param period The index of the interest period.
+     * @return The actor name.
+     */
+    public static String interestActor(long period) {
+        return INTEREST_ACTOR_PREFIX + period;
+    }
+
+    /**
+     * Gets the interest period named by an actor.
+     *
+     * @param actor The actor name of a ledger entry.
+     * @return The period, or {@code null} if the actor is not an interest period.
+     */
+    public static Long interestPeriodOf(String actor) {
+        if (actor == null || !actor.startsWith(INTEREST_ACTOR_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(actor.substring(INTEREST_ACTOR_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.CodeerStudio.simpleBanking.ledger;
+
+/**
+ * The kinds of balance changes recorded in the transaction ledger.
+ * New kinds go at the end, since the flat-file ledger stores a kind by its position.
+ */
+public enum TransactionType {
+    DEPOSIT("Deposit"),
+    WITHDRAW("Withdrawal"),
+    ADMIN_GIVE("Added by an admin"),
+    ADMIN_TAKE("Taken by an admin"),
+    ADMIN_SET("Set by an admin"),
+    TRANSFER_IN("Transfer received"),
+    TRANSFER_OUT("Transfer sent"),
+    INTEREST("Interest"),
+    PLUGIN_DEPOSIT("Added by a plugin"),
+    PLUGIN_WITHDRAW("Taken by a plugin");
+
+    private final String displayName;
+
+    TransactionType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the name shown to players in their transaction history.
+     *
+     * @return The display name.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
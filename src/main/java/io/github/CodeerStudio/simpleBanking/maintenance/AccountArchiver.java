@@ -0,0 +1,159 @@
+package io.github.CodeerStudio.simpleBanking.maintenance;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Archives the bank accounts nobody has used for a long time, so the storage's active accounts,
+ * and the indexes over them, only hold players who still play.
+ *
+ * Every check interval, the accounts unused for longer than the dormancy threshold are archived
+ * in batches on the database thread, until a batch comes up short of dormant accounts. Only one
+ * batch is queued at a time, so other bank operations run in between. Accounts the {@link AccountCache} holds are left alone, and an archived account
+ * becomes active again the next time its player logs in or it is used.
+ */
+public class AccountArchiver {
+
+    private final SimpleBanking plugin;
+    private final long dormantMillis;
+    private final int batchSize;
+
+    private BukkitTask checkTask;
+
+    // Set while a pass is archiving batches. Only used on the main thread.
+    private boolean running;
+
+    private volatile int archivedCount = -1;
+
+    /**
+     * Constructs a new AccountArchiver.
+     *
+     * @param plugin      The main plugin instance, used for accessing the storage and account cache.
+     * @param dormantDays The days an account has to go unused before it is archived.
+     * @param batchSize   The most accounts looked at per database transaction.
+     */
+    public AccountArchiver(SimpleBanking plugin, long dormantDays, int batchSize) {
+        this.plugin = plugin;
+        this.dormantMillis = TimeUnit.DAYS.toMillis(Math.max(1, dormantDays));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Counts the archived accounts and starts archiving dormant ones periodically.
+     *
+     * @param checkIntervalMinutes The minutes between passes, which is also the delay before the first one.
+     */
+    public void start(long checkIntervalMinutes) {
+        long period = Math.max(1, checkIntervalMinutes) * 60 * 20;
+        checkTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::check, period, period);
+        count();
+    }
+
+    /**
+     * Stops archiving. A batch that is already queued still runs.
+     */
+    public void stop() {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+    }
+
+    /**
+     * Gets the number of archived accounts as last counted.
+     *
+     * @return The number of archived accounts, or -1 if they haven't been counted yet.
+     */
+    public int getArchivedCount() {
+        return archivedCount;
+    }
+
+    /**
+     * Starts a pass, unless the previous one is still running. Runs on the main thread.
+     */
+    private void check() {
+        if (running) {
+            return;
+        }
+        running = true;
+        long now = System.currentTimeMillis();
+        archiveBatch(now - dormantMillis, now, 0, System.nanoTime());
+    }
+
+    /**
+     * Queues one batch on the database thread, and the next one if it found a full batch of dormant
+     * accounts. A batch can archive nothing because all of its accounts were in use, and still have
+     * dormant accounts behind it.
+     */
+    private void archiveBatch(long activeBefore, long now, int archivedSoFar, long passStart) {
+        BankStorage storage = plugin.getStorage();
+        AccountCache accountCache = plugin.getAccountCache();
+        BankMetrics metrics = plugin.getMetrics();
+        DatabaseExecutor databaseExecutor = plugin.getDatabaseExecutor();
+
+        databaseExecutor.write(() -> {
+            long start = System.nanoTime();
+            try {
+                BankStorage.ArchiveResult result = storage.archiveDormant(activeBefore, now, batchSize,
+                        accountCache::isInUse);
+                metrics.record(BankMetrics.Operation.ARCHIVE, start, false);
+                return result;
+            } catch (SQLException e) {
+                metrics.record(BankMetrics.Operation.ARCHIVE, start, true);
+                throw e;
+            }
+        }).handleAsync((result, error) -> {
+            if (error != null) {
+                // Keep what was archived so far; the next pass continues
+                plugin.getLogger().warning("Could not archive dormant bank accounts: " + error.getMessage());
+                finishPass(archivedSoFar, passStart);
+            } else if (result.examined() >= batchSize) {
+                // Accounts kept because they were in use are marked as used, so the next batch moves on
+                archiveBatch(activeBefore, now, archivedSoFar + result.archived(), passStart);
+            } else {
+                finishPass(archivedSoFar + result.archived(), passStart);
+            }
+            return null;
+        }, databaseExecutor.mainThread());
+    }
+
+    /**
+     * Ends a pass and logs what it archived. Runs on the main thread.
+     */
+    private void finishPass(int archived, long passStart) {
+        running = false;
+        if (archived == 0) {
+            return;
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - passStart);
+        count().thenAccept(total -> plugin.getLogger().info("Archived " + archived + " bank accounts unused for "
+                + TimeUnit.MILLISECONDS.toDays(dormantMillis) + " days in " + elapsed + " ms ("
+                + (total != null ? total : "unknown") + " archived in total)."));
+    }
+
+    /**
+     * Counts the archived accounts on a reader thread.
+     *
+     * @return A future completed with the count, or {@code null} if they couldn't be counted.
+     */
+    private CompletableFuture<Integer> count() {
+        return plugin.getDatabaseExecutor().read(() -> plugin.getStorage().countArchivedAccounts())
+                .handle((counted, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Could not count the archived bank accounts: " + error.getMessage());
+                        return null;
+                    }
+                    archivedCount = counted;
+                    return counted;
+                });
+    }
+}
@@ -0,0 +1,244 @@
+package io.github.CodeerStudio.simpleBanking.maintenance;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage.MaintenanceTask;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage.StorageSize;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the storage in shape by running its routine upkeep while the server is quiet: returning
+ * free space to the file system, refreshing query statistics and checkpointing the journal.
+ *
+ * A run is due at a fixed interval, the first one a few minutes after startup. It only starts, and
+ * only continues, while few players are online and the server keeps up its tick rate; otherwise it
+ * waits for the next quiet moment. Every task is split into short slices on the database thread,
+ * one slice at a time, so bank operations queued meanwhile are delayed by one slice at most.
+ *
+ * Slices are timed in the plugin's metrics, and the storage is measured at startup and after every
+ * run, so its size and free space show in the report.
+ */
+public class MaintenanceScheduler {
+
+    private static final MaintenanceTask[] TASKS = MaintenanceTask.values();
+
+    // The first run is due this long after startup, so it doesn't compete with players logging in
+    private static final long FIRST_RUN_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final SimpleBanking plugin;
+    private final long intervalMillis;
+    private final int maxPlayers;
+    private final double minTps;
+    private final long sliceMillis;
+
+    private BukkitTask checkTask;
+
+    // The state of the current run. Only used on the main thread.
+    private long nextRunAt;
+    private int taskIndex = -1;
+    private boolean sliceRunning;
+    private long runStartedAt;
+    private final long[] taskNanos = new long[TASKS.length];
+    private final int[] taskSlices = new int[TASKS.length];
+
+    private volatile StorageSize size;
+    private volatile long lastRunAt;
+
+    /**
+     * Constructs a new MaintenanceScheduler.
+     *
+     * @param plugin          The main plugin instance, used for accessing the storage and server.
+     * @param intervalMinutes The minutes between runs.
+     * @param maxPlayers      The most players online for the server to count as quiet.
+     * @param minTps          The lowest recent tick rate for the server to count as quiet.
+     * @param sliceMillis     Roughly how long each slice may hold the database thread.
+     */
+    public MaintenanceScheduler(SimpleBanking plugin, long intervalMinutes, int maxPlayers, double minTps,
+                                long sliceMillis) {
+        this.plugin = plugin;
+        this.intervalMillis = TimeUnit.MINUTES.toMillis(Math.max(1, intervalMinutes));
+        this.maxPlayers = Math.max(0, maxPlayers);
+        this.minTps = minTps;
+        this.sliceMillis = Math.max(1, sliceMillis);
+    }
+
+    /**
+     * Measures the storage and starts checking for quiet moments to run in.
+     *
+     * @param checkIntervalTicks The ticks between checks, which is also the least time between slices.
+     */
+    public void start(long checkIntervalTicks) {
+        nextRunAt = System.currentTimeMillis() + FIRST_RUN_DELAY_MILLIS;
+        long period = Math.max(1, checkIntervalTicks);
+        checkTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::check, period, period);
+        measure();
+    }
+
+    /**
+     * Stops checking. A slice that is already queued still runs.
+     */
+    public void stop() {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+    }
+
+    /**
+     * Gets the size of the storage as last measured.
+     *
+     * @return The storage size, or {@code null} if it hasn't been measured yet.
+     */
+    public StorageSize getSize() {
+        return size;
+    }
+
+    /**
+     * Gets when the last run finished.
+     *
+     * @return The time in epoch milliseconds, or 0 if no run has finished yet.
+     */
+    public long getLastRunAt() {
+        return lastRunAt;
+    }
+
+    /**
+     * Starts or continues a due run with its next slice, if the server is quiet. Runs on the main thread.
+     */
+    private void check() {
+        if (sliceRunning || (taskIndex < 0 && System.currentTimeMillis() < nextRunAt) || !isQuiet()) {
+            return;
+        }
+
+        if (taskIndex < 0) {
+            taskIndex = 0;
+            runStartedAt = System.nanoTime();
+            Arrays.fill(taskNanos, 0);
+            Arrays.fill(taskSlices, 0);
+        }
+        runSlice(taskIndex);
+    }
+
+    private boolean isQuiet() {
+        return plugin.getServer().getOnlinePlayers().size() <= maxPlayers
+                && plugin.getServer().getTPS()[0] >= minTps;
+    }
+
+    /**
+     * Queues one slice of a task on the database thread, and moves on to the next task once it has
+     * nothing left to do.
+     */
+    private void runSlice(int index) {
+        MaintenanceTask task = TASKS[index];
+        BankStorage storage = plugin.getStorage();
+        BankMetrics metrics = plugin.getMetrics();
+        DatabaseExecutor databaseExecutor = plugin.getDatabaseExecutor();
+        sliceRunning = true;
+
+        databaseExecutor.write(() -> {
+            long start = System.nanoTime();
+            try {
+                boolean more = storage.maintain(task, sliceMillis);
+                metrics.record(operationOf(task), start, false);
+                return new Slice(more, System.nanoTime() - start);
+            } catch (SQLException e) {
+                metrics.record(operationOf(task), start, true);
+                throw e;
+            }
+        }).handleAsync((slice, error) -> {
+            sliceRunning = false;
+            if (error != null) {
+                // Skip the task; the next run tries again
+                plugin.getLogger().warning("Database maintenance (" + name(task) + ") failed: " + error.getMessage());
+            } else {
+                taskNanos[index] += slice.nanos();
+                taskSlices[index]++;
+            }
+
+            if (error != null || !slice.more()) {
+                taskIndex++;
+                if (taskIndex == TASKS.length) {
+                    finishRun();
+                }
+            }
+            return null;
+        }, databaseExecutor.mainThread());
+    }
+
+    /**
+     * Ends the current run and logs what it did. Runs on the main thread.
+     */
+    private void finishRun() {
+        taskIndex = -1;
+        nextRunAt = System.currentTimeMillis() + intervalMillis;
+        lastRunAt = System.currentTimeMillis();
+
+        StringBuilder tasks = new StringBuilder();
+        for (int i = 0; i < TASKS.length; i++) {
+            tasks.append(i == 0 ? "" : ", ").append(name(TASKS[i])).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(taskNanos[i])).append(" ms");
+            if (taskSlices[i] > 1) {
+                tasks.append(" in ").append(taskSlices[i]).append(" slices");
+            }
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStartedAt);
+        StorageSize before = size;
+
+        measure().thenAccept(after -> plugin.getLogger().info("Database maintenance finished in " + elapsed
+                + " ms (" + tasks + "). Storage " + (before != null ? formatSize(before) + " before, " : "")
+                + formatSize(after) + " after."));
+    }
+
+    /**
+     * Measures the storage on the database thread.
+     *
+     * @return A future completed with the size, or {@code null} if it couldn't be measured.
+     */
+    private CompletableFuture<StorageSize> measure() {
+        return plugin.getDatabaseExecutor().write(() -> plugin.getStorage().measure()).handle((measured, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning("Could not measure the bank storage: " + error.getMessage());
+                return null;
+            }
+            size = measured;
+            return measured;
+        });
+    }
+
+    /**
+     * Formats a storage size for the log and the metrics report.
+     *
+     * @param size The storage size.
+     * @return The size, its free part and its journal in megabytes.
+     */
+    public static String formatSize(StorageSize size) {
+        if (size == null) {
+            return "unknown";
+        }
+        return String.format(Locale.ROOT, "%.1f MB (%.1f MB free, %.1f MB journal)",
+                size.totalBytes() / 1048576.0, size.freeBytes() / 1048576.0, size.journalBytes() / 1048576.0);
+    }
+
+    private static BankMetrics.Operation operationOf(MaintenanceTask task) {
+        return switch (task) {
+            case VACUUM -> BankMetrics.Operation.MAINTENANCE_VACUUM;
+            case OPTIMIZE -> BankMetrics.Operation.MAINTENANCE_OPTIMIZE;
+            case CHECKPOINT -> BankMetrics.Operation.MAINTENANCE_CHECKPOINT;
+        };
+    }
+
+    private static String name(MaintenanceTask task) {
+        return task.name().toLowerCase(Locale.ROOT);
+    }
+
+    private record Slice(boolean more, long nanos) {
+    }
+}
@@ -0,0 +1,234 @@
+package io.github.CodeerStudio.simpleBanking.metrics;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.handlers.ThrottleHandler;
+import io.github.CodeerStudio.simpleBanking.maintenance.AccountArchiver;
+import io.github.CodeerStudio.simpleBanking.maintenance.MaintenanceScheduler;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects latency histograms for every bank operation and command, and reports them together
+ * with the database queue depth, account cache statistics, the storage size, the number of archived
+ * accounts and the number of throttled requests.
+ *
+ * Bank operations are timed from the call until their future completes, so they include time spent
+ * waiting on the database threads. Commands are timed only for the work done on the main thread.
+ * A report can be requested with {@code /bank stats} and is also written to {@code metrics.txt}
+ * in the plugin data folder at a fixed interval.
+ */
+public class BankMetrics {
+
+    private static final String DUMP_FILE = "metrics.txt";
+
+    private final SimpleBanking plugin;
+    private final LatencyHistogram[] histograms;
+    private final Instant startedAt = Instant.now();
+
+    private BukkitTask dumpTask;
+
+    /**
+     * Constructs a new BankMetrics instance with empty histograms.
+     *
+     * @param plugin The main plugin instance, used for reading the database and cache statistics.
+     */
+    public BankMetrics(SimpleBanking plugin) {
+        this.plugin = plugin;
+        this.histograms = new LatencyHistogram[Operation.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Starts writing the report to the data folder at a fixed interval, off the main thread.
+     *
+     * @param dumpIntervalSeconds The number of seconds between dumps, or 0 to disable dumping.
+     */
+    public void start(long dumpIntervalSeconds) {
+        if (dumpIntervalSeconds <= 0) {
+            return;
+        }
+        long ticks = dumpIntervalSeconds * 20L;
+        dumpTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::dump, ticks, ticks);
+    }
+
+    /**
+     * Stops the periodic dump and writes one final report.
+     */
+    public void stop() {
+        if (dumpTask != null) {
+            dumpTask.cancel();
+            dumpTask = null;
+            dump();
+        }
+    }
+
+    /**
+     * Records one operation that started at {@code startNanos} and has just finished.
+     *
+     * @param operation  The operation.
+     * @param startNanos The {@link System#nanoTime()} at which the operation started.
+     * @param failed     {@code true} if the operation ended in an error.
+     */
+    public void record(Operation operation, long startNanos, boolean failed) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos, failed);
+    }
+
+    /**
+     * Gets the histogram of an operation.
+     *
+     * @param operation The operation.
+     * @return The operation's histogram.
+     */
+    public LatencyHistogram get(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * Builds a plain-text report of everything recorded since the plugin was enabled.
+     *
+     * @return The report lines.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add("SimpleBanking stats, uptime " + formatUptime(Duration.between(startedAt, Instant.now())));
+        lines.add(String.format(Locale.ROOT, "%-18s %9s %7s %9s %9s %9s %9s",
+                "operation", "count", "errors", "p50", "p99", "p99.9", "max"));
+
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot snapshot = get(operation).snapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+            lines.add(String.format(Locale.ROOT, "%-18s %9d %6.2f%% %9s %9s %9s %9s",
+                    operation.getName(), snapshot.count(), snapshot.errorRate() * 100,
+                    formatNanos(snapshot.p50Nanos()), formatNanos(snapshot.p99Nanos()),
+                    formatNanos(snapshot.p999Nanos()), formatNanos(snapshot.maxNanos())));
+        }
+
+        DatabaseExecutor databaseExecutor = plugin.getDatabaseExecutor();
+        if (databaseExecutor != null) {
+            lines.add("Database queue: " + databaseExecutor.getPendingWrites() + " writes, "
+                    + databaseExecutor.getPendingReads() + " reads");
+        }
+
+        AccountCache accountCache = plugin.getAccountCache();
+        if (accountCache != null) {
+            long hits = accountCache.getHits();
+            long misses = accountCache.getMisses();
+            double hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+            lines.add(String.format(Locale.ROOT, "Account cache: %.2f%% hit ratio (%d hits, %d misses), %d cached (%d offline), %d dirty",
+                    hitRatio * 100, hits, misses, accountCache.getCachedCount(), accountCache.getOfflineCount(),
+                    accountCache.getDirtyCount()));
+        }
+
+        MaintenanceScheduler maintenance = plugin.getMaintenanceScheduler();
+        if (maintenance != null && maintenance.getSize() != null) {
+            long lastRunAt = maintenance.getLastRunAt();
+            lines.add("Storage: " + MaintenanceScheduler.formatSize(maintenance.getSize()) + ", last maintenance "
+                    + (lastRunAt == 0 ? "not run yet" : formatUptime(Duration.between(Instant.ofEpochMilli(lastRunAt), Instant.now())) + " ago"));
+        }
+
+        AccountArchiver archiver = plugin.getAccountArchiver();
+        if (archiver != null && archiver.getArchivedCount() >= 0) {
+            lines.add("Archived accounts: " + archiver.getArchivedCount());
+        }
+
+        ThrottleHandler throttleHandler = plugin.getThrottleHandler();
+        if (throttleHandler != null) {
+            lines.add("Throttled: " + throttleHandler.getRejectedRequests() + " bank requests, "
+                    + throttleHandler.getRejectedAdminCommands() + " admin commands");
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the report to the data folder, replacing the previous one.
+     */
+    public void dump() {
+        File target = new File(plugin.getDataFolder(), DUMP_FILE);
+        File temp = new File(plugin.getDataFolder(), DUMP_FILE + ".tmp");
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add("Written at " + Instant.now());
+            lines.addAll(report());
+            Files.write(temp.toPath(), lines);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write " + DUMP_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1_000.0);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1_000_000_000.0);
+    }
+
+    private static String formatUptime(Duration uptime) {
+        return String.format(Locale.ROOT, "%dh %02dm %02ds",
+                uptime.toHours(), uptime.toMinutesPart(), uptime.toSecondsPart());
+    }
+
+    /**
+     * The operations that are timed.
+     */
+    public enum Operation {
+        DEPOSIT("deposit"),
+        WITHDRAW("withdraw"),
+        GIVE("give"),
+        TAKE("take"),
+        SET("set"),
+        TRANSFER("transfer"),
+        BALANCE("balance"),
+        BULK("bulk change"),
+        INTEREST("interest"),
+        CACHE_FLUSH("cache flush"),
+        PRELOAD("login preload"),
+        EXPORT("export"),
+        IMPORT("import"),
+        VAULT_BALANCE("vault balance"),
+        VAULT_CHANGE("vault change"),
+        MAINTENANCE_VACUUM("db vacuum"),
+        MAINTENANCE_OPTIMIZE("db optimize"),
+        MAINTENANCE_CHECKPOINT("db checkpoint"),
+        ARCHIVE("account archive"),
+        COMMAND_BANK("/bank"),
+        COMMAND_GIVE("/givebankbalance"),
+        COMMAND_TAKE("/takebankbalance"),
+        COMMAND_SET("/setbankbalance"),
+        COMMAND_EXPORT("/bankexport"),
+        COMMAND_IMPORT("/bankimport");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Gets the name shown in reports.
+         *
+         * @return The operation name.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.CodeerStudio.simpleBanking.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed-size histogram of latencies in nanoseconds.
+ *
+ * Values are counted in log-linear buckets: every power of two is split into eight equal buckets,
+ * so a percentile is accurate to within 12.5% at any scale. Recording a value is a few atomic
+ * increments on preallocated arrays and never allocates.
+ */
+public class LatencyHistogram {
+
+    // Each power of two is split into 2^SUB_BUCKET_BITS buckets
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one operation.
+     *
+     * @param nanos  How long the operation took, in nanoseconds.
+     * @param failed {@code true} if the operation ended in an error.
+     */
+    public void record(long nanos, boolean failed) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketFor(value));
+        count.increment();
+        totalNanos.add(value);
+        if (failed) {
+            errors.increment();
+        }
+
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the recorded values. Operations recorded while the snapshot is
+     * taken may be partly included.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        long sum = totalNanos.sum();
+        return new Snapshot(
+                total,
+                errors.sum(),
+                total == 0 ? 0 : sum / total,
+                percentile(counts, total, 0.50),
+                percentile(counts, total, 0.99),
+                percentile(counts, total, 0.999),
+                maxNanos.get());
+    }
+
+    private static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    private static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * The recorded values at one point in time. Percentiles are bucket upper bounds.
+     *
+     * @param count     The number of recorded operations.
+     * @param errors    The number of operations that ended in an error.
+     * @param meanNanos The mean latency.
+     * @param p50Nanos  The median latency.
+     * @param p99Nanos  The 99th percentile latency.
+     * @param p999Nanos The 99.9th percentile latency.
+     * @param maxNanos  The highest recorded latency.
+     */
+    public record Snapshot(long count, long errors, long meanNanos, long p50Nanos, long p99Nanos,
+                           long p999Nanos, long maxNanos) {
+
+        /**
+         * Gets the share of operations that ended in an error.
+         *
+         * @return The error rate between 0 and 1.
+         */
+        public double errorRate() {
+            return count == 0 ? 0 : (double) errors / count;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import java.util.UUID;
+
+/**
+ * The stored state of one bank account.
+ *
+ * @param uuid        The UUID of the account owner.
+ * @param balance     The balance in cents.
+ * @param lastAccrued The last interest period credited to the account, or {@code null} if none yet.
+ * @param version     The stored version of the account, starting at 1 and raised by every change.
+ *                    Ignored when the account is written; the storage assigns the next version.
+ */
+public record AccountRecord(UUID uuid, long balance, Long lastAccrued, long version) {
+
+    /**
+     * Creates an account to be written, whose version is assigned by the storage.
+     *
+     * @param uuid        The UUID of the account owner.
+     * @param balance     The balance in cents.
+     * @param lastAccrued The last interest period credited to the account, or {@code null} if none yet.
+     */
+    public AccountRecord(UUID uuid, long balance, Long lastAccrued) {
+        this(uuid, balance, lastAccrued, 0);
+    }
+
+    /**
+     * Gets a copy of this account with a different balance.
+     *
+     * @param balance The new balance in cents.
+     * @return The changed account.
+     */
+    public AccountRecord withBalance(long balance) {
+        return new AccountRecord(uuid, balance, lastAccrued, version);
+    }
+}
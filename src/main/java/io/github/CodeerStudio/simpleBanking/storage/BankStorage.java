@@ -0,0 +1,405 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import io.github.CodeerStudio.simpleBanking.cache.BulkChange;
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionHistory;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Persistent storage for bank accounts and the transaction ledger.
+ *
+ * Storage is driven by the {@link DatabaseExecutor}: write methods are only ever called on the
+ * database thread, one at a time, and each call is atomic, so either all of its changes are stored
+ * or none are. Read methods may be called from any thread, concurrently with each other and with
+ * writes. Failures are reported as {@link SQLException} whatever the backend, so callers handle
+ * every backend alike.
+ *
+ * Ledger entries get ascending ids as they are stored. Each save of account balances records a
+ * checkpoint, the id of the newest entry those balances include, so {@link #recover(Logger)} only
+ * has to replay entries past it.
+ *
+ * Every account carries a version that each write raises, so a change computed from a cached copy
+ * can be applied with {@link #compareAndSet} only if nobody else changed the account meanwhile,
+ * even when several servers share the storage.
+ *
+ * A storage may archive accounts nobody has used for a long time, keeping them apart from the
+ * active ones so those stay quick to look up and change. Archiving is invisible to every other
+ * method: archived accounts are read, listed, counted and ranked like any other, and an archived
+ * account that is changed or {@linkplain #markActive marked as used} becomes active again.
+ */
+public interface BankStorage extends AutoCloseable {
+
+    /**
+     * Opens the storage and applies any pending schema migrations.
+     *
+     * @param logger The logger to report migrations to.
+     * @throws SQLException If the storage could not be opened or upgraded.
+     */
+    void open(Logger logger) throws SQLException;
+
+    /**
+     * Gets the number of reads that can run in parallel.
+     *
+     * @return The number of reader threads to start.
+     */
+    int getReadThreads();
+
+    /**
+     * Loads one account.
+     *
+     * @param uuid The UUID of the account owner.
+     * @return The account, or {@code null} if the player has no bank account.
+     * @throws SQLException If the account could not be read.
+     */
+    AccountRecord loadAccount(UUID uuid) throws SQLException;
+
+    /**
+     * Counts all accounts.
+     *
+     * @return The number of accounts.
+     * @throws SQLException If the accounts could not be counted.
+     */
+    int countAccounts() throws SQLException;
+
+    /**
+     * Lists accounts in a fixed order of their UUIDs, for walking all accounts in chunks.
+     *
+     * @param after The last UUID of the previous chunk, or {@code null} to start at the beginning.
+     * @param limit The most UUIDs to return.
+     * @return The UUIDs following {@code after}.
+     * @throws SQLException If the accounts could not be listed.
+     */
+    List<UUID> listAccounts(UUID after, int limit) throws SQLException;
+
+    /**
+     * Reads accounts in a fixed order of their UUIDs, for walking all accounts in pages.
+     *
+     * @param after The last UUID of the previous page, or {@code null} to start at the beginning.
+     * @param limit The most accounts to return.
+     * @return The accounts following {@code after}.
+     * @throws SQLException If the accounts could not be read.
+     */
+    List<AccountRecord> readAccounts(UUID after, int limit) throws SQLException;
+
+    /**
+     * Reads ledger entries in id order, for walking the whole ledger in pages.
+     *
+     * @param afterId The id of the last entry of the previous page, or 0 to start at the beginning.
+     * @param limit   The most entries to return.
+     * @return The entries following {@code afterId}.
+     * @throws SQLException If the ledger could not be read.
+     */
+    List<LedgerRow> readLedger(long afterId, int limit) throws SQLException;
+
+    /**
+     * Gets the accounts with the highest balances.
+     *
+     * @param limit The most accounts to return.
+     * @return The accounts, richest first.
+     * @throws SQLException If the accounts could not be read.
+     */
+    List<AccountRecord> richestAccounts(int limit) throws SQLException;
+
+    /**
+     * Counts the accounts holding more than a balance.
+     *
+     * @param balance The balance in cents.
+     * @return The number of richer accounts.
+     * @throws SQLException If the accounts could not be counted.
+     */
+    long countRicherThan(long balance) throws SQLException;
+
+    /**
+     * Reads an account's ledger entries, newest first.
+     *
+     * @param uuid  The UUID of the account owner.
+     * @param after The position to continue after, or {@code null} for the newest entries.
+     * @param limit The most entries to return.
+     * @return The entries.
+     * @throws SQLException If the ledger could not be read.
+     */
+    List<TransactionHistory.Entry> history(UUID uuid, TransactionHistory.Cursor after, int limit) throws SQLException;
+
+    /**
+     * Gets the id of the newest stored ledger entry.
+     *
+     * @return The newest id, or 0 if the ledger is empty.
+     * @throws SQLException If the ledger could not be read.
+     */
+    long getLastLedgerId() throws SQLException;
+
+    /**
+     * Stores account balances together with the ledger checkpoint they include.
+     * Database thread only.
+     *
+     * @param accounts   The accounts to store. A {@code null} interest period keeps the stored one.
+     * @param checkpoint The id of the newest ledger entry the balances include.
+     * @throws SQLException If the accounts could not be stored.
+     */
+    void saveAccounts(List<AccountRecord> accounts, long checkpoint) throws SQLException;
+
+    /**
+     * Stores ledger entries. Database thread only.
+     *
+     * @param entries The entries, in the order their changes were applied.
+     * @return The id of the newest entry.
+     * @throws SQLException If the entries could not be stored.
+     */
+    long appendLedger(List<LedgerEntry> entries) throws SQLException;
+
+    /**
+     * Changes a group of accounts in one atomic step, recording a ledger entry for every balance
+     * that changed. Database thread only.
+     *
+     * The new state is calculated from the stored one, so the change is only safe while this server
+     * is the storage's only writer. Withdrawals use {@link #withdraw} instead, and servers sharing
+     * the storage change accounts with {@link #compareAndSet}.
+     *
+     * @param uuids  The accounts to change.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @param update Calculates the new state of each account.
+     * @return The new state of every account that was changed, with its new version.
+     * @throws SQLException If the accounts could not be changed. None of them are changed then.
+     */
+    Map<UUID, AccountRecord> updateAccounts(List<UUID> uuids, TransactionType type, String actor,
+                                            AccountUpdate update) throws SQLException;
+
+    /**
+     * Removes money from one account if it holds enough, recording a ledger entry. The check and
+     * the deduction are a single conditional step in the storage itself, so two withdrawals can
+     * never overdraw an account, even when they come from different servers sharing the storage.
+     * Database thread only.
+     *
+     * @param uuid   The UUID of the account owner.
+     * @param amount The amount to remove, in cents.
+     * @param type   The kind of change, for the ledger.
+     * @param actor  Who made the change, for the ledger.
+     * @return The new state of the account with its new version, or {@code null} if the player has
+     * no account or too little money.
+     * @throws SQLException If the account could not be changed.
+     */
+    AccountRecord withdraw(UUID uuid, long amount, TransactionType type, String actor) throws SQLException;
+
+    /**
+     * Sets the balance of one account if it is still at the version the change was computed from,
+     * recording a ledger entry if the balance changed. Database thread only.
+     *
+     * @param uuid            The UUID of the account owner.
+     * @param expectedVersion The version the change was computed from, or 0 if the player had no account.
+     * @param balance         The new balance in cents.
+     * @param amount          The signed change in cents, for the ledger.
+     * @param type            The kind of change, for the ledger.
+     * @param actor           Who made the change, for the ledger.
+     * @return The new version of the account, or 0 if it had changed meanwhile. Nothing is stored then.
+     * @throws SQLException If the account could not be changed.
+     */
+    long compareAndSet(UUID uuid, long expectedVersion, long balance, long amount, TransactionType type,
+                       String actor) throws SQLException;
+
+    /**
+     * Moves money between accounts in one atomic step, recording a {@link TransactionType#TRANSFER_OUT}
+     * entry for the sender and a {@link TransactionType#TRANSFER_IN} entry for the receiver of every
+     * transfer made. Transfers are made in order, each seeing the balances the earlier ones left, and
+     * one the sender can't afford, or that would overflow the receiver's balance, is skipped without
+     * affecting the others. A receiver without an account gets one. Database thread only.
+     *
+     * @param transfers The transfers to make.
+     * @return Which transfers were made, and the new state of every account they changed.
+     * @throws SQLException If the transfers failed. None of them are made then.
+     */
+    TransferResult transfer(List<Transfer> transfers) throws SQLException;
+
+    /**
+     * Applies a bulk change to a group of accounts in one atomic step, together with their ledger
+     * entries. Database thread only.
+     *
+     * @param change The change to apply.
+     * @param uuids  The accounts to change, without duplicates.
+     * @return The new balance of every account that was changed.
+     * @throws SQLException If the change failed. None of the accounts are changed then.
+     */
+    Map<UUID, Long> applyBulk(BulkChange change, List<UUID> uuids) throws SQLException;
+
+    /**
+     * Prepares for loading many accounts and ledger entries with {@link #saveAccounts} and
+     * {@link #appendLedger}, for example by dropping indexes that would be updated row by row.
+     * Reads may be slower until {@link #finishImport()} is called. Database thread only.
+     *
+     * @throws SQLException If the storage could not be prepared.
+     */
+    void beginImport() throws SQLException;
+
+    /**
+     * Restores what {@link #beginImport()} set aside once the import has finished or failed.
+     * Database thread only.
+     *
+     * @throws SQLException If the storage could not be restored.
+     */
+    void finishImport() throws SQLException;
+
+    /**
+     * Restores balances and interest periods from ledger entries past the last checkpoint, for
+     * example after a crash lost balances that had not been saved yet. Database thread only.
+     *
+     * @param logger The logger to report recovered accounts to.
+     * @return The id of the newest ledger entry.
+     * @throws SQLException If the ledger could not be replayed.
+     */
+    long recover(Logger logger) throws SQLException;
+
+    /**
+     * Records that accounts were used, making any archived ones active again. Database thread only.
+     *
+     * @param uuids The accounts that were used. Players without an account are skipped.
+     * @param now   The time they were used, in epoch milliseconds.
+     * @throws SQLException If the accounts could not be updated.
+     */
+    void markActive(Collection<UUID> uuids, long now) throws SQLException;
+
+    /**
+     * Archives a batch of the accounts that haven't been used since a cutoff, least recently used
+     * first. Accounts that were never marked as used count as used now. Database thread only.
+     *
+     * @param activeBefore Accounts last used before this time, in epoch milliseconds, are archived.
+     * @param now          The current time in epoch milliseconds.
+     * @param limit        The most accounts to look at.
+     * @param inUse        Tells which dormant accounts are in use anyway, such as those held in
+     *                     memory. They are marked as used now instead of being archived.
+     * @return How many dormant accounts were looked at and how many of them were archived, both 0 if
+     * the storage doesn't archive accounts. Fewer looked at than the limit means none are left.
+     * @throws SQLException If the accounts could not be archived. None of them are archived then.
+     */
+    ArchiveResult archiveDormant(long activeBefore, long now, int limit, Predicate<UUID> inUse) throws SQLException;
+
+    /**
+     * Counts the archived accounts.
+     *
+     * @return The number of archived accounts.
+     * @throws SQLException If the accounts could not be counted.
+     */
+    int countArchivedAccounts() throws SQLException;
+
+    /**
+     * Runs one slice of routine upkeep, such as returning free space to the file system or
+     * refreshing the statistics queries are planned with. A slice stops after roughly the given
+     * time, so other database work isn't held up for long. Database thread only.
+     *
+     * @param task         The kind of upkeep.
+     * @param budgetMillis Roughly how long the slice may take.
+     * @return {@code true} if the task has more to do and should be given another slice.
+     * @throws SQLException If the upkeep failed.
+     */
+    boolean maintain(MaintenanceTask task, long budgetMillis) throws SQLException;
+
+    /**
+     * Measures how much disk space the storage takes, and how much of it holds no data.
+     * Database thread only.
+     *
+     * @return The storage size.
+     * @throws SQLException If the size could not be read.
+     */
+    StorageSize measure() throws SQLException;
+
+    /**
+     * Closes the storage.
+     *
+     * @throws SQLException If the storage could not be closed cleanly.
+     */
+    @Override
+    void close() throws SQLException;
+
+    /**
+     * A stored ledger entry together with its id.
+     *
+     * @param id    The id of the entry.
+     * @param entry The entry.
+     */
+    record LedgerRow(long id, LedgerEntry entry) {
+    }
+
+    /**
+     * Money moved from one account to another.
+     *
+     * @param from   The UUID of the sender.
+     * @param to     The UUID of the receiver, never the sender.
+     * @param amount The amount in cents, more than zero.
+     * @param actor  Who made the transfer, for the ledger.
+     */
+    record Transfer(UUID from, UUID to, long amount, String actor) {
+    }
+
+    /**
+     * The outcome of {@link #transfer}.
+     *
+     * @param outcomes What became of each transfer, in the order they were given.
+     * @param accounts The new state of every changed account, with its new version.
+     */
+    record TransferResult(TransferOutcome[] outcomes, Map<UUID, AccountRecord> accounts) {
+    }
+
+    /**
+     * What became of a single transfer.
+     */
+    enum TransferOutcome {
+        // The money was moved
+        MADE,
+        // The sender couldn't afford it
+        INSUFFICIENT,
+        // The receiver's balance would have overflowed
+        OVERFLOW
+    }
+
+    /**
+     * The kinds of routine upkeep, in the order a maintenance run performs them.
+     */
+    enum MaintenanceTask {
+        // Return free space to the file system
+        VACUUM,
+        // Refresh the statistics queries are planned with
+        OPTIMIZE,
+        // Move committed changes from the journal into the main file
+        CHECKPOINT
+    }
+
+    /**
+     * The disk space a storage takes.
+     *
+     * @param totalBytes   The size of the storage's files, including the journal.
+     * @param freeBytes    The part of the main files that holds no live data.
+     * @param journalBytes The size of the write-ahead journal, if the storage has one.
+     */
+    record StorageSize(long totalBytes, long freeBytes, long journalBytes) {
+    }
+
+    /**
+     * The outcome of {@link #archiveDormant}.
+     *
+     * @param examined The number of dormant accounts looked at, including those kept because they were in use.
+     * @param archived The number of accounts archived.
+     */
+    record ArchiveResult(int examined, int archived) {
+    }
+
+    /**
+     * Calculates the new state of one account inside {@link #updateAccounts}.
+     */
+    @FunctionalInterface
+    interface AccountUpdate {
+
+        /**
+         * @param uuid    The UUID of the account owner.
+         * @param current The stored account, or {@code null} if the player has no account.
+         * @return The new state of the account, or {@code null} to leave it unchanged.
+         */
+        AccountRecord apply(UUID uuid, AccountRecord current);
+    }
+}
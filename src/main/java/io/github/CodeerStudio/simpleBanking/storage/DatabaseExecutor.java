@@ -0,0 +1,195 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import io.github.CodeerStudio.simpleBanking.SimpleBanking;
+import org.bukkit.Bukkit;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database work on background threads so the server thread never waits on disk I/O.
+ *
+ * Writes run one at a time on the database thread, the only thread that changes the
+ * {@link BankStorage}. Reads run on a small pool of reader threads, so balance lookups don't
+ * queue behind writes. Results are returned as {@link CompletableFuture}s,
+ * and {@link #mainThread()} can be used to hop back onto the server thread for player messages
+ * and Vault calls.
+ */
+public class DatabaseExecutor {
+
+    private final SimpleBanking plugin;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService readExecutor;
+    private final Executor mainThread;
+
+    // Tasks submitted but not yet started, per thread kind
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicInteger pendingReads = new AtomicInteger();
+
+    /**
+     * Constructs a new DatabaseExecutor and starts its worker threads.
+     *
+     * @param plugin      The main plugin instance, used for scheduling work on the server thread.
+     * @param readThreads The number of reader threads, usually {@link BankStorage#getReadThreads()}.
+     */
+    public DatabaseExecutor(SimpleBanking plugin, int readThreads) {
+        this.plugin = plugin;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SimpleBanking-DB");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger readerId = new AtomicInteger();
+        this.readExecutor = Executors.newFixedThreadPool(Math.max(1, readThreads), runnable -> {
+            Thread thread = new Thread(runnable, "SimpleBanking-DB-Read-" + readerId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mainThread = this::runOnMainThread;
+    }
+
+    /**
+     * Runs a task on the database thread.
+     *
+     * @param task The task to run.
+     * @param <T>  The type of the task's result.
+     * @return A future completed with the task's result, or exceptionally if it threw.
+     */
+    public <T> CompletableFuture<T> write(SqlSupplier<T> task) {
+        pendingWrites.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            pendingWrites.decrementAndGet();
+            try {
+                return task.get();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Runs a task without a result on the database thread.
+     *
+     * @param task The task to run.
+     * @return A future completed when the task has finished, or exceptionally if it threw.
+     */
+    public CompletableFuture<Void> run(SqlRunnable task) {
+        return write(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a task on a reader thread.
+     *
+     * @param task The task to run.
+     * @param <T>  The type of the task's result.
+     * @return A future completed with the task's result, or exceptionally if it threw.
+     */
+    public <T> CompletableFuture<T> read(SqlSupplier<T> task) {
+        pendingReads.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            pendingReads.decrementAndGet();
+            try {
+                return task.get();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, readExecutor);
+    }
+
+    /**
+     * Runs a task on the database thread at a fixed delay.
+     *
+     * @param task   The task to run.
+     * @param period The delay between the end of one run and the start of the next.
+     * @param unit   The unit of the period.
+     * @return A handle that can be used to cancel the task.
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(task, period, period, unit);
+    }
+
+    /**
+     * Gets the number of tasks waiting for the database thread, not counting periodic tasks.
+     *
+     * @return The write queue depth.
+     */
+    public int getPendingWrites() {
+        return pendingWrites.get();
+    }
+
+    /**
+     * Gets the number of tasks waiting for a reader thread.
+     *
+     * @return The read queue depth.
+     */
+    public int getPendingReads() {
+        return pendingReads.get();
+    }
+
+    /**
+     * Gets an executor that runs tasks on the main server thread. Tasks submitted from the main
+     * thread, or after the plugin has been disabled, run immediately on the calling thread.
+     *
+     * @return The main thread executor.
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Stops accepting new work and waits for queued database tasks to finish.
+     *
+     * @param timeoutSeconds The maximum number of seconds to wait.
+     */
+    public void shutdown(long timeoutSeconds) {
+        readExecutor.shutdown();
+        executor.shutdown();
+        try {
+            if (!readExecutor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)
+                    || !executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for database tasks to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runOnMainThread(Runnable task) {
+        // The enabled check comes first so this also works without a running server
+        if (!plugin.isEnabled() || Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * A database task that produces a result.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
+
+    /**
+     * A database task without a result.
+     */
+    @FunctionalInterface
+    public interface SqlRunnable {
+        void run() throws SQLException;
+    }
+}
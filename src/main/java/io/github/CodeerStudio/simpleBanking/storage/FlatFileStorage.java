@@ -0,0 +1,792 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import io.github.CodeerStudio.simpleBanking.cache.BulkChange;
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionHistory;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Bank storage in two append-only files, without any database.
+ *
+ * accounts.log holds account snapshots: every write appends the changed accounts together with the
+ * ledger checkpoint, and the newest snapshot of each account wins when the file is read back. Once
+ * the file has grown to twice the size of the live accounts it is rewritten with one snapshot each.
+ * ledger.log holds the transaction ledger, one frame per stored batch of entries. All accounts are
+ * held in memory, and the position of every ledger entry is indexed per account, so history pages
+ * read only the entries they show.
+ *
+ * A write that changes balances appends its ledger entries before the accounts, so a crash in
+ * between is repaired by {@link #recover(Logger)} like any other lost write. Like SQLite with
+ * {@code synchronous=NORMAL}, files are not synced on every write: a crashed server loses nothing,
+ * but a power cut may lose the newest writes.
+ *
+ * History is ordered by ledger id, which is the order entries were stored in. The offset of every
+ * ledger frame is kept as well, so the whole ledger can be walked in id order.
+ */
+public class FlatFileStorage implements BankStorage {
+
+    // The format version of both files. Files of a newer version are refused, and older ones are
+    // upgraded when opened:
+    //   1 - the first format
+    //   2 - accounts carry a version; ledger.log is unchanged
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int ACCOUNTS_MAGIC = 0x53424143; // "SBAC"
+    private static final int LEDGER_MAGIC = 0x53424C47;   // "SBLG"
+
+    // uuid (2 longs), balance, last accrued period, version
+    private static final int ACCOUNT_SIZE = 40;
+
+    // id, uuid (2 longs), amount, created at, balance after, type
+    private static final int ENTRY_SIZE = 50;
+
+    // Stands in for an account without an interest period
+    private static final long NO_PERIOD = Long.MIN_VALUE;
+
+    // accounts.log isn't compacted below this size
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    // Accounts per frame when accounts.log is rewritten
+    private static final int COMPACT_FRAME_ACCOUNTS = 4096;
+
+    private final Path directory;
+    private final FrameLog accountsLog;
+    private final FrameLog ledgerLog;
+    private final int readThreads;
+
+    private final ConcurrentSkipListMap<UUID, AccountRecord> accounts = new ConcurrentSkipListMap<>();
+
+    // The file positions of each account's ledger entries, oldest first
+    private final Map<UUID, PositionList> history = new ConcurrentHashMap<>();
+
+    // The offsets of all ledger frames, oldest first
+    private final PositionList ledgerFrames = new PositionList();
+
+    // The newest balance and interest period of accounts with ledger entries past the checkpoint,
+    // collected while the ledger is read back and applied by recover()
+    private final Map<UUID, AccountRecord> replay = new HashMap<>();
+
+    // Held while a withdrawal checks and deducts a balance
+    private final Object withdrawLock = new Object();
+
+    private volatile long checkpoint;
+    private volatile long lastLedgerId;
+
+    // The format accounts.log was opened in, which its frames are read by
+    private int accountsFormat;
+
+    private Logger logger;
+
+    /**
+     * Constructs a new FlatFileStorage. Nothing is opened until {@link #open(Logger)} is called.
+     *
+     * @param directory   The directory to keep the files in.
+     * @param readThreads The number of reads that can run in parallel.
+     */
+    public FlatFileStorage(File directory, int readThreads) {
+        this.directory = directory.toPath();
+        this.accountsLog = new FrameLog(this.directory.resolve("accounts.log"), ACCOUNTS_MAGIC);
+        this.ledgerLog = new FrameLog(this.directory.resolve("ledger.log"), LEDGER_MAGIC);
+        this.readThreads = Math.max(1, readThreads);
+    }
+
+    @Override
+    public void open(Logger logger) throws SQLException {
+        this.logger = logger;
+        try {
+            Files.createDirectories(directory);
+            accountsFormat = accountsLog.open(FORMAT_VERSION);
+            checkVersion("accounts.log", accountsFormat);
+            accountsLog.replay(this::readAccounts);
+
+            // The checkpoint is known now, so entries past it can be collected for recovery
+            int ledgerFormat = ledgerLog.open(FORMAT_VERSION);
+            checkVersion("ledger.log", ledgerFormat);
+            ledgerLog.replay(this::readLedger);
+
+            if (accountsFormat < FORMAT_VERSION) {
+                compact();
+                logger.info("Upgraded accounts.log from format " + accountsFormat + " to " + FORMAT_VERSION + ".");
+            }
+            if (ledgerFormat < FORMAT_VERSION) {
+                ledgerLog.setVersion(FORMAT_VERSION);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not open the bank files: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getReadThreads() {
+        return readThreads;
+    }
+
+    @Override
+    public AccountRecord loadAccount(UUID uuid) {
+        return accounts.get(uuid);
+    }
+
+    @Override
+    public int countAccounts() {
+        return accounts.size();
+    }
+
+    @Override
+    public List<UUID> listAccounts(UUID after, int limit) {
+        Iterator<UUID> keys = (after != null ? accounts.tailMap(after, false) : accounts).keySet().iterator();
+        List<UUID> uuids = new ArrayList<>(limit);
+        while (uuids.size() < limit && keys.hasNext()) {
+            uuids.add(keys.next());
+        }
+        return uuids;
+    }
+
+    @Override
+    public List<AccountRecord> readAccounts(UUID after, int limit) {
+        Iterator<AccountRecord> values = (after != null ? accounts.tailMap(after, false) : accounts).values().iterator();
+        List<AccountRecord> page = new ArrayList<>(limit);
+        while (page.size() < limit && values.hasNext()) {
+            page.add(values.next());
+        }
+        return page;
+    }
+
+    @Override
+    public List<LedgerRow> readLedger(long afterId, int limit) throws SQLException {
+        long[] offsets;
+        int count;
+        synchronized (ledgerFrames) {
+            offsets = ledgerFrames.positions;
+            count = ledgerFrames.size;
+        }
+
+        try {
+            // Find the last frame starting at or before the first wanted id
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ledgerLog.read(FrameLog.position(offsets[mid], 4), 8).getLong() <= afterId + 1) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            List<LedgerRow> rows = new ArrayList<>(limit);
+            for (int i = Math.max(0, low - 1); i < count && rows.size() < limit; i++) {
+                ByteBuffer frame = ledgerLog.readFrame(offsets[i]);
+                int entries = frame.getInt();
+                long[] ids = new long[entries];
+                LedgerEntry[] parsed = new LedgerEntry[entries];
+                for (int j = 0; j < entries; j++) {
+                    ids[j] = frame.getLong();
+                    UUID uuid = new UUID(frame.getLong(), frame.getLong());
+                    long amount = frame.getLong();
+                    long createdAt = frame.getLong();
+                    long balanceAfter = frame.getLong();
+                    parsed[j] = new LedgerEntry(uuid, amount, typeOf(frame.getShort()), null, createdAt, balanceAfter);
+                }
+                for (int j = 0; j < entries && rows.size() < limit; j++) {
+                    LedgerEntry entry = parsed[j];
+                    String actor = readString(frame);
+                    if (ids[j] > afterId) {
+                        rows.add(new LedgerRow(ids[j], new LedgerEntry(entry.uuid(), entry.amount(), entry.type(),
+                                actor, entry.timestamp(), entry.balanceAfter())));
+                    }
+                }
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new SQLException("Could not read the ledger: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<AccountRecord> richestAccounts(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        // Keep the richest accounts seen so far, poorest on top
+        PriorityQueue<AccountRecord> richest = new PriorityQueue<>(Comparator.comparingLong(AccountRecord::balance));
+        for (AccountRecord account : accounts.values()) {
+            if (richest.size() < limit) {
+                richest.add(account);
+            } else if (account.balance() > richest.peek().balance()) {
+                richest.poll();
+                richest.add(account);
+            }
+        }
+
+        List<AccountRecord> sorted = new ArrayList<>(richest);
+        sorted.sort(Comparator.comparingLong(AccountRecord::balance).reversed());
+        return sorted;
+    }
+
+    @Override
+    public long countRicherThan(long balance) {
+        long count = 0;
+        for (AccountRecord account : accounts.values()) {
+            if (account.balance() > balance) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<TransactionHistory.Entry> history(UUID uuid, TransactionHistory.Cursor after, int limit)
+            throws SQLException {
+        PositionList list = history.get(uuid);
+        if (list == null || limit <= 0) {
+            return List.of();
+        }
+
+        try {
+            long[] positions;
+            int end;
+            synchronized (list) {
+                positions = list.positions;
+                end = list.size;
+            }
+
+            if (after != null) {
+                // Entries are indexed in id order, so find the first one at or past the cursor
+                int low = 0;
+                int high = end;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (ledgerLog.read(positions[mid], 8).getLong() < after.id()) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                end = low;
+            }
+
+            List<TransactionHistory.Entry> entries = new ArrayList<>(Math.min(limit, end));
+            for (int i = end - 1; i >= 0 && entries.size() < limit; i--) {
+                ByteBuffer entry = ledgerLog.read(positions[i], ENTRY_SIZE);
+                long id = entry.getLong();
+                entry.position(entry.position() + 16); // Skip the uuid
+                long amount = entry.getLong();
+                long createdAt = entry.getLong();
+                long balanceAfter = entry.getLong();
+                entries.add(new TransactionHistory.Entry(id, createdAt, amount, typeOf(entry.getShort()), balanceAfter));
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new SQLException("Could not read the ledger: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getLastLedgerId() {
+        return lastLedgerId;
+    }
+
+    @Override
+    public void saveAccounts(List<AccountRecord> changed, long checkpoint) throws SQLException {
+        List<AccountRecord> records = new ArrayList<>(changed.size());
+        for (AccountRecord account : changed) {
+            AccountRecord stored = accounts.get(account.uuid());
+            Long lastAccrued = account.lastAccrued() == null && stored != null ? stored.lastAccrued() : account.lastAccrued();
+            records.add(new AccountRecord(account.uuid(), account.balance(), lastAccrued, nextVersion(stored)));
+        }
+        write(List.of(), records, Math.max(this.checkpoint, checkpoint));
+    }
+
+    @Override
+    public long appendLedger(List<LedgerEntry> entries) throws SQLException {
+        if (!entries.isEmpty()) {
+            write(entries, List.of(), checkpoint);
+        }
+        return lastLedgerId;
+    }
+
+    @Override
+    public Map<UUID, AccountRecord> updateAccounts(List<UUID> uuids, TransactionType type, String actor,
+                                                   AccountUpdate update) throws SQLException {
+        Map<UUID, AccountRecord> updated = new LinkedHashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (UUID uuid : uuids) {
+            AccountRecord current = updated.containsKey(uuid) ? updated.get(uuid) : accounts.get(uuid);
+            AccountRecord next = update.apply(uuid, current);
+            if (next == null) {
+                continue;
+            }
+            next = new AccountRecord(uuid, next.balance(), next.lastAccrued(), nextVersion(current));
+
+            long before = current != null ? current.balance() : 0;
+            if (next.balance() != before) {
+                entries.add(new LedgerEntry(uuid, next.balance() - before, type, actor, now, next.balance()));
+            }
+            updated.put(uuid, next);
+        }
+
+        write(entries, new ArrayList<>(updated.values()), checkpoint);
+        return updated;
+    }
+
+    @Override
+    public AccountRecord withdraw(UUID uuid, long amount, TransactionType type, String actor) throws SQLException {
+        // Writes already run one at a time; the lock keeps the check and the deduction together
+        // even if that ever changes
+        synchronized (withdrawLock) {
+            AccountRecord current = accounts.get(uuid);
+            if (current == null || current.balance() < amount) {
+                return null;
+            }
+
+            AccountRecord next = new AccountRecord(uuid, current.balance() - amount, current.lastAccrued(),
+                    nextVersion(current));
+            write(List.of(new LedgerEntry(uuid, -amount, type, actor, System.currentTimeMillis(), next.balance())),
+                    List.of(next), checkpoint);
+            return next;
+        }
+    }
+
+    @Override
+    public long compareAndSet(UUID uuid, long expectedVersion, long balance, long amount, TransactionType type,
+                              String actor) throws SQLException {
+        AccountRecord stored = accounts.get(uuid);
+        if ((stored != null ? stored.version() : 0) != expectedVersion) {
+            return 0;
+        }
+
+        AccountRecord next = new AccountRecord(uuid, balance, stored != null ? stored.lastAccrued() : null,
+                expectedVersion + 1);
+        List<LedgerEntry> entries = amount == 0 ? List.of()
+                : List.of(new LedgerEntry(uuid, amount, type, actor, System.currentTimeMillis(), balance));
+        write(entries, List.of(next), checkpoint);
+        return next.version();
+    }
+
+    @Override
+    public TransferResult transfer(List<Transfer> transfers) throws SQLException {
+        Map<UUID, AccountRecord> changed = new LinkedHashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        TransferOutcome[] outcomes = new TransferOutcome[transfers.size()];
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < transfers.size(); i++) {
+            Transfer transfer = transfers.get(i);
+            AccountRecord from = changed.containsKey(transfer.from())
+                    ? changed.get(transfer.from()) : accounts.get(transfer.from());
+            if (from == null || from.balance() < transfer.amount()) {
+                outcomes[i] = TransferOutcome.INSUFFICIENT;
+                continue;
+            }
+            AccountRecord to = changed.containsKey(transfer.to())
+                    ? changed.get(transfer.to()) : accounts.get(transfer.to());
+            long received = (to != null ? to.balance() : 0) + transfer.amount();
+            if (received < 0) {
+                outcomes[i] = TransferOutcome.OVERFLOW;
+                continue;
+            }
+
+            AccountRecord debited = new AccountRecord(from.uuid(), from.balance() - transfer.amount(),
+                    from.lastAccrued(), nextVersion(from));
+            AccountRecord credited = new AccountRecord(transfer.to(), received,
+                    to != null ? to.lastAccrued() : null, nextVersion(to));
+            changed.put(debited.uuid(), debited);
+            changed.put(credited.uuid(), credited);
+            entries.add(new LedgerEntry(debited.uuid(), -transfer.amount(), TransactionType.TRANSFER_OUT,
+                    transfer.actor(), now, debited.balance()));
+            entries.add(new LedgerEntry(credited.uuid(), transfer.amount(), TransactionType.TRANSFER_IN,
+                    transfer.actor(), now, credited.balance()));
+            outcomes[i] = TransferOutcome.MADE;
+        }
+
+        write(entries, new ArrayList<>(changed.values()), checkpoint);
+        return new TransferResult(outcomes, changed);
+    }
+
+    @Override
+    public Map<UUID, Long> applyBulk(BulkChange change, List<UUID> uuids) throws SQLException {
+        Map<UUID, Long> balances = new HashMap<>();
+        List<AccountRecord> records = new ArrayList<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (UUID uuid : uuids) {
+            AccountRecord current = accounts.get(uuid);
+            Long after = change.applyTo(current != null ? current.balance() : null);
+            if (after == null) {
+                continue;
+            }
+
+            long before = current != null ? current.balance() : 0;
+            records.add(new AccountRecord(uuid, after, current != null ? current.lastAccrued() : null, nextVersion(current)));
+            entries.add(new LedgerEntry(uuid, after - before, change.kind().getType(), change.actor(), now, after));
+            balances.put(uuid, after);
+        }
+
+        write(entries, records, checkpoint);
+        return balances;
+    }
+
+    @Override
+    public long recover(Logger logger) throws SQLException {
+        if (replay.isEmpty()) {
+            return lastLedgerId;
+        }
+
+        List<AccountRecord> records = new ArrayList<>(replay.size());
+        for (AccountRecord replayed : replay.values()) {
+            // Keep the stored interest period unless the replayed entries credited a later one
+            AccountRecord stored = accounts.get(replayed.uuid());
+            Long lastAccrued = stored != null ? stored.lastAccrued() : null;
+            if (replayed.lastAccrued() != null) {
+                lastAccrued = Math.max(lastAccrued != null ? lastAccrued : 0, replayed.lastAccrued());
+            }
+            records.add(new AccountRecord(replayed.uuid(), replayed.balance(), lastAccrued, nextVersion(stored)));
+        }
+
+        long from = checkpoint;
+        write(List.of(), records, lastLedgerId);
+        replay.clear();
+
+        logger.info("Replayed " + (lastLedgerId - from) + " ledger entries, restoring " + records.size()
+                + " bank balances.");
+        return lastLedgerId;
+    }
+
+    @Override
+    public void beginImport() {
+        // Nothing to set aside; the indexes are in memory
+    }
+
+    @Override
+    public void finishImport() {
+    }
+
+    @Override
+    public void markActive(Collection<UUID> uuids, long now) {
+        // Nothing is archived, so there is nothing to bring back
+    }
+
+    @Override
+    public ArchiveResult archiveDormant(long activeBefore, long now, int limit, Predicate<UUID> inUse) {
+        // Every account is held in memory anyway, so archiving wouldn't make anything smaller
+        return new ArchiveResult(0, 0);
+    }
+
+    @Override
+    public int countArchivedAccounts() {
+        return 0;
+    }
+
+    @Override
+    public boolean maintain(MaintenanceTask task, long budgetMillis) throws SQLException {
+        try {
+            switch (task) {
+                // While the server is quiet, rewrite accounts.log before it has doubled in size
+                case VACUUM -> {
+                    if (accountsLog.size() - liveAccountBytes() >= MIN_COMPACT_BYTES) {
+                        compact();
+                    }
+                }
+                // Nothing is planned from statistics
+                case OPTIMIZE -> {
+                }
+                // Sync both files, so a power cut can't lose anything written so far
+                case CHECKPOINT -> {
+                    ledgerLog.sync();
+                    accountsLog.sync();
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not maintain the bank files: " + e.getMessage(), e);
+        }
+        return false;
+    }
+
+    @Override
+    public StorageSize measure() {
+        long accountsSize = accountsLog.size();
+        return new StorageSize(accountsSize + ledgerLog.size(), Math.max(0, accountsSize - liveAccountBytes()), 0);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (FrameLog ledger = ledgerLog; FrameLog accountFile = accountsLog) {
+            ledger.sync();
+            accountFile.sync();
+        } catch (IOException e) {
+            throw new SQLException("Could not close the bank files: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stores ledger entries and account snapshots, then makes them visible. The entries get the
+     * next ledger ids, in order.
+     */
+    private void write(List<LedgerEntry> entries, List<AccountRecord> records, long newCheckpoint)
+            throws SQLException {
+        long firstId = lastLedgerId + 1;
+        long ledgerSize = ledgerLog.size();
+        long ledgerOffset = -1;
+
+        try {
+            if (!entries.isEmpty()) {
+                ledgerOffset = ledgerLog.append(ledgerFrame(entries, firstId));
+            }
+            try {
+                if (!records.isEmpty() || newCheckpoint != checkpoint) {
+                    accountsLog.append(accountsFrame(records, newCheckpoint));
+                }
+            } catch (IOException e) {
+                // Take the entries back, so the ledger never records a change that wasn't stored
+                try {
+                    ledgerLog.truncate(ledgerSize);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not write the bank files: " + e.getMessage(), e);
+        }
+
+        if (!entries.isEmpty()) {
+            synchronized (ledgerFrames) {
+                ledgerFrames.add(ledgerOffset);
+            }
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            index(entries.get(i).uuid(), FrameLog.position(ledgerOffset, 4 + i * ENTRY_SIZE));
+        }
+        lastLedgerId = firstId + entries.size() - 1;
+        for (AccountRecord record : records) {
+            accounts.put(record.uuid(), record);
+        }
+        checkpoint = newCheckpoint;
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Rewrites accounts.log once it has grown to twice the size of the live accounts.
+     * A failed rewrite keeps the old file, so it is only logged.
+     */
+    private void compactIfNeeded() {
+        long live = liveAccountBytes();
+        if (accountsLog.size() < MIN_COMPACT_BYTES || accountsLog.size() < 2 * live) {
+            return;
+        }
+
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.warning("Could not compact accounts.log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the space one snapshot of each account takes in accounts.log, not counting frame headers.
+     */
+    private long liveAccountBytes() {
+        return (long) accounts.size() * ACCOUNT_SIZE;
+    }
+
+    /**
+     * Rewrites accounts.log in the current format, with one snapshot of each account.
+     */
+    private void compact() throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>();
+        List<AccountRecord> chunk = new ArrayList<>(COMPACT_FRAME_ACCOUNTS);
+        for (AccountRecord account : accounts.values()) {
+            chunk.add(account);
+            if (chunk.size() == COMPACT_FRAME_ACCOUNTS) {
+                frames.add(accountsFrame(chunk, checkpoint));
+                chunk.clear();
+            }
+        }
+        frames.add(accountsFrame(chunk, checkpoint));
+        accountsLog.rewrite(FORMAT_VERSION, frames);
+    }
+
+    private void readAccounts(long offset, ByteBuffer frame) {
+        checkpoint = Math.max(checkpoint, frame.getLong());
+        int count = frame.getInt();
+        for (int i = 0; i < count; i++) {
+            UUID uuid = new UUID(frame.getLong(), frame.getLong());
+            long balance = frame.getLong();
+            long period = frame.getLong();
+            long version = accountsFormat >= 2 ? frame.getLong() : 1;
+            accounts.put(uuid, new AccountRecord(uuid, balance, period == NO_PERIOD ? null : period, version));
+        }
+    }
+
+    private void readLedger(long offset, ByteBuffer frame) throws IOException {
+        synchronized (ledgerFrames) {
+            ledgerFrames.add(offset);
+        }
+        int count = frame.getInt();
+        long[] ids = new long[count];
+        UUID[] uuids = new UUID[count];
+        long[] balances = new long[count];
+        TransactionType[] types = new TransactionType[count];
+
+        for (int i = 0; i < count; i++) {
+            ids[i] = frame.getLong();
+            uuids[i] = new UUID(frame.getLong(), frame.getLong());
+            frame.getLong(); // Amount
+            frame.getLong(); // Created at
+            balances[i] = frame.getLong();
+            types[i] = typeOf(frame.getShort());
+        }
+
+        for (int i = 0; i < count; i++) {
+            String actor = readString(frame);
+            index(uuids[i], FrameLog.position(offset, 4 + i * ENTRY_SIZE));
+            lastLedgerId = Math.max(lastLedgerId, ids[i]);
+            if (ids[i] <= checkpoint) {
+                continue;
+            }
+
+            // Entries are read in id order, so the last one of each account has its newest balance
+            AccountRecord replayed = replay.get(uuids[i]);
+            Long period = replayed != null ? replayed.lastAccrued() : null;
+            if (types[i] == TransactionType.INTEREST) {
+                Long credited = TransactionLedger.interestPeriodOf(actor);
+                if (credited != null) {
+                    period = period != null ? Math.max(period, credited) : credited;
+                }
+            }
+            replay.put(uuids[i], new AccountRecord(uuids[i], balances[i], period));
+        }
+    }
+
+    private void index(UUID uuid, long position) {
+        PositionList list = history.computeIfAbsent(uuid, key -> new PositionList());
+        synchronized (list) {
+            list.add(position);
+        }
+    }
+
+    private static ByteBuffer accountsFrame(List<AccountRecord> records, long checkpoint) {
+        ByteBuffer frame = ByteBuffer.allocate(12 + records.size() * ACCOUNT_SIZE);
+        frame.putLong(checkpoint).putInt(records.size());
+        for (AccountRecord record : records) {
+            frame.putLong(record.uuid().getMostSignificantBits())
+                    .putLong(record.uuid().getLeastSignificantBits())
+                    .putLong(record.balance())
+                    .putLong(record.lastAccrued() != null ? record.lastAccrued() : NO_PERIOD)
+                    .putLong(record.version());
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Encodes ledger entries as fixed-size records followed by their actors, so the position of each
+     * record can be indexed and read back on its own.
+     */
+    private static ByteBuffer ledgerFrame(List<LedgerEntry> entries, long firstId) {
+        List<byte[]> actors = new ArrayList<>(entries.size());
+        int actorBytes = 0;
+        for (LedgerEntry entry : entries) {
+            byte[] actor = entry.actor() != null ? entry.actor().getBytes(StandardCharsets.UTF_8) : null;
+            actors.add(actor);
+            actorBytes += 4 + (actor != null ? actor.length : 0);
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + entries.size() * ENTRY_SIZE + actorBytes);
+        frame.putInt(entries.size());
+        long id = firstId;
+        for (LedgerEntry entry : entries) {
+            frame.putLong(id++)
+                    .putLong(entry.uuid().getMostSignificantBits())
+                    .putLong(entry.uuid().getLeastSignificantBits())
+                    .putLong(entry.amount())
+                    .putLong(entry.timestamp())
+                    .putLong(entry.balanceAfter())
+                    .putShort((short) entry.type().ordinal());
+        }
+        for (byte[] actor : actors) {
+            frame.putInt(actor != null ? actor.length : -1);
+            if (actor != null) {
+                frame.put(actor);
+            }
+        }
+        return frame.flip();
+    }
+
+    private static long nextVersion(AccountRecord current) {
+        return current != null ? current.version() + 1 : 1;
+    }
+
+    private static String readString(ByteBuffer frame) {
+        int length = frame.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Types are stored by their position in {@link TransactionType}, so new types must be added last.
+     */
+    private static TransactionType typeOf(short ordinal) throws IOException {
+        TransactionType[] types = TransactionType.values();
+        if (ordinal < 0 || ordinal >= types.length) {
+            throw new IOException("Unknown transaction type " + ordinal + " in ledger.log");
+        }
+        return types[ordinal];
+    }
+
+    private static void checkVersion(String file, int version) throws IOException {
+        if (version > FORMAT_VERSION) {
+            throw new IOException(file + " was written by a newer version of SimpleBanking (format "
+                    + version + ", this version reads up to " + FORMAT_VERSION + ")");
+        }
+    }
+
+    /**
+     * A growable list of file positions. Positions are only ever appended, so a reader can take the
+     * array and size under the list's lock and read that prefix afterwards without it.
+     */
+    private static final class PositionList {
+
+        private long[] positions = new long[4];
+        private int size;
+
+        void add(long position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of checksummed frames, used by {@link FlatFileStorage}.
+ *
+ * The file starts with a header of a magic number and the format version, followed by frames of
+ * {@code [length][crc32][payload]}. A frame is only trusted if it is complete and its checksum
+ * matches, so a frame torn by a crash is dropped, together with anything after it, when the file
+ * is opened again. Frames can be read back concurrently by their offset while new ones are appended.
+ */
+final class FrameLog implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final Path path;
+    private final int magic;
+
+    private FileChannel channel;
+    private volatile long size;
+
+    /**
+     * Constructs a new FrameLog. Nothing is opened until {@link #open(int)} is called.
+     *
+     * @param path  The file.
+     * @param magic The number the file must start with.
+     */
+    FrameLog(Path path, int magic) {
+        this.path = path;
+        this.magic = magic;
+    }
+
+    /**
+     * Opens the file, creating it if needed, and reads its header.
+     *
+     * @param version The format version to write into a new file.
+     * @return The format version of the file.
+     * @throws IOException If the file could not be opened, or isn't a file of this kind.
+     */
+    int open(int version) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            channel.truncate(0);
+            writeHeader(channel, magic, version);
+            size = HEADER_SIZE;
+            return version;
+        }
+
+        ByteBuffer header = readFully(0, HEADER_SIZE);
+        if (header.getInt() != magic) {
+            throw new IOException(path.getFileName() + " is not a SimpleBanking data file");
+        }
+        size = channel.size();
+        return header.getInt();
+    }
+
+    /**
+     * Reads back every intact frame, and drops a torn frame at the end of the file.
+     *
+     * @param visitor Called with every frame, in order.
+     * @throws IOException If the file could not be read, or the visitor rejected a frame.
+     */
+    void replay(FrameVisitor visitor) throws IOException {
+        long length = channel.size();
+        long position = HEADER_SIZE;
+        while (position + FRAME_HEADER_SIZE <= length) {
+            ByteBuffer frameHeader = readFully(position, FRAME_HEADER_SIZE);
+            int frameLength = frameHeader.getInt();
+            int crc = frameHeader.getInt();
+            if (frameLength < 0 || position + FRAME_HEADER_SIZE + frameLength > length) {
+                break;
+            }
+
+            ByteBuffer payload = readFully(position + FRAME_HEADER_SIZE, frameLength);
+            if (checksum(payload) != crc) {
+                break;
+            }
+            visitor.accept(position, payload);
+            position += FRAME_HEADER_SIZE + frameLength;
+        }
+
+        if (position < length) {
+            // Drop the torn frame, so new frames follow the last intact one
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    /**
+     * Records a new format version in the header, once the file has been upgraded to it.
+     *
+     * @param version The format version.
+     * @throws IOException If the header could not be written.
+     */
+    void setVersion(int version) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putInt(version).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, 4 + buffer.position());
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Appends frames in a single write. Must only be called by one thread at a time.
+     *
+     * @param payloads The frame payloads, which are consumed.
+     * @return The offset of the first frame.
+     * @throws IOException If the frames could not be written. The file is left as it was then.
+     */
+    long append(ByteBuffer... payloads) throws IOException {
+        int total = 0;
+        for (ByteBuffer payload : payloads) {
+            total += FRAME_HEADER_SIZE + payload.remaining();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (ByteBuffer payload : payloads) {
+            buffer.putInt(payload.remaining()).putInt(checksum(payload)).put(payload);
+        }
+        buffer.flip();
+
+        long offset = size;
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            truncate(offset);
+            throw e;
+        }
+        size = offset + total;
+        return offset;
+    }
+
+    /**
+     * Gets the file position of a byte within a frame payload, for reading it with {@link #read(long, int)}.
+     *
+     * @param offset The offset of the frame.
+     * @param from   The position within the payload.
+     * @return The position in the file.
+     */
+    static long position(long offset, int from) {
+        return offset + FRAME_HEADER_SIZE + from;
+    }
+
+    /**
+     * Reads bytes of the file. Safe to call while frames are appended.
+     *
+     * @param position The position in the file to start at.
+     * @param length   The number of bytes to read.
+     * @return The bytes, ready to be read.
+     * @throws IOException If the bytes could not be read.
+     */
+    ByteBuffer read(long position, int length) throws IOException {
+        return readFully(position, length);
+    }
+
+    /**
+     * Reads the payload of one frame. Safe to call while frames are appended.
+     *
+     * @param offset The offset of the frame, as passed to the {@link FrameVisitor} or returned by {@link #append}.
+     * @return The payload, ready to be read.
+     * @throws IOException If the frame could not be read.
+     */
+    ByteBuffer readFrame(long offset) throws IOException {
+        int length = readFully(offset, FRAME_HEADER_SIZE).getInt();
+        return readFully(offset + FRAME_HEADER_SIZE, length);
+    }
+
+    /**
+     * Cuts the file back to a size, discarding the frames after it.
+     *
+     * @param length The new size, as returned by {@link #size()} before the discarded frames.
+     * @throws IOException If the file could not be truncated.
+     */
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        size = length;
+    }
+
+    /**
+     * Gets the size of the file.
+     *
+     * @return The size in bytes, up to the end of the last frame.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Forces appended frames to disk.
+     *
+     * @throws IOException If the file could not be synced.
+     */
+    void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replaces the whole file with new frames. The frames are written to a temporary file that is
+     * then moved over this one, so a crash leaves either the old file or the new one.
+     *
+     * @param version  The format version to write.
+     * @param payloads The frame payloads, which are consumed.
+     * @throws IOException If the file could not be replaced. The old file is kept then.
+     */
+    void rewrite(int version, Iterable<ByteBuffer> payloads) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out, magic, version);
+            out.position(HEADER_SIZE);
+            for (ByteBuffer payload : payloads) {
+                ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE)
+                        .putInt(payload.remaining()).putInt(checksum(payload)).flip();
+                while (frameHeader.hasRemaining()) {
+                    out.write(frameHeader);
+                }
+                while (payload.hasRemaining()) {
+                    out.write(payload);
+                }
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            size = channel.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path.getFileName());
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeHeader(FileChannel channel, int magic, int version) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(magic).putInt(version).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Receives the frames of a file as it is opened.
+     */
+    @FunctionalInterface
+    interface FrameVisitor {
+
+        /**
+         * @param offset  The offset of the frame, for {@link #position(long, int)}.
+         * @param payload The frame payload.
+         * @throws IOException If the frame is not valid.
+         */
+        void accept(long offset, ByteBuffer payload) throws IOException;
+    }
+}
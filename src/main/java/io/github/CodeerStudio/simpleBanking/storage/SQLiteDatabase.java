@@ -0,0 +1,516 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Access layer for the SQLite bank database.
+ *
+ * The database runs in WAL journal mode with {@code synchronous=NORMAL}, so readers never wait
+ * for the writer and commits don't fsync on every transaction. There is exactly one writer
+ * connection, used only by the database thread, plus a small pool of read-only connections.
+ * Each connection keeps its own cache of long-lived prepared statements.
+ *
+ * Free pages are handed back to the file system by incremental vacuum, a few at a time, so
+ * routine maintenance never has to rebuild the whole file. New databases are created with it; an
+ * older one only once it has been converted on request, since that takes a full rebuild.
+ */
+public class SQLiteDatabase implements AutoCloseable {
+
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    // The auto_vacuum mode that lets free pages be returned a few at a time
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    // Free pages returned per incremental_vacuum statement
+    private static final int VACUUM_STEP_PAGES = 128;
+
+    // Rows sampled per index by PRAGMA optimize, which keeps its ANALYZE short on large tables
+    private static final int ANALYSIS_LIMIT = 1000;
+
+    // The write-ahead log is cut back to this size once a checkpoint has emptied it
+    private static final long JOURNAL_SIZE_LIMIT = 64L << 20;
+
+    private static final String BALANCE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_player_balances_balance ON player_balances (balance)";
+    private static final String HISTORY_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_bank_ledger_history " +
+                    "ON bank_ledger (uuid, created_at, id, amount, type, balance_after)";
+    private static final String ACTIVITY_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_player_balances_active ON player_balances (last_active)";
+    private static final String ARCHIVE_BALANCE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_player_balances_archive_balance ON player_balances_archive (balance)";
+
+    private final String url;
+    private final File file;
+    private final int readConnections;
+    private final long mmapSize;
+
+    private StatementCache writer;
+    private BlockingQueue<StatementCache> readers;
+
+    /**
+     * Constructs a new SQLiteDatabase. No connections are opened until {@link #open()} is called.
+     *
+     * @param file            The database file.
+     * @param readConnections The number of read-only connections to pool.
+     * @param mmapSize        The number of bytes of the database file to memory-map, or 0 to disable.
+     */
+    public SQLiteDatabase(File file, int readConnections, long mmapSize) {
+        this("jdbc:sqlite:" + file.getAbsolutePath(), file, readConnections, mmapSize);
+    }
+
+    private SQLiteDatabase(String url, File file, int readConnections, long mmapSize) {
+        this.url = url;
+        this.file = file;
+        this.readConnections = Math.max(1, readConnections);
+        this.mmapSize = Math.max(0, mmapSize);
+    }
+
+    /**
+     * Creates a database that lives only in memory and is dropped once all of its connections are
+     * closed. Meant for benchmarks and tests. The connections share one cache, and readers see
+     * uncommitted writes so that they never fail on the writer's table locks.
+     *
+     * @param name            A name for the database, unique within this JVM.
+     * @param readConnections The number of read-only connections to pool.
+     * @return The in-memory database.
+     */
+    public static SQLiteDatabase inMemory(String name, int readConnections) {
+        return new SQLiteDatabase("jdbc:sqlite:file:" + name + "?mode=memory&cache=shared", null, readConnections, 0);
+    }
+
+    /**
+     * Opens the writer connection and the read-only connection pool.
+     *
+     * @throws SQLException If a connection could not be opened.
+     */
+    public void open() throws SQLException {
+        writer = new StatementCache(connect(false));
+        readers = new ArrayBlockingQueue<>(readConnections);
+        for (int i = 0; i < readConnections; i++) {
+            readers.add(new StatementCache(connect(true)));
+        }
+    }
+
+    /**
+     * Creates the bank tables if they don't exist and upgrades older schemas.
+     * The schema version is tracked in SQLite's {@code user_version} pragma.
+     *
+     * @param logger The logger to report migrations to.
+     * @throws SQLException If the schema could not be created or upgraded.
+     */
+    public void createSchema(Logger logger) throws SQLException {
+        Connection connection = writer.getConnection();
+
+        try (Statement stmt = connection.createStatement()) {
+            int version;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            if (version < 1) {
+                migrate(connection, 1, () -> migrateToCents(stmt, logger));
+            }
+            if (version < 2) {
+                migrate(connection, 2, () -> createLedger(stmt));
+            }
+            if (version < 3) {
+                migrate(connection, 3, () -> addInterestPeriod(stmt));
+            }
+            if (version < 4) {
+                migrate(connection, 4, () -> indexBalances(stmt));
+            }
+            if (version < 5) {
+                migrate(connection, 5, () -> indexHistory(stmt));
+            }
+            if (version < 6) {
+                migrate(connection, 6, () -> addVersion(stmt));
+            }
+            if (version < 7) {
+                migrate(connection, 7, () -> addArchive(stmt));
+            }
+        }
+    }
+
+    /**
+     * Runs one schema migration and records the new version, all in a single transaction.
+     */
+    private void migrate(Connection connection, int version, DatabaseExecutor.SqlRunnable migration)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            migration.run();
+            stmt.executeUpdate("PRAGMA user_version = " + version);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Schema version 1: balances are stored as whole cents in an INTEGER column instead of a DOUBLE.
+     * Existing balances are rounded to the nearest cent.
+     */
+    private void migrateToCents(Statement stmt, Logger logger) throws SQLException {
+        boolean hasLegacyTable;
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'player_balances'")) {
+            hasLegacyTable = rs.next();
+        }
+
+        stmt.executeUpdate(
+                "CREATE TABLE player_balances_cents (" +
+                        "uuid TEXT PRIMARY KEY, " +
+                        "balance INTEGER NOT NULL DEFAULT 0)");
+
+        if (hasLegacyTable) {
+            int migrated = stmt.executeUpdate(
+                    "INSERT INTO player_balances_cents (uuid, balance) " +
+                            "SELECT uuid, CAST(ROUND(COALESCE(balance, 0) * 100) AS INTEGER) FROM player_balances");
+            stmt.executeUpdate("DROP TABLE player_balances");
+            logger.info("Migrated " + migrated + " bank balances to whole cents.");
+        }
+
+        stmt.executeUpdate("ALTER TABLE player_balances_cents RENAME TO player_balances");
+    }
+
+    /**
+     * Schema version 2: the append-only transaction ledger and a key/value table for its replay checkpoint.
+     */
+    private void createLedger(Statement stmt) throws SQLException {
+        stmt.executeUpdate(
+                "CREATE TABLE bank_ledger (" +
+                        "id INTEGER PRIMARY KEY, " +
+                        "uuid TEXT NOT NULL, " +
+                        "amount INTEGER NOT NULL, " +
+                        "type TEXT NOT NULL, " +
+                        "actor TEXT, " +
+                        "created_at INTEGER NOT NULL, " +
+                        "balance_after INTEGER NOT NULL)");
+        stmt.executeUpdate(
+                "CREATE TABLE bank_meta (" +
+                        "key TEXT PRIMARY KEY, " +
+                        "value INTEGER NOT NULL)");
+    }
+
+    /**
+     * Schema version 3: the index of the last interest period credited to each account.
+     * Existing accounts start with NULL and begin earning interest from the current period.
+     */
+    private void addInterestPeriod(Statement stmt) throws SQLException {
+        stmt.executeUpdate("ALTER TABLE player_balances ADD COLUMN last_accrued INTEGER");
+    }
+
+    /**
+     * Schema version 4: an index on balances, so the leaderboard can read the richest accounts
+     * and count the accounts above a balance without scanning the table.
+     */
+    private void indexBalances(Statement stmt) throws SQLException {
+        stmt.executeUpdate(BALANCE_INDEX_SQL);
+    }
+
+    /**
+     * Schema version 5: a covering index for reading one account's transaction history newest first,
+     * so history pages are answered from the index alone.
+     */
+    private void indexHistory(Statement stmt) throws SQLException {
+        stmt.executeUpdate(HISTORY_INDEX_SQL);
+    }
+
+    /**
+     * Schema version 6: a version number per account, raised by every write, so servers sharing the
+     * database can tell whether their cached copy of an account is still current.
+     */
+    private void addVersion(Statement stmt) throws SQLException {
+        stmt.executeUpdate("ALTER TABLE player_balances ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+    }
+
+    /**
+     * Schema version 7: the time each account was last used, and a separate table for accounts that
+     * haven't been used for a long time, so the main table and its indexes only hold active ones.
+     * Existing accounts count as used now. The archive is keyed by UUID without a separate rowid,
+     * and only indexed by balance for the leaderboard.
+     */
+    private void addArchive(Statement stmt) throws SQLException {
+        stmt.executeUpdate("ALTER TABLE player_balances ADD COLUMN last_active INTEGER");
+        stmt.executeUpdate("UPDATE player_balances SET last_active = " + System.currentTimeMillis());
+        stmt.executeUpdate(
+                "CREATE TABLE player_balances_archive (" +
+                        "uuid TEXT PRIMARY KEY, " +
+                        "balance INTEGER NOT NULL DEFAULT 0, " +
+                        "last_accrued INTEGER, " +
+                        "version INTEGER NOT NULL DEFAULT 1, " +
+                        "last_active INTEGER) WITHOUT ROWID");
+        stmt.executeUpdate(ACTIVITY_INDEX_SQL);
+        stmt.executeUpdate(ARCHIVE_BALANCE_INDEX_SQL);
+    }
+
+    /**
+     * Drops the secondary indexes, so a large import doesn't update them row by row.
+     * Must only be used on the database thread.
+     *
+     * @throws SQLException If an index could not be dropped.
+     */
+    public void dropIndexes() throws SQLException {
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            stmt.executeUpdate("DROP INDEX IF EXISTS idx_player_balances_balance");
+            stmt.executeUpdate("DROP INDEX IF EXISTS idx_bank_ledger_history");
+            stmt.executeUpdate("DROP INDEX IF EXISTS idx_player_balances_active");
+            stmt.executeUpdate("DROP INDEX IF EXISTS idx_player_balances_archive_balance");
+        }
+    }
+
+    /**
+     * Builds the secondary indexes that are missing, such as after {@link #dropIndexes()}.
+     * Must only be used on the database thread.
+     *
+     * @throws SQLException If an index could not be built.
+     */
+    public void createIndexes() throws SQLException {
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            stmt.executeUpdate(BALANCE_INDEX_SQL);
+            stmt.executeUpdate(HISTORY_INDEX_SQL);
+            stmt.executeUpdate(ACTIVITY_INDEX_SQL);
+            stmt.executeUpdate(ARCHIVE_BALANCE_INDEX_SQL);
+        }
+    }
+
+    /**
+     * Switches the database to incremental auto-vacuum, so {@link #incrementalVacuum(long)} can hand
+     * free pages back to the file system. A new database is switched before its tables exist, which
+     * is instant. An existing one has to be rebuilt with a full VACUUM, which rewrites the whole
+     * file and holds the writer until it is done, so it is only converted when asked to; otherwise
+     * the cost of converting it is logged. Must only be used on the database thread.
+     *
+     * @param logger          The logger to report the conversion to.
+     * @param convertExisting {@code true} to rebuild an existing database that doesn't use incremental vacuum yet.
+     * @throws SQLException If the database could not be switched.
+     */
+    public void enableIncrementalVacuum(Logger logger, boolean convertExisting) throws SQLException {
+        if (file == null) {
+            return;
+        }
+
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            if (pragma(stmt, "auto_vacuum") == AUTO_VACUUM_INCREMENTAL) {
+                return;
+            }
+            if (pragma(stmt, "page_count") <= 1) {
+                // Opening in WAL mode already wrote the header page, so even an empty file needs a
+                // VACUUM to take the new mode, which is instant while it holds no tables
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("VACUUM");
+                return;
+            }
+
+            long megabytes = (pragma(stmt, "page_count") * pragma(stmt, "page_size")) >> 20;
+            if (!convertExisting) {
+                logger.info(file.getName() + " doesn't use incremental vacuum, so maintenance can't return its free "
+                        + "space to the disk. Set maintenance.convert-database to true to convert it at the next "
+                        + "start; that rebuilds the whole file (" + megabytes + " MB) once, needs as much free disk "
+                        + "space, and the bank stays unavailable until it is done.");
+                return;
+            }
+
+            logger.warning("Converting " + file.getName() + " (" + megabytes + " MB) for incremental vacuum. This "
+                    + "rebuilds the whole file, and the bank stays unavailable until it is done.");
+            long start = System.nanoTime();
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("VACUUM");
+            logger.info("Converted " + file.getName() + " for incremental vacuum in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms. You can set "
+                    + "maintenance.convert-database back to false.");
+        }
+    }
+
+    /**
+     * Hands free pages back to the file system, a few at a time, until none are left or the time
+     * is up. Must only be used on the database thread.
+     *
+     * @param budgetMillis Roughly how long to keep going.
+     * @return {@code true} if free pages are left.
+     * @throws SQLException If the pages could not be freed.
+     */
+    public boolean incrementalVacuum(long budgetMillis) throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            if (pragma(stmt, "auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+                return false;
+            }
+
+            long free = pragma(stmt, "freelist_count");
+            while (free > 0 && System.nanoTime() < deadline) {
+                // The pragma frees one page per result row, so all rows have to be read
+                try (ResultSet rs = stmt.executeQuery("PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES + ")")) {
+                    while (rs.next()) {
+                        // Keep stepping
+                    }
+                }
+                free = pragma(stmt, "freelist_count");
+            }
+            return free > 0;
+        }
+    }
+
+    /**
+     * Refreshes the statistics queries are planned with, for the tables whose contents changed
+     * enough to need it. Must only be used on the database thread.
+     *
+     * @throws SQLException If the statistics could not be refreshed.
+     */
+    public void optimize() throws SQLException {
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            stmt.execute("PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+            stmt.execute("PRAGMA optimize");
+        }
+    }
+
+    /**
+     * Copies committed changes from the write-ahead log into the database file, without waiting
+     * for readers that still use older pages. Must only be used on the database thread.
+     *
+     * @throws SQLException If the checkpoint failed.
+     */
+    public void checkpoint() throws SQLException {
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(PASSIVE)")) {
+                while (rs.next()) {
+                    // The result only reports how far the checkpoint got
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures the database file, its free pages and its write-ahead log.
+     * Must only be used on the database thread.
+     *
+     * @return The database size.
+     * @throws SQLException If the size could not be read.
+     */
+    public BankStorage.StorageSize measure() throws SQLException {
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            long pageSize = pragma(stmt, "page_size");
+            long databaseBytes = pragma(stmt, "page_count") * pageSize;
+            long freeBytes = pragma(stmt, "freelist_count") * pageSize;
+            long journalBytes = file != null ? new File(file.getPath() + "-wal").length() : 0;
+            return new BankStorage.StorageSize(databaseBytes + journalBytes, freeBytes, journalBytes);
+        }
+    }
+
+    /**
+     * Gets the writer connection. Must only be used on the database thread.
+     *
+     * @return The writer connection and its statement cache.
+     */
+    public StatementCache writer() {
+        return writer;
+    }
+
+    /**
+     * Gets the number of pooled read-only connections.
+     *
+     * @return The read connection count.
+     */
+    public int getReadConnections() {
+        return readConnections;
+    }
+
+    /**
+     * Borrows a read-only connection, waiting if all of them are in use.
+     * The connection must be handed back with {@link #release(StatementCache)}.
+     *
+     * @return A read-only connection and its statement cache.
+     * @throws SQLException If the thread was interrupted while waiting.
+     */
+    public StatementCache borrowReader() throws SQLException {
+        try {
+            return readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+    }
+
+    /**
+     * Returns a borrowed read-only connection to the pool.
+     *
+     * @param reader The connection to return.
+     */
+    public void release(StatementCache reader) {
+        readers.offer(reader);
+    }
+
+    /**
+     * Gets the database file.
+     *
+     * @return The database file, or {@code null} for an in-memory database.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Closes all connections.
+     *
+     * @throws SQLException If the writer connection could not be closed.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (readers != null) {
+            StatementCache reader;
+            while ((reader = readers.poll()) != null) {
+                try {
+                    reader.close();
+                } catch (SQLException ignored) {
+                    // Read connections hold no unsaved state
+                }
+            }
+        }
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private Connection connect(boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+                if (file == null) {
+                    // Shared-cache readers would otherwise fail instead of waiting while the writer holds a lock
+                    stmt.execute("PRAGMA read_uncommitted = ON");
+                }
+            } else {
+                // WAL mode is stored in the database file, so setting it once on the writer is enough
+                stmt.execute("PRAGMA journal_mode = WAL");
+                stmt.execute("PRAGMA synchronous = NORMAL");
+                stmt.execute("PRAGMA journal_size_limit = " + JOURNAL_SIZE_LIMIT);
+            }
+        }
+
+        return connection;
+    }
+
+    private static long pragma(Statement stmt, String name) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,852 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import io.github.CodeerStudio.simpleBanking.cache.BulkChange;
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionHistory;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Bank storage in an SQLite database.
+ *
+ * Accounts live in the player_balances table and the ledger in bank_ledger, with the replay
+ * checkpoint in bank_meta. Writes run on the {@link SQLiteDatabase} writer connection, each call in
+ * its own transaction, and reads borrow one of its read-only connections. Bulk changes are applied
+ * with a few set-based statements against a temporary table of the target UUIDs. Every statement that
+ * changes an account raises its version column.
+ *
+ * Accounts that haven't been used for a long time are moved to the player_balances_archive table, so
+ * the main table and its indexes only hold the active ones. An account is always in exactly one of
+ * the two tables. Reads cover both tables in a single statement, so they see every account exactly
+ * once even while accounts are moved, and every write first moves the accounts it touches back to
+ * the main table.
+ */
+public class SQLiteStorage implements BankStorage {
+
+    private static final String CHECKPOINT_KEY = "ledger_checkpoint";
+
+    private static final String ACCOUNT_COLUMNS = "uuid, balance, last_accrued, version, last_active";
+
+    private static final String INSERT_LEDGER_SQL =
+            "INSERT INTO bank_ledger (uuid, amount, type, actor, created_at, balance_after) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final SQLiteDatabase database;
+    private final boolean convertVacuum;
+
+    /**
+     * Constructs a new SQLiteStorage. Nothing is opened until {@link #open(Logger)} is called.
+     *
+     * @param database The database to store accounts in.
+     */
+    public SQLiteStorage(SQLiteDatabase database) {
+        this(database, false);
+    }
+
+    /**
+     * Constructs a new SQLiteStorage. Nothing is opened until {@link #open(Logger)} is called.
+     *
+     * @param database      The database to store accounts in.
+     * @param convertVacuum {@code true} to rebuild an existing database for incremental vacuum when
+     *                      it is opened, see {@link SQLiteDatabase#enableIncrementalVacuum}.
+     */
+    public SQLiteStorage(SQLiteDatabase database, boolean convertVacuum) {
+        this.database = database;
+        this.convertVacuum = convertVacuum;
+    }
+
+    @Override
+    public void open(Logger logger) throws SQLException {
+        database.open();
+        database.enableIncrementalVacuum(logger, convertVacuum);
+        database.createSchema(logger);
+
+        // Rebuild indexes an interrupted import left dropped
+        database.createIndexes();
+    }
+
+    @Override
+    public int getReadThreads() {
+        return database.getReadConnections();
+    }
+
+    /**
+     * Gets the underlying database.
+     *
+     * @return The database.
+     */
+    public SQLiteDatabase getDatabase() {
+        return database;
+    }
+
+    @Override
+    public AccountRecord loadAccount(UUID uuid) throws SQLException {
+        return read(reader -> {
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT balance, last_accrued, version FROM player_balances WHERE uuid = ? " +
+                            "UNION ALL SELECT balance, last_accrued, version FROM player_balances_archive WHERE uuid = ?");
+            stmt.setString(1, uuid.toString());
+            stmt.setString(2, uuid.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? account(uuid, rs, 1) : null;
+            }
+        });
+    }
+
+    @Override
+    public int countAccounts() throws SQLException {
+        return read(reader -> {
+            try (ResultSet rs = reader.prepare(
+                    "SELECT (SELECT COUNT(*) FROM player_balances) + (SELECT COUNT(*) FROM player_balances_archive)")
+                    .executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    @Override
+    public List<UUID> listAccounts(UUID after, int limit) throws SQLException {
+        return read(reader -> {
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT uuid FROM player_balances WHERE uuid > ? " +
+                            "UNION ALL SELECT uuid FROM player_balances_archive WHERE uuid > ? ORDER BY uuid LIMIT ?");
+            stmt.setString(1, after != null ? after.toString() : "");
+            stmt.setString(2, after != null ? after.toString() : "");
+            stmt.setInt(3, limit);
+
+            List<UUID> uuids = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    uuids.add(UUID.fromString(rs.getString(1)));
+                }
+            }
+            return uuids;
+        });
+    }
+
+    @Override
+    public List<AccountRecord> readAccounts(UUID after, int limit) throws SQLException {
+        return read(reader -> {
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT uuid, balance, last_accrued, version FROM player_balances WHERE uuid > ? " +
+                            "UNION ALL SELECT uuid, balance, last_accrued, version FROM player_balances_archive " +
+                            "WHERE uuid > ? ORDER BY uuid LIMIT ?");
+            stmt.setString(1, after != null ? after.toString() : "");
+            stmt.setString(2, after != null ? after.toString() : "");
+            stmt.setInt(3, limit);
+
+            List<AccountRecord> accounts = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(account(UUID.fromString(rs.getString(1)), rs, 2));
+                }
+            }
+            return accounts;
+        });
+    }
+
+    @Override
+    public List<LedgerRow> readLedger(long afterId, int limit) throws SQLException {
+        return read(reader -> {
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT id, uuid, amount, type, actor, created_at, balance_after FROM bank_ledger " +
+                            "WHERE id > ? ORDER BY id LIMIT ?");
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+
+            List<LedgerRow> rows = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new LedgerRow(rs.getLong(1), new LedgerEntry(UUID.fromString(rs.getString(2)),
+                            rs.getLong(3), TransactionType.valueOf(rs.getString(4)), rs.getString(5),
+                            rs.getLong(6), rs.getLong(7))));
+                }
+            }
+            return rows;
+        });
+    }
+
+    @Override
+    public List<AccountRecord> richestAccounts(int limit) throws SQLException {
+        return read(reader -> {
+            // Both tables are indexed by balance, so each side only reads its own richest accounts
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT * FROM (SELECT uuid, balance, last_accrued, version FROM player_balances " +
+                            "ORDER BY balance DESC LIMIT ?) " +
+                            "UNION ALL SELECT * FROM (SELECT uuid, balance, last_accrued, version " +
+                            "FROM player_balances_archive ORDER BY balance DESC LIMIT ?) " +
+                            "ORDER BY balance DESC LIMIT ?");
+            stmt.setInt(1, limit);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, limit);
+
+            List<AccountRecord> accounts = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(account(UUID.fromString(rs.getString(1)), rs, 2));
+                }
+            }
+            return accounts;
+        });
+    }
+
+    @Override
+    public long countRicherThan(long balance) throws SQLException {
+        return read(reader -> {
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT (SELECT COUNT(*) FROM player_balances WHERE balance > ?) + " +
+                            "(SELECT COUNT(*) FROM player_balances_archive WHERE balance > ?)");
+            stmt.setLong(1, balance);
+            stmt.setLong(2, balance);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        });
+    }
+
+    @Override
+    public List<TransactionHistory.Entry> history(UUID uuid, TransactionHistory.Cursor after, int limit)
+            throws SQLException {
+        return read(reader -> {
+            PreparedStatement stmt = reader.prepare(
+                    "SELECT id, created_at, amount, type, balance_after FROM bank_ledger " +
+                            "WHERE uuid = ? AND (created_at, id) < (?, ?) " +
+                            "ORDER BY created_at DESC, id DESC LIMIT ?");
+            stmt.setString(1, uuid.toString());
+            stmt.setLong(2, after != null ? after.createdAt() : Long.MAX_VALUE);
+            stmt.setLong(3, after != null ? after.id() : Long.MAX_VALUE);
+            stmt.setInt(4, limit);
+
+            List<TransactionHistory.Entry> entries = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new TransactionHistory.Entry(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                            TransactionType.valueOf(rs.getString(4)), rs.getLong(5)));
+                }
+            }
+            return entries;
+        });
+    }
+
+    @Override
+    public long getLastLedgerId() throws SQLException {
+        try (ResultSet rs = database.writer().prepare("SELECT COALESCE(MAX(id), 0) FROM bank_ledger").executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public void saveAccounts(List<AccountRecord> accounts, long checkpoint) throws SQLException {
+        transaction(writer -> {
+            PreparedStatement stmt = writer.prepare(
+                    "INSERT INTO player_balances (uuid, balance, last_accrued) VALUES (?, ?, ?) " +
+                            "ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance, " +
+                            "last_accrued = COALESCE(excluded.last_accrued, last_accrued), version = version + 1");
+            stmt.clearBatch(); // Discard anything left over from a failed save
+
+            boolean archived = hasArchived(writer);
+            for (AccountRecord account : accounts) {
+                if (archived) {
+                    restore(writer, account.uuid());
+                }
+                stmt.setString(1, account.uuid().toString());
+                stmt.setLong(2, account.balance());
+                if (account.lastAccrued() == null) {
+                    stmt.setNull(3, Types.INTEGER);
+                } else {
+                    stmt.setLong(3, account.lastAccrued());
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            saveCheckpoint(writer, checkpoint);
+            return null;
+        });
+    }
+
+    @Override
+    public long appendLedger(List<LedgerEntry> entries) throws SQLException {
+        return transaction(writer -> {
+            PreparedStatement stmt = writer.prepare(INSERT_LEDGER_SQL);
+            stmt.clearBatch(); // Discard anything left over from a failed append
+
+            for (LedgerEntry entry : entries) {
+                bind(stmt, entry);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            try (ResultSet rs = writer.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        });
+    }
+
+    @Override
+    public Map<UUID, AccountRecord> updateAccounts(List<UUID> uuids, TransactionType type, String actor,
+                                                   AccountUpdate update) throws SQLException {
+        return transaction(writer -> {
+            PreparedStatement select = writer.prepare(
+                    "SELECT balance, last_accrued, version FROM player_balances WHERE uuid = ?");
+            PreparedStatement upsert = writer.prepare(
+                    "INSERT INTO player_balances (uuid, balance, last_accrued, version) VALUES (?, ?, ?, ?) " +
+                            "ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance, " +
+                            "last_accrued = excluded.last_accrued, version = excluded.version");
+            PreparedStatement ledger = writer.prepare(INSERT_LEDGER_SQL);
+
+            boolean archived = hasArchived(writer);
+            Map<UUID, AccountRecord> updated = new HashMap<>();
+            for (UUID uuid : uuids) {
+                if (archived) {
+                    restore(writer, uuid);
+                }
+
+                // Read and written in one transaction by this server's only writer; servers sharing
+                // the database change accounts with compareAndSet or withdraw instead
+                AccountRecord current;
+                select.setString(1, uuid.toString());
+                try (ResultSet rs = select.executeQuery()) {
+                    current = rs.next() ? account(uuid, rs, 1) : null;
+                }
+
+                AccountRecord next = update.apply(uuid, current);
+                if (next == null) {
+                    continue;
+                }
+                next = new AccountRecord(uuid, next.balance(), next.lastAccrued(),
+                        current != null ? current.version() + 1 : 1);
+
+                upsert.setString(1, uuid.toString());
+                upsert.setLong(2, next.balance());
+                if (next.lastAccrued() == null) {
+                    upsert.setNull(3, Types.INTEGER);
+                } else {
+                    upsert.setLong(3, next.lastAccrued());
+                }
+                upsert.setLong(4, next.version());
+                upsert.executeUpdate();
+
+                long before = current != null ? current.balance() : 0;
+                if (next.balance() != before) {
+                    bind(ledger, new LedgerEntry(uuid, next.balance() - before, type, actor,
+                            System.currentTimeMillis(), next.balance()));
+                    ledger.executeUpdate();
+                }
+                updated.put(uuid, next);
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public AccountRecord withdraw(UUID uuid, long amount, TransactionType type, String actor) throws SQLException {
+        return transaction(writer -> {
+            if (hasArchived(writer)) {
+                restore(writer, uuid);
+            }
+
+            // Check and deduct in one statement, so no other writer can get in between
+            PreparedStatement stmt = writer.prepare(
+                    "UPDATE player_balances SET balance = balance - ?, version = version + 1 " +
+                            "WHERE uuid = ? AND balance >= ? RETURNING balance, last_accrued, version");
+            stmt.setLong(1, amount);
+            stmt.setString(2, uuid.toString());
+            stmt.setLong(3, amount);
+            AccountRecord account;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                account = account(uuid, rs, 1);
+            }
+
+            PreparedStatement ledger = writer.prepare(INSERT_LEDGER_SQL);
+            bind(ledger, new LedgerEntry(uuid, -amount, type, actor, System.currentTimeMillis(), account.balance()));
+            ledger.executeUpdate();
+            return account;
+        });
+    }
+
+    @Override
+    public long compareAndSet(UUID uuid, long expectedVersion, long balance, long amount, TransactionType type,
+                              String actor) throws SQLException {
+        return transaction(writer -> {
+            if (hasArchived(writer)) {
+                restore(writer, uuid);
+            }
+
+            PreparedStatement stmt;
+            if (expectedVersion == 0) {
+                stmt = writer.prepare(
+                        "INSERT INTO player_balances (uuid, balance, version) VALUES (?, ?, 1) " +
+                                "ON CONFLICT(uuid) DO NOTHING");
+                stmt.setString(1, uuid.toString());
+                stmt.setLong(2, balance);
+            } else {
+                stmt = writer.prepare(
+                        "UPDATE player_balances SET balance = ?, version = version + 1 WHERE uuid = ? AND version = ?");
+                stmt.setLong(1, balance);
+                stmt.setString(2, uuid.toString());
+                stmt.setLong(3, expectedVersion);
+            }
+            if (stmt.executeUpdate() == 0) {
+                return 0L; // Changed meanwhile, or created by someone else
+            }
+
+            if (amount != 0) {
+                PreparedStatement ledger = writer.prepare(INSERT_LEDGER_SQL);
+                bind(ledger, new LedgerEntry(uuid, amount, type, actor, System.currentTimeMillis(), balance));
+                ledger.executeUpdate();
+            }
+            return expectedVersion + 1;
+        });
+    }
+
+    @Override
+    public TransferResult transfer(List<Transfer> transfers) throws SQLException {
+        return transaction(writer -> {
+            PreparedStatement select = writer.prepare(
+                    "SELECT balance, last_accrued, version FROM player_balances WHERE uuid = ?");
+            PreparedStatement ledger = writer.prepare(INSERT_LEDGER_SQL);
+            boolean archived = hasArchived(writer);
+
+            // Accounts are read once and then followed in memory, so each is only stored once
+            Map<UUID, AccountRecord> current = new HashMap<>();
+            Map<UUID, AccountRecord> changed = new HashMap<>();
+            TransferOutcome[] outcomes = new TransferOutcome[transfers.size()];
+            long now = System.currentTimeMillis();
+
+            for (int i = 0; i < transfers.size(); i++) {
+                Transfer transfer = transfers.get(i);
+                AccountRecord from = stored(writer, select, current, archived, transfer.from());
+                if (from == null || from.balance() < transfer.amount()) {
+                    outcomes[i] = TransferOutcome.INSUFFICIENT;
+                    continue;
+                }
+                AccountRecord to = stored(writer, select, current, archived, transfer.to());
+                long received = (to != null ? to.balance() : 0) + transfer.amount();
+                if (received < 0) {
+                    outcomes[i] = TransferOutcome.OVERFLOW;
+                    continue;
+                }
+
+                AccountRecord debited = new AccountRecord(from.uuid(), from.balance() - transfer.amount(),
+                        from.lastAccrued(), from.version() + 1);
+                AccountRecord credited = new AccountRecord(transfer.to(), received,
+                        to != null ? to.lastAccrued() : null, to != null ? to.version() + 1 : 1);
+                current.put(debited.uuid(), debited);
+                current.put(credited.uuid(), credited);
+                changed.put(debited.uuid(), debited);
+                changed.put(credited.uuid(), credited);
+
+                bind(ledger, new LedgerEntry(debited.uuid(), -transfer.amount(), TransactionType.TRANSFER_OUT,
+                        transfer.actor(), now, debited.balance()));
+                ledger.executeUpdate();
+                bind(ledger, new LedgerEntry(credited.uuid(), transfer.amount(), TransactionType.TRANSFER_IN,
+                        transfer.actor(), now, credited.balance()));
+                ledger.executeUpdate();
+                outcomes[i] = TransferOutcome.MADE;
+            }
+
+            PreparedStatement upsert = writer.prepare(
+                    "INSERT INTO player_balances (uuid, balance, last_accrued, version) VALUES (?, ?, ?, ?) " +
+                            "ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance, " +
+                            "last_accrued = excluded.last_accrued, version = excluded.version");
+            for (AccountRecord account : changed.values()) {
+                upsert.setString(1, account.uuid().toString());
+                upsert.setLong(2, account.balance());
+                if (account.lastAccrued() == null) {
+                    upsert.setNull(3, Types.INTEGER);
+                } else {
+                    upsert.setLong(3, account.lastAccrued());
+                }
+                upsert.setLong(4, account.version());
+                upsert.executeUpdate();
+            }
+            return new TransferResult(outcomes, changed);
+        });
+    }
+
+    @Override
+    public Map<UUID, Long> applyBulk(BulkChange change, List<UUID> uuids) throws SQLException {
+        return transaction(writer -> {
+            writer.prepare("CREATE TEMP TABLE IF NOT EXISTS bulk_targets (uuid TEXT PRIMARY KEY)").executeUpdate();
+            writer.prepare("DELETE FROM bulk_targets").executeUpdate();
+
+            PreparedStatement insert = writer.prepare("INSERT OR IGNORE INTO bulk_targets (uuid) VALUES (?)");
+            insert.clearBatch();
+            for (UUID uuid : uuids) {
+                insert.setString(1, uuid.toString());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+
+            if (hasArchived(writer)) {
+                restoreAll(writer, "SELECT uuid FROM bulk_targets");
+            }
+
+            if (change.kind() == BulkChange.Kind.TAKE) {
+                // Drop accounts that don't exist or can't afford it
+                PreparedStatement drop = writer.prepare(
+                        "DELETE FROM bulk_targets WHERE NOT EXISTS (" +
+                                "SELECT 1 FROM player_balances p WHERE p.uuid = bulk_targets.uuid AND p.balance >= ?)");
+                drop.setLong(1, change.amount());
+                drop.executeUpdate();
+            } else {
+                writer.prepare(
+                        "INSERT INTO player_balances (uuid, balance) SELECT uuid, 0 FROM bulk_targets WHERE true " +
+                                "ON CONFLICT(uuid) DO NOTHING").executeUpdate();
+            }
+
+            long now = System.currentTimeMillis();
+            String type = change.kind().getType().name();
+
+            if (change.kind() == BulkChange.Kind.SET) {
+                // The ledger needs the previous balances, so record the entries before the update
+                PreparedStatement entries = writer.prepare(
+                        "INSERT INTO bank_ledger (uuid, amount, type, actor, created_at, balance_after) " +
+                                "SELECT uuid, ? - balance, ?, ?, ?, ? FROM player_balances " +
+                                "WHERE uuid IN (SELECT uuid FROM bulk_targets)");
+                entries.setLong(1, change.amount());
+                entries.setString(2, type);
+                entries.setString(3, change.actor());
+                entries.setLong(4, now);
+                entries.setLong(5, change.amount());
+                entries.executeUpdate();
+
+                PreparedStatement update = writer.prepare(
+                        "UPDATE player_balances SET balance = ?, version = version + 1 " +
+                                "WHERE uuid IN (SELECT uuid FROM bulk_targets)");
+                update.setLong(1, change.amount());
+                update.executeUpdate();
+            } else {
+                long delta = change.kind() == BulkChange.Kind.GIVE ? change.amount() : -change.amount();
+                PreparedStatement update = writer.prepare(
+                        "UPDATE player_balances SET balance = balance + ?, version = version + 1 " +
+                                "WHERE uuid IN (SELECT uuid FROM bulk_targets)");
+                update.setLong(1, delta);
+                update.executeUpdate();
+
+                PreparedStatement entries = writer.prepare(
+                        "INSERT INTO bank_ledger (uuid, amount, type, actor, created_at, balance_after) " +
+                                "SELECT uuid, ?, ?, ?, ?, balance FROM player_balances " +
+                                "WHERE uuid IN (SELECT uuid FROM bulk_targets)");
+                entries.setLong(1, delta);
+                entries.setString(2, type);
+                entries.setString(3, change.actor());
+                entries.setLong(4, now);
+                entries.executeUpdate();
+            }
+
+            // Every account left in the target table was changed
+            Map<UUID, Long> balances = new HashMap<>();
+            PreparedStatement select = writer.prepare(
+                    "SELECT uuid, balance FROM player_balances WHERE uuid IN (SELECT uuid FROM bulk_targets)");
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(UUID.fromString(rs.getString(1)), rs.getLong(2));
+                }
+            }
+            return balances;
+        });
+    }
+
+    @Override
+    public long recover(Logger logger) throws SQLException {
+        StatementCache writer = database.writer();
+
+        long checkpoint = 0;
+        PreparedStatement select = writer.prepare("SELECT value FROM bank_meta WHERE key = ?");
+        select.setString(1, CHECKPOINT_KEY);
+        try (ResultSet rs = select.executeQuery()) {
+            if (rs.next()) {
+                checkpoint = rs.getLong(1);
+            }
+        }
+
+        long lastId = getLastLedgerId();
+        if (lastId <= checkpoint) {
+            return lastId;
+        }
+
+        long from = checkpoint;
+        int recovered = transaction(tx -> {
+            if (hasArchived(tx)) {
+                restoreAll(tx, "SELECT uuid FROM bank_ledger WHERE id > " + from);
+            }
+
+            // Each account takes the balance recorded by its newest entry past the checkpoint
+            PreparedStatement replay = tx.prepare(
+                    "INSERT INTO player_balances (uuid, balance) " +
+                            "SELECT uuid, balance_after FROM bank_ledger WHERE id IN (" +
+                            "SELECT MAX(id) FROM bank_ledger WHERE id > ? GROUP BY uuid) " +
+                            "ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance, version = version + 1");
+            replay.setLong(1, from);
+            int restored = replay.executeUpdate();
+
+            // Restore the interest periods those entries credited, so they aren't credited twice
+            String prefix = TransactionLedger.INTEREST_ACTOR_PREFIX;
+            PreparedStatement periods = tx.prepare(
+                    "UPDATE player_balances SET last_accrued = MAX(COALESCE(last_accrued, 0), (" +
+                            "SELECT MAX(CAST(SUBSTR(actor, " + (prefix.length() + 1) + ") AS INTEGER)) " +
+                            "FROM bank_ledger l WHERE l.uuid = player_balances.uuid AND l.id > ? AND l.type = ?)) " +
+                            "WHERE uuid IN (SELECT uuid FROM bank_ledger WHERE id > ? AND type = ?)");
+            periods.setLong(1, from);
+            periods.setString(2, TransactionType.INTEREST.name());
+            periods.setLong(3, from);
+            periods.setString(4, TransactionType.INTEREST.name());
+            periods.executeUpdate();
+
+            saveCheckpoint(tx, lastId);
+            return restored;
+        });
+
+        logger.info("Replayed " + (lastId - checkpoint) + " ledger entries, restoring " + recovered + " bank balances.");
+        return lastId;
+    }
+
+    @Override
+    public void beginImport() throws SQLException {
+        database.dropIndexes();
+    }
+
+    @Override
+    public void finishImport() throws SQLException {
+        database.createIndexes();
+    }
+
+    @Override
+    public void markActive(Collection<UUID> uuids, long now) throws SQLException {
+        transaction(writer -> {
+            boolean archived = hasArchived(writer);
+            PreparedStatement stmt = writer.prepare("UPDATE player_balances SET last_active = ? WHERE uuid = ?");
+            stmt.clearBatch();
+            for (UUID uuid : uuids) {
+                if (archived) {
+                    restore(writer, uuid);
+                }
+                stmt.setLong(1, now);
+                stmt.setString(2, uuid.toString());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            return null;
+        });
+    }
+
+    @Override
+    public ArchiveResult archiveDormant(long activeBefore, long now, int limit, Predicate<UUID> inUse)
+            throws SQLException {
+        return transaction(writer -> {
+            // Start the clock for accounts created since the last run
+            PreparedStatement start = writer.prepare(
+                    "UPDATE player_balances SET last_active = ? WHERE last_active IS NULL");
+            start.setLong(1, now);
+            start.executeUpdate();
+
+            PreparedStatement select = writer.prepare(
+                    "SELECT uuid FROM player_balances WHERE last_active < ? ORDER BY last_active LIMIT ?");
+            select.setLong(1, activeBefore);
+            select.setInt(2, limit);
+            List<UUID> dormant = new ArrayList<>();
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    dormant.add(UUID.fromString(rs.getString(1)));
+                }
+            }
+
+            PreparedStatement keep = writer.prepare("UPDATE player_balances SET last_active = ? WHERE uuid = ?");
+            PreparedStatement copy = writer.prepare(
+                    "INSERT INTO player_balances_archive (" + ACCOUNT_COLUMNS + ") " +
+                            "SELECT " + ACCOUNT_COLUMNS + " FROM player_balances WHERE uuid = ?");
+            PreparedStatement delete = writer.prepare("DELETE FROM player_balances WHERE uuid = ?");
+            int archived = 0;
+            for (UUID uuid : dormant) {
+                if (inUse.test(uuid)) {
+                    keep.setLong(1, now);
+                    keep.setString(2, uuid.toString());
+                    keep.executeUpdate();
+                    continue;
+                }
+                copy.setString(1, uuid.toString());
+                copy.executeUpdate();
+                delete.setString(1, uuid.toString());
+                delete.executeUpdate();
+                archived++;
+            }
+            return new ArchiveResult(dormant.size(), archived);
+        });
+    }
+
+    @Override
+    public int countArchivedAccounts() throws SQLException {
+        return read(reader -> {
+            try (ResultSet rs = reader.prepare("SELECT COUNT(*) FROM player_balances_archive").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean maintain(MaintenanceTask task, long budgetMillis) throws SQLException {
+        return switch (task) {
+            case VACUUM -> database.incrementalVacuum(budgetMillis);
+            case OPTIMIZE -> {
+                database.optimize();
+                yield false;
+            }
+            case CHECKPOINT -> {
+                database.checkpoint();
+                yield false;
+            }
+        };
+    }
+
+    @Override
+    public StorageSize measure() throws SQLException {
+        return database.measure();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        database.close();
+    }
+
+    private void saveCheckpoint(StatementCache writer, long checkpoint) throws SQLException {
+        PreparedStatement stmt = writer.prepare(
+                "INSERT INTO bank_meta (key, value) VALUES (?, ?) " +
+                        "ON CONFLICT(key) DO UPDATE SET value = MAX(value, excluded.value)");
+        stmt.setString(1, CHECKPOINT_KEY);
+        stmt.setLong(2, checkpoint);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Reads an account inside {@link #transfer}, from the accounts already read if it was.
+     */
+    private static AccountRecord stored(StatementCache writer, PreparedStatement select,
+                                        Map<UUID, AccountRecord> current, boolean archived, UUID uuid)
+            throws SQLException {
+        if (current.containsKey(uuid)) {
+            return current.get(uuid);
+        }
+        if (archived) {
+            restore(writer, uuid);
+        }
+
+        AccountRecord account;
+        select.setString(1, uuid.toString());
+        try (ResultSet rs = select.executeQuery()) {
+            account = rs.next() ? account(uuid, rs, 1) : null;
+        }
+        current.put(uuid, account);
+        return account;
+    }
+
+    /**
+     * Checks whether any account is archived, so writes can skip looking in the archive while it is empty.
+     */
+    private static boolean hasArchived(StatementCache writer) throws SQLException {
+        try (ResultSet rs = writer.prepare("SELECT EXISTS (SELECT 1 FROM player_balances_archive)").executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Moves an account back from the archive to the main table, if it is archived.
+     */
+    private static void restore(StatementCache writer, UUID uuid) throws SQLException {
+        PreparedStatement copy = writer.prepare(
+                "INSERT INTO player_balances (" + ACCOUNT_COLUMNS + ") " +
+                        "SELECT " + ACCOUNT_COLUMNS + " FROM player_balances_archive WHERE uuid = ?");
+        copy.setString(1, uuid.toString());
+        if (copy.executeUpdate() > 0) {
+            PreparedStatement delete = writer.prepare("DELETE FROM player_balances_archive WHERE uuid = ?");
+            delete.setString(1, uuid.toString());
+            delete.executeUpdate();
+        }
+    }
+
+    /**
+     * Moves the archived accounts among the UUIDs a query selects back to the main table.
+     */
+    private static void restoreAll(StatementCache writer, String uuidQuery) throws SQLException {
+        writer.prepare("INSERT INTO player_balances (" + ACCOUNT_COLUMNS + ") " +
+                "SELECT " + ACCOUNT_COLUMNS + " FROM player_balances_archive WHERE uuid IN (" + uuidQuery + ")")
+                .executeUpdate();
+        writer.prepare("DELETE FROM player_balances_archive WHERE uuid IN (" + uuidQuery + ")").executeUpdate();
+    }
+
+    /**
+     * Reads an account from the balance, interest period and version columns starting at {@code column}.
+     */
+    private static AccountRecord account(UUID uuid, ResultSet rs, int column) throws SQLException {
+        long balance = rs.getLong(column);
+        long lastAccrued = rs.getLong(column + 1);
+        Long period = rs.wasNull() ? null : lastAccrued;
+        return new AccountRecord(uuid, balance, period, rs.getLong(column + 2));
+    }
+
+    private static void bind(PreparedStatement stmt, LedgerEntry entry) throws SQLException {
+        stmt.setString(1, entry.uuid().toString());
+        stmt.setLong(2, entry.amount());
+        stmt.setString(3, entry.type().name());
+        stmt.setString(4, entry.actor());
+        stmt.setLong(5, entry.timestamp());
+        stmt.setLong(6, entry.balanceAfter());
+    }
+
+    /**
+     * Runs a query on a borrowed read-only connection.
+     */
+    private <T> T read(Work<T> work) throws SQLException {
+        StatementCache reader = database.borrowReader();
+        try {
+            return work.run(reader);
+        } finally {
+            database.release(reader);
+        }
+    }
+
+    /**
+     * Runs work in a transaction on the writer connection, rolling it back if anything throws.
+     */
+    private <T> T transaction(Work<T> work) throws SQLException {
+        StatementCache writer = database.writer();
+        Connection connection = writer.getConnection();
+        connection.setAutoCommit(false);
+        try {
+            T result = work.run(writer);
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Work<T> {
+        T run(StatementCache connection) throws SQLException;
+    }
+}
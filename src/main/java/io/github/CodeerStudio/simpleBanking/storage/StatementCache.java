@@ -0,0 +1,71 @@
+package io.github.CodeerStudio.simpleBanking.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A database connection together with the prepared statements created on it.
+ * Statements are prepared once and reused for the lifetime of the connection, so SQL is
+ * only parsed the first time it is run. A StatementCache must only be used by one thread at a time.
+ */
+public class StatementCache implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    /**
+     * Constructs a new StatementCache around an open connection.
+     *
+     * @param connection The connection the statements are prepared on.
+     */
+    public StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the prepared statement for the given SQL, preparing it on first use.
+     * Callers must not close the returned statement, only the result sets it produces.
+     *
+     * @param sql The SQL of the statement.
+     * @return The long-lived prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    /**
+     * Gets the underlying connection, for transaction control.
+     *
+     * @return The connection.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Closes all cached statements and the connection.
+     *
+     * @throws SQLException If the connection could not be closed.
+     */
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+                // The connection is closed next, which releases the statement anyway
+            }
+        }
+        statements.clear();
+        connection.close();
+    }
+}
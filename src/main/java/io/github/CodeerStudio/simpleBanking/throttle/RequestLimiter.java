@@ -0,0 +1,123 @@
+package io.github.CodeerStudio.simpleBanking.throttle;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how often each player can make requests, with one token bucket per player UUID.
+ *
+ * A bucket holds up to {@code burst} tokens and refills at {@code permitsPerSecond}. Each request
+ * takes one token, and a request finding the bucket empty is rejected. A player can so make a short
+ * burst of requests at once, but no more than the refill rate over time. This class is thread-safe.
+ */
+public class RequestLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+    private final double permitsPerSecond;
+    private final double burst;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructs a new RequestLimiter.
+     *
+     * @param permitsPerSecond The number of requests each player can make per second on average,
+     *                         or 0 to allow every request.
+     * @param burst            The number of requests a player can make at once.
+     */
+    public RequestLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerSecond = Math.max(0, permitsPerSecond);
+        this.burst = Math.max(1, burst);
+    }
+
+    /**
+     * Takes a token for one request.
+     *
+     * @param uuid The UUID of the player making the request.
+     * @return Whether the request may go ahead.
+     */
+    public Result tryAcquire(UUID uuid) {
+        if (permitsPerSecond == 0) {
+            return Result.ALLOWED;
+        }
+
+        long now = System.nanoTime();
+        Bucket bucket = buckets.computeIfAbsent(uuid, key -> new Bucket(burst, now));
+        synchronized (bucket) {
+            bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilledAt) * permitsPerSecond / NANOS_PER_SECOND);
+            bucket.refilledAt = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens--;
+                bucket.rejecting = false;
+                return Result.ALLOWED;
+            }
+
+            rejected.increment();
+            if (bucket.rejecting) {
+                return Result.REJECTED_AGAIN;
+            }
+            bucket.rejecting = true;
+            return Result.REJECTED;
+        }
+    }
+
+    /**
+     * Drops the bucket of a player, for example once they leave.
+     *
+     * @param uuid The UUID of the player.
+     */
+    public void forget(UUID uuid) {
+        buckets.remove(uuid);
+    }
+
+    /**
+     * Gets the number of requests rejected so far.
+     *
+     * @return The rejection count.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * The outcome of {@link #tryAcquire}.
+     */
+    public enum Result {
+
+        /**
+         * The request may go ahead.
+         */
+        ALLOWED,
+
+        /**
+         * The request is over the limit, and is the first one since the last allowed request.
+         */
+        REJECTED,
+
+        /**
+         * The request is over the limit, like the one before it. The player was already told.
+         */
+        REJECTED_AGAIN
+    }
+
+    /**
+     * The tokens left to one player.
+     */
+    private static final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        // Whether the last request was rejected
+        private boolean rejecting;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
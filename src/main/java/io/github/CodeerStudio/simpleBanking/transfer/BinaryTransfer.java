@@ -0,0 +1,151 @@
+package io.github.CodeerStudio.simpleBanking.transfer;
+
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The binary export format: a gzip stream of tagged records after a short header. Transaction types
+ * are written by name, so a file stays readable when types are added. The file ends with an end tag,
+ * so a file cut short is detected instead of being imported in part.
+ */
+final class BinaryTransfer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // "SBEX"
+    private static final int MAGIC = 0x53424558;
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte ACCOUNT = 1;
+    private static final byte ENTRY = 2;
+
+    private BinaryTransfer() {
+    }
+
+    static final class Writer implements TransferWriter {
+
+        private final DataOutputStream out;
+
+        Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+
+        @Override
+        public void writeAccount(AccountRecord account) throws IOException {
+            out.writeByte(ACCOUNT);
+            writeUuid(account.uuid());
+            out.writeLong(account.balance());
+            out.writeBoolean(account.lastAccrued() != null);
+            if (account.lastAccrued() != null) {
+                out.writeLong(account.lastAccrued());
+            }
+        }
+
+        @Override
+        public void writeEntry(LedgerEntry entry) throws IOException {
+            out.writeByte(ENTRY);
+            writeUuid(entry.uuid());
+            out.writeLong(entry.amount());
+            out.writeUTF(entry.type().name());
+            out.writeBoolean(entry.actor() != null);
+            if (entry.actor() != null) {
+                out.writeUTF(entry.actor());
+            }
+            out.writeLong(entry.timestamp());
+            out.writeLong(entry.balanceAfter());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                out.writeByte(END);
+            }
+        }
+
+        private void writeUuid(UUID uuid) throws IOException {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    static final class Reader implements TransferReader {
+
+        private final DataInputStream in;
+        private boolean ended;
+
+        Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                if (this.in.readInt() != MAGIC) {
+                    throw new IOException("Not a SimpleBanking export");
+                }
+                int version = this.in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported export version " + version);
+                }
+            } catch (IOException e) {
+                this.in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(int limit, Visitor visitor) throws IOException {
+            int count = 0;
+            try {
+                while (count < limit && !ended) {
+                    byte tag = in.readByte();
+                    switch (tag) {
+                        case END -> ended = true;
+                        case ACCOUNT -> {
+                            UUID uuid = readUuid();
+                            long balance = in.readLong();
+                            Long lastAccrued = in.readBoolean() ? in.readLong() : null;
+                            visitor.account(new AccountRecord(uuid, balance, lastAccrued));
+                            count++;
+                        }
+                        case ENTRY -> {
+                            UUID uuid = readUuid();
+                            long amount = in.readLong();
+                            TransactionType type = TransactionType.valueOf(in.readUTF());
+                            String actor = in.readBoolean() ? in.readUTF() : null;
+                            visitor.entry(new LedgerEntry(uuid, amount, type, actor, in.readLong(), in.readLong()));
+                            count++;
+                        }
+                        default -> throw new IOException("Unknown record tag " + tag);
+                    }
+                }
+            } catch (EOFException e) {
+                throw new IOException("The export ends early; it may not have been written completely", e);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown transaction type: " + e.getMessage(), e);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private UUID readUuid() throws IOException {
+            return new UUID(in.readLong(), in.readLong());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.CodeerStudio.simpleBanking.transfer;
+
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.util.Money;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The CSV export format. Every line is one record, whose first column says what it is:
+ * <pre>
+ * account,&lt;uuid&gt;,&lt;balance&gt;[,&lt;last accrued period&gt;]
+ * entry,&lt;uuid&gt;,&lt;amount&gt;,&lt;type&gt;,&lt;actor&gt;,&lt;epoch millis&gt;,&lt;balance after&gt;
+ * </pre>
+ * Amounts are written in currency units, such as {@code 12.50}. Empty lines and lines starting with
+ * {@code #} are skipped, so a hand-written file of {@code account} lines can be imported as well.
+ */
+final class CsvTransfer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String ACCOUNT = "account";
+    private static final String ENTRY = "entry";
+
+    private CsvTransfer() {
+    }
+
+    static final class Writer implements TransferWriter {
+
+        private final BufferedWriter out;
+
+        Writer(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.out.write("# account,uuid,balance,last_accrued");
+            this.out.newLine();
+            this.out.write("# entry,uuid,amount,type,actor,timestamp,balance_after");
+            this.out.newLine();
+        }
+
+        @Override
+        public void writeAccount(AccountRecord account) throws IOException {
+            out.write(ACCOUNT);
+            out.write(',');
+            out.write(account.uuid().toString());
+            out.write(',');
+            out.write(Money.format(account.balance()));
+            out.write(',');
+            if (account.lastAccrued() != null) {
+                out.write(Long.toString(account.lastAccrued()));
+            }
+            out.newLine();
+        }
+
+        @Override
+        public void writeEntry(LedgerEntry entry) throws IOException {
+            out.write(ENTRY);
+            out.write(',');
+            out.write(entry.uuid().toString());
+            out.write(',');
+            out.write(Money.format(entry.amount()));
+            out.write(',');
+            out.write(entry.type().name());
+            out.write(',');
+            if (entry.actor() != null) {
+                writeQuoted(entry.actor());
+            }
+            out.write(',');
+            out.write(Long.toString(entry.timestamp()));
+            out.write(',');
+            out.write(Money.format(entry.balanceAfter()));
+            out.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                // Records are read line by line, so line breaks can't be kept
+                out.write(c == '\n' || c == '\r' ? ' ' : c);
+            }
+            out.write('"');
+        }
+    }
+
+    static final class Reader implements TransferReader {
+
+        private final BufferedReader in;
+        private final List<String> columns = new ArrayList<>();
+        private final StringBuilder column = new StringBuilder();
+        private long lineNumber;
+
+        Reader(InputStream in) {
+            this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public int read(int limit, Visitor visitor) throws IOException {
+            int count = 0;
+            String line;
+            while (count < limit && (line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    split(line);
+                    parse(visitor);
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void parse(Visitor visitor) {
+            String kind = columns.get(0).trim();
+            if (kind.equals(ACCOUNT) && (columns.size() == 3 || columns.size() == 4)) {
+                String lastAccrued = columns.size() == 4 ? columns.get(3).trim() : "";
+                visitor.account(new AccountRecord(
+                        UUID.fromString(columns.get(1).trim()),
+                        Money.parse(columns.get(2)),
+                        lastAccrued.isEmpty() ? null : Long.parseLong(lastAccrued)));
+            } else if (kind.equals(ENTRY) && columns.size() == 7) {
+                String actor = columns.get(4);
+                visitor.entry(new LedgerEntry(
+                        UUID.fromString(columns.get(1).trim()),
+                        Money.parse(columns.get(2)),
+                        TransactionType.valueOf(columns.get(3).trim()),
+                        actor.isEmpty() ? null : actor,
+                        Long.parseLong(columns.get(5).trim()),
+                        Money.parse(columns.get(6))));
+            } else {
+                throw new IllegalArgumentException("not an account or entry record");
+            }
+        }
+
+        /**
+         * Splits a line into its columns, undoing the quoting of {@link Writer#writeQuoted}.
+         */
+        private void split(String line) {
+            columns.clear();
+            column.setLength(0);
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        column.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        column.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    columns.add(column.toString());
+                    column.setLength(0);
+                } else {
+                    column.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("unterminated quote");
+            }
+            columns.add(column.toString());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.CodeerStudio.simpleBanking.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * The file formats balances and history can be exported to and imported from.
+ */
+public enum TransferFormat {
+
+    /**
+     * Plain text, one record per line, for reading or writing with other tools.
+     */
+    CSV {
+        @Override
+        public TransferWriter writer(OutputStream out) throws IOException {
+            return new CsvTransfer.Writer(out);
+        }
+
+        @Override
+        public TransferReader reader(InputStream in) throws IOException {
+            return new CsvTransfer.Reader(in);
+        }
+    },
+
+    /**
+     * Compressed binary records, the smallest and fastest format.
+     */
+    BINARY {
+        @Override
+        public TransferWriter writer(OutputStream out) throws IOException {
+            return new BinaryTransfer.Writer(out);
+        }
+
+        @Override
+        public TransferReader reader(InputStream in) throws IOException {
+            return new BinaryTransfer.Reader(in);
+        }
+    };
+
+    /**
+     * Picks the format of a file by its name: CSV for {@code .csv} files, binary for anything else.
+     *
+     * @param fileName The name of the file.
+     * @return The format.
+     */
+    public static TransferFormat forFile(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : BINARY;
+    }
+
+    /**
+     * Starts writing a file in this format.
+     *
+     * @param out The stream to write to, which is closed with the writer.
+     * @return The writer.
+     * @throws IOException If the file header could not be written.
+     */
+    public abstract TransferWriter writer(OutputStream out) throws IOException;
+
+    /**
+     * Starts reading a file in this format.
+     *
+     * @param in The stream to read from, which is closed with the reader.
+     * @return The reader.
+     * @throws IOException If the file header could not be read or is not of this format.
+     */
+    public abstract TransferReader reader(InputStream in) throws IOException;
+}
@@ -0,0 +1,39 @@
+package io.github.CodeerStudio.simpleBanking.transfer;
+
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads accounts and ledger entries back from an export file, a limited number at a time.
+ */
+public interface TransferReader extends Closeable {
+
+    /**
+     * Reads the next records.
+     *
+     * @param limit   The most records to read.
+     * @param visitor Receives the records, in file order.
+     * @return The number of records read, or 0 at the end of the file.
+     * @throws IOException If the file could not be read or is malformed.
+     */
+    int read(int limit, Visitor visitor) throws IOException;
+
+    /**
+     * Receives the records of an export file.
+     */
+    interface Visitor {
+
+        /**
+         * @param account An account. Its version is not exported.
+         */
+        void account(AccountRecord account);
+
+        /**
+         * @param entry A ledger entry.
+         */
+        void entry(LedgerEntry entry);
+    }
+}
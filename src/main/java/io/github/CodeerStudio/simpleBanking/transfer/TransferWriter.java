@@ -0,0 +1,37 @@
+package io.github.CodeerStudio.simpleBanking.transfer;
+
+import io.github.CodeerStudio.simpleBanking.ledger.LedgerEntry;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes accounts and ledger entries to an export file, one record at a time.
+ */
+public interface TransferWriter extends Closeable {
+
+    /**
+     * Writes one account.
+     *
+     * @param account The account.
+     * @throws IOException If the record could not be written.
+     */
+    void writeAccount(AccountRecord account) throws IOException;
+
+    /**
+     * Writes one ledger entry. Entries are written in the order they were recorded.
+     *
+     * @param entry The entry.
+     * @throws IOException If the record could not be written.
+     */
+    void writeEntry(LedgerEntry entry) throws IOException;
+
+    /**
+     * Completes the file and closes it.
+     *
+     * @throws IOException If the file could not be completed.
+     */
+    @Override
+    void close() throws IOException;
+}
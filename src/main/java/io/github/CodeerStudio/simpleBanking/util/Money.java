@@ -0,0 +1,86 @@
+package io.github.CodeerStudio.simpleBanking.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions between bank amounts and text or Vault values.
+ *
+ * Bank amounts are stored as whole cents in a {@code long}, so sums never drift the way
+ * {@code double} arithmetic does. Vault still works in {@code double}, so amounts are only
+ * converted at that boundary.
+ */
+public final class Money {
+
+    // Number of decimal places an amount may have
+    public static final int DECIMAL_PLACES = 2;
+
+    // Number of cents in one unit of currency
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Parses an amount typed by a player or admin, such as {@code "12.5"}.
+     *
+     * @param input The text to parse.
+     * @return The amount in cents.
+     * @throws NumberFormatException    If the text is not a number.
+     * @throws TooManyDecimalsException If the number has more than two decimal places.
+     * @throws ArithmeticException      If the number is too large.
+     */
+    public static long parse(String input) {
+        BigDecimal amount = new BigDecimal(input.trim());
+        if (amount.stripTrailingZeros().scale() > DECIMAL_PLACES) {
+            throw new TooManyDecimalsException(input.trim());
+        }
+        return amount.movePointRight(DECIMAL_PLACES).longValueExact();
+    }
+
+    /**
+     * Formats an amount in cents for display, such as {@code 1250} as {@code "12.50"}.
+     *
+     * @param cents The amount in cents.
+     * @return The formatted amount.
+     */
+    public static String format(long cents) {
+        return BigDecimal.valueOf(cents, DECIMAL_PLACES).toPlainString();
+    }
+
+    /**
+     * Converts an amount in cents to the {@code double} value Vault expects.
+     *
+     * @param cents The amount in cents.
+     * @return The amount in currency units.
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Converts a {@code double} value from Vault to cents, rounding to the nearest cent.
+     *
+     * @param amount The amount in currency units.
+     * @return The amount in cents.
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Thrown by {@link #parse} for an amount with fractions of a cent. It is an
+     * {@link ArithmeticException} like the one for amounts that are too large, so callers that
+     * don't tell the two apart can catch both at once.
+     */
+    public static class TooManyDecimalsException extends ArithmeticException {
+
+        /**
+         * Constructs a new TooManyDecimalsException.
+         *
+         * @param input The amount that was parsed.
+         */
+        public TooManyDecimalsException(String input) {
+            super(input + " has more than " + DECIMAL_PLACES + " decimal places");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.CodeerStudio.simpleBanking;
+
+import io.github.CodeerStudio.simpleBanking.cache.AccountCache;
+import io.github.CodeerStudio.simpleBanking.leaderboard.Leaderboard;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionLedger;
+import io.github.CodeerStudio.simpleBanking.metrics.BankMetrics;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.DatabaseExecutor;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import org.bukkit.plugin.java.JavaPlugin;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * The banking engine wired the way onEnable wires it, without a Minecraft server, for tests: a
+ * plugin instance with the executor, ledger and account cache over a given storage.
+ *
+ * Several banks may share one storage, like servers in a cluster, so closing a bank leaves the
+ * storage open.
+ */
+public final class TestBank implements AutoCloseable {
+
+    public final SimpleBanking plugin;
+    public final BankStorage storage;
+    public final DatabaseExecutor databaseExecutor;
+    public final TransactionLedger ledger;
+    public final AccountCache accountCache;
+
+    /**
+     * Creates the bank over an open storage.
+     *
+     * @param storage     The storage, already opened.
+     * @param writeBehind {@code true} for write-behind caching, {@code false} for write-through.
+     * @throws SQLException If the ledger could not be recovered.
+     */
+    public TestBank(BankStorage storage, boolean writeBehind) throws SQLException {
+        this.storage = storage;
+        plugin = plugin();
+        setField(plugin, "metrics", new BankMetrics(plugin));
+        setField(plugin, "storage", storage);
+
+        databaseExecutor = new DatabaseExecutor(plugin, storage.getReadThreads());
+        ledger = new TransactionLedger(plugin, databaseExecutor);
+        ledger.recover(plugin.getLogger());
+        ledger.start(50);
+        accountCache = new AccountCache(plugin, databaseExecutor, ledger, writeBehind, 16, 1L << 20);
+
+        setField(plugin, "databaseExecutor", databaseExecutor);
+        setField(plugin, "ledger", ledger);
+        setField(plugin, "accountCache", accountCache);
+    }
+
+    /**
+     * Opens flat file storage in a directory.
+     *
+     * @param directory The directory to keep the files in.
+     * @return The opened storage.
+     * @throws SQLException If the files could not be opened.
+     */
+    public static FlatFileStorage openFlatFile(Path directory) throws SQLException {
+        FlatFileStorage storage = new FlatFileStorage(directory.toFile(), 2);
+        storage.open(Logger.getLogger("SimpleBanking-Test"));
+        return storage;
+    }
+
+    /**
+     * Gives the bank a leaderboard, which the account cache then keeps up to date.
+     *
+     * @param tracked The number of accounts the board holds.
+     * @return The leaderboard.
+     */
+    public Leaderboard installLeaderboard(int tracked) {
+        Leaderboard leaderboard = new Leaderboard(plugin, tracked);
+        setField(plugin, "leaderboard", leaderboard);
+        return leaderboard;
+    }
+
+    /**
+     * Flushes and stops the cache, the ledger and the executor. The storage stays open.
+     */
+    @Override
+    public void close() {
+        accountCache.stop().join();
+        ledger.stop().join();
+        databaseExecutor.shutdown(30);
+    }
+
+    /**
+     * Allocates a plugin instance without running the JavaPlugin constructor, which refuses to run
+     * outside a server. The plugin reports itself as disabled, so main thread work runs inline.
+     */
+    private static SimpleBanking plugin() {
+        try {
+            Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            SimpleBanking plugin = (SimpleBanking) ((Unsafe) unsafeField.get(null)).allocateInstance(SimpleBanking.class);
+
+            Logger logger = Logger.getLogger("SimpleBanking-Test");
+            for (Field field : JavaPlugin.class.getDeclaredFields()) {
+                if (field.getType().isAssignableFrom(Logger.class)) {
+                    field.setAccessible(true);
+                    field.set(plugin, logger);
+                }
+            }
+            return plugin;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the test plugin", e);
+        }
+    }
+
+    private static void setField(SimpleBanking plugin, String name, Object value) {
+        try {
+            Field field = SimpleBanking.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(plugin, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not set SimpleBanking." + name, e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import io.github.CodeerStudio.simpleBanking.TestBank;
+import io.github.CodeerStudio.simpleBanking.cluster.ClusterChannel;
+import io.github.CodeerStudio.simpleBanking.cluster.LocalClusterChannel;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Two servers sharing one storage, with their caches kept coherent through a cluster channel.
+ */
+class AccountCacheClusterTest {
+
+    // The number of compare-and-set attempts before a change gives up, AccountCache.MAX_CAS_ATTEMPTS
+    private static final int MAX_CAS_ATTEMPTS = 5;
+
+    @TempDir
+    Path directory;
+
+    private final String cluster = "test-" + UUID.randomUUID();
+    private final UUID uuid = UUID.randomUUID();
+    private final List<TestBank> banks = new ArrayList<>();
+    private final List<ClusterChannel> channels = new ArrayList<>();
+
+    // Fails this many compare-and-sets before letting them through, or -1 to never fail
+    private final AtomicInteger failures = new AtomicInteger(-1);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private FlatFileStorage storage;
+
+    @BeforeEach
+    void open() throws SQLException {
+        storage = TestBank.openFlatFile(directory);
+        storage.saveAccounts(List.of(new AccountRecord(uuid, 1000, null)), 0);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        for (TestBank bank : banks) {
+            bank.close();
+        }
+        for (ClusterChannel channel : channels) {
+            channel.close();
+        }
+        storage.close();
+    }
+
+    /**
+     * Starts a server on the shared storage and joins it to the cluster.
+     */
+    private AccountCache join(BankStorage storage) throws SQLException, IOException {
+        TestBank bank = new TestBank(storage, false);
+        banks.add(bank);
+        LocalClusterChannel channel = new LocalClusterChannel(cluster);
+        channels.add(channel);
+        bank.accountCache.joinCluster(channel);
+        return bank.accountCache;
+    }
+
+    /**
+     * Wraps the storage so compare-and-sets are counted, and the first {@link #failures} of them
+     * refused as if another server had changed the account meanwhile.
+     */
+    private BankStorage contended() {
+        return (BankStorage) Proxy.newProxyInstance(BankStorage.class.getClassLoader(), new Class<?>[]{BankStorage.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("compareAndSet")) {
+                        attempts.incrementAndGet();
+                        if (failures.getAndUpdate(left -> left > 0 ? left - 1 : left) != 0) {
+                            return 0L;
+                        }
+                    }
+                    try {
+                        return method.invoke(storage, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Test
+    void changesReachTheOtherServersCache() throws Exception {
+        AccountCache first = join(storage);
+        AccountCache second = join(storage);
+        assertEquals(1000L, second.getBalance(uuid).join());
+
+        first.deposit(uuid, 250, TransactionType.DEPOSIT, null).join();
+        assertEquals(1250L, second.peekBalance(uuid));
+
+        assertEquals(true, second.withdraw(uuid, 1250, TransactionType.WITHDRAW, null).join());
+        assertEquals(0L, first.peekBalance(uuid));
+    }
+
+    @Test
+    void changesWithAnUnknownVersionDropTheCachedCopy() throws Exception {
+        AccountCache cache = join(storage);
+        assertEquals(1000L, cache.getBalance(uuid).join());
+
+        LocalClusterChannel other = new LocalClusterChannel(cluster);
+        channels.add(other);
+        other.start(null);
+        other.publish(uuid, 5, 0);
+
+        assertNull(cache.peekBalance(uuid));
+        assertEquals(1000L, cache.getBalance(uuid).join());
+    }
+
+    @Test
+    void olderChangesAreIgnored() throws Exception {
+        AccountCache cache = join(storage);
+        cache.deposit(uuid, 1, TransactionType.DEPOSIT, null).join();
+        long version = storage.loadAccount(uuid).version();
+
+        LocalClusterChannel other = new LocalClusterChannel(cluster);
+        channels.add(other);
+        other.start(null);
+        other.publish(uuid, 5, version - 1);
+        other.publish(uuid, 5, version);
+        assertEquals(1001L, cache.peekBalance(uuid));
+
+        other.publish(uuid, 7, version + 1);
+        assertEquals(7L, cache.peekBalance(uuid));
+    }
+
+    @Test
+    void staleCopiesAreReadAgainAndTheChangeRetried() throws Exception {
+        AccountCache cache = join(storage);
+        assertEquals(1000L, cache.getBalance(uuid).join());
+
+        // Another server changes the account, and its announcement is lost
+        AccountRecord stored = storage.loadAccount(uuid);
+        storage.compareAndSet(uuid, stored.version(), 2000, 1000, TransactionType.ADMIN_GIVE, "other");
+        assertEquals(1000L, cache.peekBalance(uuid));
+
+        assertEquals(2100L, cache.deposit(uuid, 100, TransactionType.DEPOSIT, null).join());
+        assertEquals(2100L, storage.loadAccount(uuid).balance());
+        assertEquals(2100L, cache.peekBalance(uuid));
+    }
+
+    @Test
+    void contendedChangesRetryUntilTheyGetThrough() throws Exception {
+        AccountCache cache = join(contended());
+        failures.set(MAX_CAS_ATTEMPTS - 1);
+
+        assertEquals(1100L, cache.deposit(uuid, 100, TransactionType.DEPOSIT, null).join());
+        assertEquals(MAX_CAS_ATTEMPTS, attempts.get());
+        assertEquals(1100L, storage.loadAccount(uuid).balance());
+    }
+
+    @Test
+    void changesGiveUpAfterTooManyAttempts() throws Exception {
+        AccountCache cache = join(contended());
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> cache.deposit(uuid, 100, TransactionType.DEPOSIT, null).join());
+        assertInstanceOf(SQLException.class, error.getCause());
+        assertEquals(MAX_CAS_ATTEMPTS, attempts.get());
+        assertEquals(1000L, storage.loadAccount(uuid).balance());
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import io.github.CodeerStudio.simpleBanking.TestBank;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionHistory;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountCacheImportTest {
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path crashed;
+
+    private final UUID existing = UUID.randomUUID();
+    private final UUID created = UUID.randomUUID();
+
+    private FlatFileStorage storage;
+    private TestBank bank;
+
+    @BeforeEach
+    void open() throws SQLException {
+        storage = TestBank.openFlatFile(directory.resolve("bank"));
+        storage.saveAccounts(List.of(new AccountRecord(existing, 100, null)), 0);
+        bank = new TestBank(storage, true);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        bank.close();
+        storage.close();
+    }
+
+    private void importAccounts() {
+        bank.databaseExecutor.run(() -> bank.accountCache.importAccounts(List.of(
+                new AccountRecord(existing, 500, null),
+                new AccountRecord(created, 70, null)), "admin")).join();
+    }
+
+    @Test
+    void importsReplaceBalancesChangedInMemory() {
+        bank.accountCache.deposit(existing, 50, TransactionType.DEPOSIT, null).join();
+        importAccounts();
+
+        assertEquals(500L, bank.accountCache.getBalance(existing).join());
+        assertEquals(70L, bank.accountCache.getBalance(created).join());
+    }
+
+    @Test
+    void importsAreRecordedInTheLedger() {
+        bank.accountCache.deposit(existing, 50, TransactionType.DEPOSIT, null).join();
+        importAccounts();
+
+        TransactionHistory history = new TransactionHistory(bank.databaseExecutor, storage);
+        List<TransactionHistory.Entry> entries = history.fetch(existing, null, 10).join().entries();
+        assertEquals(2, entries.size());
+        assertEquals(TransactionType.ADMIN_SET, entries.get(0).type());
+        assertEquals(500L, entries.get(0).balanceAfter());
+        assertEquals(TransactionType.DEPOSIT, entries.get(1).type());
+
+        TransactionHistory.Entry entry = history.fetch(created, null, 10).join().entries().get(0);
+        assertEquals(TransactionType.ADMIN_SET, entry.type());
+        assertEquals(70L, entry.amount());
+
+        // The next checkpoint covers the import's entries
+        assertEquals(storage.getLastLedgerId(), bank.ledger.getLastCommittedId());
+    }
+
+    @Test
+    void importsSurviveACrashBeforeTheNextFlush() throws IOException, SQLException {
+        bank.accountCache.deposit(existing, 50, TransactionType.DEPOSIT, null).join();
+        importAccounts();
+
+        // Copy the files as a crash would leave them, with the deposit never flushed
+        try (Stream<Path> files = Files.list(directory.resolve("bank"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, crashed.resolve(file.getFileName()));
+            }
+        }
+
+        FlatFileStorage restarted = TestBank.openFlatFile(crashed);
+        try {
+            restarted.recover(Logger.getLogger("SimpleBanking-Test"));
+            assertEquals(500L, restarted.loadAccount(existing).balance());
+            assertEquals(70L, restarted.loadAccount(created).balance());
+        } finally {
+            restarted.close();
+        }
+    }
+}
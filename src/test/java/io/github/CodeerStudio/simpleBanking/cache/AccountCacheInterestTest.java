@@ -0,0 +1,60 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import io.github.CodeerStudio.simpleBanking.TestBank;
+import io.github.CodeerStudio.simpleBanking.interest.InterestPolicy;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountCacheInterestTest {
+
+    // 10% per period, one period at a time
+    private static final InterestPolicy POLICY = new InterestPolicy(1000, 1, 0,
+            List.of(new InterestPolicy.Tier(0, BigDecimal.TEN)));
+
+    @TempDir
+    Path directory;
+
+    private final UUID rich = UUID.randomUUID();
+    private final UUID saver = UUID.randomUUID();
+
+    @Test
+    void writeBehindCapsBalancesThatWouldOverflow() throws Exception {
+        accrue(true);
+    }
+
+    @Test
+    void writeThroughCapsBalancesThatWouldOverflow() throws Exception {
+        accrue(false);
+    }
+
+    private void accrue(boolean writeBehind) throws Exception {
+        FlatFileStorage storage = TestBank.openFlatFile(directory);
+        storage.saveAccounts(List.of(
+                new AccountRecord(rich, Long.MAX_VALUE - 5, 0L),
+                new AccountRecord(saver, 100_00, 0L)), 0);
+
+        try (TestBank bank = new TestBank(storage, writeBehind)) {
+            bank.accountCache.preload(rich).join();
+            bank.accountCache.preload(saver).join();
+
+            Map<UUID, Long> credited = bank.databaseExecutor.write(
+                    () -> bank.accountCache.accrueInterest(POLICY, List.of(rich, saver), 1)).join();
+
+            assertEquals(Map.of(rich, 5L, saver, 10_00L), credited);
+            assertEquals(Long.MAX_VALUE, bank.accountCache.getBalance(rich).join());
+            assertEquals(110_00L, bank.accountCache.getBalance(saver).join());
+        } finally {
+            storage.close();
+        }
+    }
+}
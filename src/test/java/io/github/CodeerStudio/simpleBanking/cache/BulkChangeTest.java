@@ -0,0 +1,39 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkChangeTest {
+
+    @Test
+    void giveAddsAndCreatesMissingAccounts() {
+        BulkChange give = new BulkChange(BulkChange.Kind.GIVE, 250, "admin");
+        assertEquals(1250L, give.applyTo(1000L));
+        assertEquals(250L, give.applyTo(null));
+    }
+
+    @Test
+    void giveRefusesToOverflow() {
+        BulkChange give = new BulkChange(BulkChange.Kind.GIVE, 1, "admin");
+        assertThrows(ArithmeticException.class, () -> give.applyTo(Long.MAX_VALUE));
+    }
+
+    @Test
+    void takeNeedsAnAccountWithEnoughMoney() {
+        BulkChange take = new BulkChange(BulkChange.Kind.TAKE, 300, "admin");
+        assertEquals(700L, take.applyTo(1000L));
+        assertEquals(0L, take.applyTo(300L));
+        assertNull(take.applyTo(299L));
+        assertNull(take.applyTo(null));
+    }
+
+    @Test
+    void setReplacesTheBalance() {
+        BulkChange set = new BulkChange(BulkChange.Kind.SET, 500, "admin");
+        assertEquals(500L, set.applyTo(1000L));
+        assertEquals(500L, set.applyTo(null));
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruSetTest {
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+
+    @Test
+    void reportsWhenOverCapacity() {
+        LruSet set = new LruSet(2);
+        assertFalse(set.touch(first));
+        assertFalse(set.touch(second));
+        assertTrue(set.touch(third));
+        assertEquals(3, set.size());
+        assertEquals(1, set.excess());
+    }
+
+    @Test
+    void neverDropsEntriesByItself() {
+        LruSet set = new LruSet(0);
+        assertTrue(set.touch(first));
+        assertTrue(set.touch(second));
+        assertEquals(2, set.size());
+        assertEquals(2, set.excess());
+    }
+
+    @Test
+    void touchingMovesAnEntryToTheBack() {
+        LruSet set = new LruSet(3);
+        set.touch(first);
+        set.touch(second);
+        set.touch(third);
+        set.touch(first);
+        assertEquals(List.of(second, third, first), set.eldest(3));
+    }
+
+    @Test
+    void eldestLeavesTheOrderAlone() {
+        LruSet set = new LruSet(3);
+        set.touch(first);
+        set.touch(second);
+        assertEquals(List.of(first), set.eldest(1));
+        assertEquals(List.of(first, second), set.eldest(5));
+    }
+
+    @Test
+    void removedEntriesAreGone() {
+        LruSet set = new LruSet(1);
+        set.touch(first);
+        set.touch(second);
+        set.remove(first);
+        set.remove(third);
+        assertEquals(List.of(second), set.eldest(2));
+        assertEquals(0, set.excess());
+    }
+}
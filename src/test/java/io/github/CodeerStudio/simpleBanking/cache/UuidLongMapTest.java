@@ -0,0 +1,85 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidLongMapTest {
+
+    private static final UUID NIL = new UUID(0, 0);
+
+    @Test
+    void putsGetsAndReplaces() {
+        UuidLongMap map = new UuidLongMap(4);
+        UUID uuid = UUID.randomUUID();
+        assertEquals(-1L, map.get(uuid, -1));
+        assertFalse(map.containsKey(uuid));
+
+        map.put(uuid, 5);
+        map.put(uuid, 7);
+        assertEquals(7L, map.get(uuid, -1));
+        assertTrue(map.containsKey(uuid));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void keepsTheNilUuidApart() {
+        UuidLongMap map = new UuidLongMap(4);
+        map.put(NIL, 42);
+        assertTrue(map.containsKey(NIL));
+        assertEquals(42L, map.get(NIL, -1));
+        assertEquals(1, map.size());
+
+        assertTrue(map.remove(NIL));
+        assertFalse(map.remove(NIL));
+        assertEquals(-1L, map.get(NIL, -1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void growsAndShrinksLikeAHashMap() {
+        // Sequential UUIDs collide into long probe chains, which removal has to keep intact
+        Random random = new Random(1);
+        UuidLongMap map = new UuidLongMap(1);
+        Map<UUID, Long> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            UUID uuid = random.nextBoolean() ? new UUID(i % 300, 1) : new UUID(random.nextInt(50), random.nextInt(50));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(uuid) != null, map.remove(uuid));
+            } else {
+                long value = random.nextLong();
+                map.put(uuid, value);
+                expected.put(uuid, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<UUID, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), map.get(entry.getKey(), 0));
+        }
+
+        Map<UUID, Long> visited = new HashMap<>();
+        map.forEach((most, least, value) -> visited.put(new UUID(most, least), value));
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        UuidLongMap map = new UuidLongMap(100);
+        for (int i = 1; i <= 100; i++) {
+            map.put(new UUID(i, i), i);
+        }
+        map.put(NIL, 1);
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(new UUID(1, 1)));
+        assertFalse(map.containsKey(NIL));
+    }
+}
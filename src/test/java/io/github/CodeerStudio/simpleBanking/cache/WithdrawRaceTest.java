@@ -0,0 +1,135 @@
+package io.github.CodeerStudio.simpleBanking.cache;
+
+import io.github.CodeerStudio.simpleBanking.TestBank;
+import io.github.CodeerStudio.simpleBanking.ledger.TransactionType;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.BankStorage;
+import io.github.CodeerStudio.simpleBanking.storage.SQLiteDatabase;
+import io.github.CodeerStudio.simpleBanking.storage.SQLiteStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Races many threads withdrawing from one account, and checks that it is never overdrawn. The
+ * threads ask for far more than the account holds, so most withdrawals are refused and the last
+ * cents are fought over: exactly as many withdrawals as the balance covers must go through, in
+ * the cache and in the storage.
+ */
+class WithdrawRaceTest {
+
+    private static final int THREADS = 8;
+    private static final int WITHDRAWALS = 200;
+    private static final long AMOUNT = 1_00L;
+    // Enough for 100 of the 1600 withdrawals
+    private static final long STARTING_BALANCE = 100_00L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeBehindFlatFileIsNeverOverdrawn() throws Exception {
+        race(TestBank.openFlatFile(directory), true);
+    }
+
+    @Test
+    void writeThroughFlatFileIsNeverOverdrawn() throws Exception {
+        race(TestBank.openFlatFile(directory), false);
+    }
+
+    @Test
+    void writeBehindSqliteIsNeverOverdrawn() throws Exception {
+        race(openSqlite(), true);
+    }
+
+    @Test
+    void writeThroughSqliteIsNeverOverdrawn() throws Exception {
+        race(openSqlite(), false);
+    }
+
+    private BankStorage openSqlite() throws SQLException {
+        SQLiteStorage storage = new SQLiteStorage(new SQLiteDatabase(directory.resolve("bank.db").toFile(), 2, 0));
+        storage.open(Logger.getLogger("SimpleBanking-Test"));
+        return storage;
+    }
+
+    private void race(BankStorage storage, boolean writeBehind) throws Exception {
+        UUID uuid = UUID.randomUUID();
+        storage.saveAccounts(List.of(new AccountRecord(uuid, STARTING_BALANCE, null)), 0);
+
+        LongAdder accepted = new LongAdder();
+        LongAdder refused = new LongAdder();
+        AtomicLong lowest = new AtomicLong(STARTING_BALANCE);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        long cached;
+
+        try (TestBank bank = new TestBank(storage, writeBehind)) {
+            AccountCache accountCache = bank.accountCache;
+            accountCache.preload(uuid).join();
+
+            CountDownLatch go = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        go.await();
+                        for (int i = 0; i < WITHDRAWALS; i++) {
+                            if (accountCache.withdraw(uuid, AMOUNT, TransactionType.WITHDRAW, null).join()) {
+                                accepted.increment();
+                            } else {
+                                refused.increment();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }, "WithdrawRace " + t);
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            // Watch the balance while the threads run, to catch it dipping below zero on the way
+            Thread watcher = new Thread(() -> {
+                while (done.getCount() > 0) {
+                    Long balance = accountCache.peekBalance(uuid);
+                    if (balance != null) {
+                        lowest.accumulateAndGet(balance, Math::min);
+                    }
+                }
+            }, "WithdrawRace Watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+
+            go.countDown();
+            done.await();
+            watcher.join();
+            cached = accountCache.getBalance(uuid).join();
+        }
+
+        try {
+            assertNull(error.get(), "no withdrawal failed");
+            assertEquals(STARTING_BALANCE / AMOUNT, accepted.sum(), "withdrawals accepted");
+            assertEquals(THREADS * WITHDRAWALS - STARTING_BALANCE / AMOUNT, refused.sum(), "withdrawals refused");
+            assertTrue(lowest.get() >= 0, "the balance dropped to " + lowest.get());
+            assertEquals(0L, cached, "cached balance");
+            assertEquals(0L, storage.loadAccount(uuid).balance(), "stored balance");
+        } finally {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.CodeerStudio.simpleBanking.leaderboard;
+
+import io.github.CodeerStudio.simpleBanking.TestBank;
+import io.github.CodeerStudio.simpleBanking.storage.AccountRecord;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeaderboardTest {
+
+    @TempDir
+    Path directory;
+
+    private FlatFileStorage storage;
+    private TestBank bank;
+
+    @AfterEach
+    void close() throws SQLException {
+        bank.close();
+        storage.close();
+    }
+
+    /**
+     * Opens a write-through bank whose accounts hold the given balances, and seeds its board.
+     */
+    private Leaderboard seed(int tracked, long... balances) throws SQLException {
+        storage = TestBank.openFlatFile(directory);
+        List<AccountRecord> accounts = new ArrayList<>();
+        for (long balance : balances) {
+            accounts.add(new AccountRecord(UUID.randomUUID(), balance, null));
+        }
+        storage.saveAccounts(accounts, 0);
+
+        bank = new TestBank(storage, false);
+        Leaderboard leaderboard = bank.installLeaderboard(tracked);
+        leaderboard.reseed().join();
+        return leaderboard;
+    }
+
+    private UUID owner(long balance) throws SQLException {
+        for (AccountRecord account : storage.richestAccounts(Integer.MAX_VALUE)) {
+            if (account.balance() == balance) {
+                return account.uuid();
+            }
+        }
+        throw new AssertionError("No account holds " + balance);
+    }
+
+    private List<Long> balances(List<Leaderboard.Entry> entries) {
+        List<Long> balances = new ArrayList<>();
+        for (Leaderboard.Entry entry : entries) {
+            balances.add(entry.balance());
+        }
+        return balances;
+    }
+
+    @Test
+    void showsOnlyAccountsAboveTheFloor() throws SQLException {
+        Leaderboard leaderboard = seed(4, 100, 200, 300, 400, 500);
+
+        // The fourth tracked account sets the floor, so it isn't shown
+        assertEquals(List.of(500L, 400L, 300L), balances(leaderboard.top(3)));
+        assertEquals(1L, leaderboard.rankOf(owner(500)).join());
+        assertEquals(3L, leaderboard.rankOf(owner(300)).join());
+    }
+
+    @Test
+    void changesBelowTheFloorLeaveTheBoardAlone() throws SQLException {
+        Leaderboard leaderboard = seed(4, 100, 200, 300, 400, 500);
+        UUID poorest = owner(100);
+
+        bank.accountCache.setBalance(poorest, 150, "test").join();
+        assertEquals(List.of(500L, 400L, 300L), balances(leaderboard.top(3)));
+
+        // Ranks below the board are counted by the storage
+        assertEquals(5L, leaderboard.rankOf(poorest).join());
+    }
+
+    @Test
+    void accountsRisingAboveTheFloorJoinTheBoard() throws SQLException {
+        Leaderboard leaderboard = seed(4, 100, 200, 300, 400, 500);
+        UUID poorest = owner(100);
+
+        bank.accountCache.setBalance(poorest, 450, "test").join();
+        assertEquals(List.of(500L, 450L, 400L), balances(leaderboard.top(3)));
+        assertEquals(2L, leaderboard.rankOf(poorest).join());
+    }
+
+    @Test
+    void trackedAccountsFallingToTheFloorAreHidden() throws SQLException {
+        Leaderboard leaderboard = seed(4, 100, 200, 300, 400, 500);
+
+        bank.accountCache.setBalance(owner(500), 150, "test").join();
+        assertEquals(List.of(400L, 300L), balances(leaderboard.top(2)));
+    }
+
+    @Test
+    void smallBanksShowEveryAccount() throws SQLException {
+        Leaderboard leaderboard = seed(10, 100, 200, 300);
+        assertEquals(List.of(300L, 200L, 100L), balances(leaderboard.top(5)));
+
+        bank.accountCache.setBalance(UUID.randomUUID(), 1, "test").join();
+        assertEquals(List.of(300L, 200L, 100L, 1L), balances(leaderboard.top(5)));
+    }
+}
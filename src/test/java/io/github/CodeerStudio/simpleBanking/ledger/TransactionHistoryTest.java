@@ -0,0 +1,119 @@
+package io.github.CodeerStudio.simpleBanking.ledger;
+
+import io.github.CodeerStudio.simpleBanking.TestBank;
+import io.github.CodeerStudio.simpleBanking.storage.FlatFileStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionHistoryTest {
+
+    @TempDir
+    Path directory;
+
+    private final UUID owner = UUID.randomUUID();
+    private final UUID other = UUID.randomUUID();
+
+    private FlatFileStorage storage;
+    private TestBank bank;
+    private TransactionHistory history;
+
+    @BeforeEach
+    void open() throws SQLException {
+        storage = TestBank.openFlatFile(directory);
+        bank = new TestBank(storage, true);
+        history = new TransactionHistory(bank.databaseExecutor, storage);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        bank.close();
+        storage.close();
+    }
+
+    /**
+     * Appends deposits of 1, 2, 3 ... cents to the owner's account, with the other account's
+     * entries in between. Every few entries share a timestamp.
+     */
+    private void append(int count) throws SQLException {
+        List<LedgerEntry> entries = new ArrayList<>();
+        long balance = 0;
+        for (int i = 1; i <= count; i++) {
+            long timestamp = 1_000_000 + i / 3;
+            balance += i;
+            entries.add(new LedgerEntry(owner, i, TransactionType.DEPOSIT, "test", timestamp, balance));
+            entries.add(new LedgerEntry(other, -i, TransactionType.WITHDRAW, "test", timestamp, 0));
+        }
+        storage.appendLedger(entries);
+    }
+
+    private List<TransactionHistory.Entry> readAll(int pageSize, List<Integer> pageSizes) {
+        List<TransactionHistory.Entry> entries = new ArrayList<>();
+        TransactionHistory.Cursor cursor = null;
+        do {
+            TransactionHistory.Page page = history.fetch(owner, cursor, pageSize).join();
+            pageSizes.add(page.entries().size());
+            entries.addAll(page.entries());
+            cursor = page.next();
+        } while (cursor != null);
+        return entries;
+    }
+
+    @Test
+    void pagesThroughTheWholeHistoryNewestFirst() throws SQLException {
+        append(25);
+        List<Integer> pageSizes = new ArrayList<>();
+        List<TransactionHistory.Entry> entries = readAll(10, pageSizes);
+
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(25, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            TransactionHistory.Entry entry = entries.get(i);
+            assertEquals(25L - i, entry.amount());
+            assertEquals(TransactionType.DEPOSIT, entry.type());
+            if (i > 0) {
+                assertTrue(entry.id() < entries.get(i - 1).id(), "ids descend without repeats");
+            }
+        }
+    }
+
+    @Test
+    void aFullLastPageHasNoCursor() throws SQLException {
+        append(20);
+        List<Integer> pageSizes = new ArrayList<>();
+        readAll(10, pageSizes);
+        assertEquals(List.of(10, 10), pageSizes);
+    }
+
+    @Test
+    void entriesAppendedMeanwhileDontShiftLaterPages() throws SQLException {
+        append(15);
+        TransactionHistory.Page first = history.fetch(owner, null, 10).join();
+        assertNotNull(first.next());
+
+        append(5);
+        TransactionHistory.Page second = history.fetch(owner, first.next(), 10).join();
+        assertEquals(5, second.entries().size());
+        assertEquals(5L, second.entries().get(0).amount());
+        assertNull(second.next());
+    }
+
+    @Test
+    void accountsWithoutHistoryHaveAnEmptyPage() {
+        TransactionHistory.Page page = history.fetch(UUID.randomUUID(), null, 10).join();
+        assertEquals(0, page.entries().size());
+        assertNull(page.next());
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.CodeerStudio.simpleBanking.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestLimiterTest {
+
+    private final UUID player = UUID.randomUUID();
+
+    @Test
+    void allowsABurstThenRejects() {
+        RequestLimiter limiter = new RequestLimiter(0.001, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        }
+        assertEquals(RequestLimiter.Result.REJECTED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.REJECTED_AGAIN, limiter.tryAcquire(player));
+        assertEquals(2L, limiter.getRejected());
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        RequestLimiter limiter = new RequestLimiter(20, 1);
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.REJECTED, limiter.tryAcquire(player));
+
+        // One token takes 50 ms to come back
+        Thread.sleep(120);
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.REJECTED, limiter.tryAcquire(player));
+    }
+
+    @Test
+    void refillStopsAtTheBurst() throws InterruptedException {
+        RequestLimiter limiter = new RequestLimiter(100, 2);
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+
+        // Long enough for ten tokens, of which the bucket holds two
+        Thread.sleep(100);
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.REJECTED, limiter.tryAcquire(player));
+    }
+
+    @Test
+    void playersHaveTheirOwnBuckets() {
+        RequestLimiter limiter = new RequestLimiter(0.001, 1);
+        UUID other = UUID.randomUUID();
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.REJECTED, limiter.tryAcquire(player));
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(other));
+
+        limiter.forget(player);
+        assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+    }
+
+    @Test
+    void zeroRateAllowsEverything() {
+        RequestLimiter limiter = new RequestLimiter(0, 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(RequestLimiter.Result.ALLOWED, limiter.tryAcquire(player));
+        }
+        assertEquals(0L, limiter.getRejected());
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.CodeerStudio.simpleBanking.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void parsesWholeAndDecimalAmounts() {
+        assertEquals(1200L, Money.parse("12"));
+        assertEquals(1250L, Money.parse("12.5"));
+        assertEquals(1205L, Money.parse(" 12.05 "));
+        assertEquals(1L, Money.parse("0.01"));
+        assertEquals(1200L, Money.parse("12.000"));
+        assertEquals(100000L, Money.parse("1E3"));
+    }
+
+    @Test
+    void refusesTextThatIsNotANumber() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("twelve"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+    }
+
+    @Test
+    void refusesFractionsOfCents() {
+        assertThrows(Money.TooManyDecimalsException.class, () -> Money.parse("0.001"));
+        assertThrows(Money.TooManyDecimalsException.class, () -> Money.parse("99999999999999999999.999"));
+    }
+
+    @Test
+    void refusesAmountsBeyondALong() {
+        ArithmeticException error = assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+        assertFalse(error instanceof Money.TooManyDecimalsException);
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+    }
+
+    @Test
+    void formatsWithTwoDecimalPlaces() {
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-3.00", Money.format(-300));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+    }
+
+    @Test
+    void formattedAmountsParseBack() {
+        for (long cents : new long[]{0, 1, 99, 100, 123456789, Long.MAX_VALUE}) {
+            assertEquals(cents, Money.parse(Money.format(cents)));
+        }
+    }
+
+    @Test
+    void convertsVaultValuesToTheNearestCent() {
+        assertEquals(1999L, Money.fromDouble(19.99));
+        assertEquals(10L, Money.fromDouble(0.1));
+        assertEquals(19.99, Money.toDouble(1999));
+    }
+}